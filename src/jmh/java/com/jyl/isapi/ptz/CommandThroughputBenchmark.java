@@ -0,0 +1,109 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import com.jyl.isapi.config.PtzProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端：经共享连接池向本地桩相机下发命令。
+ * Throughput 看吞吐，SampleTime 给出 p50/p90/p99 等分位；
+ * latencyMs 模拟设备响应时间，maxPerRoute 小于线程数时可看到排队等连接的代价。
+ * 每个线程使用自己的通道：同一通道的运动命令由 {@link CommandScheduler} 串行并取代排队中的旧命令，
+ * 多线程打同一通道测到的是通道队列而不是连接池。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(CommandThroughputBenchmark.THREADS)
+public class CommandThroughputBenchmark {
+    static final int THREADS = 16;
+
+    @Param({"0", "5", "20"})
+    long latencyMs;
+
+    @Param({"4", "16"})
+    int maxPerRoute;
+
+    private IsapiStubServer server;
+    private ExecutorService executor;
+    private CameraRegistry registry;
+    private PtzIsapiClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new IsapiStubServer(latencyMs);
+        PtzProperties cam = new PtzProperties("http", "127.0.0.1", server.port(), "admin", "abcd1234", 1, null, null);
+        FleetProperties fleet = new FleetProperties();
+        fleet.setMaxPerRoute(maxPerRoute);
+        fleet.setFlightRecorderFile("");
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        registry = new CameraRegistry(cam, fleet, executor, List.of(), new SimpleMeterRegistry());
+        client = registry.client(CameraRegistry.DEFAULT_ID);
+        for (int ch = 1; ch <= THREADS; ch++) {
+            client.refreshCapabilities(ch);
+        }
+    }
+
+    /**
+     * 当前线程的通道号（1..THREADS）
+     */
+    @State(Scope.Thread)
+    public static class Channel {
+        int id;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams params) {
+            id = 1 + params.getThreadIndex() % THREADS;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        registry.destroy();
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Benchmark
+    public String getStatus(Channel ch) throws IOException {
+        return client.getStatus(ch.id);
+    }
+
+    @Benchmark
+    public PtzStatus readStatus(Channel ch) throws IOException {
+        return client.readStatus(ch.id);
+    }
+
+    @Benchmark
+    public void gotoPreset(Channel ch) throws IOException {
+        client.gotoPreset(ch.id, 3);
+    }
+
+    @Benchmark
+    public void absoluteMove(Channel ch) throws IOException {
+        client.absoluteMoveDegrees(ch.id, 123.4, 12.3, 25);
+    }
+
+    @Benchmark
+    public void stop(Channel ch) throws IOException {
+        client.stop(ch.id);
+    }
+}
@@ -0,0 +1,88 @@
+package com.jyl.isapi.ptz;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 基准测试用的本地 ISAPI 桩：GET 返回固定 status/capabilities，PUT/POST 返回 200，每个请求固定延迟
+ */
+public class IsapiStubServer implements AutoCloseable {
+    static final byte[] STATUS = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <PTZStatus version="2.0" xmlns="http://www.hikvision.com/ver20/XMLSchema">
+              <AbsoluteHigh><elevation>100</elevation><azimuth>1234</azimuth><absoluteZoom>25</absoluteZoom></AbsoluteHigh>
+            </PTZStatus>
+            """.getBytes(StandardCharsets.UTF_8);
+    static final byte[] CAPABILITIES = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <PTZChanelCap version="2.0" xmlns="http://www.hikvision.com/ver20/XMLSchema">
+              <AbsolutePanTiltPositionSpace>
+                <XRange><Min>0</Min><Max>3600</Max></XRange><YRange><Min>-900</Min><Max>900</Max></YRange>
+              </AbsolutePanTiltPositionSpace>
+              <AbsoluteZoomPositionSpace><ZRange><Min>10</Min><Max>320</Max></ZRange></AbsoluteZoomPositionSpace>
+              <maxPresetNum>300</maxPresetNum>
+            </PTZChanelCap>
+            """.getBytes(StandardCharsets.UTF_8);
+    static final byte[] OK = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <ResponseStatus version="2.0" xmlns="http://www.hikvision.com/ver20/XMLSchema">
+              <statusCode>1</statusCode><statusString>OK</statusString>
+            </ResponseStatus>
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long latencyMs;
+
+    static {
+        // JDK HttpServer 默认开启 Nagle，头和体分两次写会撞上延迟 ACK（约 40ms），会淹没真实开销
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    public IsapiStubServer(long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String path = ex.getRequestURI().getPath();
+        byte[] body = !"GET".equals(ex.getRequestMethod()) ? OK
+                : path.endsWith("/capabilities") ? CAPABILITIES : STATUS;
+        ex.getResponseHeaders().add("Content-Type", "application/xml");
+        ex.sendResponseHeaders(200, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
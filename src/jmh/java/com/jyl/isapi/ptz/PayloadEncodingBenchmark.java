@@ -0,0 +1,178 @@
+package com.jyl.isapi.ptz;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求体编码：原先的拼装方式（legacy*：text block formatted / StringBuilder + String.format / 字符串拼接，
+ * 再由 StringEntity 编码为字节）对比 {@link IsapiPayload} 的字节模板。
+ * 每个方法都把实体写到 null 流，即 HttpClient 发送时的实际路径。
+ * 加 -prof gc 看每次调用的分配量（gc.alloc.rate.norm）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class PayloadEncodingBenchmark {
+    double az = 123.4;
+    double el = 12.3;
+    int zoom = 25;
+
+    private static HttpEntity send(HttpEntity e) throws IOException {
+        e.writeTo(OutputStream.nullOutputStream());
+        return e;
+    }
+
+    private static HttpEntity send(String xml) throws IOException {
+        return send(new StringEntity(xml, ContentType.APPLICATION_XML));
+    }
+
+    // ---------------- 原先的写法 ----------------
+
+    @Benchmark
+    public HttpEntity legacyParkAction() throws IOException {
+        return send(legacyParkActionXml(true, 300, "preset", 1));
+    }
+
+    @Benchmark
+    public HttpEntity legacyPreset() throws IOException {
+        return send(legacyPresetXml(7));
+    }
+
+    @Benchmark
+    public HttpEntity legacyPosition3D() throws IOException {
+        return send(legacyPosition3DXml(20, 30, 60, 80));
+    }
+
+    @Benchmark
+    public HttpEntity legacyAbsoluteHigh() throws IOException {
+        return send(legacyAbsoluteHighXml((int) Math.round(az * 10), (int) Math.round(el * 10), zoom));
+    }
+
+    @Benchmark
+    public HttpEntity legacyAbsoluteEx() throws IOException {
+        return send(legacyAbsoluteExXml(az, el, zoom));
+    }
+
+    @Benchmark
+    public HttpEntity legacyContinuous() throws IOException {
+        return send(legacyContinuousXml(30, -20, 0, 1000));
+    }
+
+    // ---------------- 字节模板 ----------------
+
+    @Benchmark
+    public HttpEntity templateParkAction() throws IOException {
+        try (IsapiPayload p = IsapiPayload.parkAction(true, 300, "preset", 1)) {
+            return send(p.entity());
+        }
+    }
+
+    @Benchmark
+    public HttpEntity templatePreset() throws IOException {
+        try (IsapiPayload p = IsapiPayload.preset(7)) {
+            return send(p.entity());
+        }
+    }
+
+    @Benchmark
+    public HttpEntity templatePosition3D() throws IOException {
+        try (IsapiPayload p = IsapiPayload.position3D(20, 30, 60, 80)) {
+            return send(p.entity());
+        }
+    }
+
+    @Benchmark
+    public HttpEntity templateAbsoluteHigh() throws IOException {
+        try (IsapiPayload p = IsapiPayload.absoluteHigh((int) Math.round(az * 10), (int) Math.round(el * 10), zoom)) {
+            return send(p.entity());
+        }
+    }
+
+    @Benchmark
+    public HttpEntity templateAbsoluteEx() throws IOException {
+        try (IsapiPayload p = IsapiPayload.absoluteEx(az, el, zoom)) {
+            return send(p.entity());
+        }
+    }
+
+    @Benchmark
+    public HttpEntity templateContinuous() throws IOException {
+        try (IsapiPayload p = IsapiPayload.continuous(30, -20, 0, 1000)) {
+            return send(p.entity());
+        }
+    }
+
+    // ---------------- 原 PtzIsapiClient 中的拼装（基线） ----------------
+
+    static String legacyParkActionXml(boolean enabled, int parkTime, String actionType, int actionNum) {
+        return """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <ParkAction version="2.0" xmlns="http://www.hikvision.com/ver20/XMLSchema">
+          <enabled>%s</enabled>
+          <Parktime>%d</Parktime>
+          <Action><ActionType>%s</ActionType><ActionNum>%d</ActionNum></Action>
+        </ParkAction>
+        """.formatted(enabled ? "true" : "false", parkTime, actionType, actionNum);
+    }
+
+    static String legacyPosition3DXml(int x1, int y1, int x2, int y2) {
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <Position3D version="1.0" xmlns="http://www.hikvision.com/ver10/XMLSchema">
+                  <StartPoint><positionX>%d</positionX><positionY>%d</positionY></StartPoint>
+                  <EndPoint><positionX>%d</positionX><positionY>%d</positionY></EndPoint>
+                </Position3D>
+                """.formatted(x1, y1, x2, y2);
+    }
+
+    static String legacyPresetXml(int presetId) {
+        return "<PTZPreset><id>" + presetId + "</id></PTZPreset>";
+    }
+
+    static String legacyContinuousXml(int pan, int tilt, int zoom, int durationMs) {
+        return "<PTZData>"
+                + "<pan>" + pan + "</pan>"
+                + "<tilt>" + tilt + "</tilt>"
+                + "<zoom>" + zoom + "</zoom>"
+                + "<timeout>" + durationMs + "</timeout>"
+                + "</PTZData>";
+    }
+
+    static String legacyAbsoluteHighXml(Integer az10, Integer el10, Integer z) {
+        StringBuilder sb = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                        "<PTZData version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">\n" +
+                        "  <AbsoluteHigh>\n"
+        );
+        if (el10 != null) sb.append("    <elevation>").append(el10).append("</elevation>\n");
+        if (az10 != null) sb.append("    <azimuth>").append(az10).append("</azimuth>\n");
+        if (z != null) sb.append("    <absoluteZoom>").append(z).append("</absoluteZoom>\n");
+        sb.append("  </AbsoluteHigh>\n</PTZData>");
+        return sb.toString();
+    }
+
+    static String legacyAbsoluteExXml(Double azimuthDeg, Double elevationDeg, Integer z) {
+        StringBuilder sb = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                        "<PTZAbsoluteEx version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">\n"
+        );
+        if (elevationDeg != null)
+            sb.append("  <elevation>").append(String.format(java.util.Locale.US, "%.1f", elevationDeg)).append("</elevation>\n");
+        if (azimuthDeg != null)
+            sb.append("  <azimuth>").append(String.format(java.util.Locale.US, "%.1f", azimuthDeg)).append("</azimuth>\n");
+        if (z != null) sb.append("  <absoluteZoom>").append(z).append("</absoluteZoom>\n");
+        sb.append("</PTZAbsoluteEx>");
+        return sb.toString();
+    }
+}
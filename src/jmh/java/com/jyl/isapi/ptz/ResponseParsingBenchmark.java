@@ -0,0 +1,56 @@
+package com.jyl.isapi.ptz;
+
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 响应解析：handleText（整段转 String）、原先的正则取 absoluteZoom（每次编译 Pattern）、StAX 流式解析
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ResponseParsingBenchmark {
+
+    private static ClassicHttpResponse response(byte[] body) {
+        BasicClassicHttpResponse resp = new BasicClassicHttpResponse(200);
+        resp.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_XML));
+        return resp;
+    }
+
+    @Benchmark
+    public String handleText() throws Exception {
+        return PtzIsapiClient.handleText(response(IsapiStubServer.STATUS));
+    }
+
+    /**
+     * 原 threeDZoomSmart 中的 parseInt：handleText + Pattern.compile + find
+     */
+    @Benchmark
+    public int legacyRegexZoom() throws Exception {
+        String s = PtzIsapiClient.handleText(response(IsapiStubServer.STATUS));
+        Matcher m = Pattern.compile("<absoluteZoom>(\\d+)</absoluteZoom>").matcher(s);
+        return m.find() ? Integer.parseInt(m.group(1)) : 20;
+    }
+
+    @Benchmark
+    public PtzStatus staxStatus() throws Exception {
+        return PtzIsapiClient.xml(IsapiXml::status).handleResponse(response(IsapiStubServer.STATUS));
+    }
+
+    @Benchmark
+    public PtzCapabilities staxCapabilities() throws Exception {
+        return PtzIsapiClient.xml(IsapiXml::capabilities).handleResponse(response(IsapiStubServer.CAPABILITIES));
+    }
+}
@@ -1,9 +1,11 @@
 package com.jyl.isapi;
 
+import com.jyl.isapi.config.FleetProperties;
 import com.jyl.isapi.config.PtzProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * @Classname ISAPIApplication
@@ -11,12 +13,13 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
  * @Date 2025/9/2 11:26
  * @Created by startJYL
  */
-@EnableConfigurationProperties(PtzProperties.class)
+@EnableConfigurationProperties({PtzProperties.class, FleetProperties.class})
+@EnableScheduling
 @SpringBootApplication
 public class ISAPIApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(ISAPIApplication.class);
+        SpringApplication.run(ISAPIApplication.class, args);
     }
 
 }
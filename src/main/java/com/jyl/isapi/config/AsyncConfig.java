@@ -0,0 +1,33 @@
+package com.jyl.isapi.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * PTZ 命令的执行线程：虚拟线程，每个命令一个；
+ * Controller 返回 CompletableFuture，Servlet 线程在命令下发后立即释放
+ */
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+    private final FleetProperties fleet;
+
+    public AsyncConfig(FleetProperties fleet) {
+        this.fleet = fleet;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService ptzExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ptz-", 0).factory());
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // 按最坏处理时间推算，转发超时也以它为准，见 FleetProperties#requestTimeoutMs
+        configurer.setDefaultTimeout(fleet.requestTimeoutMs());
+    }
+}
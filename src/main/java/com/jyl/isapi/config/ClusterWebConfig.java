@@ -0,0 +1,25 @@
+package com.jyl.isapi.config;
+
+import com.jyl.isapi.controller.OwnerForwardingInterceptor;
+import com.jyl.isapi.controller.OwnerRedirectInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class ClusterWebConfig implements WebMvcConfigurer {
+    private final OwnerForwardingInterceptor forwarding;
+    private final OwnerRedirectInterceptor redirect;
+
+    public ClusterWebConfig(OwnerForwardingInterceptor forwarding, OwnerRedirectInterceptor redirect) {
+        this.forwarding = forwarding;
+        this.redirect = redirect;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(forwarding).addPathPatterns("/ptz", "/ptz/**", "/tours");
+        // SSE 长连接不缓冲转发，重定向到归属节点
+        registry.addInterceptor(redirect).addPathPatterns("/events/stream", "/telemetry/stream");
+    }
+}
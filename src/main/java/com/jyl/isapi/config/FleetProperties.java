@@ -0,0 +1,308 @@
+package com.jyl.isapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 相机集群配置：cameraId -> 连接参数，以及所有相机共享的连接池参数
+ */
+@Data
+@ConfigurationProperties("fleet")
+public class FleetProperties {
+    /**
+     * 所有相机共享一个连接池；按路由（相机）限流，避免单台相机占满连接
+     */
+    private int maxTotal = 1000;
+    private int maxPerRoute = 4;
+    private int connectTimeoutMs = 5_000;
+    private int responseTimeoutMs = 10_000;
+    /**
+     * 等待连接池空闲连接的上限
+     */
+    private int connectionRequestTimeoutMs = 5_000;
+    /**
+     * 空闲连接回收时间（秒）
+     */
+    private int idleEvictSec = 30;
+    /**
+     * /status 缓存时间（毫秒），0 表示只做并发合并
+     */
+    private long statusCacheTtlMs = 250;
+    /**
+     * 绝对位置/预置位超出设备能力范围时直接拒绝（400）；false 则限幅后下发
+     */
+    private boolean rejectOutOfRange = true;
+    /**
+     * 能力表后台刷新间隔（毫秒）
+     */
+    private long capabilitiesRefreshMs = 3_600_000;
+    /**
+     * 能力表读取失败后多久再向设备重读（毫秒）；期间按兜底范围限幅，不写入能力缓存
+     */
+    private long capabilitiesRetryMs = 30_000;
+    /**
+     * 摇杆：向 /continuous 转发的最小间隔（毫秒），期间只保留最新向量
+     */
+    private long joystickMinIntervalMs = 100;
+    /**
+     * 摇杆：每次 continuous 的 timeout（毫秒），摇杆断流后云台自行停止
+     */
+    private int joystickDeadmanMs = 1_000;
+    /**
+     * WebSocket 允许的跨域 Origin（支持 * 通配，如 https://*.example.com）；为空只允许同源
+     */
+    private List<String> websocketAllowedOrigins = List.of();
+    /**
+     * 批量命令：同一批最多同时下发的请求数
+     */
+    private int groupParallelism = 32;
+    /**
+     * 批量命令：单个目标的默认超时（毫秒），从提交批次时算起；上限为 {@link #requestTimeoutMs()} 减 1 秒
+     */
+    private long groupTimeoutMs = 5_000;
+    /**
+     * 运动收敛等待：最长等待时间（毫秒），超时返回当时的位置
+     */
+    private long settleTimeoutMs = 8_000;
+    /**
+     * 运动收敛等待：status 轮询间隔下限/上限（毫秒），运动中按剩余距离估算、逐步拉长
+     */
+    private long settlePollMinMs = 40;
+    private long settlePollMaxMs = 400;
+    /**
+     * 运动收敛等待：命令下发后马达起步的宽限期（毫秒），期间位置不变不算到位
+     */
+    private long settleGraceMs = 300;
+    /**
+     * alertStream：每个 SSE 订阅者的缓冲事件数，满了丢最旧的
+     */
+    private int alertBufferSize = 256;
+    /**
+     * alertStream：超过这么久没有任何数据（设备心跳也没有）就断开重连（毫秒）
+     */
+    private int alertReadTimeoutMs = 90_000;
+    /**
+     * alertStream：断线重连的最大退避（毫秒），从 1 秒起翻倍
+     */
+    private long alertReconnectMaxMs = 30_000;
+    /**
+     * alertStream：SSE 连接超时（毫秒），0 表示不超时
+     */
+    private long alertSseTimeoutMs = 0;
+    /**
+     * 命令队列：每个通道最多排队的命令数（运动命令会互相取代，主要限制配置写入）
+     */
+    private int commandQueueLimit = 32;
+    /**
+     * 命令队列：排队超过此时间返回 503（毫秒）
+     */
+    private long commandQueueTimeoutMs = 10_000;
+    /**
+     * 熔断：连续这么多次连接失败（拒绝/超时/不可达）后，该相机的请求直接失败（503）
+     */
+    private int breakerFailureThreshold = 3;
+    /**
+     * 熔断后后台探测的初始间隔（毫秒），每次失败翻倍
+     */
+    private long healthProbeMinMs = 1_000;
+    /**
+     * 熔断后后台探测的最大间隔（毫秒）
+     */
+    private long healthProbeMaxMs = 30_000;
+    /**
+     * 检查是否该探测的周期（毫秒）
+     */
+    private long healthTickMs = 500;
+    /**
+     * 巡航：时间轮精度（毫秒）
+     */
+    private long tourTickMs = 100;
+    /**
+     * 巡航：人工操作后无操作这么久再继续巡航（毫秒）
+     */
+    private long tourResumeIdleMs = 60_000;
+    /**
+     * 巡航：goto 失败后重试同一步的间隔（毫秒）
+     */
+    private long tourRetryMs = 5_000;
+    /**
+     * 巡航：每步最短停留时间（毫秒）
+     */
+    private long tourMinDwellMs = 1_000;
+    /**
+     * 位置推送：有运动命令或位置仍在变化时的轮询间隔（毫秒）
+     */
+    private long telemetryActiveMs = 250;
+    /**
+     * 位置推送：空闲时的轮询间隔（毫秒）
+     */
+    private long telemetryIdleMs = 2_000;
+    /**
+     * 位置推送：运动命令/位置变化后保持快速轮询的时间（毫秒）
+     */
+    private long telemetryActiveHoldMs = 3_000;
+    /**
+     * 守望巡检：同时读写守望配置的相机数上限
+     */
+    private int parkReconcileParallelism = 16;
+    /**
+     * 守望巡检：缓存的状态摘要在这么久内视为可信，与期望一致时跳过设备读取（毫秒）
+     */
+    private long parkReconcileCacheTtlMs = 7L * 24 * 3_600_000;
+    /**
+     * 守望巡检：定时执行 parkPolicy 的 cron 表达式，"-" 表示不定时执行
+     */
+    private String parkReconcileCron = "-";
+    /**
+     * 守望巡检：定时任务的期望配置，为空时不执行
+     */
+    private ParkPolicy parkPolicy;
+
+    /**
+     * 位置推算：运动中距上次真实读取超过这么久（毫秒）就再读一次设备
+     */
+    private long estimateMaxAgeMs = 1_000;
+    /**
+     * 位置推算：静止时距上次真实读取超过这么久（毫秒）就再读一次（发现本服务以外的操作）
+     */
+    private long estimateIdleMaxAgeMs = 5_000;
+    /**
+     * 位置推算：置信度低于此值时读设备，0~1；置信度 = 1/(1+预计误差°)，0.2 约等于 4°
+     */
+    private double estimateMinConfidence = 0.2;
+
+    /**
+     * 启动预热：每台相机预先建立的连接数，0 表示不预热
+     */
+    private int warmupConnections = 2;
+    /**
+     * 启动预热：整体最长等待时间（毫秒），超时不阻塞启动
+     */
+    private long warmupTimeoutMs = 5_000;
+    /**
+     * 预热完成后退出进程（AppCDS 训练运行）
+     */
+    private boolean exitAfterWarmup;
+
+    /**
+     * 命令黑匣子：内存映射的环形文件，每次 ISAPI 调用一条 64 字节记录；为空（默认）表示不记录。
+     * 文件打开时加独占锁，同机多实例需各用各的文件
+     */
+    private String flightRecorderFile = "";
+    /**
+     * 命令黑匣子：保留的记录条数，写满后覆盖最旧的
+     */
+    private int flightRecorderCapacity = 65_536;
+
+    /**
+     * 认证方式：preemptive = 缓存 Digest nonce 预先计算 Authorization；challenge = 每次由 HttpClient 应答 401 质询
+     */
+    private AuthMode authMode = AuthMode.PREEMPTIVE;
+
+    private Map<String, PtzProperties> cameras = new LinkedHashMap<>();
+
+    /**
+     * 命名分组：组名 -> cameraId 列表，用于 /group/... 批量命令
+     */
+    private Map<String, List<String>> groups = new LinkedHashMap<>();
+
+    /**
+     * 视场角对照表：机型名 -> 表，相机通过 fov-model 引用，用于 /ptz/aim/...
+     */
+    private Map<String, FovTable> fovModels = new LinkedHashMap<>();
+
+    /**
+     * 转速表：机型名 -> 转速，相机通过 slew-model 引用；名为 default 的表用于未指定的相机
+     */
+    private Map<String, SlewRates> slewModels = new LinkedHashMap<>();
+
+    /**
+     * 多实例：按一致性哈希划分相机归属，非本实例的相机请求转发给归属实例
+     */
+    private Cluster cluster = new Cluster();
+
+    /**
+     * 期望的守望配置；group 为空表示所有相机
+     */
+    @Data
+    public static class ParkPolicy {
+        private boolean enabled = true;
+        private int parkTime = 300;
+        private String actionType = "preset";
+        private int actionNum = 1;
+        private String group;
+    }
+
+    /**
+     * 一个机型的视场角表：hfov 为变倍（/status 原始值）-> 水平视场角（度），aspect 为画面宽高比
+     */
+    @Data
+    public static class FovTable {
+        private double aspect = 16.0 / 9.0;
+        private Map<Integer, Double> hfov = new LinkedHashMap<>();
+    }
+
+    /**
+     * 一个机型的转速：pan/tilt 为速度 100（满速）时的度/秒，zoom 为变倍原始值/秒，预置位与绝对移动按满速估算；
+     * error 为转速的相对误差，决定推算位置的置信度随运动距离下降多快
+     */
+    @Data
+    public static class SlewRates {
+        private double pan = 120;
+        private double tilt = 60;
+        private double zoom = 20;
+        private double error = 0.05;
+    }
+
+    /**
+     * 集群：nodes 为节点名 -> 对外地址（http://host:port），所有实例配置相同，self 指明自己是哪个
+     */
+    @Data
+    public static class Cluster {
+        private boolean enabled;
+        private String self;
+        private Map<String, String> nodes = new LinkedHashMap<>();
+        /**
+         * 每个节点在哈希环上的虚拟节点数，越多分布越均匀
+         */
+        private int virtualNodes = 128;
+        /**
+         * 节点间心跳间隔（毫秒），同时作为心跳请求的超时
+         */
+        private long heartbeatMs = 1_000;
+        /**
+         * 连续这么多次心跳失败视为离开，其相机由其余节点接管
+         */
+        private int failAfter = 3;
+        /**
+         * 转发请求的超时（毫秒）；0 表示按 {@link FleetProperties#requestTimeoutMs()} 推算，
+         * 配置时必须小于它，否则负责节点先按异步超时返回 503
+         */
+        private long forwardTimeoutMs = 0;
+    }
+
+    /**
+     * 一个 PTZ 请求最坏情况下的处理时间（毫秒），作为 MVC 异步超时：
+     * 命令排队 + 等连接 + 最多三种写法各一次连接和响应 + 等待到位
+     */
+    public long requestTimeoutMs() {
+        return commandQueueTimeoutMs + connectionRequestTimeoutMs
+                + 3L * (connectTimeoutMs + responseTimeoutMs) + settleTimeoutMs;
+    }
+
+    /**
+     * 实际使用的转发超时：未配置时比 {@link #requestTimeoutMs()} 少 1 秒，让负责节点的结果先于转发超时返回
+     */
+    public long forwardTimeoutMs() {
+        return cluster.getForwardTimeoutMs() > 0 ? cluster.getForwardTimeoutMs() : requestTimeoutMs() - 1_000;
+    }
+
+    public enum AuthMode {
+        PREEMPTIVE,
+        CHALLENGE
+    }
+}
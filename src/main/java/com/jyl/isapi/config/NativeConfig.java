@@ -0,0 +1,57 @@
+package com.jyl.isapi.config;
+
+import com.jyl.isapi.controller.TourController;
+import com.jyl.isapi.ptz.AimResult;
+import com.jyl.isapi.ptz.AlertEvent;
+import com.jyl.isapi.ptz.CallOutcome;
+import com.jyl.isapi.ptz.CameraHealth;
+import com.jyl.isapi.ptz.FlightRecord;
+import com.jyl.isapi.ptz.GroupCommand;
+import com.jyl.isapi.ptz.GroupResult;
+import com.jyl.isapi.ptz.JoystickDriver;
+import com.jyl.isapi.ptz.MotionResult;
+import com.jyl.isapi.ptz.ParkAction;
+import com.jyl.isapi.ptz.ParkReconcileReport;
+import com.jyl.isapi.ptz.PtzCapabilities;
+import com.jyl.isapi.ptz.PtzChannel;
+import com.jyl.isapi.ptz.PtzEstimate;
+import com.jyl.isapi.ptz.PtzStatus;
+import com.jyl.isapi.ptz.TelemetryUpdate;
+import com.jyl.isapi.ptz.TourEngine;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * AOT / native-image 需要的运行时提示（-Pnative、-Pcds 构建时生效，普通 JVM 运行时无作用）：
+ * <ul>
+ *   <li>配置绑定：{@link PtzProperties}、{@link FleetProperties} 及其嵌套类型</li>
+ *   <li>JSON：Controller 以 CompletableFuture 返回、AOT 推断不到的 record，以及请求体</li>
+ *   <li>HttpClient 5 运行时按资源加载的公共后缀表与版本信息（User-Agent）</li>
+ * </ul>
+ * 项目里没有 JDK 动态代理，@Configuration 的 CGLIB 子类由 AOT 在构建时生成，不需要代理提示。
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeConfig.Hints.class)
+@RegisterReflectionForBinding({
+        PtzProperties.class, FleetProperties.class, FleetProperties.ParkPolicy.class, FleetProperties.FovTable.class,
+        FleetProperties.SlewRates.class, FleetProperties.Cluster.class, PtzEstimate.class,
+        PtzStatus.class, MotionResult.class, AimResult.class, ParkAction.class, ParkReconcileReport.class,
+        PtzCapabilities.class, PtzChannel.class, GroupCommand.class, GroupResult.class,
+        AlertEvent.class, TelemetryUpdate.class, CameraHealth.Stats.class, JoystickDriver.JoystickStats.class,
+        TourEngine.TourStats.class, TourController.TourRequest.class, FlightRecord.class, CallOutcome.class
+})
+public class NativeConfig {
+
+    static class Hints implements RuntimeHintsRegistrar {
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources()
+                    .registerPattern("mozilla/public-suffix-list.txt")
+                    .registerPattern("org/apache/hc/client5/version.properties")
+                    .registerPattern("org/apache/hc/core5/version.properties");
+        }
+    }
+}
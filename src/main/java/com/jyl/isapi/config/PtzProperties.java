@@ -5,17 +5,28 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+/**
+ * 单台相机的连接参数；既用于 camera.*（默认相机），也用于 fleet.cameras.* 中的每一台
+ */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @ConfigurationProperties("camera")
 public class PtzProperties {
-    private String scheme;
+    private String scheme = "http";
     private String host;
-    private int port;
+    private int port = 80;
     private String username;
     private String password;
-    private int channel;
+    private int channel = 1;
+    /**
+     * 视场角对照表名（fleet.fov-models 的 key），为空用内置的 1x=60° 模型
+     */
+    private String fovModel;
+    /**
+     * 转速表名（fleet.slew-models 的 key），用于运动中推算位置；为空用 fleet.slew-models.default 或内置值
+     */
+    private String slewModel;
 
     public String getBaseUrl() {
         return String.format("%s://%s:%d", scheme, host, port);
@@ -0,0 +1,35 @@
+package com.jyl.isapi.config;
+
+import com.jyl.isapi.controller.JoystickSocketHandler;
+import com.jyl.isapi.controller.OwnerRedirectInterceptor;
+import com.jyl.isapi.controller.TelemetrySocketHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+    private final JoystickSocketHandler joystick;
+    private final TelemetrySocketHandler telemetry;
+    private final FleetProperties fleet;
+    private final OwnerRedirectInterceptor owner;
+
+    public WebSocketConfig(JoystickSocketHandler joystick, TelemetrySocketHandler telemetry, FleetProperties fleet,
+                           OwnerRedirectInterceptor owner) {
+        this.joystick = joystick;
+        this.telemetry = telemetry;
+        this.fleet = fleet;
+        this.owner = owner;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // 列表为空时 Origin 拦截器只接受同源握手
+        String[] origins = fleet.getWebsocketAllowedOrigins().toArray(String[]::new);
+        // 集群模式下相机不归本实例时拒绝握手（见 OwnerRedirectInterceptor），摇杆命令只在归属节点排队
+        registry.addHandler(joystick, "/ws/ptz/joystick").setAllowedOriginPatterns(origins).addInterceptors(owner);
+        registry.addHandler(telemetry, "/ws/ptz/telemetry").setAllowedOriginPatterns(origins).addInterceptors(owner);
+    }
+}
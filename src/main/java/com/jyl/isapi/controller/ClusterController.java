@@ -0,0 +1,54 @@
+package com.jyl.isapi.controller;
+
+import com.jyl.isapi.ptz.CameraRegistry;
+import com.jyl.isapi.ptz.ClusterMembership;
+import com.jyl.isapi.ptz.ClusterNode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 集群状态：节点存活、各节点负责的相机数、转发计数；/cluster/ping 供节点间心跳
+ */
+@RestController
+@RequestMapping("/cluster")
+public class ClusterController {
+    private final CameraRegistry cameras;
+    private final ClusterMembership membership;
+
+    public ClusterController(CameraRegistry cameras, ClusterMembership membership) {
+        this.cameras = cameras;
+        this.membership = membership;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(membership.stats());
+    }
+
+    @GetMapping(value = "/ping", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String ping() {
+        return membership.self().id();
+    }
+
+    /**
+     * 相机当前归哪个节点
+     */
+    @GetMapping("/owner")
+    public ResponseEntity<Map<String, Object>> owner(@RequestParam(required = false) String camera) {
+        String id = cameras.client(camera).getCameraId();
+        ClusterNode owner = membership.owner(id);
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("camera", id);
+        m.put("owner", owner.id());
+        m.put("url", owner.url());
+        m.put("local", membership.isLocal(id));
+        return ResponseEntity.ok(m);
+    }
+}
@@ -0,0 +1,85 @@
+package com.jyl.isapi.controller;
+
+import com.jyl.isapi.config.FleetProperties;
+import com.jyl.isapi.ptz.AlertEvent;
+import com.jyl.isapi.ptz.AlertStreamHub;
+import com.jyl.isapi.ptz.AlertSubscriber;
+import com.jyl.isapi.ptz.ClusterMembership;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/events")
+public class EventController {
+    private final AlertStreamHub hub;
+    private final FleetProperties fleet;
+    private final ClusterMembership membership;
+
+    public EventController(AlertStreamHub hub, FleetProperties fleet, ClusterMembership membership) {
+        this.hub = hub;
+        this.fleet = fleet;
+        this.membership = membership;
+    }
+
+    /**
+     * 相机事件（alertStream）的 SSE 推送；事件名为 eventType，数据为 JSON
+     * @param camera 可多个，不传表示所有相机；集群模式下不传表示本实例负责的相机，
+     *               指定的相机不归本实例时由 {@link OwnerRedirectInterceptor} 重定向到归属节点；
+     *               本实例不负责任何相机时立即结束
+     * @param type   只要这些 eventType（如 VMD、linedetection），不传表示全部（含 videoloss 心跳）
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) List<String> camera,
+                             @RequestParam(required = false) List<String> type) {
+        SseEmitter emitter = new SseEmitter(fleet.getAlertSseTimeoutMs());
+        if ((camera == null || camera.isEmpty()) && membership.isEnabled()) {
+            camera = List.copyOf(membership.ownedCameras());
+            if (camera.isEmpty()) {
+                // 本实例没有负责的相机；空列表交给 hub 会被当成“所有相机”，去连别的节点的相机
+                emitter.complete();
+                return emitter;
+            }
+        }
+        AlertSubscriber sub = hub.subscribe(camera, type, new AlertSubscriber.Sink() {
+            @Override
+            public void send(AlertEvent e) throws IOException {
+                emit(emitter, SseEmitter.event().name(e.eventType() != null ? e.eventType() : "event").data(e));
+            }
+
+            @Override
+            public void keepalive() throws IOException {
+                emit(emitter, SseEmitter.event().comment("keepalive"));
+            }
+        });
+        emitter.onCompletion(sub::close);
+        emitter.onTimeout(sub::close);
+        emitter.onError(t -> sub.close());
+        return emitter;
+    }
+
+    private static void emit(SseEmitter emitter, SseEmitter.SseEventBuilder event) throws IOException {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 每台相机 alertStream 的连接状态，以及每个订阅者的投递/丢弃计数
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(hub.stats());
+    }
+}
@@ -0,0 +1,174 @@
+package com.jyl.isapi.controller;
+
+import com.jyl.isapi.ptz.CameraHealth;
+import com.jyl.isapi.ptz.CameraRegistry;
+import com.jyl.isapi.ptz.FlightRecord;
+import com.jyl.isapi.ptz.FlightRecorder;
+import com.jyl.isapi.ptz.JoystickDriver;
+import com.jyl.isapi.ptz.JoystickHub;
+import com.jyl.isapi.ptz.MotionEstimator;
+import com.jyl.isapi.ptz.PtzCapabilities;
+import com.jyl.isapi.ptz.PtzDialect;
+import com.jyl.isapi.ptz.PtzOperation;
+import com.jyl.isapi.ptz.StartupTimeline;
+import com.jyl.isapi.ptz.StatusCache;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/fleet")
+public class FleetController {
+    private final CameraRegistry cameras;
+    private final StatusCache statusCache;
+    private final JoystickHub joysticks;
+    private final StartupTimeline startup;
+    private final MotionEstimator estimator;
+
+    public FleetController(CameraRegistry cameras, StatusCache statusCache, JoystickHub joysticks,
+                           StartupTimeline startup, MotionEstimator estimator) {
+        this.cameras = cameras;
+        this.statusCache = statusCache;
+        this.joysticks = joysticks;
+        this.startup = startup;
+        this.estimator = estimator;
+    }
+
+    /**
+     * 已注册的相机（不返回密码）
+     */
+    @GetMapping("/cameras")
+    public ResponseEntity<List<Map<String, Object>>> list() {
+        List<Map<String, Object>> out = cameras.clients().values().stream().map(c -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", c.getCameraId());
+            m.put("baseUrl", c.getProps().getBaseUrl());
+            m.put("channel", c.getProps().getChannel());
+            return m;
+        }).toList();
+        return ResponseEntity.ok(out);
+    }
+
+    /**
+     * 共享连接池的总体占用
+     */
+    @GetMapping("/pool")
+    public ResponseEntity<Map<String, Integer>> pool() {
+        PoolStats s = cameras.connectionManager().getTotalStats();
+        Map<String, Integer> m = new LinkedHashMap<>();
+        m.put("leased", s.getLeased());
+        m.put("pending", s.getPending());
+        m.put("available", s.getAvailable());
+        m.put("max", s.getMax());
+        return ResponseEntity.ok(m);
+    }
+
+    /**
+     * 每台相机各通道已协商出的固件写法，如 {"default": {"1/stop": "STOP_POST"}}
+     */
+    @GetMapping("/dialects")
+    public ResponseEntity<Map<String, Map<String, PtzDialect>>> dialects() {
+        Map<String, Map<String, PtzDialect>> out = new LinkedHashMap<>();
+        cameras.clients().forEach((id, c) -> out.put(id, c.getDialects().snapshot()));
+        return ResponseEntity.ok(out);
+    }
+
+    /**
+     * 清空某台相机的协商结果（换机/升级固件后强制重新探测）
+     */
+    @DeleteMapping("/dialects/{cameraId}")
+    public ResponseEntity<Void> resetDialects(@PathVariable String cameraId) {
+        cameras.client(cameraId).getDialects().clear();
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * /status 缓存命中/未命中/合并/失效计数
+     */
+    @GetMapping("/status-cache")
+    public ResponseEntity<Map<String, Long>> statusCache() {
+        return ResponseEntity.ok(statusCache.stats());
+    }
+
+    /**
+     * 位置推算：直接推算返回/读设备的次数，已学到位置的预置位数
+     */
+    @GetMapping("/estimator")
+    public ResponseEntity<Map<String, Long>> estimator() {
+        return ResponseEntity.ok(estimator.stats());
+    }
+
+    /**
+     * 每台相机已缓存的能力模型：cameraId -> 通道 -> 能力
+     */
+    @GetMapping("/capabilities")
+    public ResponseEntity<Map<String, Map<Integer, PtzCapabilities>>> capabilities() {
+        Map<String, Map<Integer, PtzCapabilities>> out = new LinkedHashMap<>();
+        cameras.clients().forEach((id, c) -> out.put(id, c.getCapabilityCache()));
+        return ResponseEntity.ok(out);
+    }
+
+    /**
+     * 活跃的摇杆通道：收到/被覆盖/实际下发/停止/失败 次数
+     */
+    @GetMapping("/joysticks")
+    public ResponseEntity<List<JoystickDriver.JoystickStats>> joysticks() {
+        return ResponseEntity.ok(joysticks.stats());
+    }
+
+    /**
+     * 每台相机的熔断状态：CLOSED/OPEN、连续失败次数、熔断时长、下次探测、最近错误
+     */
+    @GetMapping("/health")
+    public ResponseEntity<List<CameraHealth.Stats>> health() {
+        return ResponseEntity.ok(cameras.clients().values().stream().map(c -> c.getHealth().stats()).toList());
+    }
+
+    /**
+     * 每台相机各通道的命令队列：排队数、是否正在执行、执行/被取代/stop 插队/拒绝次数
+     */
+    @GetMapping("/commands")
+    public ResponseEntity<Map<String, Map<Integer, Map<String, Object>>>> commands() {
+        Map<String, Map<Integer, Map<String, Object>>> out = new LinkedHashMap<>();
+        cameras.clients().forEach((id, c) -> out.put(id, c.schedulerStats()));
+        return ResponseEntity.ok(out);
+    }
+
+    /**
+     * 每台相机的预认证计数：preemptive（直接带认证头）/ challenged（收到 401）/ staleNonces
+     */
+    @GetMapping("/auth")
+    public ResponseEntity<Map<String, Map<String, Object>>> auth() {
+        Map<String, Map<String, Object>> out = new LinkedHashMap<>();
+        cameras.clients().forEach((id, c) -> out.put(id, c.getAuth().stats()));
+        return ResponseEntity.ok(out);
+    }
+
+    /**
+     * 启动耗时：启动方式（jvm/+aot/+cds/native），进程启动到就绪、首个成功响应、首个成功运动命令的毫秒数，以及每台相机的预热结果
+     */
+    @GetMapping("/startup")
+    public ResponseEntity<Map<String, Object>> startup() {
+        return ResponseEntity.ok(startup.report());
+    }
+
+    /**
+     * 命令黑匣子：从新到旧，每次 ISAPI 调用（含写法协商失败的尝试）一条；
+     * 可按 camera/ch/op 过滤，errors=true 只看非 2xx，since 为 epoch 毫秒
+     */
+    @GetMapping("/flight")
+    public ResponseEntity<List<FlightRecord>> flight(@RequestParam(required = false) String camera,
+                                                     @RequestParam(required = false) Integer ch,
+                                                     @RequestParam(required = false) PtzOperation op,
+                                                     @RequestParam(defaultValue = "false") boolean errors,
+                                                     @RequestParam(defaultValue = "0") long since,
+                                                     @RequestParam(defaultValue = "100") int limit) {
+        FlightRecorder recorder = cameras.flightRecorder();
+        return ResponseEntity.ok(recorder.read(FlightRecorder.filter(camera, ch, op, errors, since),
+                Math.max(0, Math.min(limit, recorder.getCapacity()))));
+    }
+}
@@ -0,0 +1,119 @@
+package com.jyl.isapi.controller;
+
+import com.jyl.isapi.ptz.ClusterMembership;
+import com.jyl.isapi.ptz.GroupCommand;
+import com.jyl.isapi.ptz.GroupCommandRunner;
+import com.jyl.isapi.ptz.GroupResult;
+import com.jyl.isapi.ptz.ParkAction;
+import com.jyl.isapi.ptz.ParkReconcileReport;
+import com.jyl.isapi.ptz.ParkReconciler;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 批量命令：一次请求并发下发到多台相机，返回每台相机的结果与耗时
+ * <pre>
+ * POST /group/preset/goto
+ * {"group": "north-gate", "preset": 3, "timeoutMs": 3000}
+ * {"targets": [{"camera": "a", "channel": 1, "preset": 3}, {"camera": "b", "preset": 5}]}
+ * </pre>
+ * 集群模式下不归本实例的目标按归属节点分批转发，结果按原目标顺序合并；守望巡检只处理本实例的相机
+ */
+@RestController
+@RequestMapping("/group")
+public class GroupController {
+    private final GroupCommandRunner runner;
+    private final ParkReconciler parkReconciler;
+
+    public GroupController(GroupCommandRunner runner, ParkReconciler parkReconciler) {
+        this.runner = runner;
+        this.parkReconciler = parkReconciler;
+    }
+
+    @PostMapping("/preset/goto")
+    public CompletableFuture<ResponseEntity<GroupResult>> gotoPreset(@RequestBody GroupCommand cmd,
+                                                                  HttpServletRequest request) {
+        return runner.run(cmd, forwardPath(request), (c, ch, t) -> {
+            if (t.preset() == null) {
+                throw new IllegalArgumentException("preset required");
+            }
+            return c.gotoPresetAsync(ch, t.preset());
+        }).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("/stop")
+    public CompletableFuture<ResponseEntity<GroupResult>> stop(@RequestBody GroupCommand cmd,
+                                                            HttpServletRequest request) {
+        return runner.run(cmd, forwardPath(request), (c, ch, t) -> c.stopAsync(ch)).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("/absolute")
+    public CompletableFuture<ResponseEntity<GroupResult>> absolute(@RequestBody GroupCommand cmd,
+                                                                HttpServletRequest request) {
+        return runner.run(cmd, forwardPath(request), (c, ch, t) -> c.absoluteMoveDegreesAsync(ch, t.az(), t.el(), t.z()))
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * enabled 必填；parkTime/actionType/actionNum 默认 300 秒、preset、1 号（同 /ptz/park/set）
+     */
+    @PostMapping("/park/set")
+    public CompletableFuture<ResponseEntity<GroupResult>> setPark(@RequestBody GroupCommand cmd,
+                                                               HttpServletRequest request) {
+        if (cmd.enabled() == null) {
+            throw new IllegalArgumentException("enabled required");
+        }
+        int parkTime = cmd.parkTime() != null ? cmd.parkTime() : 300;
+        String actionType = cmd.actionType() != null ? cmd.actionType() : "preset";
+        int actionNum = cmd.actionNum() != null ? cmd.actionNum() : 1;
+        return runner.run(cmd, forwardPath(request),
+                        (c, ch, t) -> c.setParkActionAsync(ch, cmd.enabled(), parkTime, actionType, actionNum))
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * 守望巡检：读取比较，只写入配置不一致的相机；参数同 /group/park/set，group/targets 都为空表示所有相机。
+     * dryRun=true 只报告差异；force=true 忽略上次的状态摘要，全部重新读取
+     */
+    @PostMapping("/park/reconcile")
+    public CompletableFuture<ResponseEntity<ParkReconcileReport>> reconcilePark(@RequestBody GroupCommand cmd,
+                                                                                @RequestParam(defaultValue = "false") boolean dryRun,
+                                                                                @RequestParam(defaultValue = "false") boolean force) {
+        if (cmd.enabled() == null) {
+            throw new IllegalArgumentException("enabled required");
+        }
+        ParkAction desired = new ParkAction(cmd.enabled(),
+                cmd.parkTime() != null ? cmd.parkTime() : 300,
+                cmd.actionType() != null ? cmd.actionType() : "preset",
+                cmd.actionNum() != null ? cmd.actionNum() : 1);
+        return parkReconciler.reconcile(cmd, desired, dryRun, force).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * 最近一次（非 dryRun）守望巡检的结果，含定时任务
+     */
+    @GetMapping("/park/reconcile")
+    public ResponseEntity<ParkReconcileReport> lastParkReconcile() {
+        ParkReconcileReport last = parkReconciler.last();
+        return last != null ? ResponseEntity.ok(last) : ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 集群模式下不归本实例的目标转发到这个路径；请求本身是转发来的则全部在本地执行
+     */
+    private static String forwardPath(HttpServletRequest request) {
+        if (request.getHeader(ClusterMembership.FORWARDED_HEADER) != null) {
+            return null;
+        }
+        return request.getRequestURI() + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+}
@@ -0,0 +1,65 @@
+package com.jyl.isapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jyl.isapi.ptz.CameraRegistry;
+import com.jyl.isapi.ptz.JoystickDriver;
+import com.jyl.isapi.ptz.JoystickHub;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * 摇杆 WebSocket：ws://host:7005/ws/ptz/joystick?camera=gate-1&ch=1
+ * <p>
+ * 消息：{"type":"move","pan":30,"tilt":-10,"zoom":0} / {"type":"stop"}；pan/tilt/zoom 同 /ptz/move（-100~100）
+ */
+@Component
+public class JoystickSocketHandler extends TextWebSocketHandler {
+    private static final String DRIVER = "joystick.driver";
+
+    private final CameraRegistry cameras;
+    private final JoystickHub hub;
+    private final ObjectMapper mapper;
+
+    public JoystickSocketHandler(CameraRegistry cameras, JoystickHub hub, ObjectMapper mapper) {
+        this.cameras = cameras;
+        this.hub = hub;
+        this.mapper = mapper;
+    }
+
+    record JoystickMessage(String type, double pan, double tilt, double zoom) {
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        MultiValueMap<String, String> q = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+        String cameraId = q.getFirst("camera");
+        String ch = q.getFirst("ch");
+        int channel = cameras.channel(cameraId, ch != null ? Integer.valueOf(ch) : null);
+        session.getAttributes().put(DRIVER, hub.acquire(cameraId, channel));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        JoystickDriver driver = (JoystickDriver) session.getAttributes().get(DRIVER);
+        JoystickMessage m = mapper.readValue(message.getPayload(), JoystickMessage.class);
+        if ("stop".equals(m.type())) {
+            driver.stop();
+        } else {
+            driver.move(m.pan(), m.tilt(), m.zoom());
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        JoystickDriver driver = (JoystickDriver) session.getAttributes().get(DRIVER);
+        if (driver != null) {
+            // 最后一个连接断开时停止云台并释放驱动；其余情况由 deadman 超时兜底
+            hub.release(driver);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.jyl.isapi.controller;
+
+import com.jyl.isapi.config.FleetProperties;
+import com.jyl.isapi.ptz.CameraRegistry;
+import com.jyl.isapi.ptz.ClusterMembership;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 集群模式：/ptz、/tours 中针对某台相机（路径 {cameraId} 或参数 camera，都没有时为默认相机）的请求，
+ * 相机不归本实例时原样转发给归属实例，Servlet 线程在转发期间释放。
+ * 响应头 X-Isapi-Owner 为实际处理的节点。
+ */
+@Component
+public class OwnerForwardingInterceptor implements HandlerInterceptor {
+    private static final Set<String> HOP_BY_HOP = Set.of("host", "connection", "keep-alive", "content-length",
+            "transfer-encoding", "te", "trailer", "upgrade", "expect", "proxy-connection", "date", "server");
+
+    private final CameraRegistry cameras;
+    private final ClusterMembership membership;
+    private final FleetProperties fleet;
+    private final Executor executor;
+    private final Map<Method, Boolean> scoped = new ConcurrentHashMap<>();
+
+    public OwnerForwardingInterceptor(CameraRegistry cameras, ClusterMembership membership, FleetProperties fleet,
+                                      @Qualifier("ptzExecutor") Executor executor) {
+        this.cameras = cameras;
+        this.membership = membership;
+        this.fleet = fleet;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!membership.isEnabled() || !(handler instanceof HandlerMethod hm)
+                || !scoped.computeIfAbsent(hm.getMethod(), m -> cameraScoped(hm))) {
+            return true;
+        }
+        String cameraId = cameraId(request);
+        if (!cameras.clients().containsKey(cameraId)
+                || request.getHeader(ClusterMembership.FORWARDED_HEADER) != null
+                || membership.isLocal(cameraId)) {
+            response.setHeader(ClusterMembership.OWNER_HEADER, membership.self().id());
+            return true;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        List<Map.Entry<String, String>> headers = new ArrayList<>();
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT)) && !name.equalsIgnoreCase("content-type")) {
+                Collections.list(request.getHeaders(name)).forEach(v -> headers.add(Map.entry(name, v)));
+            }
+        }
+        String uri = request.getRequestURI() + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+        String method = request.getMethod();
+        String contentType = request.getContentType();
+
+        AsyncContext async = request.startAsync();
+        // 比转发超时稍长：转发超时由本节点回 502，而不是被容器的异步超时截断
+        async.setTimeout(fleet.forwardTimeoutMs() + 5_000);
+        executor.execute(() -> {
+            try {
+                ClusterMembership.ForwardedResponse r = membership.forward(cameraId, method, uri, headers, body, contentType);
+                if (r == null) {
+                    response.setHeader("Retry-After", "1");
+                    error(response, HttpStatus.SERVICE_UNAVAILABLE, "owner of " + cameraId + " left the cluster, retry");
+                } else {
+                    response.setStatus(r.status());
+                    r.headers().forEach(h -> {
+                        if (!HOP_BY_HOP.contains(h.getKey().toLowerCase(Locale.ROOT))) {
+                            response.addHeader(h.getKey(), h.getValue());
+                        }
+                    });
+                    response.setContentLength(r.body().length);
+                    response.getOutputStream().write(r.body());
+                }
+            } catch (ConnectException e) {
+                try {
+                    response.setHeader("Retry-After", "1");
+                    error(response, HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+                } catch (IOException ignored) {
+                    // 客户端已断开
+                }
+            } catch (IOException e) {
+                try {
+                    error(response, HttpStatus.BAD_GATEWAY, "forward to " + membership.owner(cameraId).id() + " failed: " + e.getMessage());
+                } catch (IOException ignored) {
+                    // 客户端已断开
+                }
+            } finally {
+                async.complete();
+            }
+        });
+        return false;
+    }
+
+    private static void error(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}");
+    }
+
+    /**
+     * 路径变量 cameraId，其次查询参数 camera（只看查询串，不触发读取表单请求体），都没有时为默认相机
+     */
+    private static String cameraId(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> vars = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String id = vars != null ? vars.get("cameraId") : null;
+        if (id == null && request.getQueryString() != null) {
+            String q = UriComponentsBuilder.newInstance().query(request.getQueryString()).build()
+                    .getQueryParams().getFirst("camera");
+            id = q != null ? URLDecoder.decode(q, StandardCharsets.UTF_8) : null;
+        }
+        return id != null ? id : CameraRegistry.DEFAULT_ID;
+    }
+
+    /**
+     * 接口带有 cameraId 路径变量或 camera 参数才按相机转发（如 GET /tours 列出的是本实例的巡航，不转发）
+     */
+    private static boolean cameraScoped(HandlerMethod hm) {
+        for (MethodParameter p : hm.getMethodParameters()) {
+            p.initParameterNameDiscovery(new DefaultParameterNameDiscoverer());
+            PathVariable pv = p.getParameterAnnotation(PathVariable.class);
+            RequestParam rp = p.getParameterAnnotation(RequestParam.class);
+            if (pv != null && "cameraId".equals(pv.name().isEmpty() ? p.getParameterName() : pv.name())) {
+                return true;
+            }
+            if (rp != null && "camera".equals(rp.name().isEmpty() ? p.getParameterName() : rp.name())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
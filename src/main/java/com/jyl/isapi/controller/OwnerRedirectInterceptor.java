@@ -0,0 +1,158 @@
+package com.jyl.isapi.controller;
+
+import com.jyl.isapi.ptz.CameraRegistry;
+import com.jyl.isapi.ptz.ClusterMembership;
+import com.jyl.isapi.ptz.ClusterNode;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 集群模式：长连接（摇杆/位置 WebSocket、/events 与 /telemetry 的 SSE）不能像 /ptz 那样缓冲转发，
+ * 参数 camera 中的相机不归本实例时不在这里连设备：
+ * <ul>
+ *   <li>都归同一个其它节点：307 重定向到该节点的同一地址（EventSource 会跟随；浏览器 WebSocket 不跟随，
+ *       应先用 GET /cluster/owner?camera= 找到归属节点再连接）</li>
+ *   <li>分属多个节点：409，按节点分开订阅</li>
+ * </ul>
+ * 响应头 X-Isapi-Owner 为归属节点。未指定 camera 时按默认相机判断（/events 另见 {@link EventController}）。
+ */
+@Component
+public class OwnerRedirectInterceptor implements HandlerInterceptor, HandshakeInterceptor {
+    /**
+     * 不带 camera 时表示本实例所有相机的接口，无需重定向
+     */
+    private static final Set<String> ALL_CAMERA_PATHS = Set.of("/events/stream");
+
+    private final CameraRegistry cameras;
+    private final ClusterMembership membership;
+
+    public OwnerRedirectInterceptor(CameraRegistry cameras, ClusterMembership membership) {
+        this.cameras = cameras;
+        this.membership = membership;
+    }
+
+    private record Redirect(HttpStatus status, String owner, String location, String message) {
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        String query = request.getQueryString();
+        Redirect r = redirect(request.getRequestURI(), query);
+        if (r == null) {
+            return true;
+        }
+        if (r.owner() != null) {
+            response.setHeader(ClusterMembership.OWNER_HEADER, r.owner());
+        }
+        if (r.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, r.location());
+        }
+        response.setStatus(r.status().value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\":\"" + r.message().replace("\"", "\\\"") + "\"}");
+        return false;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String query = request.getURI().getRawQuery();
+        Redirect r = redirect(request.getURI().getRawPath(), query);
+        if (r == null) {
+            return true;
+        }
+        if (r.owner() != null) {
+            response.getHeaders().set(ClusterMembership.OWNER_HEADER, r.owner());
+        }
+        if (r.location() != null) {
+            response.getHeaders().set(HttpHeaders.LOCATION, r.location());
+        }
+        response.setStatusCode(r.status());
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    /**
+     * @return null 表示在本实例处理
+     */
+    private Redirect redirect(String path, String query) {
+        if (!membership.isEnabled()) {
+            return null;
+        }
+        List<String> ids = cameraIds(query);
+        if (ids.isEmpty()) {
+            if (ALL_CAMERA_PATHS.contains(path)) {
+                return null;
+            }
+            ids = List.of(CameraRegistry.DEFAULT_ID);
+        }
+        Map<String, List<String>> remote = new LinkedHashMap<>();
+        boolean local = false;
+        for (String id : ids) {
+            if (!cameras.clients().containsKey(id) || membership.isLocal(id)) {
+                local = true; // 未知相机交给处理器返回 404
+            } else {
+                remote.computeIfAbsent(membership.owner(id).id(), k -> new ArrayList<>()).add(id);
+            }
+        }
+        if (remote.isEmpty()) {
+            return null;
+        }
+        if (!local && remote.size() == 1) {
+            ClusterNode owner = membership.owner(ids.get(0));
+            return new Redirect(HttpStatus.TEMPORARY_REDIRECT, owner.id(),
+                    owner.url() + path + (query != null ? "?" + query : ""),
+                    "cameras " + ids + " are owned by " + owner.id());
+        }
+        String owners = remote.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue())
+                .collect(Collectors.joining(", "));
+        return new Redirect(HttpStatus.CONFLICT, null, null,
+                "cameras belong to different nodes (" + owners + "), subscribe on each owner");
+    }
+
+    /**
+     * 查询参数 camera，可重复或逗号分隔
+     */
+    private static List<String> cameraIds(String query) {
+        if (query == null) {
+            return List.of();
+        }
+        List<String> values = UriComponentsBuilder.newInstance().query(query).build().getQueryParams().get("camera");
+        List<String> ids = new ArrayList<>();
+        if (values != null) {
+            for (String v : values) {
+                for (String id : URLDecoder.decode(v, StandardCharsets.UTF_8).split(",")) {
+                    if (!id.isBlank()) {
+                        ids.add(id.trim());
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -1,31 +1,64 @@
 package com.jyl.isapi.controller;
 
-import com.jyl.isapi.config.PtzProperties;
-import com.jyl.isapi.ptz.PtzIsapiClient;
+import com.jyl.isapi.ptz.AimResult;
+import com.jyl.isapi.ptz.CameraRegistry;
+import com.jyl.isapi.ptz.FovAimer;
+import com.jyl.isapi.ptz.MotionEstimator;
+import com.jyl.isapi.ptz.MotionResult;
+import com.jyl.isapi.ptz.ParkAction;
+import com.jyl.isapi.ptz.PtzCapabilities;
+import com.jyl.isapi.ptz.PtzChannel;
+import com.jyl.isapi.ptz.PtzEstimate;
+import com.jyl.isapi.ptz.PtzStatus;
+import com.jyl.isapi.ptz.StatusCache;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
-@RequestMapping("/ptz")
+@RequestMapping({"/ptz", "/ptz/{cameraId}"})
 public class PtzController {
-    private final PtzProperties props;
-    private final PtzIsapiClient client;
+    private final CameraRegistry cameras;
+    private final StatusCache statusCache;
+    private final FovAimer aimer;
+    private final MotionEstimator estimator;
 
-    public PtzController(PtzProperties props, PtzIsapiClient client) {
-        this.props = props;
-        this.client = client;
+    /**
+     * /ptz/... 操作默认相机（camera.*），/ptz/{cameraId}/... 操作 fleet.cameras 中的指定相机
+     */
+    public PtzController(CameraRegistry cameras, StatusCache statusCache, FovAimer aimer, MotionEstimator estimator) {
+        this.cameras = cameras;
+        this.statusCache = statusCache;
+        this.aimer = aimer;
+        this.estimator = estimator;
+    }
+
+    private static ResponseEntity<Void> ok(Void ignored) {
+        return ResponseEntity.ok().build();
     }
 
     /**
      * 读取当前守望配置
      * @param ch
      * @return
-     * @throws Exception
      */
     @GetMapping("/park/get")
-    public ResponseEntity<String> getPark(@RequestParam(required = false) Integer ch) throws Exception {
-        int channel = (ch != null) ? ch : props.getChannel();
-        return ResponseEntity.ok(client.getParkAction(channel));
+    public CompletableFuture<ResponseEntity<String>> getPark(@PathVariable(required = false) String cameraId,
+                                                             @RequestParam(required = false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).getParkActionAsync(channel).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * 读取当前守望配置（JSON）
+     */
+    @GetMapping("/park/get/json")
+    public CompletableFuture<ResponseEntity<ParkAction>> getParkJson(@PathVariable(required = false) String cameraId,
+                                                                    @RequestParam(required = false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).readParkActionAsync(channel).thenApply(ResponseEntity::ok);
     }
 
     /**
@@ -36,114 +69,201 @@ public class PtzController {
      * @param actionNum
      * @param ch
      * @return
-     * @throws Exception
      */
     @PostMapping("/park/set")
-    public ResponseEntity<Void> setPark(@RequestParam boolean enabled,
-                                        @RequestParam(defaultValue = "300") int parkTime,      // 秒
-                                        @RequestParam(defaultValue = "preset") String actionType, // preset 或 patrol
-                                        @RequestParam(defaultValue = "1") int actionNum,       // 预置位号或巡航号
-                                        @RequestParam(required = false) Integer ch) throws Exception {
-        int channel = (ch != null) ? ch : props.getChannel();
-        client.setParkAction(channel, enabled, parkTime, actionType, actionNum);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> setPark(@PathVariable(required = false) String cameraId,
+                                                           @RequestParam boolean enabled,
+                                                           @RequestParam(defaultValue = "300") int parkTime,      // 秒
+                                                           @RequestParam(defaultValue = "preset") String actionType, // preset 或 patrol
+                                                           @RequestParam(defaultValue = "1") int actionNum,       // 预置位号或巡航号
+                                                           @RequestParam(required = false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).setParkActionAsync(channel, enabled, parkTime, actionType, actionNum).thenApply(PtzController::ok);
     }
 
     // 便捷关闭（测试期最常用）
     @PostMapping("/park/disable")
-    public ResponseEntity<Void> disablePark(@RequestParam(required = false) Integer ch) throws Exception {
-        int channel = (ch != null) ? ch : props.getChannel();
+    public CompletableFuture<ResponseEntity<Void>> disablePark(@PathVariable(required = false) String cameraId,
+                                                               @RequestParam(required = false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
         // actionType/actionNum 仍需带齐以兼容某些固件要求；这里默认 preset 到 1 号
-        client.setParkAction(channel, false, 300, "preset", 1);
-        return ResponseEntity.ok().build();
+        return cameras.client(cameraId).setParkActionAsync(channel, false, 300, "preset", 1).thenApply(PtzController::ok);
     }
 
     @PostMapping("/3d/box-smart")
-    public ResponseEntity<Void> threeDBoxSmart(@RequestParam double x1, @RequestParam double y1,
-                                               @RequestParam double x2, @RequestParam double y2,
-                                               @RequestParam(required=false) Integer ch) throws Exception {
-        int channel = ch != null ? ch : props.getChannel();
-        client.threeDZoomSmart(channel, x1, y1, x2, y2);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<MotionResult>> threeDBoxSmart(@PathVariable(required = false) String cameraId,
+                                                                          @RequestParam double x1, @RequestParam double y1,
+                                                                          @RequestParam double x2, @RequestParam double y2,
+                                                                          @RequestParam(required=false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).threeDZoomSmartAsync(channel, x1, y1, x2, y2).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/3d/box")
-    public ResponseEntity<Void> threeDBox(@RequestParam double x1, @RequestParam double y1,
-                                          @RequestParam double x2, @RequestParam double y2,
-                                          @RequestParam(required=false) Integer ch) throws Exception {
-        int channel = ch != null ? ch : props.getChannel();
-        client.threeDZoomBox(channel, x1, y1, x2, y2);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> threeDBox(@PathVariable(required = false) String cameraId,
+                                                             @RequestParam double x1, @RequestParam double y1,
+                                                             @RequestParam double x2, @RequestParam double y2,
+                                                             @RequestParam(required=false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).threeDZoomBoxAsync(channel, x1, y1, x2, y2).thenApply(PtzController::ok);
     }
 
     @PostMapping("/3d/click-in")
-    public ResponseEntity<Void> threeDClickIn(@RequestParam double x, @RequestParam double y,
-                                              @RequestParam(defaultValue="0.08") double size,
-                                              @RequestParam(required=false) Integer ch) throws Exception {
-        int channel = ch != null ? ch : props.getChannel();
-        client.threeDZoomInAt(channel, x, y, size);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> threeDClickIn(@PathVariable(required = false) String cameraId,
+                                                                 @RequestParam double x, @RequestParam double y,
+                                                                 @RequestParam(defaultValue="0.08") double size,
+                                                                 @RequestParam(required=false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).threeDZoomInAtAsync(channel, x, y, size).thenApply(PtzController::ok);
     }
 
     @PostMapping("/3d/click-out")
-    public ResponseEntity<Void> threeDClickOut(@RequestParam double x, @RequestParam double y,
-                                               @RequestParam(defaultValue="0.30") double size,
-                                               @RequestParam(required=false) Integer ch) throws Exception {
-        int channel = ch != null ? ch : props.getChannel();
-        client.threeDZoomOutAt(channel, x, y, size);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> threeDClickOut(@PathVariable(required = false) String cameraId,
+                                                                  @RequestParam double x, @RequestParam double y,
+                                                                  @RequestParam(defaultValue="0.30") double size,
+                                                                  @RequestParam(required=false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).threeDZoomOutAtAsync(channel, x, y, size).thenApply(PtzController::ok);
+    }
+
+    /**
+     * 点击瞄准：按本地视场角模型把 (x,y) 转到画面中心，只下发一次绝对移动；zoom 为相对放大倍数（默认 1 不变倍）
+     */
+    @PostMapping("/aim/click")
+    public CompletableFuture<ResponseEntity<AimResult>> aimClick(@PathVariable(required = false) String cameraId,
+                                                                 @RequestParam double x, @RequestParam double y,
+                                                                 @RequestParam(defaultValue = "1") double zoom,
+                                                                 @RequestParam(required=false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return aimer.aimAt(cameras.client(cameraId), channel, x, y, zoom).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * 画框瞄准：框中心转到画面中心并变倍到框充满画面，只下发一次绝对移动（对比 /3d/box-smart 的三次请求）
+     */
+    @PostMapping("/aim/box")
+    public CompletableFuture<ResponseEntity<AimResult>> aimBox(@PathVariable(required = false) String cameraId,
+                                                               @RequestParam double x1, @RequestParam double y1,
+                                                               @RequestParam double x2, @RequestParam double y2,
+                                                               @RequestParam(required=false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return aimer.aimBox(cameras.client(cameraId), channel, x1, y1, x2, y2).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/absolute")
-    public ResponseEntity<Void> absolute(@RequestParam(required=false) Double az,   // 方位角（度）
-                                         @RequestParam(required=false) Double el,   // 俯仰角（度）
-                                         @RequestParam(required=false) Integer z,   // 变倍
-                                         @RequestParam(required=false) Integer ch) throws Exception {
-        int channel = ch != null ? ch : props.getChannel();
-        client.absoluteMoveDegrees(channel, az, el, z);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> absolute(@PathVariable(required = false) String cameraId,
+                                                            @RequestParam(required=false) Double az,   // 方位角（度）
+                                                            @RequestParam(required=false) Double el,   // 俯仰角（度）
+                                                            @RequestParam(required=false) Integer z,   // 变倍
+                                                            @RequestParam(required=false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).absoluteMoveDegreesAsync(channel, az, el, z).thenApply(PtzController::ok);
+    }
+
+    /**
+     * 绝对移动并等到位，返回最终位置与耗时
+     */
+    @PostMapping("/absolute/wait")
+    public CompletableFuture<ResponseEntity<MotionResult>> absoluteWait(@PathVariable(required = false) String cameraId,
+                                                                        @RequestParam(required=false) Double az,
+                                                                        @RequestParam(required=false) Double el,
+                                                                        @RequestParam(required=false) Integer z,
+                                                                        @RequestParam(required=false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).absoluteMoveAndWaitAsync(channel, az, el, z).thenApply(ResponseEntity::ok);
     }
 
     @GetMapping("/status")
-    public ResponseEntity<String> status(@RequestParam(required=false) Integer ch) throws Exception {
-        int channel = ch != null ? ch : props.getChannel();
-        return ResponseEntity.ok(client.getStatus(channel));
+    public CompletableFuture<ResponseEntity<String>> status(@PathVariable(required = false) String cameraId,
+                                                            @RequestParam(required=false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return statusCache.get(cameras.client(cameraId), channel).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * 当前角度/变倍（JSON），与 /status 共用缓存策略
+     */
+    @GetMapping("/status/json")
+    public CompletableFuture<ResponseEntity<PtzStatus>> statusJson(@PathVariable(required = false) String cameraId,
+                                                                  @RequestParam(required=false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return statusCache.getParsed(cameras.client(cameraId), channel).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * 推算位置（UI 动画等高频查询）：运动中按命令与转速推算，稀疏地读设备校正；带 confidence 与 ageMs
+     */
+    @GetMapping("/status/estimate")
+    public CompletableFuture<ResponseEntity<PtzEstimate>> statusEstimate(@PathVariable(required = false) String cameraId,
+                                                                         @RequestParam(required = false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return estimator.estimate(cameras.client(cameraId), channel).thenApply(ResponseEntity::ok);
     }
 
     @GetMapping("/channels")
-    public ResponseEntity<String> channels() throws Exception {
-        return ResponseEntity.ok(client.getChannels());
+    public CompletableFuture<ResponseEntity<String>> channels(@PathVariable(required = false) String cameraId) {
+        return cameras.client(cameraId).getChannelsAsync().thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/channels/json")
+    public CompletableFuture<ResponseEntity<List<PtzChannel>>> channelsJson(@PathVariable(required = false) String cameraId) {
+        return cameras.client(cameraId).readChannelsAsync().thenApply(ResponseEntity::ok);
     }
 
     @GetMapping("/capabilities")
-    public ResponseEntity<String> caps(@RequestParam(required = false) Integer ch) throws Exception {
-        int channel = ch != null ? ch : props.getChannel();
-        return ResponseEntity.ok(client.getCapabilities(channel));
+    public CompletableFuture<ResponseEntity<String>> caps(@PathVariable(required = false) String cameraId,
+                                                          @RequestParam(required = false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).getCapabilitiesAsync(channel).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * 缓存的能力模型（各命令按此做本地校验/限幅）；refresh=true 时重新读取设备
+     */
+    @GetMapping("/capabilities/json")
+    public CompletableFuture<ResponseEntity<PtzCapabilities>> capsJson(@PathVariable(required = false) String cameraId,
+                                                                      @RequestParam(required = false) Integer ch,
+                                                                      @RequestParam(defaultValue = "false") boolean refresh) {
+        int channel = cameras.channel(cameraId, ch);
+        var client = cameras.client(cameraId);
+        return client.supplyAsync(() -> refresh ? client.refreshCapabilities(channel) : client.capabilities(channel))
+                .thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/preset/goto")
-    public ResponseEntity<Void> gotoPreset(@RequestParam int preset,
-                                           @RequestParam(required = false) Integer ch) throws Exception {
-        int channel = ch != null ? ch : props.getChannel();
-        client.gotoPreset(channel, preset);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> gotoPreset(@PathVariable(required = false) String cameraId,
+                                                              @RequestParam int preset,
+                                                              @RequestParam(required = false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).gotoPresetAsync(channel, preset).thenApply(PtzController::ok);
+    }
+
+    /**
+     * 跳转预置位并等云台停稳，返回最终位置与耗时
+     */
+    @PostMapping("/preset/goto/wait")
+    public CompletableFuture<ResponseEntity<MotionResult>> gotoPresetWait(@PathVariable(required = false) String cameraId,
+                                                                          @RequestParam int preset,
+                                                                          @RequestParam(required = false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).gotoPresetAndWaitAsync(channel, preset).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/move")
-    public ResponseEntity<Void> move(@RequestParam double pan,
-                                     @RequestParam double tilt,
-                                     @RequestParam(defaultValue = "0") double zoom,
-                                     @RequestParam(defaultValue = "1000") int ms,
-                                     @RequestParam(required = false) Integer ch) throws Exception {
-        int channel = ch != null ? ch : props.getChannel();
-        client.continuousMove(channel, pan, tilt, zoom, ms);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> move(@PathVariable(required = false) String cameraId,
+                                                        @RequestParam double pan,
+                                                        @RequestParam double tilt,
+                                                        @RequestParam(defaultValue = "0") double zoom,
+                                                        @RequestParam(defaultValue = "1000") int ms,
+                                                        @RequestParam(required = false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).continuousMoveAsync(channel, pan, tilt, zoom, ms).thenApply(PtzController::ok);
     }
 
     @PostMapping("/stop")
-    public ResponseEntity<Void> stop(@RequestParam(required = false) Integer ch) throws Exception {
-        int channel = ch != null ? ch : props.getChannel();
-        client.stop(channel);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> stop(@PathVariable(required = false) String cameraId,
+                                                        @RequestParam(required = false) Integer ch) {
+        int channel = cameras.channel(cameraId, ch);
+        return cameras.client(cameraId).stopAsync(channel).thenApply(PtzController::ok);
     }
 }
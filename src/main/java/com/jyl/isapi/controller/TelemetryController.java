@@ -0,0 +1,83 @@
+package com.jyl.isapi.controller;
+
+import com.jyl.isapi.config.FleetProperties;
+import com.jyl.isapi.ptz.CameraRegistry;
+import com.jyl.isapi.ptz.TelemetryHub;
+import com.jyl.isapi.ptz.TelemetrySubscriber;
+import com.jyl.isapi.ptz.TelemetryUpdate;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+@RestController
+@RequestMapping("/telemetry")
+public class TelemetryController {
+    private final CameraRegistry cameras;
+    private final TelemetryHub hub;
+    private final FleetProperties fleet;
+
+    public TelemetryController(CameraRegistry cameras, TelemetryHub hub, FleetProperties fleet) {
+        this.cameras = cameras;
+        this.hub = hub;
+        this.fleet = fleet;
+    }
+
+    /**
+     * 云台位置的 SSE 推送；事件名 position，只在位置或运动状态变化时发送，连接时先发一次当前位置
+     * @param camera 可多个，不传表示默认相机
+     * @param ch     通道，不传使用各相机配置的默认通道
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) List<String> camera,
+                             @RequestParam(required = false) Integer ch) {
+        List<TelemetryHub.Target> targets = targets(cameras, camera, ch);
+        SseEmitter emitter = new SseEmitter(fleet.getAlertSseTimeoutMs());
+        TelemetrySubscriber sub = hub.subscribe(targets, new TelemetrySubscriber.Sink() {
+            @Override
+            public void send(TelemetryUpdate u) throws IOException {
+                emit(emitter, SseEmitter.event().name("position").data(u));
+            }
+
+            @Override
+            public void keepalive() throws IOException {
+                emit(emitter, SseEmitter.event().comment("keepalive"));
+            }
+        });
+        emitter.onCompletion(sub::close);
+        emitter.onTimeout(sub::close);
+        emitter.onError(t -> sub.close());
+        return emitter;
+    }
+
+    static List<TelemetryHub.Target> targets(CameraRegistry cameras, List<String> cameraIds, Integer ch) {
+        List<String> ids = cameraIds == null || cameraIds.isEmpty() ? Collections.singletonList(null) : cameraIds;
+        return ids.stream()
+                .map(id -> new TelemetryHub.Target(cameras.client(id), cameras.channel(id, ch)))
+                .toList();
+    }
+
+    private static void emit(SseEmitter emitter, SseEmitter.SseEventBuilder event) throws IOException {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 正在轮询的相机通道：订阅者数、是否快速轮询、轮询/推送/失败次数、最近位置
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(hub.stats());
+    }
+}
@@ -0,0 +1,59 @@
+package com.jyl.isapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jyl.isapi.ptz.CameraRegistry;
+import com.jyl.isapi.ptz.TelemetryHub;
+import com.jyl.isapi.ptz.TelemetrySubscriber;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+
+/**
+ * 位置推送 WebSocket：ws://host:7005/ws/ptz/telemetry?camera=gate-1&camera=gate-2&ch=1
+ * <p>
+ * 服务端只发不收，消息同 /telemetry/stream 的 position 事件
+ */
+@Component
+public class TelemetrySocketHandler extends TextWebSocketHandler {
+    private static final String SUBSCRIBER = "telemetry.subscriber";
+
+    private final CameraRegistry cameras;
+    private final TelemetryHub hub;
+    private final ObjectMapper mapper;
+
+    public TelemetrySocketHandler(CameraRegistry cameras, TelemetryHub hub, ObjectMapper mapper) {
+        this.cameras = cameras;
+        this.hub = hub;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        MultiValueMap<String, String> q = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+        String ch = q.getFirst("ch");
+        WebSocketSession out = new ConcurrentWebSocketSessionDecorator(session, 10_000, 64 * 1024);
+        TelemetrySubscriber sub = hub.subscribe(
+                TelemetryController.targets(cameras, q.get("camera"), ch != null ? Integer.valueOf(ch) : null),
+                u -> {
+                    if (!out.isOpen()) {
+                        throw new IOException("closed");
+                    }
+                    out.sendMessage(new TextMessage(mapper.writeValueAsString(u)));
+                });
+        session.getAttributes().put(SUBSCRIBER, sub);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        if (session.getAttributes().get(SUBSCRIBER) instanceof TelemetrySubscriber sub) {
+            sub.close();
+        }
+    }
+}
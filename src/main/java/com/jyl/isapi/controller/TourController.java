@@ -0,0 +1,66 @@
+package com.jyl.isapi.controller;
+
+import com.jyl.isapi.ptz.CameraRegistry;
+import com.jyl.isapi.ptz.TourEngine;
+import com.jyl.isapi.ptz.TourStep;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服务端巡航：每个相机通道一条，人工操作时自动暂停
+ * <pre>
+ * POST /tours?camera=gate-1&ch=1
+ * {"steps": [{"preset": 1, "dwellMs": 10000}, {"preset": 2, "dwellMs": 5000}], "waitArrival": true}
+ * </pre>
+ */
+@RestController
+@RequestMapping("/tours")
+public class TourController {
+    private final CameraRegistry cameras;
+    private final TourEngine tours;
+
+    public TourController(CameraRegistry cameras, TourEngine tours) {
+        this.cameras = cameras;
+        this.tours = tours;
+    }
+
+    public record TourRequest(List<TourStep> steps, Boolean waitArrival) {
+    }
+
+    /**
+     * 开始巡航；该通道已有巡航时替换
+     */
+    @PostMapping
+    public ResponseEntity<TourEngine.TourStats> start(@RequestParam(required = false) String camera,
+                                                      @RequestParam(required = false) Integer ch,
+                                                      @RequestBody TourRequest req) {
+        int channel = cameras.channel(camera, ch);
+        return ResponseEntity.ok(tours.start(cameras.client(camera), channel, req.steps(),
+                req.waitArrival() == null || req.waitArrival()));
+    }
+
+    /**
+     * 所有巡航：状态、下一步、暂停剩余时间、圈数/goto/暂停/失败次数
+     */
+    @GetMapping
+    public ResponseEntity<List<TourEngine.TourStats>> list() {
+        return ResponseEntity.ok(tours.stats());
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> stop(@RequestParam(required = false) String camera,
+                                     @RequestParam(required = false) Integer ch) {
+        String cameraId = cameras.client(camera).getCameraId();
+        return tours.stop(cameraId, cameras.channel(camera, ch))
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+}
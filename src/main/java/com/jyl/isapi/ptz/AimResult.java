@@ -0,0 +1,7 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * 点击/画框瞄准：from 为计算所用的（缓存）位置，target 为下发的目标（已按能力表限幅），hfov 为目标变倍下的水平视场角（度）
+ */
+public record AimResult(PtzStatus from, PtzStatus target, double hfov) {
+}
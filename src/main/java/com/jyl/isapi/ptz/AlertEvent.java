@@ -0,0 +1,8 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * alertStream 中的一条 EventNotificationAlert；videoloss/inactive 一般是设备心跳
+ */
+public record AlertEvent(String cameraId, Integer channel, String eventType, String eventState,
+                         String description, String dateTime, int activePostCount) {
+}
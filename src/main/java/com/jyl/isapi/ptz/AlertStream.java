@@ -0,0 +1,161 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.PtzProperties;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.routing.RoutingSupport;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单台相机的 alertStream：有订阅者时保持一条长连接（断线指数退避重连），没有订阅者时断开。
+ * 读线程逐个 part 直接从响应流解析事件，再分发给所有 {@link AlertSubscriber}。
+ */
+class AlertStream {
+    private static final String PATH = "/ISAPI/Event/notification/alertStream";
+
+    private final String cameraId;
+    private final PtzProperties props;
+    private final CloseableHttpClient http;
+    private final long reconnectMaxMs;
+    private final Set<AlertSubscriber> subscribers = new CopyOnWriteArraySet<>();
+    private Runner runner;
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder parseErrors = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private volatile boolean connected;
+    private volatile long lastEventAt;
+    private volatile String lastError;
+
+    AlertStream(String cameraId, PtzProperties props, CloseableHttpClient http, long reconnectMaxMs) {
+        this.cameraId = cameraId;
+        this.props = props;
+        this.http = http;
+        this.reconnectMaxMs = reconnectMaxMs;
+    }
+
+    synchronized void add(AlertSubscriber s) {
+        subscribers.add(s);
+        if (runner == null) {
+            runner = new Runner();
+            Thread.ofVirtual().name("alert-stream-" + cameraId).start(runner);
+        }
+    }
+
+    synchronized void remove(AlertSubscriber s) {
+        subscribers.remove(s);
+        if (subscribers.isEmpty() && runner != null) {
+            runner.stop();
+            runner = null;
+        }
+    }
+
+    synchronized void stop() {
+        if (runner != null) {
+            runner.stop();
+            runner = null;
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("connected", connected);
+        m.put("subscribers", subscribers.size());
+        m.put("events", events.sum());
+        m.put("parseErrors", parseErrors.sum());
+        m.put("reconnects", reconnects.sum());
+        m.put("lastEventAt", lastEventAt);
+        m.put("lastError", lastError);
+        return m;
+    }
+
+    private void publish(AlertEvent e) {
+        events.increment();
+        lastEventAt = System.currentTimeMillis();
+        for (AlertSubscriber s : subscribers) {
+            s.offer(e);
+        }
+    }
+
+    private final class Runner implements Runnable {
+        private volatile boolean stopped;
+        private volatile HttpGet request;
+
+        void stop() {
+            stopped = true;
+            HttpGet r = request;
+            if (r != null) {
+                r.cancel(); // 打断阻塞中的读
+            }
+        }
+
+        @Override
+        public void run() {
+            long backoff = 1_000;
+            while (!stopped) {
+                HttpGet get = new HttpGet(props.getBaseUrl() + PATH);
+                get.addHeader("Accept", "multipart/mixed, application/xml");
+                request = get;
+                if (stopped) {
+                    break;
+                }
+                try (ClassicHttpResponse resp = http.executeOpen(RoutingSupport.determineHost(get), get, null)) {
+                    HttpEntity entity = resp.getEntity();
+                    if (resp.getCode() / 100 != 2 || entity == null) {
+                        throw new IOException("HTTP " + resp.getCode());
+                    }
+                    String boundary = MultipartStream.boundary(entity.getContentType());
+                    if (boundary == null) {
+                        throw new IOException("not a multipart stream: " + entity.getContentType());
+                    }
+                    connected = true;
+                    backoff = 1_000;
+                    read(new MultipartStream(entity.getContent(), boundary));
+                    lastError = "stream ended";
+                } catch (IOException | HttpException | RuntimeException e) {
+                    lastError = e.toString();
+                } finally {
+                    connected = false;
+                }
+                if (stopped) {
+                    break;
+                }
+                reconnects.increment();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(reconnectMaxMs, backoff * 2);
+            }
+        }
+
+        private void read(MultipartStream parts) throws IOException {
+            MultipartStream.Part part;
+            while (!stopped && (part = parts.next()) != null) {
+                if (!part.contentType().contains("xml")) {
+                    continue; // 抓图等附件直接跳过，由 next() 丢弃
+                }
+                AlertEvent event;
+                try (InputStream body = part.body()) {
+                    event = IsapiXml.parse(body, r -> IsapiXml.alert(r, cameraId));
+                } catch (IOException e) {
+                    parseErrors.increment(); // 连接断开的话下一次 next() 会抛出
+                    continue;
+                }
+                publish(event);
+            }
+        }
+    }
+}
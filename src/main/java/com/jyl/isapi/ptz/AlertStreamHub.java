@@ -0,0 +1,107 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.apache.hc.client5.http.auth.AuthScope;
+import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * alertStream 订阅中心：每台相机最多一条长连接，按需建立、无人订阅时断开，事件扇出给所有本地订阅者。
+ * <p>
+ * 长连接单独使用一个连接池，不占用命令连接池的 maxPerRoute。
+ */
+@Component
+public class AlertStreamHub implements DisposableBean {
+    private final CameraRegistry cameras;
+    private final FleetProperties fleet;
+    private final CloseableHttpClient http;
+    private final Map<String, AlertStream> streams = new ConcurrentHashMap<>();
+    private final Set<AlertSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    public AlertStreamHub(CameraRegistry cameras, FleetProperties fleet) {
+        this.cameras = cameras;
+        this.fleet = fleet;
+
+        BasicCredentialsProvider creds = new BasicCredentialsProvider();
+        cameras.clients().values().forEach(c -> creds.setCredentials(
+                new AuthScope(c.getProps().getHost(), c.getProps().getPort()),
+                new UsernamePasswordCredentials(c.getProps().getUsername(), c.getProps().getPassword().toCharArray())
+        ));
+        this.http = HttpClients.custom()
+                .setDefaultCredentialsProvider(creds)
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(Math.max(1, cameras.clients().size()))
+                        .setMaxConnPerRoute(1)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(fleet.getConnectTimeoutMs()))
+                                // 超过这么久没有任何数据（设备心跳也没有）视为断线重连
+                                .setSocketTimeout(Timeout.ofMilliseconds(fleet.getAlertReadTimeoutMs()))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(fleet.getAlertReadTimeoutMs()))
+                        .build())
+                .build();
+    }
+
+    /**
+     * @param cameraIds 为空时订阅所有相机
+     * @param types     只要这些 eventType（忽略大小写）；为空表示全部
+     */
+    public AlertSubscriber subscribe(Collection<String> cameraIds, Collection<String> types, AlertSubscriber.Sink sink) {
+        List<String> ids = cameraIds == null || cameraIds.isEmpty()
+                ? List.copyOf(cameras.clients().keySet())
+                : List.copyOf(cameraIds);
+        ids.forEach(cameras::client); // 未知相机 -> 404
+        Set<String> typeSet = types == null ? Set.of()
+                : types.stream().map(t -> t.toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+
+        AlertSubscriber s = new AlertSubscriber(fleet.getAlertBufferSize(), typeSet, sink);
+        List<AlertStream> joined = ids.stream().map(this::stream).toList();
+        s.onClose(() -> {
+            subscribers.remove(s);
+            joined.forEach(st -> st.remove(s));
+        });
+        subscribers.add(s);
+        joined.forEach(st -> st.add(s));
+        return s;
+    }
+
+    private AlertStream stream(String cameraId) {
+        return streams.computeIfAbsent(cameraId, id -> new AlertStream(id, cameras.camera(id), http, fleet.getAlertReconnectMaxMs()));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> cams = new LinkedHashMap<>();
+        streams.forEach((id, st) -> cams.put(id, st.stats()));
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("cameras", cams);
+        m.put("subscribers", subscribers.stream().map(AlertSubscriber::stats).toList());
+        return m;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        subscribers.forEach(AlertSubscriber::close);
+        streams.values().forEach(AlertStream::stop);
+        http.close();
+    }
+}
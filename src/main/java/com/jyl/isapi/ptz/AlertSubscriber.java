@@ -0,0 +1,155 @@
+package com.jyl.isapi.ptz;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 一个本地订阅者（如一个 SSE 连接）：有界队列 + 独立的虚拟线程投递。
+ * 相机读线程只做 {@link #offer}，队列满时丢弃最旧的事件，慢消费者不会阻塞相机连接。
+ */
+public class AlertSubscriber {
+    private static final AtomicLong IDS = new AtomicLong();
+
+    /**
+     * 空闲这么久没有事件时调用一次 {@link Sink#keepalive()}，及时发现已断开的客户端
+     */
+    private static final long KEEPALIVE_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    public interface Sink {
+        void send(AlertEvent event) throws IOException;
+
+        default void keepalive() throws IOException {
+        }
+    }
+
+    private final long id = IDS.incrementAndGet();
+    private final int capacity;
+    private final Set<String> types;
+    private final Sink sink;
+    private final ArrayDeque<AlertEvent> queue;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile Runnable onClose = () -> {
+    };
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param types 只投递这些 eventType（小写）；空表示全部
+     */
+    AlertSubscriber(int capacity, Set<String> types, Sink sink) {
+        this.capacity = Math.max(1, capacity);
+        this.types = types;
+        this.sink = sink;
+        this.queue = new ArrayDeque<>(this.capacity);
+        Thread.ofVirtual().name("alert-subscriber-" + id).start(this::drain);
+    }
+
+    void onClose(Runnable onClose) {
+        this.onClose = onClose;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * 非阻塞入队；满了丢最旧的
+     */
+    void offer(AlertEvent event) {
+        if (closed.get() || (!types.isEmpty() && (event.eventType() == null || !types.contains(event.eventType().toLowerCase(Locale.ROOT))))) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (queue.size() >= capacity) {
+                queue.pollFirst();
+                dropped.increment();
+            }
+            queue.addLast(event);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            lock.lock();
+            try {
+                queue.clear();
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+            onClose.run();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", id);
+        m.put("types", types);
+        m.put("queued", queued());
+        m.put("delivered", delivered.sum());
+        m.put("dropped", dropped.sum());
+        return m;
+    }
+
+    private int queued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        while (!closed.get()) {
+            AlertEvent next;
+            lock.lock();
+            try {
+                long wait = KEEPALIVE_NANOS;
+                while (queue.isEmpty() && !closed.get() && wait > 0) {
+                    wait = notEmpty.awaitNanos(wait);
+                }
+                next = queue.pollFirst();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                if (next == null) {
+                    if (!closed.get()) {
+                        sink.keepalive();
+                    }
+                    continue;
+                }
+                sink.send(next);
+                delivered.increment();
+            } catch (IOException | RuntimeException e) {
+                break; // 客户端已断开
+            }
+        }
+        close();
+    }
+}
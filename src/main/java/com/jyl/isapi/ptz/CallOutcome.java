@@ -0,0 +1,48 @@
+package com.jyl.isapi.ptz;
+
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+
+import java.io.InterruptedIOException;
+
+/**
+ * 一次 ISAPI 调用的结果分类：有 HTTP 响应时为 RESPONSE（看状态码），否则按异常归类
+ */
+public enum CallOutcome {
+    RESPONSE("response"),
+    CIRCUIT_OPEN("circuit-open"),
+    POOL_TIMEOUT("pool-timeout"),
+    TIMEOUT("timeout"),
+    ERROR("error");
+
+    private static final CallOutcome[] VALUES = values();
+
+    private final String tag;
+
+    CallOutcome(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+
+    static CallOutcome of(int status, Throwable failure) {
+        if (status != 0) {
+            return RESPONSE;
+        }
+        if (failure instanceof CameraUnavailableException) {
+            return CIRCUIT_OPEN;
+        }
+        if (failure instanceof ConnectionRequestTimeoutException) {
+            return POOL_TIMEOUT;
+        }
+        if (failure instanceof InterruptedIOException) {
+            return TIMEOUT; // 连接超时 / 响应超时
+        }
+        return ERROR;
+    }
+
+    static CallOutcome ofOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : ERROR;
+    }
+}
@@ -0,0 +1,117 @@
+package com.jyl.isapi.ptz;
+
+import org.apache.hc.client5.http.ConnectTimeoutException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单台相机的熔断状态：
+ * <ul>
+ *   <li>CLOSED：正常请求；连续 failureThreshold 次连接失败（拒绝连接/连接超时/路由不可达/域名解析失败）后转 OPEN</li>
+ *   <li>OPEN：所有请求直接抛 {@link CameraUnavailableException}，不占连接池、不等连接超时；
+ *       由 {@link CameraHealthMonitor} 按指数退避探测，探测收到任何 HTTP 响应即转回 CLOSED</li>
+ * </ul>
+ * 收到任何 HTTP 响应（含 4xx/5xx）都说明相机可达，连续失败计数清零。
+ */
+public class CameraHealth {
+    public enum State {CLOSED, OPEN}
+
+    private final String cameraId;
+    private final int failureThreshold;
+    private final long probeMinMs;
+    private final long probeMaxMs;
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long probeBackoffMs;
+    private volatile long nextProbeAt;
+    private String lastError;
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+
+    public record Stats(String cameraId, State state, int consecutiveFailures, long openSinceMs,
+                        long nextProbeInMs, String lastError, long opened, long rejected, long probes) {
+    }
+
+    CameraHealth(String cameraId, int failureThreshold, long probeMinMs, long probeMaxMs) {
+        this.cameraId = cameraId;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.probeMinMs = Math.max(1, probeMinMs);
+        this.probeMaxMs = Math.max(this.probeMinMs, probeMaxMs);
+    }
+
+    static boolean isConnectFailure(Throwable e) {
+        return e instanceof ConnectException || e instanceof ConnectTimeoutException
+                || e instanceof NoRouteToHostException || e instanceof UnknownHostException;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 请求前调用；熔断中直接失败
+     */
+    void check() throws CameraUnavailableException {
+        if (state == State.OPEN) {
+            rejected.increment();
+            throw new CameraUnavailableException("camera " + cameraId + " is unreachable (circuit open)");
+        }
+    }
+
+    synchronized void onResponse() {
+        consecutiveFailures = 0;
+    }
+
+    synchronized void onFailure(Throwable e) {
+        if (!isConnectFailure(e) || state == State.OPEN) {
+            return;
+        }
+        lastError = e.toString();
+        if (++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probeBackoffMs = probeMinMs;
+            nextProbeAt = openedAt + probeBackoffMs;
+            opened.increment();
+        }
+    }
+
+    /**
+     * 熔断中且到了探测时间，并且没有探测在进行：占用探测权
+     */
+    boolean tryStartProbe(long now) {
+        return state == State.OPEN && now >= nextProbeAt && probing.compareAndSet(false, true);
+    }
+
+    synchronized void onProbe(boolean reachable, Throwable failure) {
+        probes.increment();
+        if (reachable) {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        } else {
+            if (failure != null) {
+                lastError = failure.toString();
+            }
+            probeBackoffMs = Math.min(probeMaxMs, probeBackoffMs * 2);
+            nextProbeAt = System.currentTimeMillis() + probeBackoffMs;
+        }
+        probing.set(false);
+    }
+
+    public synchronized Stats stats() {
+        long now = System.currentTimeMillis();
+        boolean open = state == State.OPEN;
+        return new Stats(cameraId, state, consecutiveFailures, open ? now - openedAt : 0,
+                open ? Math.max(0, nextProbeAt - now) : 0, lastError,
+                opened.sum(), rejected.sum(), probes.sum());
+    }
+}
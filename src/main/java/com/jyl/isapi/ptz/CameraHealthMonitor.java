@@ -0,0 +1,29 @@
+package com.jyl.isapi.ptz;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 熔断中的相机按各自的退避时间在后台探测（ptzExecutor 上执行，同一相机同时只有一个探测）；
+ * 集群模式下只探测本实例负责的相机
+ */
+@Component
+public class CameraHealthMonitor {
+    private final CameraRegistry cameras;
+    private final ClusterMembership membership;
+
+    public CameraHealthMonitor(CameraRegistry cameras, ClusterMembership membership) {
+        this.cameras = cameras;
+        this.membership = membership;
+    }
+
+    @Scheduled(fixedDelayString = "${fleet.health-tick-ms:500}")
+    public void probeOpenCircuits() {
+        long now = System.currentTimeMillis();
+        for (PtzIsapiClient c : cameras.clients().values()) {
+            if (membership.isLocal(c.getCameraId()) && c.getHealth().tryStartProbe(now)) {
+                c.supplyAsync(c::probe);
+            }
+        }
+    }
+}
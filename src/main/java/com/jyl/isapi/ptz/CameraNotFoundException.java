@@ -0,0 +1,13 @@
+package com.jyl.isapi.ptz;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class CameraNotFoundException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public CameraNotFoundException(String cameraId) {
+        super("unknown camera: " + cameraId);
+    }
+}
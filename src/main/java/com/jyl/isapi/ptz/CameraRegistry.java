@@ -0,0 +1,152 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import com.jyl.isapi.config.PtzProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.auth.AuthScope;
+import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * 相机注册表：cameraId -> {@link PtzIsapiClient}
+ * <p>
+ * 所有相机共用一个 HttpClient / 连接池（按路由限流），每台相机只是一个轻量的包装对象，
+ * 500+ 台相机也不会产生额外的连接池或线程。
+ * camera.* 配置的单台相机以 {@link #DEFAULT_ID} 注册，兼容原来的 /ptz/... 接口。
+ */
+@Component
+public class CameraRegistry implements DisposableBean {
+    public static final String DEFAULT_ID = "default";
+
+    private final PoolingHttpClientConnectionManager cm;
+    private final CloseableHttpClient http;
+    private final Map<String, PtzIsapiClient> clients;
+    private final IsapiMetrics metrics;
+    private final FlightRecorder recorder;
+
+    public CameraRegistry(PtzProperties defaultCamera, FleetProperties fleet,
+                          @Qualifier("ptzExecutor") Executor ptzExecutor,
+                          List<PtzCommandListener> listeners, MeterRegistry meterRegistry) throws IOException {
+        Map<String, PtzProperties> cameras = new LinkedHashMap<>();
+        if (defaultCamera.getHost() != null) {
+            cameras.put(DEFAULT_ID, defaultCamera);
+        }
+        cameras.putAll(fleet.getCameras());
+        // 缺账号密码时启动即失败，不要等到第一次 401 才在凭据构造处抛 NPE
+        cameras.forEach((id, c) -> {
+            if (c.getUsername() == null || c.getPassword() == null) {
+                throw new IllegalStateException(id + ": username and password are required");
+            }
+        });
+
+        BasicCredentialsProvider creds = new BasicCredentialsProvider();
+        cameras.values().forEach(c -> creds.setCredentials(
+                new AuthScope(c.getHost(), c.getPort()),
+                new UsernamePasswordCredentials(c.getUsername(), c.getPassword().toCharArray())
+        ));
+
+        this.cm = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(fleet.getMaxTotal())
+                .setMaxConnPerRoute(fleet.getMaxPerRoute())
+                // 路由很多时 LAX 策略锁粒度更细
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.LAX)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(fleet.getConnectTimeoutMs()))
+                        .build())
+                .build();
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setResponseTimeout(Timeout.ofMilliseconds(fleet.getResponseTimeoutMs()))
+                // 连接池排队上限，避免某台相机的请求无限期等待连接
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(fleet.getConnectionRequestTimeoutMs()))
+                .build();
+
+        this.http = HttpClients.custom()
+                .setDefaultCredentialsProvider(creds)
+                .setConnectionManager(cm)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(TimeValue.ofSeconds(fleet.getIdleEvictSec()))
+                // 把等连接池/建连的时间和设备响应时间分开计量
+                .addExecInterceptorBefore(ChainElement.CONNECT.name(), "isapi-lease-start", IsapiMetrics.leaseStart())
+                .addExecInterceptorAfter(ChainElement.CONNECT.name(), "isapi-lease-end", IsapiMetrics.leaseEnd())
+                .build();
+
+        this.metrics = new IsapiMetrics(meterRegistry);
+        metrics.bindPoolTotals(cm);
+        cameras.forEach((id, c) -> metrics.bindPool(cm, id,
+                new HttpRoute(new HttpHost(c.getScheme(), c.getHost(), c.getPort()), null,
+                        "https".equalsIgnoreCase(c.getScheme()))));
+
+        this.recorder = fleet.getFlightRecorderFile() == null || fleet.getFlightRecorderFile().isBlank()
+                ? FlightRecorder.disabled()
+                : FlightRecorder.open(Path.of(fleet.getFlightRecorderFile()), fleet.getFlightRecorderCapacity());
+
+        Map<String, PtzIsapiClient> m = new LinkedHashMap<>();
+        cameras.forEach((id, c) -> m.put(id, new PtzIsapiClient(id, c, http, ptzExecutor, listeners, fleet, metrics, recorder)));
+        this.clients = Collections.unmodifiableMap(m);
+    }
+
+    public PtzIsapiClient client(String cameraId) {
+        PtzIsapiClient c = clients.get(cameraId != null ? cameraId : DEFAULT_ID);
+        if (c == null) {
+            throw new CameraNotFoundException(cameraId);
+        }
+        return c;
+    }
+
+    public PtzProperties camera(String cameraId) {
+        return client(cameraId).getProps();
+    }
+
+    /**
+     * 未指定 ch 时使用该相机配置的默认通道
+     */
+    public int channel(String cameraId, Integer ch) {
+        return ch != null ? ch : camera(cameraId).getChannel();
+    }
+
+    public Map<String, PtzIsapiClient> clients() {
+        return clients;
+    }
+
+    public PoolingHttpClientConnectionManager connectionManager() {
+        return cm;
+    }
+
+    IsapiMetrics metrics() {
+        return metrics;
+    }
+
+    public FlightRecorder flightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        http.close();
+        recorder.close();
+    }
+}
@@ -0,0 +1,18 @@
+package com.jyl.isapi.ptz;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.IOException;
+
+/**
+ * 相机连续连接失败、熔断中：不再尝试连接，直接失败，等后台探测恢复
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class CameraUnavailableException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public CameraUnavailableException(String message) {
+        super(message);
+    }
+}
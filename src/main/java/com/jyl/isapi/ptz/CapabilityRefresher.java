@@ -0,0 +1,45 @@
+package com.jyl.isapi.ptz;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 启动后并发预取每台相机默认通道的能力表，之后按 fleet.capabilities-refresh-ms 定期刷新已缓存的通道；
+ * 集群模式下只处理本实例负责的相机
+ */
+@Component
+public class CapabilityRefresher {
+    private final CameraRegistry cameras;
+    private final ClusterMembership membership;
+    /** 上一轮刷新；未完成时跳过本轮，避免慢设备让刷新请求越积越多 */
+    private volatile CompletableFuture<Void> round = CompletableFuture.completedFuture(null);
+
+    public CapabilityRefresher(CameraRegistry cameras, ClusterMembership membership) {
+        this.cameras = cameras;
+        this.membership = membership;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        cameras.clients().values().stream().filter(c -> membership.isLocal(c.getCameraId())).forEach(c ->
+                c.supplyAsync(() -> c.refreshCapabilities(c.getProps().getChannel())));
+    }
+
+    @Scheduled(initialDelayString = "${fleet.capabilities-refresh-ms:3600000}",
+            fixedDelayString = "${fleet.capabilities-refresh-ms:3600000}")
+    public void refreshAll() {
+        // 与 preload 一样只提交不等待，不占用调度线程
+        if (!round.isDone()) {
+            return;
+        }
+        round = CompletableFuture.allOf(cameras.clients().values().stream()
+                .filter(c -> membership.isLocal(c.getCameraId()))
+                .flatMap(c -> c.getCapabilityCache().keySet().stream()
+                        .map(ch -> c.supplyAsync(() -> c.refreshCapabilities(ch))))
+                .toArray(CompletableFuture[]::new));
+    }
+}
@@ -0,0 +1,11 @@
+package com.jyl.isapi.ptz;
+
+import java.util.List;
+
+/**
+ * 集群成员来源。默认取 fleet.cluster.nodes 静态配置；需要从注册中心/DNS 等获取时声明一个该类型的 bean。
+ * 每次心跳调用一次，返回的列表变化（加入/移除节点）会触发重新分配；列表中的节点还要心跳成功才参与分配。
+ */
+public interface ClusterDiscovery {
+    List<ClusterNode> nodes();
+}
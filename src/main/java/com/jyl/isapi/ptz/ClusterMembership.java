@@ -0,0 +1,358 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 集群成员与相机归属：存活节点构成一致性哈希环，cameraId 落在哪个节点就由哪个节点持有连接、
+ * Digest 状态、缓存和巡航，其余节点把该相机的请求转发过去，同一相机的命令仍在一个实例上排队。
+ * <p>
+ * 节点之间互相心跳（GET /cluster/ping）；连续 fail-after 次失败，或转发时连不上，即从环上摘除，
+ * 心跳恢复后重新加入。环变化时发布 {@link OwnershipChange}。
+ * 未启用集群时本实例负责所有相机，其余方法都是空操作。
+ */
+@Component
+public class ClusterMembership implements DisposableBean {
+    /**
+     * 转发请求带上来源节点名；收到带此头的请求一律本地处理，避免各节点环不一致时来回转发
+     */
+    public static final String FORWARDED_HEADER = "X-Isapi-Forwarded-By";
+    /**
+     * 响应头：实际处理该请求的节点名
+     */
+    public static final String OWNER_HEADER = "X-Isapi-Owner";
+
+    private final FleetProperties.Cluster props;
+    private final CameraRegistry cameras;
+    private final Executor executor;
+    private final ApplicationEventPublisher events;
+    private final ClusterDiscovery discovery;
+    private final ClusterNode self;
+    private final CloseableHttpClient http;
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder forwardFailures = new LongAdder();
+
+    private volatile HashRing ring;
+    private Set<String> ringIds = Set.of();
+    private volatile Set<String> owned;
+    private volatile long version;
+    /**
+     * 上一轮心跳；各节点的 ping 在 ptzExecutor 上并发执行，全部结束后重建哈希环
+     */
+    private volatile CompletableFuture<Void> round = CompletableFuture.completedFuture(null);
+
+    private static final class Peer {
+        final ClusterNode node;
+        volatile boolean alive;
+        volatile int misses;
+        volatile long lastSeen;
+        volatile String lastError;
+
+        Peer(ClusterNode node, boolean alive) {
+            this.node = node;
+            this.alive = alive;
+        }
+    }
+
+    public record ForwardedResponse(int status, List<Map.Entry<String, String>> headers, byte[] body) {
+    }
+
+    public ClusterMembership(FleetProperties fleet, CameraRegistry cameras,
+                             @Qualifier("ptzExecutor") Executor executor, ApplicationEventPublisher events,
+                             ObjectProvider<ClusterDiscovery> discovery) {
+        this.props = fleet.getCluster();
+        this.cameras = cameras;
+        this.executor = executor;
+        this.events = events;
+        this.discovery = discovery.getIfAvailable(() -> () -> props.getNodes().entrySet().stream()
+                .map(e -> new ClusterNode(e.getKey(), trimSlash(e.getValue()))).toList());
+        String selfId = props.getSelf() != null ? props.getSelf() : "local";
+        String selfUrl = props.getNodes().get(selfId);
+        this.self = new ClusterNode(selfId, selfUrl != null ? trimSlash(selfUrl) : null);
+
+        if (!props.isEnabled()) {
+            this.http = null;
+            this.owned = Set.copyOf(cameras.clients().keySet());
+            return;
+        }
+        if (props.getSelf() == null || this.discovery.nodes().stream().noneMatch(n -> n.id().equals(selfId))) {
+            throw new IllegalStateException("fleet.cluster.self=" + props.getSelf() + " is not one of the cluster nodes");
+        }
+        if (fleet.forwardTimeoutMs() >= fleet.requestTimeoutMs()) {
+            throw new IllegalStateException("fleet.cluster.forward-timeout-ms=" + fleet.forwardTimeoutMs()
+                    + " must be below the owner's request timeout " + fleet.requestTimeoutMs() + " ms");
+        }
+        this.http = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(256)
+                        .setMaxConnPerRoute(64)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(props.getHeartbeatMs()))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(fleet.forwardTimeoutMs()))
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(fleet.forwardTimeoutMs()))
+                        .build())
+                .disableAutomaticRetries()
+                .disableRedirectHandling()
+                .build();
+        // 启动时假定配置的节点都在线，第一轮心跳后修正；这样各实例同时启动时不会先各自接管全部相机
+        for (ClusterNode n : this.discovery.nodes()) {
+            if (!n.id().equals(selfId)) {
+                peers.put(n.id(), new Peer(n, true));
+            }
+        }
+        rebuild();
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    public ClusterNode self() {
+        return self;
+    }
+
+    /**
+     * 相机当前的归属节点
+     */
+    public ClusterNode owner(String cameraId) {
+        HashRing r = ring;
+        if (r == null) {
+            return self;
+        }
+        ClusterNode n = r.owner(cameraId != null ? cameraId : CameraRegistry.DEFAULT_ID);
+        return n != null ? n : self;
+    }
+
+    /**
+     * 该相机由本实例负责（未启用集群时总是 true）。后台任务（探测、能力表刷新、预热、守望巡检）只处理本实例的相机。
+     */
+    public boolean isLocal(String cameraId) {
+        return ring == null || owner(cameraId).id().equals(self.id());
+    }
+
+    public Set<String> ownedCameras() {
+        return owned;
+    }
+
+    /**
+     * 只发起一轮 ping 不等待，不占用调度线程；上一轮还有节点没答复（ping 超时为 heartbeat-ms）时跳过本次
+     */
+    @Scheduled(fixedDelayString = "${fleet.cluster.heartbeat-ms:1000}")
+    public void heartbeat() {
+        if (!props.isEnabled() || !round.isDone()) {
+            return;
+        }
+        Map<String, ClusterNode> listed = new LinkedHashMap<>();
+        discovery.nodes().forEach(n -> listed.put(n.id(), n));
+        peers.keySet().removeIf(id -> !listed.containsKey(id));
+        listed.values().forEach(n -> {
+            if (!n.id().equals(self.id())) {
+                // 新发现的节点要心跳成功后才参与分配；地址变化按新节点处理
+                peers.compute(n.id(), (id, p) -> p != null && p.node.equals(n) ? p : new Peer(n, false));
+            }
+        });
+        List<CompletableFuture<Void>> pings = new ArrayList<>();
+        for (Peer p : peers.values()) {
+            pings.add(CompletableFuture.runAsync(() -> ping(p), executor));
+        }
+        round = CompletableFuture.allOf(pings.toArray(CompletableFuture[]::new)).whenComplete((v, e) -> rebuild());
+    }
+
+    private void ping(Peer p) {
+        RequestConfig config = RequestConfig.custom()
+                .setResponseTimeout(Timeout.ofMilliseconds(props.getHeartbeatMs()))
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(props.getHeartbeatMs()))
+                .build();
+        HttpGet req = new HttpGet(p.node.url() + "/cluster/ping");
+        req.setConfig(config);
+        try {
+            String id = http.execute(req, r -> r.getCode() == 200
+                    ? EntityUtils.toString(r.getEntity(), StandardCharsets.UTF_8).trim() : null);
+            if (!p.node.id().equals(id)) {
+                throw new IOException("unexpected ping answer " + id);
+            }
+            p.misses = 0;
+            p.alive = true;
+            p.lastSeen = System.currentTimeMillis();
+            p.lastError = null;
+        } catch (IOException | RuntimeException e) {
+            p.lastError = String.valueOf(e.getMessage());
+            if (++p.misses >= props.getFailAfter()) {
+                p.alive = false;
+            }
+        }
+    }
+
+    /**
+     * 转发时连不上归属节点：立即摘除，不等心跳。节点可能已被心跳从 peers 中删掉而环还没重建，
+     * 所以无论是否找到都重建一次
+     */
+    private void suspect(ClusterNode node, String error) {
+        Peer p = peers.get(node.id());
+        if (p != null) {
+            p.misses = Math.max(p.misses, props.getFailAfter());
+            p.alive = false;
+            p.lastError = error;
+        }
+        rebuild();
+    }
+
+    private void rebuild() {
+        OwnershipChange change;
+        synchronized (this) {
+            List<ClusterNode> live = new ArrayList<>();
+            live.add(self);
+            peers.values().stream().filter(p -> p.alive).forEach(p -> live.add(p.node));
+            Set<String> liveIds = live.stream().map(ClusterNode::id).collect(Collectors.toSet());
+            if (ring != null && liveIds.equals(ringIds)) {
+                return;
+            }
+            HashRing next = new HashRing(live, props.getVirtualNodes());
+            Set<String> nextOwned = cameras.clients().keySet().stream()
+                    .filter(id -> Objects.equals(next.owner(id).id(), self.id()))
+                    .collect(Collectors.toUnmodifiableSet());
+            Set<String> before = owned != null ? owned : nextOwned;
+            Set<String> gained = new HashSet<>(nextOwned);
+            gained.removeAll(before);
+            Set<String> lost = new HashSet<>(before);
+            lost.removeAll(nextOwned);
+            ring = next;
+            ringIds = liveIds;
+            owned = nextOwned;
+            version++;
+            change = new OwnershipChange(version, Set.copyOf(gained), Set.copyOf(lost));
+        }
+        if (!change.gained().isEmpty() || !change.lost().isEmpty()) {
+            events.publishEvent(change);
+        }
+    }
+
+    /**
+     * 把请求转发给相机的归属节点并读完响应。连不上时摘除该节点并转给新的归属节点；
+     * 新的归属是本实例时返回 null，由调用方让客户端重试（请求已在转发路径上，不能再本地执行）。
+     * 已发出但没有收到响应的请求不重试，命令可能已经执行。
+     * 每个节点最多尝试一次，都连不上时抛 {@link ConnectException}，调用方按 503 让客户端稍后重试。
+     *
+     * @param pathAndQuery 以 / 开头，含查询串
+     */
+    public ForwardedResponse forward(String cameraId, String method, String pathAndQuery,
+                                     List<Map.Entry<String, String>> headers, byte[] body, String contentType)
+            throws IOException {
+        int attempts = peers.size() + 1;
+        for (int attempt = 1; ; attempt++) {
+            ClusterNode owner = owner(cameraId);
+            if (owner.id().equals(self.id())) {
+                return null;
+            }
+            ClassicRequestBuilder b = ClassicRequestBuilder.create(method).setUri(owner.url() + pathAndQuery);
+            headers.forEach(h -> b.addHeader(h.getKey(), h.getValue()));
+            b.setHeader(FORWARDED_HEADER, self.id());
+            if (body != null && body.length > 0) {
+                b.setEntity(new ByteArrayEntity(body, contentType != null ? ContentType.parse(contentType) : null));
+            }
+            try {
+                ForwardedResponse r = http.execute(b.build(), resp -> {
+                    List<Map.Entry<String, String>> out = new ArrayList<>();
+                    for (Header h : resp.getHeaders()) {
+                        out.add(Map.entry(h.getName(), h.getValue()));
+                    }
+                    byte[] bytes = resp.getEntity() != null ? EntityUtils.toByteArray(resp.getEntity()) : new byte[0];
+                    return new ForwardedResponse(resp.getCode(), out, bytes);
+                });
+                forwarded.increment();
+                return r;
+            } catch (ConnectException | ConnectTimeoutException e) {
+                forwardFailures.increment();
+                suspect(owner, e.getMessage());
+                if (attempt >= attempts) {
+                    throw new ConnectException("no reachable owner for " + cameraId + " after " + attempts
+                            + " attempts, last " + owner.id() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", props.isEnabled());
+        m.put("self", self.id());
+        m.put("version", version);
+        m.put("ownedCameras", owned.size());
+        m.put("totalCameras", cameras.clients().size());
+        m.put("forwarded", forwarded.sum());
+        m.put("forwardFailures", forwardFailures.sum());
+        Map<String, Long> counts = cameras.clients().keySet().stream()
+                .collect(Collectors.groupingBy(id -> owner(id).id(), Collectors.counting()));
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        Map<String, Object> me = new LinkedHashMap<>();
+        me.put("id", self.id());
+        me.put("url", self.url());
+        me.put("self", true);
+        me.put("alive", true);
+        me.put("cameras", counts.getOrDefault(self.id(), 0L));
+        nodes.add(me);
+        peers.values().stream().sorted((a, b) -> a.node.id().compareTo(b.node.id())).forEach(p -> {
+            Map<String, Object> n = new LinkedHashMap<>();
+            n.put("id", p.node.id());
+            n.put("url", p.node.url());
+            n.put("self", false);
+            n.put("alive", p.alive);
+            n.put("cameras", counts.getOrDefault(p.node.id(), 0L));
+            n.put("misses", p.misses);
+            n.put("lastSeenMsAgo", p.lastSeen > 0 ? System.currentTimeMillis() - p.lastSeen : null);
+            n.put("lastError", p.lastError);
+            nodes.add(n);
+        });
+        m.put("nodes", nodes);
+        return m;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (http != null) {
+            http.close();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * 集群中的一个服务实例
+ *
+ * @param id  节点名，参与哈希，改名等于换节点
+ * @param url 对外地址，如 http://10.0.0.11:7005
+ */
+public record ClusterNode(String id, String url) {
+}
@@ -0,0 +1,58 @@
+package com.jyl.isapi.ptz;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 归属变化后的交接：新接管的相机先读能力表（顺带建好连接、完成认证）；
+ * 移交出去的相机上正在运行的巡航在本地停止，并在新的归属节点上从第一步重新开始。
+ * 其余按相机的状态（状态缓存、写法协商、Digest nonce）由新节点按需重建。
+ */
+@Component
+public class ClusterRebalancer {
+    private final CameraRegistry cameras;
+    private final ClusterMembership membership;
+    private final TourEngine tours;
+    private final ObjectMapper json;
+
+    public ClusterRebalancer(CameraRegistry cameras, ClusterMembership membership, TourEngine tours, ObjectMapper json) {
+        this.cameras = cameras;
+        this.membership = membership;
+        this.tours = tours;
+        this.json = json;
+    }
+
+    @EventListener
+    public void onChange(OwnershipChange change) {
+        for (String id : change.gained()) {
+            PtzIsapiClient c = cameras.client(id);
+            c.supplyAsync(() -> c.refreshCapabilities(c.getProps().getChannel()));
+        }
+        for (TourEngine.TourStats t : tours.stats()) {
+            if (change.lost().contains(t.cameraId()) && t.state() != TourEngine.State.STOPPED
+                    && tours.stop(t.cameraId(), t.channel())) {
+                PtzIsapiClient c = cameras.client(t.cameraId());
+                c.runAsync(() -> handOff(t));
+            }
+        }
+    }
+
+    private void handOff(TourEngine.TourStats t) throws IOException {
+        byte[] body = json.writeValueAsBytes(Map.of("steps", t.steps(), "waitArrival", t.waitArrival()));
+        String uri = "/tours?camera=" + URLEncoder.encode(t.cameraId(), StandardCharsets.UTF_8) + "&ch=" + t.channel();
+        ClusterMembership.ForwardedResponse r = membership.forward(t.cameraId(), "POST", uri, List.of(), body,
+                MediaType.APPLICATION_JSON_VALUE);
+        if (r == null) {
+            // 归属在交接期间又回到本实例
+            tours.start(cameras.client(t.cameraId()), t.channel(), t.steps(), t.waitArrival());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.jyl.isapi.ptz;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 同一台相机每个通道的命令排队（调用方线程在这里阻塞，都是虚拟线程）：
+ * <ul>
+ *   <li>同一通道同一时间只下发一个命令，按到达顺序执行；一个忙碌的通道最多占一条连接，不会挤占同一相机其它通道的 maxPerRoute</li>
+ *   <li>{@link Kind#MOVE}：新的运动命令取代还在排队的旧运动命令（旧命令抛 {@link PtzSupersededException}）</li>
+ *   <li>{@link Kind#STOP}：清掉排队中的运动命令并立即下发，不等正在执行的命令；stop 完成前其余命令不开始。
+ *       插队时若有运动命令正在执行，设备可能先收到 stop 再收到这条运动命令，所以该命令返回后再补发一次同一个 stop</li>
+ *   <li>{@link Kind#CONFIG}：配置写入按顺序串行，不会被取代</li>
+ * </ul>
+ * 只管“命令”本身；等待到位（settle）的轮询、状态/能力读取不排队。
+ */
+class CommandScheduler {
+    enum Kind {STOP, MOVE, CONFIG}
+
+    private final String cameraId;
+    private final int queueLimit;
+    private final long queueTimeoutNanos;
+    private final IsapiMetrics metrics;
+    private final ConcurrentHashMap<Integer, Lane> lanes = new ConcurrentHashMap<>();
+
+    CommandScheduler(String cameraId, int queueLimit, long queueTimeoutMs, IsapiMetrics metrics) {
+        this.cameraId = cameraId;
+        this.queueLimit = Math.max(1, queueLimit);
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+        this.metrics = metrics;
+    }
+
+    @FunctionalInterface
+    interface Command<T> {
+        T call() throws IOException;
+    }
+
+    private static final class Waiter {
+        final Kind kind;
+        boolean superseded;
+
+        Waiter(Kind kind) {
+            this.kind = kind;
+        }
+    }
+
+    private final class Lane {
+        final int channel;
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition changed = lock.newCondition();
+        final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        boolean busy;
+        Kind busyKind;
+        int stops;
+        /**
+         * 插队时正在执行运动命令：记下 stop，等该命令返回后补发
+         */
+        Command<?> restop;
+
+        final LongAdder executed = new LongAdder();
+        final LongAdder superseded = new LongAdder();
+        final LongAdder preempted = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder restopped = new LongAdder();
+
+        Lane(int channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * 取代排队中的运动命令；调用时持有 lock
+         */
+        void supersedeMoves() {
+            boolean any = false;
+            for (Iterator<Waiter> it = queue.iterator(); it.hasNext(); ) {
+                Waiter w = it.next();
+                if (w.kind == Kind.MOVE) {
+                    w.superseded = true;
+                    it.remove();
+                    superseded.increment();
+                    metrics.scheduler(cameraId, "superseded");
+                    any = true;
+                }
+            }
+            if (any) {
+                changed.signalAll();
+            }
+        }
+    }
+
+    <T> T run(int channel, Kind kind, Command<T> command) throws IOException {
+        Lane lane = lanes.computeIfAbsent(channel, Lane::new);
+        return kind == Kind.STOP ? stop(lane, command) : queued(lane, kind, command);
+    }
+
+    private <T> T stop(Lane lane, Command<T> command) throws IOException {
+        lane.lock.lock();
+        try {
+            lane.supersedeMoves();
+            if (lane.busy) {
+                lane.preempted.increment();
+                metrics.scheduler(cameraId, "preempted");
+                if (lane.busyKind == Kind.MOVE) {
+                    lane.restop = command;
+                }
+            }
+            lane.stops++; // 不等正在执行的命令，但挡住排队的命令直到 stop 完成
+        } finally {
+            lane.lock.unlock();
+        }
+        try {
+            return command.call();
+        } finally {
+            lane.lock.lock();
+            try {
+                lane.stops--;
+                lane.executed.increment();
+                lane.changed.signalAll();
+            } finally {
+                lane.lock.unlock();
+            }
+        }
+    }
+
+    private <T> T queued(Lane lane, Kind kind, Command<T> command) throws IOException {
+        Waiter me = new Waiter(kind);
+        long start = System.nanoTime();
+        lane.lock.lock();
+        try {
+            if (kind == Kind.MOVE) {
+                lane.supersedeMoves();
+            }
+            if (lane.queue.size() >= queueLimit) {
+                lane.rejected.increment();
+                metrics.scheduler(cameraId, "rejected");
+                throw new PtzBusyException("camera " + cameraId + " channel " + lane.channel + " command queue full");
+            }
+            lane.queue.addLast(me);
+            long remaining = queueTimeoutNanos;
+            while (!me.superseded && (lane.busy || lane.stops > 0 || lane.queue.peekFirst() != me)) {
+                if (remaining <= 0) {
+                    lane.queue.remove(me);
+                    lane.rejected.increment();
+                    metrics.scheduler(cameraId, "rejected");
+                    lane.changed.signalAll();
+                    throw new PtzBusyException("camera " + cameraId + " channel " + lane.channel + " command queue timeout");
+                }
+                remaining = lane.changed.awaitNanos(remaining);
+            }
+            if (me.superseded) {
+                throw new PtzSupersededException("superseded by a newer command on camera " + cameraId + " channel " + lane.channel);
+            }
+            lane.queue.pollFirst();
+            lane.busy = true;
+            lane.busyKind = kind;
+        } catch (InterruptedException e) {
+            lane.queue.remove(me);
+            lane.changed.signalAll();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while queued");
+        } finally {
+            lane.lock.unlock();
+        }
+        metrics.schedulerWait(cameraId, kind, System.nanoTime() - start);
+        try {
+            return command.call();
+        } finally {
+            Command<?> restop;
+            lane.lock.lock();
+            try {
+                lane.busy = false;
+                lane.busyKind = null;
+                lane.executed.increment();
+                restop = lane.restop;
+                lane.restop = null;
+                if (restop != null) {
+                    lane.stops++; // 补发完成前排队的命令仍不开始
+                } else {
+                    lane.changed.signalAll();
+                }
+            } finally {
+                lane.lock.unlock();
+            }
+            if (restop != null) {
+                // 另起虚拟线程补发，运动命令的调用方不必再等一次 stop
+                Command<?> stop = restop;
+                Thread.ofVirtual().name("restop-" + cameraId).start(() -> restop(lane, stop));
+            }
+        }
+    }
+
+    /**
+     * 补发 stop；失败只计数，不影响刚完成的运动命令的结果
+     */
+    private void restop(Lane lane, Command<?> stop) {
+        try {
+            stop.call();
+        } catch (IOException | RuntimeException e) {
+            metrics.scheduler(cameraId, "restop-failed");
+        } finally {
+            lane.lock.lock();
+            try {
+                lane.stops--;
+                lane.restopped.increment();
+                lane.changed.signalAll();
+            } finally {
+                lane.lock.unlock();
+            }
+        }
+        metrics.scheduler(cameraId, "restopped");
+    }
+
+    /**
+     * 每个通道：排队数、是否正在执行，以及执行/取代/插队/拒绝/补发 stop 计数
+     */
+    Map<Integer, Map<String, Object>> stats() {
+        Map<Integer, Map<String, Object>> out = new LinkedHashMap<>();
+        lanes.values().forEach(l -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            l.lock.lock();
+            try {
+                m.put("queued", l.queue.size());
+                m.put("busy", l.busy);
+            } finally {
+                l.lock.unlock();
+            }
+            m.put("executed", l.executed.sum());
+            m.put("superseded", l.superseded.sum());
+            m.put("preempted", l.preempted.sum());
+            m.put("rejected", l.rejected.sum());
+            m.put("restopped", l.restopped.sum());
+            out.put(l.channel, m);
+        });
+        return out;
+    }
+}
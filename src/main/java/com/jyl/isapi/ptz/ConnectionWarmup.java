@@ -0,0 +1,82 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 启动预热：容器就绪（对外提供服务）之前，并发对每台相机的默认通道执行 {@link PtzIsapiClient#warmup}，
+ * 建好 fleet.warmup-connections 条连接、完成认证、读好能力表，同时让 HttpClient/认证/XML 的代码路径先跑一遍。
+ * 整体不超过 fleet.warmup-timeout-ms，连不上的相机不阻塞启动（会照常进入熔断）。集群模式下只预热本实例负责的相机。
+ * <p>
+ * fleet.exit-after-warmup=true 时预热完即退出，用于 AppCDS 训练运行（-XX:ArchiveClassesAtExit）。
+ */
+@Component
+public class ConnectionWarmup implements ApplicationRunner {
+    private final CameraRegistry cameras;
+    private final FleetProperties fleet;
+    private final StartupTimeline timeline;
+    private final ConfigurableApplicationContext context;
+    private final ClusterMembership membership;
+
+    public ConnectionWarmup(CameraRegistry cameras, FleetProperties fleet, StartupTimeline timeline,
+                            ConfigurableApplicationContext context, ClusterMembership membership) {
+        this.cameras = cameras;
+        this.fleet = fleet;
+        this.timeline = timeline;
+        this.context = context;
+        this.membership = membership;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (fleet.getWarmupConnections() > 0) {
+            timeline.warmupStarted();
+            timeline.warmupFinished(warmup());
+        }
+        if (fleet.isExitAfterWarmup()) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private List<GroupResult.TargetResult> warmup() {
+        long t0 = System.nanoTime();
+        List<PtzIsapiClient> clients = cameras.clients().values().stream()
+                .filter(c -> membership.isLocal(c.getCameraId())).toList();
+        List<CompletableFuture<GroupResult.TargetResult>> fs = clients.stream().map(c -> {
+            int ch = c.getProps().getChannel();
+            return c.runAsync(() -> c.warmup(ch, fleet.getWarmupConnections()))
+                    .handle((v, ex) -> result(c, ch, t0, ex == null ? null
+                            : String.valueOf((ex.getCause() != null ? ex.getCause() : ex).getMessage())));
+        }).toList();
+        try {
+            CompletableFuture.allOf(fs.toArray(CompletableFuture[]::new)).get(fleet.getWarmupTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // 未完成的按超时报告，请求本身继续在后台完成
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<GroupResult.TargetResult> out = new ArrayList<>(clients.size());
+        for (int i = 0; i < clients.size(); i++) {
+            PtzIsapiClient c = clients.get(i);
+            out.add(fs.get(i).getNow(result(c, c.getProps().getChannel(), t0,
+                    "timeout after " + fleet.getWarmupTimeoutMs() + " ms")));
+        }
+        return out;
+    }
+
+    private static GroupResult.TargetResult result(PtzIsapiClient c, int channel, long start, String error) {
+        return new GroupResult.TargetResult(c.getCameraId(), channel, error == null,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), error);
+    }
+}
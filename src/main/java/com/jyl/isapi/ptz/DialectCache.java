@@ -0,0 +1,39 @@
+package com.jyl.isapi.ptz;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录每个通道、每种操作第一次成功的固件写法，后续直接使用；失败时才重新探测
+ */
+public class DialectCache {
+    private final ConcurrentHashMap<String, PtzDialect> learned = new ConcurrentHashMap<>();
+
+    private static String key(int channel, String operation) {
+        return channel + "/" + operation;
+    }
+
+    public PtzDialect get(int channel, String operation) {
+        return learned.get(key(channel, operation));
+    }
+
+    public void put(int channel, PtzDialect dialect) {
+        learned.put(key(channel, dialect.getOperation()), dialect);
+    }
+
+    public void forget(int channel, String operation) {
+        learned.remove(key(channel, operation));
+    }
+
+    public void clear() {
+        learned.clear();
+    }
+
+    /**
+     * "通道/操作" -> 写法，如 "1/stop" -> STOP_POST
+     */
+    public Map<String, PtzDialect> snapshot() {
+        return new TreeMap<>(learned);
+    }
+}
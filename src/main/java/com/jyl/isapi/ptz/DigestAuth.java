@@ -0,0 +1,192 @@
+package com.jyl.isapi.ptz;
+
+import org.apache.hc.core5.http.Header;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单台相机的预认证：缓存上一次 401 给出的 Digest realm/nonce，后续请求直接带上 Authorization
+ * （nonce-count 递增），省掉每个命令一次 401 往返；只有设备报 stale nonce 或拒绝时才重新走质询。
+ * 设备给的是 Basic 质询时同样缓存为预认证；不支持的 Digest 算法（如 -sess）交回 HttpClient 处理。
+ */
+public class DigestAuth {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final String username;
+    private final String password;
+    private volatile Challenge challenge;
+    private volatile boolean unsupported;
+
+    private final LongAdder preemptive = new LongAdder();
+    private final LongAdder challenged = new LongAdder();
+    private final LongAdder staleNonces = new LongAdder();
+
+    private record Challenge(String scheme, String realm, String nonce, String opaque, String qop,
+                             String algorithm, AtomicInteger nc) {
+    }
+
+    public DigestAuth(String username, String password) {
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * 设备的质询方式无法自行应答，应走 HttpClient 的标准质询流程
+     */
+    public boolean isUnsupported() {
+        return unsupported;
+    }
+
+    /**
+     * 按缓存的质询生成 Authorization；尚无缓存时返回 null
+     */
+    public String authorization(String method, String uri) {
+        Challenge c = challenge;
+        if (c == null) {
+            return null;
+        }
+        preemptive.increment();
+        if ("basic".equals(c.scheme())) {
+            return "Basic " + Base64.getEncoder()
+                    .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        }
+        String ha1 = hash(c.algorithm(), username + ":" + c.realm() + ":" + password);
+        String ha2 = hash(c.algorithm(), method + ":" + uri);
+        StringBuilder sb = new StringBuilder(256).append("Digest username=\"").append(username)
+                .append("\", realm=\"").append(c.realm())
+                .append("\", nonce=\"").append(c.nonce())
+                .append("\", uri=\"").append(uri)
+                .append("\", algorithm=").append(c.algorithm());
+        String response;
+        if (c.qop() != null) {
+            String nc = HEX.toHexDigits(c.nc().incrementAndGet());
+            byte[] cn = new byte[8];
+            RANDOM.nextBytes(cn);
+            String cnonce = HEX.formatHex(cn);
+            response = hash(c.algorithm(), ha1 + ":" + c.nonce() + ":" + nc + ":" + cnonce + ":" + c.qop() + ":" + ha2);
+            sb.append(", qop=").append(c.qop()).append(", nc=").append(nc).append(", cnonce=\"").append(cnonce).append('"');
+        } else {
+            response = hash(c.algorithm(), ha1 + ":" + c.nonce() + ":" + ha2);
+        }
+        sb.append(", response=\"").append(response).append('"');
+        if (c.opaque() != null) {
+            sb.append(", opaque=\"").append(c.opaque()).append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 记录 401 响应里的 WWW-Authenticate；返回 true 表示可以用新质询重发
+     */
+    public boolean onChallenge(Header[] headers) {
+        challenged.increment();
+        Map<String, String> digest = null;
+        boolean basic = false;
+        for (Header h : headers) {
+            String v = h.getValue().trim();
+            if (v.regionMatches(true, 0, "Digest ", 0, 7)) {
+                digest = params(v.substring(7));
+            } else if (v.regionMatches(true, 0, "Basic", 0, 5)) {
+                basic = true;
+            }
+        }
+        if (digest != null) {
+            String algorithm = digest.getOrDefault("algorithm", "MD5").toUpperCase(Locale.ROOT);
+            if (!algorithm.equals("MD5") && !algorithm.equals("SHA-256")) {
+                unsupported = true;
+                challenge = null;
+                return false;
+            }
+            if ("true".equalsIgnoreCase(digest.get("stale"))) {
+                staleNonces.increment();
+            }
+            String qop = digest.get("qop");
+            if (qop != null) {
+                // 只实现 auth，不做 auth-int；只给 auth-int 时退回 RFC 2069 会被设备永远拒绝
+                boolean auth = false;
+                for (String token : qop.split(",")) {
+                    if (token.trim().equalsIgnoreCase("auth")) {
+                        auth = true;
+                    }
+                }
+                if (!auth) {
+                    unsupported = true;
+                    challenge = null;
+                    return false;
+                }
+                qop = "auth";
+            }
+            challenge = new Challenge("digest", digest.get("realm"), digest.get("nonce"), digest.get("opaque"),
+                    qop, algorithm, new AtomicInteger());
+            return true;
+        }
+        if (basic) {
+            challenge = new Challenge("basic", null, null, null, null, null, null);
+            return true;
+        }
+        unsupported = true;
+        return false;
+    }
+
+    public Map<String, Object> stats() {
+        Challenge c = challenge;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("scheme", c != null ? c.scheme() : null);
+        m.put("realm", c != null ? c.realm() : null);
+        m.put("nonceCount", c != null && c.nc() != null ? c.nc().get() : 0);
+        m.put("preemptive", preemptive.sum());
+        m.put("challenged", challenged.sum());
+        m.put("staleNonces", staleNonces.sum());
+        m.put("unsupported", unsupported);
+        return m;
+    }
+
+    /**
+     * 解析 key=value, key="quoted value" 列表
+     */
+    public static Map<String, String> params(String s) {
+        Map<String, String> out = new HashMap<>();
+        int i = 0, n = s.length();
+        while (i < n) {
+            while (i < n && (s.charAt(i) == ' ' || s.charAt(i) == ',')) i++;
+            int eq = s.indexOf('=', i);
+            if (eq < 0) break;
+            String key = s.substring(i, eq).trim().toLowerCase(Locale.ROOT);
+            i = eq + 1;
+            String value;
+            if (i < n && s.charAt(i) == '"') {
+                int end = s.indexOf('"', i + 1);
+                if (end < 0) end = n;
+                value = s.substring(i + 1, end);
+                i = end + 1;
+            } else {
+                int end = s.indexOf(',', i);
+                if (end < 0) end = n;
+                value = s.substring(i, end).trim();
+                i = end;
+            }
+            out.put(key, value);
+        }
+        return out;
+    }
+
+    private static String hash(String algorithm, String s) {
+        try {
+            return HEX.formatHex(MessageDigest.getInstance(algorithm).digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
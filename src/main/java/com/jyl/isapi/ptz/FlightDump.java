@@ -0,0 +1,61 @@
+package com.jyl.isapi.ptz;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 离线导出命令黑匣子（服务停着或在别的机器上也能看），从旧到新每条一行，--csv 输出 CSV。
+ * 只依赖本项目的类，不启动 Spring：
+ * <pre>
+ * java -cp target/classes com.jyl.isapi.ptz.FlightDump isapi-flight.rec [--camera=gate-1] [--ch=1] [--op=STOP] [--errors] [--limit=200] [--csv]
+ * </pre>
+ */
+public class FlightDump {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> a = new HashMap<>();
+        String file = null;
+        for (String s : args) {
+            if (s.startsWith("--")) {
+                int eq = s.indexOf('=');
+                a.put(eq > 0 ? s.substring(2, eq) : s.substring(2), eq > 0 ? s.substring(eq + 1) : "true");
+            } else {
+                file = s;
+            }
+        }
+        if (file == null) {
+            System.err.println("usage: FlightDump <file> [--camera=id] [--ch=n] [--op=OPERATION] [--errors] [--limit=n] [--csv]");
+            System.exit(2);
+        }
+        boolean csv = a.containsKey("csv");
+        try (FlightRecorder recorder = FlightRecorder.openReadOnly(Path.of(file))) {
+            List<FlightRecord> records = recorder.read(FlightRecorder.filter(
+                    a.get("camera"),
+                    a.containsKey("ch") ? Integer.valueOf(a.get("ch")) : null,
+                    a.containsKey("op") ? PtzOperation.valueOf(a.get("op").toUpperCase(Locale.ROOT)) : null,
+                    a.containsKey("errors"), 0), Integer.parseInt(a.getOrDefault("limit", String.valueOf(recorder.getCapacity()))));
+            if (csv) {
+                System.out.println("seq,time,camera,channel,operation,dialect,status,outcome,lease_ms,device_ms");
+            } else {
+                System.out.printf("%s: %d records written, capacity %d, showing %d%n",
+                        file, recorder.getWritten(), recorder.getCapacity(), records.size());
+            }
+            for (int i = records.size() - 1; i >= 0; i--) {
+                FlightRecord r = records.get(i);
+                String dialect = r.dialect() != null ? r.dialect().name() : "-";
+                if (csv) {
+                    System.out.printf(Locale.ROOT, "%d,%s,%s,%d,%s,%s,%d,%s,%.3f,%.3f%n", r.seq(), Instant.ofEpochMilli(r.timestamp()),
+                            r.camera(), r.channel(), r.operation(), dialect, r.status(), r.outcome().tag(), r.leaseMs(), r.deviceMs());
+                } else {
+                    System.out.printf(Locale.ROOT, "%8d %s %-12s ch%-2d %-12s %-20s %3d %-12s lease %7.2f ms  device %8.2f ms%n",
+                            r.seq(), Instant.ofEpochMilli(r.timestamp()), r.camera(), r.channel(), r.operation(), dialect,
+                            r.status(), r.outcome().tag(), r.leaseMs(), r.deviceMs());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * 黑匣子中的一条记录（读取时解码）
+ *
+ * @param seq       全局序号，越大越新
+ * @param timestamp 调用结束时间（epoch 毫秒）
+ * @param dialect   写法协商中的具体写法，普通调用为 null
+ * @param status    HTTP 状态码；没有响应时为 0，看 outcome
+ * @param leaseMs   等连接池连接（含建连）的时间
+ * @param deviceMs  拿到连接之后到响应处理完的时间
+ */
+public record FlightRecord(long seq, long timestamp, String camera, int channel, PtzOperation operation,
+                           PtzDialect dialect, int status, CallOutcome outcome, double leaseMs, double deviceMs) {
+
+    public boolean ok() {
+        return status / 100 == 2;
+    }
+}
@@ -0,0 +1,259 @@
+package com.jyl.isapi.ptz;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 命令黑匣子：每次 ISAPI 调用（含写法协商中失败的尝试）写一条 64 字节定长记录到内存映射的环形文件，
+ * 写满后覆盖最旧的。写入只有一次 getAndIncrement 和若干绝对位置的 put，不分配对象、不加锁、不做系统调用；
+ * 落盘由操作系统负责，进程崩溃后记录仍在文件里，重启后接着写。
+ * <p>
+ * 文件格式（小端）：64 字节文件头 {magic "ISAPIFR1", int 版本, int 记录长度, int 容量} + 容量 × 64 字节记录：
+ * <pre>
+ *  0 long  seq+1（0 = 空/写入中，最后写入）   8 long  结束时间 epoch ms
+ * 16 int   连接池等待 µs                   20 int   设备耗时 µs
+ * 24 short 通道      26 short HTTP 状态      28 byte 操作 ordinal   29 byte 写法 ordinal+1（0 = 无）
+ * 30 byte  CallOutcome ordinal            31 byte  cameraId 字节数    32..63 cameraId（UTF-8，截断到 32 字节）
+ * </pre>
+ * 操作/写法按枚举序号存储，调整 {@link PtzOperation}/{@link PtzDialect} 的顺序时需提升 {@link #VERSION}。
+ */
+public final class FlightRecorder implements AutoCloseable {
+    static final int RECORD_SIZE = 64;
+    static final int HEADER_SIZE = 64;
+    static final int VERSION = 1;
+    private static final long MAGIC = 0x3152464950415349L; // "ISAPIFR1"
+    private static final int CAMERA_BYTES = 32;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final PtzOperation[] OPERATIONS = PtzOperation.values();
+    private static final PtzDialect[] DIALECTS = PtzDialect.values();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buf;
+    private final int capacity;
+    private final AtomicLong next;
+
+    private FlightRecorder(Path file, FileChannel channel, ByteBuffer buf, int capacity, long next) {
+        this.file = file;
+        this.channel = channel;
+        this.buf = buf;
+        this.capacity = capacity;
+        this.next = new AtomicLong(next);
+    }
+
+    /**
+     * 不记录（未配置文件时）
+     */
+    public static FlightRecorder disabled() {
+        return new FlightRecorder(null, null, null, 0, 0);
+    }
+
+    /**
+     * 打开或新建；已有文件的格式/容量不一致时清空重建。
+     * 独占锁住文件，另一个进程正在写同一文件时抛出 IOException，避免两个实例交错覆盖彼此的记录
+     */
+    public static FlightRecorder open(Path file, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = ch.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            ch.close();
+            throw new IOException(file + ": flight recorder file is in use by another process; "
+                    + "give each instance its own fleet.flight-recorder-file");
+        }
+        long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        m.order(ByteOrder.LITTLE_ENDIAN);
+        if (!headerMatches(m, capacity)) {
+            for (int i = 0; i < size; i += 8) {
+                m.putLong(i, 0L);
+            }
+            m.putLong(0, MAGIC);
+            m.putInt(8, VERSION);
+            m.putInt(12, RECORD_SIZE);
+            m.putInt(16, capacity);
+        }
+        return new FlightRecorder(file, ch, m, capacity, lastSeq(m, capacity) + 1);
+    }
+
+    /**
+     * 只读打开（离线导出）；文件格式不对时抛出 IOException
+     */
+    public static FlightRecorder openReadOnly(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ch.read(head, 0);
+        int capacity = head.getInt(16);
+        if (!headerMatches(head, capacity) || capacity <= 0
+                || ch.size() < HEADER_SIZE + (long) capacity * RECORD_SIZE) {
+            ch.close();
+            throw new IOException(file + ": not a flight recorder file (version " + VERSION + ")");
+        }
+        MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        m.order(ByteOrder.LITTLE_ENDIAN);
+        return new FlightRecorder(file, ch, m, capacity, lastSeq(m, capacity) + 1);
+    }
+
+    private static boolean headerMatches(ByteBuffer b, int capacity) {
+        return b.getLong(0) == MAGIC && b.getInt(8) == VERSION && b.getInt(12) == RECORD_SIZE && b.getInt(16) == capacity;
+    }
+
+    private static long lastSeq(ByteBuffer b, int capacity) {
+        long max = -1;
+        for (int i = 0; i < capacity; i++) {
+            max = Math.max(max, b.getLong(HEADER_SIZE + i * RECORD_SIZE) - 1);
+        }
+        return max;
+    }
+
+    public boolean isEnabled() {
+        return buf != null;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 已写入的记录总数（含已被覆盖的）
+     */
+    public long getWritten() {
+        return next.get();
+    }
+
+    /**
+     * 追加一条记录，返回其序号；未启用时返回 -1
+     *
+     * @param camera cameraId 的 UTF-8 字节（调用方预先编码，避免每次分配）
+     */
+    long record(byte[] camera, int channel, PtzOperation op, PtzDialect dialect, int status, CallOutcome outcome,
+                long leaseNanos, long totalNanos) {
+        if (buf == null) {
+            return -1;
+        }
+        long seq = next.getAndIncrement();
+        int base = HEADER_SIZE + (int) (seq % capacity) * RECORD_SIZE;
+        // seqlock：先清标记，写完字段再发布序号，读者据此跳过写到一半的记录
+        LONGS.setOpaque(buf, base, 0L);
+        VarHandle.releaseFence();
+        buf.putLong(base + 8, System.currentTimeMillis());
+        buf.putInt(base + 16, micros(leaseNanos));
+        buf.putInt(base + 20, micros(totalNanos - leaseNanos));
+        buf.putShort(base + 24, (short) channel);
+        buf.putShort(base + 26, (short) status);
+        buf.put(base + 28, (byte) op.ordinal());
+        buf.put(base + 29, (byte) (dialect != null ? dialect.ordinal() + 1 : 0));
+        buf.put(base + 30, (byte) outcome.ordinal());
+        int n = Math.min(camera.length, CAMERA_BYTES);
+        buf.put(base + 31, (byte) n);
+        buf.put(base + 32, camera, 0, n);
+        LONGS.setRelease(buf, base, seq + 1);
+        return seq;
+    }
+
+    private static int micros(long nanos) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, nanos / 1_000));
+    }
+
+    /**
+     * 查询条件：各参数为 null/false/0 表示不过滤
+     *
+     * @param errorsOnly 只要非 2xx（含没有响应的）
+     * @param sinceMs    只要此时间（epoch 毫秒）之后的
+     */
+    public static Predicate<FlightRecord> filter(String camera, Integer channel, PtzOperation op,
+                                                 boolean errorsOnly, long sinceMs) {
+        return r -> (camera == null || camera.equals(r.camera()))
+                && (channel == null || channel == r.channel())
+                && (op == null || op == r.operation())
+                && (!errorsOnly || !r.ok())
+                && r.timestamp() >= sinceMs;
+    }
+
+    /**
+     * 从新到旧读取满足条件的记录，最多 limit 条
+     */
+    public List<FlightRecord> read(Predicate<FlightRecord> filter, int limit) {
+        List<FlightRecord> out = new ArrayList<>();
+        if (buf == null) {
+            return out;
+        }
+        long last = next.get() - 1;
+        for (long seq = last; seq >= 0 && seq > last - capacity && out.size() < limit; seq--) {
+            FlightRecord r = decode(seq);
+            if (r != null && filter.test(r)) {
+                out.add(r);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 解码序号为 seq 的记录；已被覆盖或正在写入时返回 null
+     */
+    private FlightRecord decode(long seq) {
+        int base = HEADER_SIZE + (int) (seq % capacity) * RECORD_SIZE;
+        if ((long) LONGS.getAcquire(buf, base) != seq + 1) {
+            return null;
+        }
+        long timestamp = buf.getLong(base + 8);
+        int lease = buf.getInt(base + 16);
+        int device = buf.getInt(base + 20);
+        int channel = buf.getShort(base + 24);
+        int status = buf.getShort(base + 26) & 0xffff;
+        int op = buf.get(base + 28) & 0xff;
+        int dialect = buf.get(base + 29) & 0xff;
+        int outcome = buf.get(base + 30) & 0xff;
+        int n = Math.min(buf.get(base + 31) & 0xff, CAMERA_BYTES);
+        byte[] camera = new byte[n];
+        buf.get(base + 32, camera, 0, n);
+        VarHandle.acquireFence();
+        if ((long) LONGS.getVolatile(buf, base) != seq + 1 || op >= OPERATIONS.length || dialect > DIALECTS.length) {
+            return null;
+        }
+        return new FlightRecord(seq, timestamp, new String(camera, StandardCharsets.UTF_8), channel, OPERATIONS[op],
+                dialect == 0 ? null : DIALECTS[dialect - 1], status, CallOutcome.ofOrdinal(outcome),
+                lease / 1000.0, device / 1000.0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            return;
+        }
+        if (buf instanceof MappedByteBuffer m && !m.isReadOnly()) {
+            m.force();
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,103 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import com.jyl.isapi.config.PtzProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 本地视场角模型瞄准：用缓存的当前位置 + 机型的视场角表，把画面上的点击/框换算成目标角度与变倍，
+ * 只下发一次 absoluteMoveDegrees。对比 3D 定位（threeDZoomSmart 需 position3D + status + absolute 三次请求），
+ * 也不依赖设备自己的 3D 定位能力。
+ * <p>
+ * 画面坐标 0~1 归一化，左上 (0,0)；俯仰角向下为正（与 /status 一致）。换算按针孔相机模型，
+ * 俯仰较大时方位的偏转会相应放大（画面边缘的点不在同一方位线上）。
+ */
+@Component
+public class FovAimer {
+    private final StatusCache statusCache;
+    private final Map<String, FovModel> models = new HashMap<>();
+
+    public FovAimer(StatusCache statusCache, FleetProperties fleet, PtzProperties defaultCamera) {
+        this.statusCache = statusCache;
+        fleet.getFovModels().forEach((name, t) -> models.put(name, FovModel.of(t.getAspect(), t.getHfov())));
+        // 引用不存在的表在启动时报错，而不是瞄准时悄悄用兜底模型
+        check("camera", defaultCamera);
+        fleet.getCameras().forEach(this::check);
+    }
+
+    private void check(String cameraId, PtzProperties props) {
+        if (props.getFovModel() != null && !models.containsKey(props.getFovModel())) {
+            throw new IllegalStateException(cameraId + ": unknown fov-model " + props.getFovModel());
+        }
+    }
+
+    public FovModel model(PtzIsapiClient client) {
+        String name = client.getProps().getFovModel();
+        return name != null ? models.get(name) : FovModel.DEFAULT;
+    }
+
+    /**
+     * 点击：把 (x,y) 转到画面中心；zoomFactor 为相对当前视场的放大倍数（1 不变倍，2 视场减半，0.5 视场加倍）
+     */
+    public CompletableFuture<AimResult> aimAt(PtzIsapiClient client, int channel, double x, double y, double zoomFactor) {
+        if (!(zoomFactor > 0)) {
+            throw new PtzRangeException("zoomFactor must be > 0");
+        }
+        return aim(client, channel, x, y, 1.0 / zoomFactor);
+    }
+
+    /**
+     * 画框：框中心转到画面中心，并变倍到框恰好充满画面（按宽、高中较大的一边）
+     */
+    public CompletableFuture<AimResult> aimBox(PtzIsapiClient client, int channel, double x1, double y1, double x2, double y2) {
+        double w = Math.abs(clamp01(x2) - clamp01(x1));
+        double h = Math.abs(clamp01(y2) - clamp01(y1));
+        return aim(client, channel, (x1 + x2) / 2, (y1 + y2) / 2, Math.max(1e-3, Math.max(w, h)));
+    }
+
+    /**
+     * @param scale 目标画面半宽 / 当前画面半宽
+     */
+    private CompletableFuture<AimResult> aim(PtzIsapiClient client, int channel, double x, double y, double scale) {
+        FovModel model = model(client);
+        return statusCache.getParsed(client, channel).thenCompose(from -> client.supplyAsync(() -> {
+            AimResult r = target(model, client.capabilities(channel), from, clamp01(x), clamp01(y), scale);
+            PtzStatus t = r.target();
+            client.absoluteMoveDegrees(channel, t.azimuth(), t.elevation(), t.zoom() != from.zoom() ? t.zoom() : null);
+            return r;
+        }));
+    }
+
+    static AimResult target(FovModel model, PtzCapabilities caps, PtzStatus from, double x, double y, double scale) {
+        double tanH = model.halfWidth(from.zoom());
+        double tanV = tanH / model.aspect();
+        // 相机坐标系下的射线：前 1，右 rx，下 ry
+        double rx = (2 * x - 1) * tanH;
+        double ry = (2 * y - 1) * tanV;
+        double el = Math.toRadians(from.elevation());
+        // 绕水平轴转到世界坐标：水平前向分量与向下分量
+        double fwd = Math.cos(el) - ry * Math.sin(el);
+        double down = Math.sin(el) + ry * Math.cos(el);
+        double az = from.azimuth() + Math.toDegrees(Math.atan2(rx, fwd));
+        double elTarget = Math.toDegrees(Math.atan2(down, Math.hypot(fwd, rx)));
+
+        int az10 = caps.absolutePan().clamp((int) Math.round(wrap360(az) * 10.0));
+        int el10 = caps.absoluteTilt().clamp((int) Math.round(elTarget * 10.0));
+        int zoom = scale == 1.0 ? from.zoom()
+                : caps.absoluteZoom().clamp((int) Math.round(model.zoomFor(tanH * scale)));
+        return new AimResult(from, new PtzStatus(az10 / 10.0, el10 / 10.0, zoom), model.hfov(zoom));
+    }
+
+    private static double wrap360(double deg) {
+        double d = deg % 360.0;
+        return d < 0 ? d + 360.0 : d;
+    }
+
+    private static double clamp01(double v) {
+        return Math.max(0.0, Math.min(1.0, v));
+    }
+}
@@ -0,0 +1,105 @@
+package com.jyl.isapi.ptz;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 视场角 - 变倍对照表（每个机型一张）：变倍为 /status 的原始值（如 10 = 1x），hfov 为水平视场角（度）。
+ * <p>
+ * 表项之间按焦距插值：焦距 ∝ 1/tan(hfov/2)，在两点之间随变倍线性变化；
+ * 超出表的范围时按焦距与变倍成正比外推。只给一个点即为理想的等比变焦镜头。
+ */
+public final class FovModel {
+    /**
+     * 未配置机型时的兜底：1x 水平 60°，16:9
+     */
+    public static final FovModel DEFAULT = of(16.0 / 9.0, Map.of(10, 60.0));
+
+    private final double aspect;
+    private final int[] zooms;
+    private final double[] focal;
+
+    private FovModel(double aspect, int[] zooms, double[] focal) {
+        this.aspect = aspect;
+        this.zooms = zooms;
+        this.focal = focal;
+    }
+
+    /**
+     * @param aspect      画面宽高比
+     * @param hfovByZoom  变倍 -> 水平视场角（度），至少一项，视场角须随变倍单调减小
+     */
+    public static FovModel of(double aspect, Map<Integer, Double> hfovByZoom) {
+        TreeMap<Integer, Double> sorted = new TreeMap<>(hfovByZoom);
+        if (sorted.isEmpty() || aspect <= 0) {
+            throw new IllegalArgumentException("fov model needs aspect > 0 and at least one zoom -> hfov entry");
+        }
+        int[] z = new int[sorted.size()];
+        double[] f = new double[sorted.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Double> e : sorted.entrySet()) {
+            double h = e.getValue();
+            if (e.getKey() <= 0 || h <= 0 || h >= 180) {
+                throw new IllegalArgumentException("bad fov entry " + e.getKey() + " -> " + h);
+            }
+            z[i] = e.getKey();
+            f[i] = 1.0 / Math.tan(Math.toRadians(h) / 2);
+            if (i > 0 && f[i] <= f[i - 1]) {
+                throw new IllegalArgumentException("hfov must decrease as zoom increases: " + sorted);
+            }
+            i++;
+        }
+        return new FovModel(aspect, z, f);
+    }
+
+    public double aspect() {
+        return aspect;
+    }
+
+    /**
+     * tan(hfov/2)，即画面半宽在单位距离处的大小
+     */
+    public double halfWidth(double zoom) {
+        return 1.0 / focal(zoom);
+    }
+
+    public double hfov(double zoom) {
+        return Math.toDegrees(2 * Math.atan(halfWidth(zoom)));
+    }
+
+    /**
+     * 画面半宽为 halfWidth（tan(hfov/2)）时对应的变倍（未取整、未限幅）
+     */
+    public double zoomFor(double halfWidth) {
+        double f = 1.0 / halfWidth;
+        int n = zooms.length;
+        if (f <= focal[0]) {
+            return zooms[0] * f / focal[0];
+        }
+        if (f >= focal[n - 1]) {
+            return zooms[n - 1] * f / focal[n - 1];
+        }
+        int i = 1;
+        while (focal[i] < f) {
+            i++;
+        }
+        double t = (f - focal[i - 1]) / (focal[i] - focal[i - 1]);
+        return zooms[i - 1] + t * (zooms[i] - zooms[i - 1]);
+    }
+
+    private double focal(double zoom) {
+        int n = zooms.length;
+        if (zoom <= zooms[0]) {
+            return focal[0] * Math.max(zoom, 1e-3) / zooms[0];
+        }
+        if (zoom >= zooms[n - 1]) {
+            return focal[n - 1] * zoom / zooms[n - 1];
+        }
+        int i = 1;
+        while (zooms[i] < zoom) {
+            i++;
+        }
+        double t = (zoom - zooms[i - 1]) / (zooms[i] - zooms[i - 1]);
+        return focal[i - 1] + t * (focal[i] - focal[i - 1]);
+    }
+}
@@ -0,0 +1,27 @@
+package com.jyl.isapi.ptz;
+
+import java.util.List;
+
+/**
+ * 批量命令：目标 = 命名分组（fleet.groups）中的相机 + 显式列出的 targets；
+ * 顶层的 preset/az/el/z 等作为默认值，target 上的同名字段优先
+ */
+public record GroupCommand(String group, List<Target> targets,
+                           Integer preset, Double az, Double el, Integer z,
+                           Boolean enabled, Integer parkTime, String actionType, Integer actionNum,
+                           Long timeoutMs) {
+
+    public record Target(String camera, Integer channel, Integer preset, Double az, Double el, Integer z) {
+    }
+
+    /**
+     * 用顶层默认值补齐 target
+     */
+    public Target merge(Target t) {
+        return new Target(t.camera(), t.channel(),
+                t.preset() != null ? t.preset() : preset,
+                t.az() != null ? t.az() : az,
+                t.el() != null ? t.el() : el,
+                t.z() != null ? t.z() : z);
+    }
+}
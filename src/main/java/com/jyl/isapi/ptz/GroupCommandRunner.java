@@ -0,0 +1,199 @@
+package com.jyl.isapi.ptz;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jyl.isapi.config.FleetProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 批量命令并发下发：同一批最多 fleet.group-parallelism 个请求同时在设备上执行，
+ * 每个目标单独计时/超时，单个相机失败不影响其它相机。
+ * 超时从提交批次时算起（含等并发许可的时间），超时的目标中断其设备请求；
+ * 超时上限比 MVC 异步超时少 1 秒，整批一定先于 HTTP 请求超时返回。
+ * 集群模式下不归本实例的目标按归属节点分批转发（每个节点一个请求），命令仍在相机的归属节点上排队
+ */
+@Component
+public class GroupCommandRunner {
+    private final CameraRegistry cameras;
+    private final FleetProperties fleet;
+    private final Executor executor;
+    private final ClusterMembership membership;
+    private final ObjectMapper mapper;
+
+    @FunctionalInterface
+    public interface TargetCall {
+        CompletableFuture<?> call(PtzIsapiClient client, int channel, GroupCommand.Target target);
+    }
+
+    public GroupCommandRunner(CameraRegistry cameras, FleetProperties fleet,
+                              @Qualifier("ptzExecutor") Executor executor, ClusterMembership membership,
+                              ObjectMapper mapper) {
+        this.cameras = cameras;
+        this.fleet = fleet;
+        this.executor = executor;
+        this.membership = membership;
+        this.mapper = mapper;
+    }
+
+    /**
+     * 展开命名分组并合并默认值
+     */
+    public List<GroupCommand.Target> resolve(GroupCommand cmd) {
+        List<GroupCommand.Target> out = new ArrayList<>();
+        if (cmd.group() != null) {
+            List<String> members = fleet.getGroups().get(cmd.group());
+            if (members == null) {
+                throw new CameraNotFoundException("group " + cmd.group());
+            }
+            members.forEach(id -> out.add(cmd.merge(new GroupCommand.Target(id, null, null, null, null, null))));
+        }
+        if (cmd.targets() != null) {
+            cmd.targets().forEach(t -> out.add(cmd.merge(t)));
+        }
+        return out;
+    }
+
+    /**
+     * 全部在本地执行
+     */
+    public CompletableFuture<GroupResult> run(GroupCommand cmd, TargetCall call) {
+        return run(cmd, null, call);
+    }
+
+    /**
+     * @param forwardPath 集群模式下，不归本实例的目标按归属节点分批，以 POST 这个路径（含查询串）转发给归属节点；
+     *                    null 表示全部在本地执行（请求本身就是转发来的，避免再次转发）
+     */
+    public CompletableFuture<GroupResult> run(GroupCommand cmd, String forwardPath, TargetCall call) {
+        List<GroupCommand.Target> targets = resolve(cmd);
+        long timeoutMs = Math.min(cmd.timeoutMs() != null ? cmd.timeoutMs() : fleet.getGroupTimeoutMs(),
+                fleet.requestTimeoutMs() - 1_000);
+        Semaphore permits = new Semaphore(fleet.getGroupParallelism());
+        long t0 = System.nanoTime();
+        long deadline = t0 + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        List<CompletableFuture<GroupResult.TargetResult>> slots = new ArrayList<>(Collections.nCopies(targets.size(), null));
+        Map<String, List<Integer>> remote = new LinkedHashMap<>();
+        for (int i = 0; i < targets.size(); i++) {
+            GroupCommand.Target t = targets.get(i);
+            if (forwardPath != null && membership.isEnabled() && cameras.clients().containsKey(t.camera())
+                    && !membership.isLocal(t.camera())) {
+                remote.computeIfAbsent(membership.owner(t.camera()).id(), k -> new ArrayList<>()).add(i);
+            } else {
+                slots.set(i, CompletableFuture.supplyAsync(() -> runOne(t, call, permits, t0, deadline, timeoutMs), executor));
+            }
+        }
+        remote.values().forEach(indexes -> {
+            List<GroupCommand.Target> batch = indexes.stream().map(targets::get).toList();
+            CompletableFuture<List<GroupResult.TargetResult>> f = CompletableFuture.supplyAsync(
+                    () -> forward(cmd, batch, forwardPath, call, permits, t0, deadline, timeoutMs), executor);
+            for (int j = 0; j < indexes.size(); j++) {
+                int k = j;
+                slots.set(indexes.get(j), f.thenApply(results -> results.get(k)));
+            }
+        });
+        return CompletableFuture.allOf(slots.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            List<GroupResult.TargetResult> results = slots.stream().map(CompletableFuture::join).toList();
+            int ok = (int) results.stream().filter(GroupResult.TargetResult::ok).count();
+            return new GroupResult(results.size(), ok, results.size() - ok,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0), results);
+        });
+    }
+
+    private GroupResult.TargetResult runOne(GroupCommand.Target t, TargetCall call, Semaphore permits,
+                                           long start, long deadline, long timeoutMs) {
+        int channel = t.channel() != null ? t.channel() : 0;
+        try {
+            if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return result(t, channel, start, "timeout after " + timeoutMs + " ms waiting for a free slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return result(t, channel, start, "interrupted");
+        }
+        boolean released = false;
+        CompletableFuture<?> f = null;
+        try {
+            PtzIsapiClient client = cameras.client(t.camera());
+            channel = cameras.channel(t.camera(), t.channel());
+            f = call.call(client, channel, t);
+            // 许可在设备请求结束或超时被取消时归还
+            released = true;
+            f.whenComplete((v, ex) -> permits.release());
+            f.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            return result(t, channel, start, null);
+        } catch (TimeoutException e) {
+            f.cancel(true);
+            return result(t, channel, start, "timeout after " + timeoutMs + " ms");
+        } catch (ExecutionException e) {
+            return result(t, channel, start, String.valueOf(e.getCause().getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return result(t, channel, start, "interrupted");
+        } catch (RuntimeException e) {
+            return result(t, channel, start, String.valueOf(e.getMessage()));
+        } finally {
+            if (!released) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * 同一归属节点的目标合成一个请求转发；归属在转发途中变成本实例时改为本地执行
+     */
+    private List<GroupResult.TargetResult> forward(GroupCommand cmd, List<GroupCommand.Target> batch, String path,
+                                                   TargetCall call, Semaphore permits,
+                                                   long start, long deadline, long timeoutMs) {
+        String camera = batch.get(0).camera();
+        String owner = membership.owner(camera).id();
+        long remainingMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        GroupCommand sub = new GroupCommand(null, batch, cmd.preset(), cmd.az(), cmd.el(), cmd.z(),
+                cmd.enabled(), cmd.parkTime(), cmd.actionType(), cmd.actionNum(), remainingMs);
+        try {
+            ClusterMembership.ForwardedResponse r = membership.forward(camera, "POST", path, List.of(),
+                    mapper.writeValueAsBytes(sub), MediaType.APPLICATION_JSON_VALUE);
+            if (r == null) {
+                List<CompletableFuture<GroupResult.TargetResult>> local = batch.stream()
+                        .map(t -> CompletableFuture.supplyAsync(() -> runOne(t, call, permits, start, deadline, timeoutMs), executor))
+                        .toList();
+                return local.stream().map(CompletableFuture::join).toList();
+            }
+            if (r.status() / 100 != 2) {
+                return failed(batch, start, "owner " + owner + " answered HTTP " + r.status());
+            }
+            List<GroupResult.TargetResult> results = mapper.readValue(r.body(), GroupResult.class).results();
+            if (results.size() != batch.size()) {
+                return failed(batch, start, "owner " + owner + " answered " + results.size() + " results for " + batch.size() + " targets");
+            }
+            return results;
+        } catch (IOException e) {
+            return failed(batch, start, "forward to " + owner + " failed: " + e.getMessage());
+        }
+    }
+
+    private static List<GroupResult.TargetResult> failed(List<GroupCommand.Target> batch, long start, String error) {
+        return batch.stream()
+                .map(t -> result(t, t.channel() != null ? t.channel() : 0, start, error))
+                .toList();
+    }
+
+    private static GroupResult.TargetResult result(GroupCommand.Target t, int channel, long start, String error) {
+        return new GroupResult.TargetResult(t.camera(), channel, error == null,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), error);
+    }
+}
@@ -0,0 +1,12 @@
+package com.jyl.isapi.ptz;
+
+import java.util.List;
+
+/**
+ * 批量命令的汇总结果，results 与请求中的目标顺序一致
+ */
+public record GroupResult(int total, int succeeded, int failed, long elapsedMs, List<TargetResult> results) {
+
+    public record TargetResult(String camera, int channel, boolean ok, long latencyMs, String error) {
+    }
+}
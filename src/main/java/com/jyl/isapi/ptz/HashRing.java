@@ -0,0 +1,74 @@
+package com.jyl.isapi.ptz;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 一致性哈希环（不可变）：每个节点放 virtualNodes 个虚拟节点，key 顺时针找到的第一个虚拟节点即归属。
+ * 节点加入/离开时只有落在其虚拟节点区间内的 key 换归属，其余不动。
+ */
+final class HashRing {
+    private final long[] points;
+    private final ClusterNode[] owners;
+
+    HashRing(Collection<ClusterNode> nodes, int virtualNodes) {
+        int vn = Math.max(1, virtualNodes);
+        List<ClusterNode> sorted = nodes.stream().sorted((a, b) -> a.id().compareTo(b.id())).toList();
+        long[] p = new long[sorted.size() * vn];
+        ClusterNode[] o = new ClusterNode[p.length];
+        Integer[] order = new Integer[p.length];
+        for (int i = 0; i < sorted.size(); i++) {
+            for (int v = 0; v < vn; v++) {
+                int k = i * vn + v;
+                p[k] = hash(sorted.get(i).id() + "#" + v);
+                o[k] = sorted.get(i);
+                order[k] = k;
+            }
+        }
+        // 哈希碰撞时按节点名排序，保证各实例算出的环相同
+        Arrays.sort(order, (a, b) -> p[a] != p[b] ? Long.compare(p[a], p[b]) : o[a].id().compareTo(o[b].id()));
+        this.points = new long[p.length];
+        this.owners = new ClusterNode[p.length];
+        for (int i = 0; i < order.length; i++) {
+            points[i] = p[order[i]];
+            owners[i] = o[order[i]];
+        }
+    }
+
+    boolean isEmpty() {
+        return points.length == 0;
+    }
+
+    /**
+     * @return 归属节点；环为空时返回 null
+     */
+    ClusterNode owner(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int i = Arrays.binarySearch(points, hash(key));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return owners[i == points.length ? 0 : i];
+    }
+
+    /**
+     * 64 位 FNV-1a 再经 murmur3 的 fmix64 打散，短而相似的 key（gate-1、gate-2）也能均匀分布
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,143 @@
+package com.jyl.isapi.ptz;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 时间轮定时器：一个线程按 tick 推进，任意数量的定时任务只占内存不占线程。
+ * 精度为一个 tick；到期任务在时间轮线程上执行，必须很快返回（耗时的活交给 executor）。
+ * <p>
+ * 新任务先进无锁队列，由时间轮线程在每个 tick 放进对应的格子；取消只打标记，到期时丢弃。
+ */
+final class HashedWheelTimer implements AutoCloseable {
+    private final long tickNanos;
+    private final List<List<Task>> wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Task> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean stopped;
+    private long tick;
+
+    interface Timeout {
+        /**
+         * @return 是否在执行前取消成功
+         */
+        boolean cancel();
+    }
+
+    private final class Task implements Timeout {
+        final Runnable action;
+        final long deadline; // 相对 startNanos
+        long rounds;
+        final AtomicBoolean done = new AtomicBoolean();
+
+        Task(Runnable action, long deadline) {
+            this.action = action;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (done.compareAndSet(false, true)) {
+                pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @param tickMs    精度
+     * @param wheelSize 格子数，向上取 2 的幂；一圈 = tickMs * wheelSize，更长的延时按圈数计
+     */
+    HashedWheelTimer(String name, long tickMs, int wheelSize) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMs));
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.mask = size - 1;
+        this.worker = Thread.ofPlatform().name(name).daemon().start(this::run);
+    }
+
+    Timeout schedule(Runnable action, long delay, TimeUnit unit) {
+        if (stopped) {
+            throw new IllegalStateException("timer stopped");
+        }
+        Task t = new Task(action, System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay)));
+        pending.incrementAndGet();
+        incoming.add(t);
+        return t;
+    }
+
+    int pending() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (!stopped) {
+            long deadline = tickNanos * (tick + 1);
+            long sleep;
+            while ((sleep = deadline - (System.nanoTime() - startNanos)) > 0) {
+                LockSupport.parkNanos(sleep);
+                if (stopped) {
+                    return;
+                }
+            }
+            transferIncoming();
+            expire(wheel.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    private void transferIncoming() {
+        Task t;
+        while ((t = incoming.poll()) != null) {
+            if (t.done.get()) {
+                continue;
+            }
+            long expiresAt = t.deadline / tickNanos;
+            t.rounds = Math.max(0, (expiresAt - tick) / wheel.size());
+            // 已经过期的放进当前格子，本 tick 就执行
+            wheel.get((int) (Math.max(expiresAt, tick) & mask)).add(t);
+        }
+    }
+
+    private void expire(List<Task> bucket) {
+        int kept = 0;
+        for (int i = 0, n = bucket.size(); i < n; i++) {
+            Task t = bucket.get(i);
+            if (t.done.get()) {
+                continue;
+            }
+            if (t.rounds > 0) {
+                t.rounds--;
+                bucket.set(kept++, t);
+                continue;
+            }
+            if (t.done.compareAndSet(false, true)) {
+                pending.decrementAndGet();
+                try {
+                    t.action.run();
+                } catch (RuntimeException ignored) {
+                    // 单个任务出错不影响时间轮
+                }
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+}
@@ -0,0 +1,45 @@
+package com.jyl.isapi.ptz;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 一次 ISAPI 调用的 JFR 事件，与 {@link FlightRecorder} 的记录一一对应（seq 相同）。
+ * 未开启录制时 JIT 会消除事件对象；开启：-XX:StartFlightRecording 或 jcmd &lt;pid&gt; JFR.start
+ */
+@Name("com.jyl.isapi.Command")
+@Label("ISAPI Command")
+@Category("ISAPI")
+@Description("ISAPI request to a camera, including failed dialect attempts")
+@StackTrace(false)
+class IsapiCommandEvent extends Event {
+    @Label("Camera")
+    String camera;
+
+    @Label("Channel")
+    int channel;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Dialect")
+    String dialect;
+
+    @Label("HTTP Status")
+    int status;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Pool Wait")
+    @Timespan
+    long poolWait;
+
+    @Label("Flight Recorder Seq")
+    long seq;
+}
@@ -0,0 +1,224 @@
+package com.jyl.isapi.ptz;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * ISAPI 调用的 Micrometer 指标（/actuator/prometheus）：
+ * <ul>
+ *     <li>isapi.request：整次调用耗时，按 camera/operation/status 打标签，只有 count/sum/max</li>
+ *     <li>isapi.operation：同一耗时不分相机，按 operation/status 打标签，全局分位数用它的直方图</li>
+ *     <li>isapi.connection.lease：等连接池连接（含新建连接）的时间；isapi.device：拿到连接之后到响应处理完的时间</li>
+ *     <li>isapi.responses：按 2xx/4xx/5xx/timeout/pool-timeout/circuit-open/error 和写法计数</li>
+ *     <li>isapi.dialect.fallbacks：写法协商中某种写法失败的次数（随后换下一种写法，或全部失败）</li>
+ *     <li>isapi.pool.connections：每台相机（路由）leased/pending/available 连接数</li>
+ *     <li>isapi.camera.up：熔断状态，1=可用 0=熔断中</li>
+ *     <li>isapi.scheduler.wait：命令在通道队列里的等待时间；isapi.scheduler.events：superseded/preempted/rejected/restopped 次数</li>
+ * </ul>
+ * 带 camera 标签的计时器不要开直方图：每个桶都会乘上相机数，上千台相机时序列数过万。
+ * 直方图/分位数通过 management.metrics.distribution.* 配置，不在代码里写死。
+ * Meter 按标签组合缓存，热路径上不重复 register()。
+ */
+public class IsapiMetrics {
+    /**
+     * HttpClientContext 属性：long[]{本轮开始租用的时间, 累计租用纳秒}；认证重试会多次经过 CONNECT，累加
+     */
+    static final String LEASE_ATTR = "isapi.lease";
+
+    private final MeterRegistry registry;
+    private final Map<CallKey, CallMeters> calls = new ConcurrentHashMap<>();
+    private final Map<List<String>, Meter> meters = new ConcurrentHashMap<>();
+    // 首个 2xx 响应 / 首个 2xx 运动命令的时间（epoch 毫秒），0 表示还没有；用于启动耗时报告
+    private final AtomicLong firstOkAt = new AtomicLong();
+    private final AtomicLong firstMotionOkAt = new AtomicLong();
+
+    public IsapiMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 放在 CONNECT 之前：记录开始租用连接的时间
+     */
+    static ExecChainHandler leaseStart() {
+        return (request, scope, chain) -> {
+            if (scope.clientContext.getAttribute(LEASE_ATTR) instanceof long[] lease) {
+                lease[0] = System.nanoTime();
+            }
+            return chain.proceed(request, scope);
+        };
+    }
+
+    /**
+     * 放在 CONNECT 之后：连接已租到并建立，累加租用时间
+     */
+    static ExecChainHandler leaseEnd() {
+        return (request, scope, chain) -> {
+            if (scope.clientContext.getAttribute(LEASE_ATTR) instanceof long[] lease && lease[0] != 0) {
+                lease[1] += System.nanoTime() - lease[0];
+                lease[0] = 0;
+            }
+            return chain.proceed(request, scope);
+        };
+    }
+
+    /**
+     * @param status   HTTP 状态码；没有响应时为 0，此时按异常归类
+     * @param failure  没有响应时的异常，可为 null
+     */
+    void request(String cameraId, int channel, PtzOperation op, PtzDialect dialect,
+                 int status, Throwable failure, long totalNanos, long leaseNanos) {
+        if (status / 100 == 2) {
+            long now = System.currentTimeMillis();
+            firstOkAt.compareAndSet(0, now);
+            if (op.isMotion()) {
+                firstMotionOkAt.compareAndSet(0, now);
+            }
+        }
+        String statusTag = status != 0 ? (status / 100) + "xx" : outcome(failure);
+        CallMeters m = calls.get(new CallKey(cameraId, op, statusTag, dialect));
+        if (m == null) {
+            m = calls.computeIfAbsent(new CallKey(cameraId, op, statusTag, dialect), this::callMeters);
+        }
+        m.request().record(totalNanos, TimeUnit.NANOSECONDS);
+        m.operation().record(totalNanos, TimeUnit.NANOSECONDS);
+        m.lease().record(leaseNanos, TimeUnit.NANOSECONDS);
+        if (m.device() != null) {
+            m.device().record(Math.max(0, totalNanos - leaseNanos), TimeUnit.NANOSECONDS);
+        }
+        m.responses().increment();
+    }
+
+    private CallMeters callMeters(CallKey k) {
+        String operation = k.op().name();
+        Timer request = Timer.builder("isapi.request")
+                .description("ISAPI request latency, including connection lease")
+                .tags("camera", k.cameraId(), "operation", operation, "status", k.status())
+                .register(registry);
+        Timer fleetWide = Timer.builder("isapi.operation")
+                .description("ISAPI request latency across all cameras")
+                .tags("operation", operation, "status", k.status())
+                .register(registry);
+        Timer lease = Timer.builder("isapi.connection.lease")
+                .description("time waiting for a pooled connection (and connecting)")
+                .tags("camera", k.cameraId(), "operation", operation)
+                .register(registry);
+        // 没有响应的调用（超时/连接失败）不计设备耗时
+        Timer device = k.status().endsWith("xx")
+                ? Timer.builder("isapi.device")
+                .description("time from leased connection to handled response")
+                .tags("camera", k.cameraId(), "operation", operation)
+                .register(registry)
+                : null;
+        Counter responses = Counter.builder("isapi.responses")
+                .tags("camera", k.cameraId(), "operation", operation, "status", k.status(),
+                        "dialect", k.dialect() != null ? k.dialect().name() : "none")
+                .register(registry);
+        return new CallMeters(request, fleetWide, lease, device, responses);
+    }
+
+    private record CallKey(String cameraId, PtzOperation op, String status, PtzDialect dialect) {
+    }
+
+    private record CallMeters(Timer request, Timer operation, Timer lease, Timer device, Counter responses) {
+    }
+
+    /**
+     * 按名称+标签缓存的 Meter；key 只在首次注册时用到 builder
+     */
+    @SuppressWarnings("unchecked")
+    private <M extends Meter> M cached(List<String> key, Function<List<String>, M> register) {
+        Meter m = meters.get(key);
+        if (m == null) {
+            m = meters.computeIfAbsent(key, register);
+        }
+        return (M) m;
+    }
+
+    /**
+     * 首个 2xx 响应（motion=true 时只算运动命令）的 epoch 毫秒，还没有时为 0
+     */
+    long firstSuccessAt(boolean motion) {
+        return (motion ? firstMotionOkAt : firstOkAt).get();
+    }
+
+    /**
+     * 某种写法失败，协商转向下一种（或重新探测）
+     */
+    void fallback(String cameraId, int channel, String operation, PtzDialect failed) {
+        Counter c = cached(List.of("isapi.dialect.fallbacks", cameraId, Integer.toString(channel), operation, failed.name()),
+                k -> Counter.builder(k.get(0))
+                        .tags("camera", k.get(1), "channel", k.get(2), "operation", k.get(3), "dialect", k.get(4))
+                        .register(registry));
+        c.increment();
+    }
+
+    void schedulerWait(String cameraId, CommandScheduler.Kind kind, long nanos) {
+        Timer t = cached(List.of("isapi.scheduler.wait", cameraId, kind.name()),
+                k -> Timer.builder(k.get(0))
+                        .description("time a command waited in its channel queue")
+                        .tags("camera", k.get(1), "kind", k.get(2))
+                        .register(registry));
+        t.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void scheduler(String cameraId, String event) {
+        Counter c = cached(List.of("isapi.scheduler.events", cameraId, event),
+                k -> Counter.builder(k.get(0))
+                        .tags("camera", k.get(1), "event", k.get(2))
+                        .register(registry));
+        c.increment();
+    }
+
+    void bindHealth(String cameraId, CameraHealth health) {
+        Gauge.builder("isapi.camera.up", health, h -> h.getState() == CameraHealth.State.CLOSED ? 1 : 0)
+                .tag("camera", cameraId)
+                .register(registry);
+    }
+
+    void bindPool(PoolingHttpClientConnectionManager cm, String cameraId, HttpRoute route) {
+        poolGauge(cm, cameraId, route, "leased", PoolStats::getLeased);
+        poolGauge(cm, cameraId, route, "pending", PoolStats::getPending);
+        poolGauge(cm, cameraId, route, "available", PoolStats::getAvailable);
+        Gauge.builder("isapi.pool.max", cm, m -> m.getStats(route).getMax())
+                .tag("camera", cameraId)
+                .register(registry);
+    }
+
+    void bindPoolTotals(PoolingHttpClientConnectionManager cm) {
+        totalGauge(cm, "leased", PoolStats::getLeased);
+        totalGauge(cm, "pending", PoolStats::getPending);
+        totalGauge(cm, "available", PoolStats::getAvailable);
+    }
+
+    private void totalGauge(PoolingHttpClientConnectionManager cm, String state, ToDoubleFunction<PoolStats> f) {
+        Gauge.builder("isapi.pool.total", cm, m -> f.applyAsDouble(m.getTotalStats()))
+                .tag("state", state)
+                .register(registry);
+    }
+
+    private void poolGauge(PoolingHttpClientConnectionManager cm, String cameraId, HttpRoute route,
+                           String state, ToDoubleFunction<PoolStats> f) {
+        Gauge.builder("isapi.pool.connections", cm, m -> f.applyAsDouble(m.getStats(route)))
+                .tags("camera", cameraId, "state", state)
+                .register(registry);
+    }
+
+    private static String outcome(Throwable failure) {
+        return CallOutcome.of(0, failure).tag();
+    }
+}
@@ -0,0 +1,328 @@
+package com.jyl.isapi.ptz;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 请求体编码：XML 的固定部分预先编码为字节，只把数字写进复用的缓冲区，直接交给 HttpClient，
+ * 不经过 String.format / StringBuilder / StringEntity 的重新编码。
+ * <p>
+ * 缓冲区从一个小的无锁池借出，请求执行完（含认证重试）后 {@link #close()} 归还：
+ * <pre>
+ * try (IsapiPayload p = IsapiPayload.continuous(pan, tilt, zoom, timeout)) {
+ *     put.setEntity(p.entity());
+ *     execute(...);
+ * }
+ * </pre>
+ * 调用方运行在虚拟线程上（每个请求一个线程），所以不用 ThreadLocal 缓存。
+ */
+final class IsapiPayload implements AutoCloseable {
+    private static final int BUFFER_SIZE = 512;
+    private static final int POOL_SIZE = 64;
+    /**
+     * ByteArrayEntity 每次构造都会 ContentType.toString()，这里预先算好
+     */
+    private static final String CONTENT_TYPE = ContentType.APPLICATION_XML.toString();
+    private static final AtomicReferenceArray<byte[]> POOL = new AtomicReferenceArray<>(POOL_SIZE);
+
+    /**
+     * 不需要参数的请求体，整段预编码，不借缓冲区
+     */
+    static final byte[] STOP = bytes("<PTZStop><pan>true</pan><tilt>true</tilt><zoom>true</zoom></PTZStop>");
+    static final byte[] STOP_CONTINUOUS_ZERO = bytes("<PTZData><pan>0</pan><tilt>0</tilt><zoom>0</zoom><timeout>1</timeout></PTZData>");
+
+    private static final byte[] XML_DECL = bytes("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+
+    private static final byte[] PARK_HEAD = bytes("""
+            <ParkAction version="2.0" xmlns="http://www.hikvision.com/ver20/XMLSchema">
+              <enabled>""");
+    private static final byte[] PARK_TIME = bytes("</enabled>\n  <Parktime>");
+    private static final byte[] PARK_TYPE = bytes("</Parktime>\n  <Action><ActionType>");
+    private static final byte[] PARK_NUM = bytes("</ActionType><ActionNum>");
+    private static final byte[] PARK_TAIL = bytes("</ActionNum></Action>\n</ParkAction>\n");
+
+    private static final byte[] P3D_HEAD = bytes("""
+            <Position3D version="1.0" xmlns="http://www.hikvision.com/ver10/XMLSchema">
+              <StartPoint><positionX>""");
+    private static final byte[] P3D_Y = bytes("</positionX><positionY>");
+    private static final byte[] P3D_END = bytes("</positionY></StartPoint>\n  <EndPoint><positionX>");
+    private static final byte[] P3D_TAIL = bytes("</positionY></EndPoint>\n</Position3D>\n");
+
+    private static final byte[] PRESET_HEAD = bytes("<PTZPreset><id>");
+    private static final byte[] PRESET_TAIL = bytes("</id></PTZPreset>");
+
+    private static final byte[] CONT_PAN = bytes("<PTZData><pan>");
+    private static final byte[] CONT_TILT = bytes("</pan><tilt>");
+    private static final byte[] CONT_ZOOM = bytes("</tilt><zoom>");
+    private static final byte[] CONT_TIMEOUT = bytes("</zoom><timeout>");
+    private static final byte[] CONT_TAIL = bytes("</timeout></PTZData>");
+
+    private static final byte[] HIGH_HEAD = bytes("""
+            <PTZData version="2.0" xmlns="http://www.hikvision.com/ver20/XMLSchema">
+              <AbsoluteHigh>
+            """);
+    private static final byte[] HIGH_TAIL = bytes("  </AbsoluteHigh>\n</PTZData>");
+    private static final byte[] EX_HEAD = bytes("<PTZAbsoluteEx version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">\n");
+    private static final byte[] EX_TAIL = bytes("</PTZAbsoluteEx>");
+
+    private static final byte[] ELEVATION_OPEN = bytes("<elevation>");
+    private static final byte[] ELEVATION_CLOSE = bytes("</elevation>\n");
+    private static final byte[] AZIMUTH_OPEN = bytes("<azimuth>");
+    private static final byte[] AZIMUTH_CLOSE = bytes("</azimuth>\n");
+    private static final byte[] ZOOM_OPEN = bytes("<absoluteZoom>");
+    private static final byte[] ZOOM_CLOSE = bytes("</absoluteZoom>\n");
+    private static final byte[] INDENT_2 = bytes("  ");
+    private static final byte[] INDENT_4 = bytes("    ");
+
+    private static final byte[] TRUE = bytes("true");
+    private static final byte[] FALSE = bytes("false");
+    private static final byte[] PATROL = bytes("patrol");
+    private static final byte[] PRESET = bytes("preset");
+
+    private byte[] buf;
+    private int len;
+
+    private IsapiPayload() {
+        this.buf = borrow();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 整段预编码的请求体
+     */
+    static HttpEntity entity(byte[] constant) {
+        return new XmlEntity(constant, constant.length);
+    }
+
+    /**
+     * 指向内部缓冲区，{@link #close()} 之后不能再用
+     */
+    HttpEntity entity() {
+        return new XmlEntity(buf, len);
+    }
+
+    /**
+     * 编码结果的拷贝（调试/对比用）
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        if (buf != null) {
+            release(buf);
+            buf = null;
+        }
+    }
+
+    // ---------------- 各命令 ----------------
+
+    /**
+     * @param actionType patrol 或 preset（其它值按 preset）
+     */
+    static IsapiPayload parkAction(boolean enabled, int parkTime, String actionType, int actionNum) {
+        IsapiPayload p = new IsapiPayload();
+        p.put(XML_DECL).put(PARK_HEAD).put(enabled ? TRUE : FALSE)
+                .put(PARK_TIME).putInt(parkTime)
+                .put(PARK_TYPE).put("patrol".equals(actionType) ? PATROL : PRESET)
+                .put(PARK_NUM).putInt(actionNum)
+                .put(PARK_TAIL);
+        return p;
+    }
+
+    static IsapiPayload position3D(int x1, int y1, int x2, int y2) {
+        IsapiPayload p = new IsapiPayload();
+        p.put(XML_DECL).put(P3D_HEAD).putInt(x1).put(P3D_Y).putInt(y1)
+                .put(P3D_END).putInt(x2).put(P3D_Y).putInt(y2)
+                .put(P3D_TAIL);
+        return p;
+    }
+
+    static IsapiPayload preset(int presetId) {
+        IsapiPayload p = new IsapiPayload();
+        p.put(PRESET_HEAD).putInt(presetId).put(PRESET_TAIL);
+        return p;
+    }
+
+    static IsapiPayload continuous(int pan, int tilt, int zoom, int durationMs) {
+        IsapiPayload p = new IsapiPayload();
+        p.put(CONT_PAN).putInt(pan).put(CONT_TILT).putInt(tilt)
+                .put(CONT_ZOOM).putInt(zoom).put(CONT_TIMEOUT).putInt(durationMs)
+                .put(CONT_TAIL);
+        return p;
+    }
+
+    /**
+     * /absolute：PTZData/AbsoluteHigh，角度为 0.1° 刻度的整数
+     */
+    static IsapiPayload absoluteHigh(Integer az10, Integer el10, Integer z) {
+        IsapiPayload p = new IsapiPayload();
+        p.put(XML_DECL).put(HIGH_HEAD);
+        if (el10 != null) p.put(INDENT_4).put(ELEVATION_OPEN).putInt(el10).put(ELEVATION_CLOSE);
+        if (az10 != null) p.put(INDENT_4).put(AZIMUTH_OPEN).putInt(az10).put(AZIMUTH_CLOSE);
+        if (z != null) p.put(INDENT_4).put(ZOOM_OPEN).putInt(z).put(ZOOM_CLOSE);
+        p.put(HIGH_TAIL);
+        return p;
+    }
+
+    /**
+     * /absoluteEx：角度单位为度，保留一位小数（等同 %.1f）
+     */
+    static IsapiPayload absoluteEx(Double azimuthDeg, Double elevationDeg, Integer z) {
+        IsapiPayload p = new IsapiPayload();
+        p.put(XML_DECL).put(EX_HEAD);
+        if (elevationDeg != null) p.put(INDENT_2).put(ELEVATION_OPEN).putTenths(elevationDeg).put(ELEVATION_CLOSE);
+        if (azimuthDeg != null) p.put(INDENT_2).put(AZIMUTH_OPEN).putTenths(azimuthDeg).put(AZIMUTH_CLOSE);
+        if (z != null) p.put(INDENT_2).put(ZOOM_OPEN).putInt(z).put(ZOOM_CLOSE);
+        p.put(EX_TAIL);
+        return p;
+    }
+
+    // ---------------- 写入 ----------------
+
+    private IsapiPayload put(byte[] b) {
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, len, b.length);
+        len += b.length;
+        return this;
+    }
+
+    private IsapiPayload putInt(int v) {
+        return putLong(v);
+    }
+
+    /**
+     * 十进制整数，直接写 ASCII，不经过 Integer.toString
+     */
+    private IsapiPayload putLong(long v) {
+        ensure(20);
+        if (v < 0) {
+            buf[len++] = '-';
+            if (v == Long.MIN_VALUE) {
+                return put(bytes("9223372036854775808"));
+            }
+            v = -v;
+        }
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10) {
+            digits++;
+        }
+        for (int i = len + digits - 1; i >= len; i--) {
+            buf[i] = (byte) ('0' + (v % 10));
+            v /= 10;
+        }
+        len += digits;
+        return this;
+    }
+
+    /**
+     * 一位小数的定点数，四舍五入（远离零，与 String.format("%.1f") 一致；负数舍入到零时同样写 -0.0）
+     */
+    private IsapiPayload putTenths(double v) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+            throw new IllegalArgumentException("not a finite number: " + v);
+        }
+        long t = Math.round(Math.abs(v) * 10.0);
+        if (Math.copySign(1.0, v) < 0) {
+            ensure(1);
+            buf[len++] = '-';
+        }
+        putLong(t / 10);
+        ensure(2);
+        buf[len++] = '.';
+        buf[len++] = (byte) ('0' + (t % 10));
+        return this;
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+    }
+
+    /**
+     * 可重复发送（认证重试）的字节实体
+     */
+    private static final class XmlEntity extends AbstractHttpEntity {
+        private final byte[] b;
+        private final int len;
+
+        XmlEntity(byte[] b, int len) {
+            super(CONTENT_TYPE, null);
+            this.b = b;
+            this.len = len;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return len;
+        }
+
+        @Override
+        public InputStream getContent() {
+            return new ByteArrayInputStream(b, 0, len);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(b, 0, len);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // ---------------- 缓冲区池 ----------------
+
+    private static byte[] borrow() {
+        int start = (int) (Thread.currentThread().threadId() % POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            byte[] b = POOL.getAndSet((start + i) % POOL_SIZE, null);
+            if (b != null) {
+                return b;
+            }
+        }
+        return new byte[BUFFER_SIZE]; // 池空（并发超过池大小）时临时分配
+    }
+
+    private static void release(byte[] b) {
+        if (b.length != BUFFER_SIZE) {
+            return; // 扩容过的不回收，保持池内大小一致
+        }
+        int start = (int) (Thread.currentThread().threadId() % POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            if (POOL.compareAndSet((start + i) % POOL_SIZE, null, b)) {
+                return;
+            }
+        }
+    }
+}
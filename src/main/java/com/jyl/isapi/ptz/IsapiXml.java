@@ -0,0 +1,240 @@
+package com.jyl.isapi.ptz;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ISAPI 响应的流式解析（StAX）：直接从响应流读出需要的元素，不生成整段 String，也不用正则
+ */
+public final class IsapiXml {
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    private IsapiXml() {
+    }
+
+    @FunctionalInterface
+    public interface Parser<T> {
+        T parse(XMLStreamReader r) throws XMLStreamException, IOException;
+    }
+
+    public static <T> T parse(InputStream in, Parser<T> parser) throws IOException {
+        try {
+            XMLStreamReader r = FACTORY.createXMLStreamReader(in);
+            try {
+                return parser.parse(r);
+            } finally {
+                r.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("bad ISAPI xml: " + e.getMessage(), e);
+        }
+    }
+
+    public static <T> T parse(Reader in, Parser<T> parser) throws IOException {
+        try {
+            XMLStreamReader r = FACTORY.createXMLStreamReader(in);
+            try {
+                return parser.parse(r);
+            } finally {
+                r.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("bad ISAPI xml: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * PTZStatus/AbsoluteHigh：elevation、azimuth 为 0.1° 刻度
+     */
+    public static PtzStatus status(XMLStreamReader r) throws XMLStreamException, IOException {
+        Integer az10 = null, el10 = null, z = null;
+        while (r.hasNext()) {
+            if (r.next() != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            switch (r.getLocalName()) {
+                case "azimuth" -> az10 = intText(r);
+                case "elevation" -> el10 = intText(r);
+                case "absoluteZoom" -> z = intText(r);
+                default -> {
+                }
+            }
+        }
+        if (az10 == null || el10 == null || z == null) {
+            throw new IOException("PTZStatus without AbsoluteHigh azimuth/elevation/absoluteZoom");
+        }
+        return new PtzStatus(az10 / 10.0, el10 / 10.0, z);
+    }
+
+    /**
+     * PTZChannelList/PTZChannel：只取每个 PTZChannel 的直接子元素
+     */
+    public static List<PtzChannel> channels(XMLStreamReader r) throws XMLStreamException {
+        List<PtzChannel> out = new ArrayList<>();
+        int depth = 0, channelDepth = -1;
+        int id = 0;
+        boolean enabled = true;
+        Integer videoInput = null;
+        while (r.hasNext()) {
+            int ev = r.next();
+            if (ev == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                String name = r.getLocalName();
+                if (channelDepth < 0 && "PTZChannel".equals(name)) {
+                    channelDepth = depth;
+                    id = 0;
+                    enabled = true;
+                    videoInput = null;
+                } else if (depth == channelDepth + 1) {
+                    switch (name) {
+                        case "id" -> id = intText(r);
+                        case "enabled" -> enabled = boolText(r);
+                        case "videoInputID" -> videoInput = intText(r);
+                        default -> {
+                            continue;
+                        }
+                    }
+                    depth--; // getElementText 已消费到 END_ELEMENT
+                }
+            } else if (ev == XMLStreamConstants.END_ELEMENT) {
+                if (depth == channelDepth) {
+                    out.add(new PtzChannel(id, enabled, videoInput));
+                    channelDepth = -1;
+                }
+                depth--;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * ParkAction：enabled、Parktime、Action/ActionType、Action/ActionNum
+     */
+    public static ParkAction parkAction(XMLStreamReader r) throws XMLStreamException {
+        boolean enabled = false;
+        int parkTime = 0, actionNum = 0;
+        String actionType = null;
+        while (r.hasNext()) {
+            if (r.next() != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            switch (r.getLocalName()) {
+                case "enabled" -> enabled = boolText(r);
+                case "Parktime" -> parkTime = intText(r);
+                case "ActionType" -> actionType = r.getElementText().trim();
+                case "ActionNum" -> actionNum = intText(r);
+                default -> {
+                }
+            }
+        }
+        return new ParkAction(enabled, parkTime, actionType, actionNum);
+    }
+
+    /**
+     * PTZChanelCap：绝对位置/连续移动的 X/Y/Z 范围与预置位数量，缺失的部分沿用 {@link PtzCapabilities#DEFAULTS}
+     */
+    public static PtzCapabilities capabilities(XMLStreamReader r) throws XMLStreamException {
+        PtzCapabilities d = PtzCapabilities.DEFAULTS;
+        PtzCapabilities.Range absPan = d.absolutePan(), absTilt = d.absoluteTilt(), absZoom = d.absoluteZoom();
+        PtzCapabilities.Range conPan = d.continuousPan(), conTilt = d.continuousTilt(), conZoom = d.continuousZoom();
+        Integer maxPreset = null;
+        String section = null, axis = null;
+        Integer min = null, max = null;
+        while (r.hasNext()) {
+            int ev = r.next();
+            if (ev == XMLStreamConstants.START_ELEMENT) {
+                String name = r.getLocalName();
+                switch (name) {
+                    case "AbsolutePanTiltPositionSpace", "AbsoluteZoomPositionSpace",
+                         "ContinuousPanTiltSpace", "ContinuousZoomSpace" -> section = name;
+                    case "XRange", "YRange", "ZRange" -> {
+                        axis = name;
+                        min = null;
+                        max = null;
+                    }
+                    case "Min" -> min = axis != null ? intText(r) : min;
+                    case "Max" -> max = axis != null ? intText(r) : max;
+                    case "maxPresetNum" -> maxPreset = intText(r);
+                    default -> {
+                    }
+                }
+            } else if (ev == XMLStreamConstants.END_ELEMENT) {
+                String name = r.getLocalName();
+                if (name.equals(axis)) {
+                    if (section != null && min != null && max != null) {
+                        PtzCapabilities.Range range = new PtzCapabilities.Range(min, max);
+                        switch (section + "/" + axis) {
+                            case "AbsolutePanTiltPositionSpace/XRange" -> absPan = range;
+                            case "AbsolutePanTiltPositionSpace/YRange" -> absTilt = range;
+                            case "AbsoluteZoomPositionSpace/ZRange" -> absZoom = range;
+                            case "ContinuousPanTiltSpace/XRange" -> conPan = range;
+                            case "ContinuousPanTiltSpace/YRange" -> conTilt = range;
+                            case "ContinuousZoomSpace/ZRange" -> conZoom = range;
+                            default -> {
+                            }
+                        }
+                    }
+                    axis = null;
+                } else if (name.equals(section)) {
+                    section = null;
+                }
+            }
+        }
+        return new PtzCapabilities(absPan, absTilt, absZoom, conPan, conTilt, conZoom, maxPreset, true);
+    }
+
+    /**
+     * EventNotificationAlert：channelID（或 dynChannelID）、eventType、eventState、eventDescription、dateTime
+     */
+    public static AlertEvent alert(XMLStreamReader r, String cameraId) throws XMLStreamException {
+        Integer channel = null;
+        String type = null, state = null, description = null, dateTime = null;
+        int activePostCount = 0;
+        while (r.hasNext()) {
+            if (r.next() != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            switch (r.getLocalName()) {
+                case "channelID", "dynChannelID" -> {
+                    int ch = intText(r);
+                    channel = channel != null ? channel : ch;
+                }
+                case "eventType" -> type = r.getElementText().trim();
+                case "eventState" -> state = r.getElementText().trim();
+                case "eventDescription" -> description = r.getElementText().trim();
+                case "dateTime" -> dateTime = r.getElementText().trim();
+                case "activePostCount" -> activePostCount = intText(r);
+                default -> {
+                }
+            }
+        }
+        return new AlertEvent(cameraId, channel, type, state, description, dateTime, activePostCount);
+    }
+
+    private static int intText(XMLStreamReader r) throws XMLStreamException {
+        String s = r.getElementText().trim();
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            // 个别固件返回小数
+            return (int) Math.round(Double.parseDouble(s));
+        }
+    }
+
+    private static boolean boolText(XMLStreamReader r) throws XMLStreamException {
+        return "true".equalsIgnoreCase(r.getElementText().trim());
+    }
+}
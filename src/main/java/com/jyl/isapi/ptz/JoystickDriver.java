@@ -0,0 +1,148 @@
+package com.jyl.isapi.ptz;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 摇杆驱动（每个相机通道一个）：
+ * <ul>
+ *   <li>只保留最新的速度向量，按最小间隔转发到 /continuous，被新向量覆盖的旧向量直接丢弃</li>
+ *   <li>stop 插队：清掉待发向量；若有 move 正在下发，立即另起请求发 stop，并在 move 返回后再补发一次</li>
+ *   <li>每个 move 带 deadman 超时，摇杆断流后云台自行停止</li>
+ * </ul>
+ */
+public class JoystickDriver {
+    private final PtzIsapiClient client;
+    private final int channel;
+    private final long minIntervalNanos;
+    private final int deadmanMs;
+
+    private final AtomicReference<double[]> latest = new AtomicReference<>();
+    private final AtomicBoolean stopPending = new AtomicBoolean();
+    private final Semaphore wake = new Semaphore(0);
+    private volatile boolean moveInFlight;
+    private volatile boolean closed;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder stops = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public JoystickDriver(PtzIsapiClient client, int channel, long minIntervalMs, int deadmanMs) {
+        this.client = client;
+        this.channel = channel;
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMs);
+        this.deadmanMs = deadmanMs;
+        Thread.ofVirtual().name("joystick-" + client.getCameraId() + "-" + channel).start(this::run);
+    }
+
+    public void move(double pan, double tilt, double zoom) {
+        if (pan == 0 && tilt == 0 && zoom == 0) {
+            stop();
+            return;
+        }
+        received.increment();
+        if (latest.getAndSet(new double[]{pan, tilt, zoom}) != null) {
+            superseded.increment();
+        }
+        wake.release();
+    }
+
+    public void stop() {
+        received.increment();
+        if (latest.getAndSet(null) != null) {
+            superseded.increment();
+        }
+        stopPending.set(true);
+        if (moveInFlight) {
+            // 不排在正在下发的 move 后面
+            client.stopAsync(channel).whenComplete((v, ex) -> count(ex));
+        }
+        wake.release();
+    }
+
+    /**
+     * 释放驱动：停止云台并结束发送线程
+     */
+    public void close() {
+        closed = true;
+        latest.set(null);
+        stopPending.set(true);
+        wake.release();
+    }
+
+    private void run() {
+        long lastMove = 0;
+        try {
+            while (true) {
+                wake.acquire();
+                wake.drainPermits();
+                while (true) {
+                    if (stopPending.getAndSet(false)) {
+                        sendStop();
+                        continue;
+                    }
+                    if (latest.get() == null) {
+                        break;
+                    }
+                    long wait = lastMove + minIntervalNanos - System.nanoTime();
+                    if (wait > 0) {
+                        // 限速等待期间可被新向量/stop 唤醒，醒来重新判断
+                        wake.tryAcquire(wait, TimeUnit.NANOSECONDS);
+                        continue;
+                    }
+                    double[] v = latest.getAndSet(null);
+                    if (v == null) {
+                        continue;
+                    }
+                    moveInFlight = true;
+                    try {
+                        client.continuousMove(channel, v[0], v[1], v[2], deadmanMs);
+                        sent.increment();
+                    } catch (IOException | RuntimeException e) {
+                        errors.increment();
+                    } finally {
+                        moveInFlight = false;
+                    }
+                    lastMove = System.nanoTime();
+                }
+                if (closed) {
+                    return;
+                }
+            }
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sendStop() {
+        try {
+            client.stop(channel);
+            count(null);
+        } catch (IOException | RuntimeException e) {
+            count(e);
+        }
+    }
+
+    private void count(Throwable ex) {
+        if (ex == null) {
+            stops.increment();
+        } else {
+            errors.increment();
+        }
+    }
+
+    public JoystickStats stats() {
+        return new JoystickStats(client.getCameraId(), channel, received.sum(), superseded.sum(),
+                sent.sum(), stops.sum(), errors.sum());
+    }
+
+    public record JoystickStats(String cameraId, int channel, long received, long superseded,
+                                long sent, long stops, long errors) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按相机通道共享 {@link JoystickDriver}：同一通道的多个摇杆连接共用一份“最新向量”，
+ * 最后一个连接断开时停止云台并释放驱动
+ */
+@Component
+public class JoystickHub {
+    private final CameraRegistry cameras;
+    private final FleetProperties fleet;
+    private final ConcurrentHashMap<String, Entry> drivers = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+        final JoystickDriver driver;
+        int refs;
+
+        Entry(JoystickDriver driver) {
+            this.driver = driver;
+        }
+    }
+
+    public JoystickHub(CameraRegistry cameras, FleetProperties fleet) {
+        this.cameras = cameras;
+        this.fleet = fleet;
+    }
+
+    private static String key(String cameraId, int channel) {
+        return cameraId + "/" + channel;
+    }
+
+    public JoystickDriver acquire(String cameraId, int channel) {
+        PtzIsapiClient client = cameras.client(cameraId);
+        Entry e = drivers.compute(key(client.getCameraId(), channel), (k, cur) -> {
+            Entry n = cur != null ? cur : new Entry(new JoystickDriver(client, channel,
+                    fleet.getJoystickMinIntervalMs(), fleet.getJoystickDeadmanMs()));
+            n.refs++;
+            return n;
+        });
+        return e.driver;
+    }
+
+    public void release(JoystickDriver driver) {
+        JoystickDriver.JoystickStats s = driver.stats();
+        drivers.computeIfPresent(key(s.cameraId(), s.channel()), (k, cur) -> {
+            if (cur.driver != driver || --cur.refs > 0) {
+                return cur;
+            }
+            driver.close();
+            return null;
+        });
+    }
+
+    public List<JoystickDriver.JoystickStats> stats() {
+        return drivers.values().stream().map(e -> e.driver.stats()).toList();
+    }
+}
@@ -0,0 +1,30 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * 已成功下发的运动命令及其参数（限幅后的实际值），见 {@link PtzCommandListener#onMotion}
+ */
+public sealed interface MotionCommand {
+    /**
+     * 连续移动：速度为设备原始值（通常 -100~100），durationMs 后设备自停
+     */
+    record Continuous(int pan, int tilt, int zoom, int durationMs) implements MotionCommand {
+    }
+
+    /**
+     * 绝对移动：null 的轴保持不变
+     */
+    record Absolute(Double azimuth, Double elevation, Integer zoom) implements MotionCommand {
+    }
+
+    record Preset(int preset) implements MotionCommand {
+    }
+
+    record Stop() implements MotionCommand {
+    }
+
+    /**
+     * 3D 定位：目标由设备计算，事先不知道
+     */
+    record Position3D() implements MotionCommand {
+    }
+}
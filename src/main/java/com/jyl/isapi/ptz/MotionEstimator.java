@@ -0,0 +1,315 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import com.jyl.isapi.config.PtzProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 位置推算（航位推算）：每个相机通道记住上次真实读到的位置（锚点）和之后下发的运动命令，
+ * 按机型转速推算当前位置，UI 动画高频查询时大多不访问设备。
+ * <ul>
+ *   <li>连续移动：锚点 + 速度 × 时间，到 timeout 为止</li>
+ *   <li>绝对移动、已知位置的预置位：各轴按满速走向目标，预计到达后即为目标</li>
+ *   <li>未知位置的预置位、3D 定位：置信度为 0，每次都读设备；预置位停稳后记下它的位置，下次即可推算</li>
+ * </ul>
+ * 任何途径的真实读取（/status、到位等待、位置推送）都会重新锚定；读取发出早于最近一次命令的结果不用。
+ * 置信度低于 fleet.estimate-min-confidence，或距上次真实读取超过 estimate-max-age-ms（运动中）/
+ * estimate-idle-max-age-ms（静止）时读一次设备（经 {@link StatusCache}，并发查询合并为一次）。
+ */
+@Component
+public class MotionEstimator implements PtzCommandListener {
+    private static final FleetProperties.SlewRates BUILTIN = new FleetProperties.SlewRates();
+    /**
+     * 预计到达后的误差（度）：设备停在目标的精度
+     */
+    private static final double ARRIVED_ERROR_DEG = 0.1;
+    /**
+     * 停稳判定：命令后至少这么久，且连续两次真实读取相差不超过 SETTLED_DEG
+     */
+    private static final long SETTLE_MIN_NANOS = TimeUnit.MILLISECONDS.toNanos(300);
+    private static final double SETTLED_DEG = 0.05;
+
+    private final StatusCache statusCache;
+    private final FleetProperties fleet;
+    private final FleetProperties.SlewRates defaultRates;
+    private final Map<String, FleetProperties.SlewRates> rates = new HashMap<>();
+    private final ConcurrentHashMap<String, Track> tracks = new ConcurrentHashMap<>();
+
+    private final LongAdder estimated = new LongAdder();
+    private final LongAdder deviceReads = new LongAdder();
+    private final LongAdder presetsLearned = new LongAdder();
+
+    private enum Kind {IDLE, CONTINUOUS, TARGET, UNKNOWN}
+
+    private record Pos(double az, double el, double zoom, double err, boolean moving) {
+    }
+
+    private static final class Track {
+        final FleetProperties.SlewRates rates;
+        PtzCapabilities caps = PtzCapabilities.DEFAULTS;
+        final Map<Integer, PtzStatus> presets = new HashMap<>();
+
+        // 锚点：位置与预计误差（度），真实读取时误差为 0
+        boolean anchored;
+        double az, el, zoom, err;
+        long lastRead;
+        PtzStatus lastStatus;
+
+        Kind kind = Kind.IDLE;
+        long commandAt;
+        long start;
+        long until;
+        double vAz, vEl, vZoom;
+        double tAz, tEl, tZoom;
+        Integer preset;
+
+        Track(FleetProperties.SlewRates rates) {
+            this.rates = rates;
+        }
+    }
+
+    public MotionEstimator(StatusCache statusCache, FleetProperties fleet, PtzProperties defaultCamera) {
+        this.statusCache = statusCache;
+        this.fleet = fleet;
+        this.defaultRates = fleet.getSlewModels().getOrDefault("default", BUILTIN);
+        resolve(CameraRegistry.DEFAULT_ID, defaultCamera);
+        fleet.getCameras().forEach(this::resolve);
+    }
+
+    private void resolve(String cameraId, PtzProperties props) {
+        String name = props.getSlewModel();
+        FleetProperties.SlewRates r = name != null ? fleet.getSlewModels().get(name) : defaultRates;
+        if (r == null) {
+            throw new IllegalStateException(cameraId + ": unknown slew-model " + name);
+        }
+        rates.put(cameraId, r);
+    }
+
+    private Track track(String cameraId, int channel) {
+        return tracks.computeIfAbsent(cameraId + "/" + channel,
+                k -> new Track(rates.getOrDefault(cameraId, defaultRates)));
+    }
+
+    /**
+     * 当前位置：推算足够可信时直接返回，否则读设备
+     */
+    public CompletableFuture<PtzEstimate> estimate(PtzIsapiClient client, int channel) {
+        Track t = track(client.getCameraId(), channel);
+        synchronized (t) {
+            t.caps = client.getCapabilityCache().getOrDefault(channel, t.caps);
+            if (t.anchored) {
+                long now = System.nanoTime();
+                Pos p = at(t, now);
+                long ageMs = TimeUnit.NANOSECONDS.toMillis(now - t.lastRead);
+                double confidence = confidence(p.err);
+                long maxAge = p.moving ? fleet.getEstimateMaxAgeMs() : fleet.getEstimateIdleMaxAgeMs();
+                if (confidence >= fleet.getEstimateMinConfidence() && ageMs < maxAge) {
+                    estimated.increment();
+                    return CompletableFuture.completedFuture(result(p, false, ageMs));
+                }
+            }
+        }
+        deviceReads.increment();
+        return statusCache.getParsed(client, channel).thenApply(s -> {
+            synchronized (t) {
+                long now = System.nanoTime();
+                return result(at(t, now), true, TimeUnit.NANOSECONDS.toMillis(now - t.lastRead));
+            }
+        });
+    }
+
+    /**
+     * 只按模型推算 now 时刻的位置，不读设备
+     */
+    PtzEstimate estimateAt(String cameraId, int channel, long now) {
+        Track t = track(cameraId, channel);
+        synchronized (t) {
+            return result(at(t, now), false, TimeUnit.NANOSECONDS.toMillis(now - t.lastRead));
+        }
+    }
+
+    private static PtzEstimate result(Pos p, boolean device, long ageMs) {
+        return new PtzEstimate(Math.round(p.az * 10) / 10.0, Math.round(p.el * 10) / 10.0, (int) Math.round(p.zoom),
+                p.moving, device, ageMs, Math.round(confidence(p.err) * 1000) / 1000.0);
+    }
+
+    private static double confidence(double errDeg) {
+        return Double.isFinite(errDeg) ? 1.0 / (1.0 + errDeg) : 0;
+    }
+
+    @Override
+    public void onCommand(String cameraId, int channel, PtzOperation operation) {
+        // 只用 onMotion：需要命令参数，且失败/被取代的命令不改变推算
+    }
+
+    @Override
+    public void onMotion(String cameraId, int channel, MotionCommand command) {
+        onMotion(cameraId, channel, command, System.nanoTime());
+    }
+
+    void onMotion(String cameraId, int channel, MotionCommand command, long now) {
+        Track t = track(cameraId, channel);
+        synchronized (t) {
+            Pos p = t.anchored ? at(t, now) : new Pos(0, 0, 0, Double.POSITIVE_INFINITY, true);
+            t.az = p.az;
+            t.el = p.el;
+            t.zoom = p.zoom;
+            t.err = p.err;
+            t.commandAt = now;
+            t.start = now;
+            t.preset = null;
+            FleetProperties.SlewRates r = t.rates;
+            switch (command) {
+                case MotionCommand.Continuous c -> {
+                    if (c.pan() == 0 && c.tilt() == 0 && c.zoom() == 0) {
+                        t.kind = Kind.IDLE;
+                    } else {
+                        t.kind = Kind.CONTINUOUS;
+                        t.vAz = c.pan() / 100.0 * r.getPan();
+                        t.vEl = c.tilt() / 100.0 * r.getTilt();
+                        t.vZoom = c.zoom() / 100.0 * r.getZoom();
+                        t.until = now + TimeUnit.MILLISECONDS.toNanos(Math.max(1, c.durationMs()));
+                    }
+                }
+                case MotionCommand.Absolute a -> target(t, a.azimuth() != null ? a.azimuth() : p.az,
+                        a.elevation() != null ? a.elevation() : p.el, a.zoom() != null ? a.zoom() : p.zoom);
+                case MotionCommand.Preset g -> {
+                    PtzStatus known = t.presets.get(g.preset());
+                    if (known != null) {
+                        target(t, known.azimuth(), known.elevation(), known.zoom());
+                    } else {
+                        t.kind = Kind.UNKNOWN;
+                    }
+                    t.preset = g.preset();
+                }
+                case MotionCommand.Stop s -> t.kind = Kind.IDLE;
+                case MotionCommand.Position3D d -> t.kind = Kind.UNKNOWN;
+            }
+        }
+    }
+
+    private static void target(Track t, double az, double el, double zoom) {
+        t.kind = Kind.TARGET;
+        t.tAz = wrap(az);
+        t.tEl = el;
+        t.tZoom = zoom;
+    }
+
+    @Override
+    public void onStatus(String cameraId, int channel, PtzStatus status, long atNanos) {
+        Track t = track(cameraId, channel);
+        synchronized (t) {
+            if (t.anchored && atNanos < t.commandAt) {
+                return; // 命令之前发出的读取
+            }
+            boolean settled = t.lastStatus != null && t.lastRead >= t.commandAt
+                    && atNanos - t.commandAt >= SETTLE_MIN_NANOS && distance(t.lastStatus, status) <= SETTLED_DEG
+                    && t.lastStatus.zoom() == status.zoom();
+            switch (t.kind) {
+                case CONTINUOUS -> {
+                    if (atNanos >= t.until) {
+                        t.kind = Kind.IDLE;
+                    }
+                }
+                case TARGET, UNKNOWN -> {
+                    boolean arrived = t.kind == Kind.TARGET && Math.abs(angle(status.azimuth() - t.tAz)) <= ARRIVED_ERROR_DEG
+                            && Math.abs(status.elevation() - t.tEl) <= ARRIVED_ERROR_DEG && status.zoom() == Math.round(t.tZoom);
+                    if (arrived || settled) {
+                        if (t.preset != null) {
+                            if (t.presets.put(t.preset, status) == null) {
+                                presetsLearned.increment();
+                            }
+                        }
+                        t.kind = Kind.IDLE;
+                    }
+                }
+                default -> {
+                }
+            }
+            t.anchored = true;
+            t.az = status.azimuth();
+            t.el = status.elevation();
+            t.zoom = status.zoom();
+            t.err = 0;
+            t.start = atNanos;
+            t.lastRead = atNanos;
+            t.lastStatus = status;
+        }
+    }
+
+    /**
+     * 从锚点按当前运动推算 now 时刻的位置
+     */
+    private static Pos at(Track t, long now) {
+        FleetProperties.SlewRates r = t.rates;
+        double tiltMin = t.caps.absoluteTilt().min() / 10.0, tiltMax = t.caps.absoluteTilt().max() / 10.0;
+        int zoomMin = t.caps.absoluteZoom().min(), zoomMax = t.caps.absoluteZoom().max();
+        switch (t.kind) {
+            case CONTINUOUS -> {
+                double dt = Math.max(0, Math.min(now, t.until) - t.start) / 1e9;
+                double dAz = t.vAz * dt, dEl = t.vEl * dt;
+                return new Pos(wrap(t.az + dAz), clamp(t.el + dEl, tiltMin, tiltMax),
+                        clamp(t.zoom + t.vZoom * dt, zoomMin, zoomMax),
+                        t.err + r.getError() * Math.hypot(dAz, dEl), now < t.until);
+            }
+            case TARGET -> {
+                double dt = Math.max(0, now - t.start) / 1e9;
+                double dAz = angle(t.tAz - t.az), dEl = t.tEl - t.el, dZoom = t.tZoom - t.zoom;
+                double eta = Math.max(Math.abs(dAz) / r.getPan(), Math.max(Math.abs(dEl) / r.getTilt(), Math.abs(dZoom) / r.getZoom()));
+                // 预计到达时间本身有 error 的相对误差，过了上限才认为已到位
+                if (dt >= eta * (1 + r.getError())) {
+                    return new Pos(t.tAz, t.tEl, t.tZoom, Double.isFinite(t.err) ? ARRIVED_ERROR_DEG : t.err, false);
+                }
+                double sAz = step(dAz, r.getPan() * dt), sEl = step(dEl, r.getTilt() * dt);
+                return new Pos(wrap(t.az + sAz), t.el + sEl, t.zoom + step(dZoom, r.getZoom() * dt),
+                        t.err + r.getError() * Math.hypot(sAz, sEl) + ARRIVED_ERROR_DEG, true);
+            }
+            case UNKNOWN -> {
+                return new Pos(t.az, t.el, t.zoom, Double.POSITIVE_INFINITY, true);
+            }
+            default -> {
+                return new Pos(t.az, t.el, t.zoom, t.err, false);
+            }
+        }
+    }
+
+    private static double step(double remaining, double max) {
+        return Math.signum(remaining) * Math.min(Math.abs(remaining), max);
+    }
+
+    /**
+     * 方位差取最短路径，-180~180
+     */
+    private static double angle(double d) {
+        return ((d % 360) + 540) % 360 - 180;
+    }
+
+    private static double wrap(double az) {
+        return ((az % 360) + 360) % 360;
+    }
+
+    private static double clamp(double v, double min, double max) {
+        return Math.max(min, Math.min(max, v));
+    }
+
+    private static double distance(PtzStatus a, PtzStatus b) {
+        return Math.hypot(angle(a.azimuth() - b.azimuth()), a.elevation() - b.elevation());
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        m.put("estimated", estimated.sum());
+        m.put("deviceReads", deviceReads.sum());
+        m.put("presetsLearned", presetsLearned.sum());
+        m.put("channels", (long) tracks.size());
+        return m;
+    }
+}
@@ -0,0 +1,7 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * 运动命令的结果：最终位置、是否在超时前到位、轮询 status 的次数、从下发到返回的耗时（毫秒）
+ */
+public record MotionResult(PtzStatus position, boolean settled, int polls, long elapsedMs) {
+}
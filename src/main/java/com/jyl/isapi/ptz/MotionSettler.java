@@ -0,0 +1,128 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运动收敛等待：命令下发后轮询 status，直到到达目标位置，或连续两次读数相同（已停稳），或超时。
+ * <p>
+ * 轮询间隔自适应：已知目标时按上两次读数估算的速度和剩余距离取一半 ETA；未知目标时运动中逐步加倍；
+ * 一旦读数不变立即用最小间隔复核。起步宽限期内位置不变不算到位（马达还没动）。
+ */
+class MotionSettler {
+    /**
+     * 角度（度）/变倍的到位容差；status 本身是 0.1° 刻度
+     */
+    static final double ANGLE_TOLERANCE = 0.5;
+    static final int ZOOM_TOLERANCE = 1;
+
+    private final long timeoutNanos;
+    private final long pollMinMs;
+    private final long pollMaxMs;
+    private final long graceNanos;
+
+    @FunctionalInterface
+    interface StatusReader {
+        PtzStatus read() throws IOException;
+    }
+
+    MotionSettler(FleetProperties fleet) {
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(fleet.getSettleTimeoutMs());
+        this.pollMinMs = Math.max(1, fleet.getSettlePollMinMs());
+        this.pollMaxMs = Math.max(pollMinMs, fleet.getSettlePollMaxMs());
+        this.graceNanos = TimeUnit.MILLISECONDS.toNanos(fleet.getSettleGraceMs());
+    }
+
+    /**
+     * @param before     命令下发前的位置，可为 null
+     * @param target     目标位置，未知（预置位、3D 定位）时为 null
+     * @param startNanos 命令开始下发的时间
+     */
+    MotionResult await(StatusReader reader, PtzStatus before, PtzStatus target, long startNanos) throws IOException {
+        long deadline = startNanos + timeoutNanos;
+        PtzStatus last = before;
+        long lastAt = startNanos;
+        boolean moved = false;
+        int polls = 0;
+        long interval = pollMinMs;
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return result(last, false, polls, startNanos);
+            }
+            sleep(Math.min(interval, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+            PtzStatus now = reader.read();
+            long nowAt = System.nanoTime();
+            polls++;
+            if (target != null && near(now, target)) {
+                return result(now, true, polls, startNanos);
+            }
+            if (now.equals(last)) {
+                if (moved || nowAt - startNanos >= graceNanos) {
+                    return result(now, true, polls, startNanos); // 停稳（包括被设备限位挡在目标之外）
+                }
+                interval = pollMinMs;
+            } else if (last != null) {
+                moved = true;
+                interval = nextInterval(interval, last, now, nowAt - lastAt, target);
+            }
+            last = now;
+            lastAt = nowAt;
+        }
+    }
+
+    /**
+     * 运动中：有目标时按速度估算剩余时间的一半，否则加倍，夹在 [pollMin, pollMax]
+     */
+    private long nextInterval(long interval, PtzStatus prev, PtzStatus now, long dtNanos, PtzStatus target) {
+        long next = interval * 2;
+        if (target != null && dtNanos > 0) {
+            double dt = dtNanos / 1e9;
+            double eta = Math.max(
+                    eta(angle(prev.azimuth(), now.azimuth()), angle(now.azimuth(), target.azimuth()), dt),
+                    Math.max(eta(Math.abs(now.elevation() - prev.elevation()), Math.abs(target.elevation() - now.elevation()), dt),
+                            eta(Math.abs(now.zoom() - prev.zoom()), Math.abs(target.zoom() - now.zoom()), dt)));
+            if (eta >= 0) {
+                next = (long) (eta * 1000 / 2);
+            }
+        }
+        return Math.max(pollMinMs, Math.min(pollMaxMs, next));
+    }
+
+    /**
+     * 按本轮位移估算剩余秒数；该轴没动时返回 -1
+     */
+    private static double eta(double moved, double left, double dt) {
+        return moved > 1e-9 ? left / (moved / dt) : -1;
+    }
+
+    static boolean near(PtzStatus a, PtzStatus b) {
+        return angle(a.azimuth(), b.azimuth()) <= ANGLE_TOLERANCE
+                && Math.abs(a.elevation() - b.elevation()) <= ANGLE_TOLERANCE
+                && Math.abs(a.zoom() - b.zoom()) <= ZOOM_TOLERANCE;
+    }
+
+    /**
+     * 方位角差（考虑 0/360 回绕）
+     */
+    private static double angle(double a, double b) {
+        double d = Math.abs(a - b) % 360;
+        return d > 180 ? 360 - d : d;
+    }
+
+    private static MotionResult result(PtzStatus position, boolean settled, int polls, long startNanos) {
+        return new MotionResult(position, settled, polls, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    private static void sleep(long ms) throws IOException {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for PTZ motion");
+        }
+    }
+}
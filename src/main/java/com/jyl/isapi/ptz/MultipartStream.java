@@ -0,0 +1,186 @@
+package com.jyl.isapi.ptz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * multipart/mixed 长连接（alertStream）的增量读取：逐个 part 读头部，正文以受限流交给调用方直接解析，
+ * 不把整段 part 读成 String/byte[]。有 Content-Length 时按长度截断，否则扫描到下一个分隔行为止。
+ * 调用 {@link #next()} 时会丢弃上一个 part 未读完的部分。
+ */
+class MultipartStream {
+    private static final int MAX_LINE = 8 * 1024;
+
+    private final PushbackInputStream in;
+    private final byte[] delimiter;
+    private final String dashBoundary;
+    private final String boundary;
+    private InputStream current;
+
+    record Part(Map<String, String> headers, InputStream body) {
+        String contentType() {
+            return headers.getOrDefault("content-type", "");
+        }
+    }
+
+    MultipartStream(InputStream in, String boundary) {
+        this.boundary = boundary;
+        this.dashBoundary = "--" + boundary;
+        this.delimiter = ("\r\n" + dashBoundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.in = new PushbackInputStream(in, delimiter.length);
+    }
+
+    /**
+     * 从 Content-Type 取 boundary 参数，没有时返回 null
+     */
+    static String boundary(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String p : contentType.split(";")) {
+            String s = p.trim();
+            if (s.regionMatches(true, 0, "boundary=", 0, 9)) {
+                String b = s.substring(9).trim();
+                return b.length() > 1 && b.startsWith("\"") && b.endsWith("\"") ? b.substring(1, b.length() - 1) : b;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 下一个 part；遇到结束分隔符或连接结束返回 null
+     */
+    Part next() throws IOException {
+        if (current != null) {
+            current.transferTo(OutputStream.nullOutputStream());
+            current = null;
+        }
+        String line;
+        do {
+            line = readLine();
+            if (line == null || line.equals(dashBoundary + "--")) {
+                return null;
+            }
+            // 个别固件的分隔行不带前导 --
+        } while (!line.equals(dashBoundary) && !line.equals(boundary));
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        while ((line = readLine()) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        if (line == null) {
+            return null;
+        }
+        String length = headers.get("content-length");
+        current = length != null ? new BoundedStream(Long.parseLong(length.trim())) : new DelimitedStream();
+        return new Part(headers, current);
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder sb = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int n = sb.length();
+                return n > 0 && sb.charAt(n - 1) == '\r' ? sb.substring(0, n - 1) : sb.toString();
+            }
+            if (sb.length() >= MAX_LINE) {
+                throw new IOException("multipart header line too long");
+            }
+            sb.append((char) b);
+        }
+        return sb.isEmpty() ? null : sb.toString();
+    }
+
+    /**
+     * 按 Content-Length 截断；close 不关闭底层连接
+     */
+    private final class BoundedStream extends InputStream {
+        private long remaining;
+
+        BoundedStream(long length) {
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(buf, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * 没有 Content-Length：读到 CRLF--boundary 为止，分隔符退回给下一次 {@link #next()}
+     */
+    private final class DelimitedStream extends InputStream {
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            if (done) {
+                return -1;
+            }
+            int b = in.read();
+            if (b == -1) {
+                done = true;
+                return -1;
+            }
+            if (b != delimiter[0]) {
+                return b;
+            }
+            byte[] look = new byte[delimiter.length];
+            look[0] = (byte) b;
+            int n = 1;
+            while (n < look.length) {
+                int r = in.read(look, n, look.length - n);
+                if (r < 0) {
+                    break;
+                }
+                n += r;
+            }
+            if (n == look.length && Arrays.equals(look, delimiter)) {
+                in.unread(look, 2, look.length - 2); // 留下 --boundary 给 next()
+                done = true;
+                return -1;
+            }
+            in.unread(look, 1, n - 1);
+            return b;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.jyl.isapi.ptz;
+
+import java.util.Set;
+
+/**
+ * 本实例负责的相机发生变化（有节点加入或离开），由 {@link ClusterMembership} 以 Spring 事件发布
+ *
+ * @param version 哈希环版本，每次重建加一
+ * @param gained  新接管的相机
+ * @param lost    移交给其他节点的相机
+ */
+public record OwnershipChange(long version, Set<String> gained, Set<String> lost) {
+}
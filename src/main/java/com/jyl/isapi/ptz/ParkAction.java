@@ -0,0 +1,61 @@
+package com.jyl.isapi.ptz;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 守望配置：enabled，parkTime 秒，actionType: preset/patrol，actionNum: 预置位号或巡航号
+ */
+public record ParkAction(boolean enabled, int parkTime, String actionType, int actionNum) {
+
+    /**
+     * 与下发时相同的规整：parkTime 限定 5~720 秒，actionType 只认 patrol，其余按 preset
+     */
+    public ParkAction normalized() {
+        return new ParkAction(enabled, Math.max(5, Math.min(720, parkTime)),
+                "patrol".equalsIgnoreCase(actionType) ? "patrol" : "preset", actionNum);
+    }
+
+    /**
+     * 在设备上效果相同（均已规整）：都未启用时其余字段无关
+     */
+    public boolean sameEffect(ParkAction o) {
+        return enabled == o.enabled && (!enabled || equals(o));
+    }
+
+    /**
+     * 规整形式的 64 位 FNV-1a 摘要；效果相同的配置摘要相同
+     */
+    public long stateHash() {
+        String canonical = enabled ? "1|" + parkTime + "|" + actionType + "|" + actionNum : "0";
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < canonical.length(); i++) {
+            h ^= canonical.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * 与 desired 不同的字段，如 "Parktime: 300 -> 60"
+     */
+    public List<String> diff(ParkAction desired) {
+        List<String> out = new ArrayList<>(4);
+        if (enabled != desired.enabled) {
+            out.add("enabled: " + enabled + " -> " + desired.enabled);
+        }
+        if (desired.enabled) {
+            if (parkTime != desired.parkTime) {
+                out.add("Parktime: " + parkTime + " -> " + desired.parkTime);
+            }
+            if (!Objects.equals(actionType, desired.actionType)) {
+                out.add("ActionType: " + actionType + " -> " + desired.actionType);
+            }
+            if (actionNum != desired.actionNum) {
+                out.add("ActionNum: " + actionNum + " -> " + desired.actionNum);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,43 @@
+package com.jyl.isapi.ptz;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 守望巡检结果：summary 为各结果的数量，items 与目标顺序一致
+ */
+public record ParkReconcileReport(ParkAction desired, boolean dryRun, int total, Map<Outcome, Integer> summary,
+                                  long elapsedMs, List<Item> items) {
+
+    public enum Outcome {
+        /**
+         * 读到的配置已与期望一致
+         */
+        IN_SYNC,
+        /**
+         * 上次读到/写入的摘要与期望一致且未过期，未请求设备
+         */
+        CACHED,
+        /**
+         * 已写入并回读确认
+         */
+        CHANGED,
+        /**
+         * dryRun：需要写入但未写
+         */
+        WOULD_CHANGE,
+        /**
+         * 集群模式下归其它节点负责，未处理；各节点只巡检自己的相机
+         */
+        NOT_OWNED,
+        FAILED
+    }
+
+    /**
+     * @param before 巡检时读到的配置（CACHED 时为 null）
+     * @param diff   与期望不同的字段
+     */
+    public record Item(String camera, int channel, Outcome outcome, ParkAction before, List<String> diff,
+                       long latencyMs, String error) {
+    }
+}
@@ -0,0 +1,165 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 守望巡检：把一批相机的守望配置对齐到期望值，只在不一致时写入。
+ * <p>
+ * 每个目标先比对 {@link ParkStateCache} 中上次读到/写入的摘要，一致则不访问设备；
+ * 否则读取当前配置，规整后比较，不同才 PUT 并回读确认。
+ * 反复 PUT 相同配置会让设备重写 flash，巡检把写入限制在真正需要改的相机上。
+ * 同时最多 fleet.park-reconcile-parallelism 台相机在读写。
+ * 集群模式下只处理本实例负责的相机（其余目标报告为 NOT_OWNED），各实例各巡一份。
+ */
+@Component
+public class ParkReconciler {
+    private final CameraRegistry cameras;
+    private final GroupCommandRunner runner;
+    private final ParkStateCache states;
+    private final FleetProperties fleet;
+    private final Executor executor;
+    private final ClusterMembership membership;
+    private volatile ParkReconcileReport last;
+    /** 定时巡检的上一轮；未完成时跳过本次触发 */
+    private volatile CompletableFuture<ParkReconcileReport> round = CompletableFuture.completedFuture(null);
+
+    public ParkReconciler(CameraRegistry cameras, GroupCommandRunner runner, ParkStateCache states,
+                          FleetProperties fleet, @Qualifier("ptzExecutor") Executor executor,
+                          ClusterMembership membership) {
+        this.cameras = cameras;
+        this.runner = runner;
+        this.states = states;
+        this.fleet = fleet;
+        this.executor = executor;
+        this.membership = membership;
+    }
+
+    /**
+     * @param cmd    目标：group/targets，都为空表示所有相机
+     * @param dryRun 只读取比较，不写入
+     * @param force  忽略摘要缓存，全部重新读取
+     */
+    public CompletableFuture<ParkReconcileReport> reconcile(GroupCommand cmd, ParkAction desired,
+                                                            boolean dryRun, boolean force) {
+        return reconcile(targets(cmd), desired, dryRun, force);
+    }
+
+    private CompletableFuture<ParkReconcileReport> reconcile(List<GroupCommand.Target> targets, ParkAction desired,
+                                                             boolean dryRun, boolean force) {
+        ParkAction want = desired.normalized();
+        Semaphore permits = new Semaphore(Math.max(1, fleet.getParkReconcileParallelism()));
+        long t0 = System.nanoTime();
+
+        List<CompletableFuture<ParkReconcileReport.Item>> fs = targets.stream()
+                .map(t -> CompletableFuture.supplyAsync(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        return reconcileOne(t, want, dryRun, force);
+                    } finally {
+                        permits.release();
+                    }
+                }, executor))
+                .toList();
+        return CompletableFuture.allOf(fs.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            List<ParkReconcileReport.Item> items = fs.stream().map(CompletableFuture::join).toList();
+            Map<ParkReconcileReport.Outcome, Integer> summary = new EnumMap<>(ParkReconcileReport.Outcome.class);
+            items.forEach(i -> summary.merge(i.outcome(), 1, Integer::sum));
+            return new ParkReconcileReport(want, dryRun, items.size(), summary,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0), items);
+        }).whenComplete((report, e) -> {
+            if (report != null && !dryRun) {
+                last = report;
+            }
+        });
+    }
+
+    /**
+     * 最近一次（非 dryRun）巡检的结果，未执行过时为 null
+     */
+    public ParkReconcileReport last() {
+        return last;
+    }
+
+    /**
+     * 定时巡检 fleet.park-policy；cron 默认 "-" 不执行。
+     * 只提交不等待，结果在完成时写入 {@link #last()}，不占用调度线程
+     */
+    @Scheduled(cron = "${fleet.park-reconcile-cron:-}")
+    public void scheduled() {
+        FleetProperties.ParkPolicy p = fleet.getParkPolicy();
+        if (p == null || !round.isDone()) {
+            return;
+        }
+        GroupCommand cmd = new GroupCommand(p.getGroup(), null, null, null, null, null, null, null, null, null, null);
+        List<GroupCommand.Target> local = targets(cmd).stream().filter(t -> membership.isLocal(t.camera())).toList();
+        round = reconcile(local, new ParkAction(p.isEnabled(), p.getParkTime(), p.getActionType(), p.getActionNum()),
+                false, false);
+    }
+
+    private List<GroupCommand.Target> targets(GroupCommand cmd) {
+        if (cmd.group() != null || cmd.targets() != null) {
+            return runner.resolve(cmd);
+        }
+        List<GroupCommand.Target> all = new ArrayList<>();
+        cameras.clients().keySet().forEach(id -> all.add(new GroupCommand.Target(id, null, null, null, null, null)));
+        return all;
+    }
+
+    private ParkReconcileReport.Item reconcileOne(GroupCommand.Target t, ParkAction want, boolean dryRun, boolean force) {
+        long start = System.nanoTime();
+        int channel = t.channel() != null ? t.channel() : 0;
+        long hash = want.stateHash();
+        ParkAction before = null;
+        if (cameras.clients().containsKey(t.camera()) && !membership.isLocal(t.camera())) {
+            return item(t, cameras.channel(t.camera(), t.channel()), ParkReconcileReport.Outcome.NOT_OWNED, null, List.of(), start,
+                    "owned by " + membership.owner(t.camera()).id());
+        }
+        try {
+            PtzIsapiClient client = cameras.client(t.camera());
+            channel = cameras.channel(t.camera(), t.channel());
+            if (!force && states.matches(t.camera(), channel, hash, fleet.getParkReconcileCacheTtlMs())) {
+                return item(t, channel, ParkReconcileReport.Outcome.CACHED, null, List.of(), start, null);
+            }
+            before = client.readParkAction(channel).normalized();
+            List<String> diff = before.diff(want);
+            if (before.sameEffect(want)) {
+                states.put(t.camera(), channel, before.stateHash());
+                return item(t, channel, ParkReconcileReport.Outcome.IN_SYNC, before, diff, start, null);
+            }
+            if (dryRun) {
+                states.put(t.camera(), channel, before.stateHash());
+                return item(t, channel, ParkReconcileReport.Outcome.WOULD_CHANGE, before, diff, start, null);
+            }
+            client.setParkAction(channel, want.enabled(), want.parkTime(), want.actionType(), want.actionNum());
+            // 写入会使缓存失效；回读确认设备真正接受了配置再记录摘要
+            ParkAction after = client.readParkAction(channel).normalized();
+            states.put(t.camera(), channel, after.stateHash());
+            if (!after.sameEffect(want)) {
+                return item(t, channel, ParkReconcileReport.Outcome.FAILED, before, after.diff(want), start,
+                        "device kept " + after);
+            }
+            return item(t, channel, ParkReconcileReport.Outcome.CHANGED, before, diff, start, null);
+        } catch (Exception e) {
+            states.invalidate(t.camera(), channel);
+            return item(t, channel, ParkReconcileReport.Outcome.FAILED, before, List.of(), start, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static ParkReconcileReport.Item item(GroupCommand.Target t, int channel, ParkReconcileReport.Outcome outcome,
+                                                 ParkAction before, List<String> diff, long start, String error) {
+        return new ParkReconcileReport.Item(t.camera(), channel, outcome, before, diff,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), error);
+    }
+}
@@ -0,0 +1,48 @@
+package com.jyl.isapi.ptz;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 守望巡检：每个相机通道最后一次读到/写入的守望配置摘要（{@link ParkAction#stateHash()}）。
+ * 任何途径写守望配置（/ptz/park/set、批量命令）都会使该通道失效。
+ */
+@Component
+public class ParkStateCache implements PtzCommandListener {
+    private record Entry(long hash, long at) {
+    }
+
+    private final ConcurrentHashMap<String, Entry> states = new ConcurrentHashMap<>();
+
+    private static String key(String cameraId, int channel) {
+        return cameraId + "/" + channel;
+    }
+
+    /**
+     * 缓存的状态摘要等于 hash 且未超过 ttlMs
+     */
+    boolean matches(String cameraId, int channel, long hash, long ttlMs) {
+        Entry e = states.get(key(cameraId, channel));
+        return e != null && e.hash == hash && System.currentTimeMillis() - e.at <= ttlMs;
+    }
+
+    void put(String cameraId, int channel, long hash) {
+        states.put(key(cameraId, channel), new Entry(hash, System.currentTimeMillis()));
+    }
+
+    void invalidate(String cameraId, int channel) {
+        states.remove(key(cameraId, channel));
+    }
+
+    @Override
+    public void onCommand(String cameraId, int channel, PtzOperation operation) {
+        if (operation == PtzOperation.PARK_SET) {
+            invalidate(cameraId, channel);
+        }
+    }
+
+    public int size() {
+        return states.size();
+    }
+}
@@ -0,0 +1,16 @@
+package com.jyl.isapi.ptz;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 通道命令队列已满或排队超时，未下发到设备
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PtzBusyException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public PtzBusyException(String message) {
+        super(message);
+    }
+}
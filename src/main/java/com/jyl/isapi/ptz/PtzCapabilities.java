@@ -0,0 +1,29 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * /capabilities 解析结果；角度范围单位为 0.1°（与 AbsoluteHigh 一致）
+ *
+ * @param fromDevice false 表示设备未返回能力，使用的是 {@link #DEFAULTS}
+ */
+public record PtzCapabilities(Range absolutePan, Range absoluteTilt, Range absoluteZoom,
+                              Range continuousPan, Range continuousTilt, Range continuousZoom,
+                              Integer maxPresetNum, boolean fromDevice) {
+
+    public record Range(int min, int max) {
+        public boolean contains(int v) {
+            return v >= min && v <= max;
+        }
+
+        public int clamp(int v) {
+            return Math.max(min, Math.min(max, v));
+        }
+    }
+
+    /**
+     * 读不到能力时的兜底（即原先写死的范围）
+     */
+    public static final PtzCapabilities DEFAULTS = new PtzCapabilities(
+            new Range(0, 3500), new Range(-49, 900), new Range(10, 40),
+            new Range(-100, 100), new Range(-100, 100), new Range(-100, 100),
+            null, false);
+}
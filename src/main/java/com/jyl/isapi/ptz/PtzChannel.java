@@ -0,0 +1,7 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * /ISAPI/PTZCtrl/channels 中的一个 PTZChannel
+ */
+public record PtzChannel(int id, boolean enabled, Integer videoInputId) {
+}
@@ -0,0 +1,22 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * 云台运动类命令（移动/预置位/停止等）及配置写入（守望）下发完成后回调，无论成功失败；
+ * 只关心运动的实现用 {@link PtzOperation#isMotion()} 过滤。
+ * 实现为 Spring Bean 即会被 {@link CameraRegistry} 挂到所有相机上
+ */
+public interface PtzCommandListener {
+    void onCommand(String cameraId, int channel, PtzOperation operation);
+
+    /**
+     * 运动命令成功下发后回调，带命令参数（被取代或失败的命令不回调）
+     */
+    default void onMotion(String cameraId, int channel, MotionCommand command) {
+    }
+
+    /**
+     * 读到设备的真实位置；atNanos 为请求往返的中点（System.nanoTime）
+     */
+    default void onStatus(String cameraId, int channel, PtzStatus status, long atNanos) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.jyl.isapi.ptz;
+
+import java.util.List;
+
+/**
+ * 同一操作在不同固件上的请求写法（按探测顺序排列）
+ */
+public enum PtzDialect {
+    // 停止
+    STOP_PUT("stop"),            // PUT /stop + PTZStop XML（多数型号）
+    STOP_POST("stop"),           // POST /stop 无 body（个别固件）
+    STOP_CONTINUOUS_ZERO("stop"),// 0 速度 /continuous（通杀）
+
+    // 绝对移动
+    ABSOLUTE_HIGH("absolute"),   // PUT /absolute + AbsoluteHigh（0.1°刻度）
+    ABSOLUTE_EX("absolute");     // PUT /absoluteEx（度）
+
+    public static final List<PtzDialect> STOP_VARIANTS = List.of(STOP_PUT, STOP_POST, STOP_CONTINUOUS_ZERO);
+    public static final List<PtzDialect> ABSOLUTE_VARIANTS = List.of(ABSOLUTE_HIGH, ABSOLUTE_EX);
+
+    private final String operation;
+
+    PtzDialect(String operation) {
+        this.operation = operation;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+}
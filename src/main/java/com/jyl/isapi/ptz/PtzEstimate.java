@@ -0,0 +1,13 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * 推算位置（/status/estimate）
+ *
+ * @param moving     推算认为云台仍在运动
+ * @param device     本次读了设备（false 表示完全由上次真实位置 + 运动模型推算）
+ * @param ageMs      距上次真实读取的时间
+ * @param confidence 0~1，按预计误差 e（度）取 1/(1+e)；1 为刚读到或静止，0 为目标未知
+ */
+public record PtzEstimate(double azimuth, double elevation, int zoom, boolean moving, boolean device,
+                          long ageMs, double confidence) {
+}
@@ -1,57 +1,172 @@
 package com.jyl.isapi.ptz;
 
+import com.jyl.isapi.config.FleetProperties;
 import com.jyl.isapi.config.PtzProperties;
-import org.apache.hc.client5.http.auth.AuthScope;
-import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.classic.methods.HttpPut;
-import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.ClassicHttpResponse;
-import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
-import org.apache.hc.core5.http.io.entity.StringEntity;
-import org.apache.hc.core5.util.Timeout;
-import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-
-@Component
-public class PtzIsapiClient implements AutoCloseable {
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单台相机的 ISAPI 客户端；由 {@link CameraRegistry} 创建，共享同一个 HttpClient/连接池
+ */
+public class PtzIsapiClient {
+    private static final BasicCredentialsProvider NO_CREDENTIALS = new BasicCredentialsProvider();
+    private static final Object CHALLENGED = new Object();
+    private static final Object UNSUPPORTED = new Object();
+
+    private final String cameraId;
     private final PtzProperties props;
     private final CloseableHttpClient client;
-
-    public PtzIsapiClient(PtzProperties props) {
+    private final Executor executor;
+    private final List<PtzCommandListener> listeners;
+    private final boolean rejectOutOfRange;
+    private final long capabilitiesRetryNanos;
+    private final boolean preemptiveAuth;
+    private final DigestAuth auth;
+    private final IsapiMetrics metrics;
+    private final FlightRecorder recorder;
+    private final byte[] recorderId;
+    private final MotionSettler settler;
+    private final CommandScheduler scheduler;
+    private final CameraHealth health;
+    private final DialectCache dialects = new DialectCache();
+    private final ConcurrentHashMap<Integer, PtzCapabilities> capabilities = new ConcurrentHashMap<>();
+    /** 能力读取失败的通道 -> 下次允许重读的时刻（nanoTime） */
+    private final ConcurrentHashMap<Integer, Long> capabilitiesRetryAt = new ConcurrentHashMap<>();
+
+    PtzIsapiClient(String cameraId, PtzProperties props, CloseableHttpClient client, Executor executor,
+                   List<PtzCommandListener> listeners, FleetProperties fleet, IsapiMetrics metrics,
+                   FlightRecorder recorder) {
+        this.cameraId = cameraId;
         this.props = props;
+        this.client = client;
+        this.executor = executor;
+        this.listeners = listeners;
+        this.rejectOutOfRange = fleet.isRejectOutOfRange();
+        this.capabilitiesRetryNanos = TimeUnit.MILLISECONDS.toNanos(fleet.getCapabilitiesRetryMs());
+        this.preemptiveAuth = fleet.getAuthMode() == FleetProperties.AuthMode.PREEMPTIVE;
+        this.auth = new DigestAuth(props.getUsername(), props.getPassword());
+        this.metrics = metrics;
+        this.recorder = recorder;
+        this.recorderId = cameraId.getBytes(StandardCharsets.UTF_8);
+        this.settler = new MotionSettler(fleet);
+        this.scheduler = new CommandScheduler(cameraId, fleet.getCommandQueueLimit(), fleet.getCommandQueueTimeoutMs(), metrics);
+        this.health = new CameraHealth(cameraId, fleet.getBreakerFailureThreshold(),
+                fleet.getHealthProbeMinMs(), fleet.getHealthProbeMaxMs());
+        metrics.bindHealth(cameraId, health);
+    }
+
+    public String getCameraId() {
+        return cameraId;
+    }
+
+    public PtzProperties getProps() {
+        return props;
+    }
 
-        BasicCredentialsProvider creds = new BasicCredentialsProvider();
-        creds.setCredentials(
-                new AuthScope(props.getHost(), props.getPort()),
-                new UsernamePasswordCredentials(props.getUsername(), props.getPassword().toCharArray())
-        );
+    /**
+     * 熔断状态（连续连接失败后快速失败，后台探测恢复）
+     */
+    public CameraHealth getHealth() {
+        return health;
+    }
+
+    /**
+     * 每个通道的命令队列统计
+     */
+    public Map<Integer, Map<String, Object>> schedulerStats() {
+        return scheduler.stats();
+    }
 
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setConnectTimeout(Timeout.ofMilliseconds(5_000))
-                .setResponseTimeout(Timeout.ofMilliseconds(10_000))
-                .build();
+    /**
+     * 已协商出的固件写法
+     */
+    public DialectCache getDialects() {
+        return dialects;
+    }
+
+    /**
+     * 预认证状态与计数（preemptive / challenged / staleNonces）
+     */
+    public DigestAuth getAuth() {
+        return auth;
+    }
+
+    /**
+     * 通道能力（首次使用时读取设备并缓存；读取失败则本次用兜底范围，capabilities-retry-ms 后再读设备）
+     */
+    public PtzCapabilities capabilities(int channel) {
+        PtzCapabilities c = capabilities.get(channel);
+        if (c != null) {
+            return c;
+        }
+        Long retryAt = capabilitiesRetryAt.get(channel);
+        if (retryAt != null && System.nanoTime() - retryAt < 0) {
+            return PtzCapabilities.DEFAULTS;
+        }
+        return refreshCapabilities(channel);
+    }
 
+    /**
+     * 重新读取通道能力；失败时保留已有结果，没有则返回兜底范围但不缓存，避免一次掉线把兜底范围用到下一轮刷新
+     */
+    public PtzCapabilities refreshCapabilities(int channel) {
+        try {
+            PtzCapabilities c = readCapabilities(channel);
+            capabilities.put(channel, c);
+            capabilitiesRetryAt.remove(channel);
+            return c;
+        } catch (IOException e) {
+            PtzCapabilities known = capabilities.get(channel);
+            if (known != null) {
+                return known;
+            }
+            capabilitiesRetryAt.put(channel, System.nanoTime() + capabilitiesRetryNanos);
+            return PtzCapabilities.DEFAULTS;
+        }
+    }
 
-        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
-        cm.setMaxTotal(50);
-        cm.setDefaultMaxPerRoute(20);
+    /**
+     * 已缓存的通道能力：通道 -> 能力
+     */
+    public Map<Integer, PtzCapabilities> getCapabilityCache() {
+        return new TreeMap<>(capabilities);
+    }
 
-        this.client = HttpClients.custom()
-                .setDefaultCredentialsProvider(creds)
-                .setConnectionManager(cm)
-                .setDefaultRequestConfig(requestConfig)
-                .build();
+    /**
+     * 超出能力范围：能力来自设备且开启了 rejectOutOfRange 时拒绝，否则限幅
+     */
+    private int inRange(String what, int v, PtzCapabilities.Range range, PtzCapabilities caps) {
+        if (range.contains(v)) {
+            return v;
+        }
+        if (rejectOutOfRange && caps.fromDevice()) {
+            throw new PtzRangeException(what + " " + v + " out of [" + range.min() + ", " + range.max() + "]");
+        }
+        return range.clamp(v);
     }
 
     /**
@@ -63,7 +178,7 @@ public class PtzIsapiClient implements AutoCloseable {
     public String getParkAction(int ch) throws IOException {
         HttpGet get = new HttpGet(url("/ISAPI/PTZCtrl/channels/" + ch + "/parkAction"));
         get.addHeader("Accept", "application/xml");
-        return client.execute(get, this::handleText);
+        return execute(PtzOperation.PARK_GET, ch, get);
     }
 
 
@@ -77,25 +192,21 @@ public class PtzIsapiClient implements AutoCloseable {
      * @throws IOException
      */
     public void setParkAction(int ch, boolean enabled, int parkTimeSec, String actionType, int actionNum) throws IOException {
-        int t = Math.max(5, Math.min(720, parkTimeSec)); // 设备能力范围：5~720 秒
-        String at = ("patrol".equalsIgnoreCase(actionType) ? "patrol" : "preset"); // 兜底为 preset
-        String xml = """
-        <?xml version="1.0" encoding="UTF-8"?>
-        <ParkAction version="2.0" xmlns="http://www.hikvision.com/ver20/XMLSchema">
-          <enabled>%s</enabled>
-          <Parktime>%d</Parktime>
-          <Action><ActionType>%s</ActionType><ActionNum>%d</ActionNum></Action>
-        </ParkAction>
-        """.formatted(enabled ? "true" : "false", t, at, actionNum);
+        // 设备能力范围：parkTime 5~720 秒，actionType 兜底为 preset
+        ParkAction p = new ParkAction(enabled, parkTimeSec, actionType, actionNum).normalized();
         HttpPut put = new HttpPut(url("/ISAPI/PTZCtrl/channels/" + ch + "/parkAction"));
         put.addHeader("Accept", "application/xml");
-        put.setEntity(new StringEntity(xml, ContentType.APPLICATION_XML));
-        client.execute(put, this::handleText);
+        schedule(ch, CommandScheduler.Kind.CONFIG, () -> {
+            try (IsapiPayload body = IsapiPayload.parkAction(p.enabled(), p.parkTime(), p.actionType(), p.actionNum())) {
+                put.setEntity(body.entity());
+                execute(PtzOperation.PARK_SET, ch, put);
+            }
+        });
     }
 
 
     /**
-     * 3D 增强方法
+     * 3D 增强方法：3D 定位 → 等停稳 → 按框面积绝对变倍 → 等到位，返回最终位置与耗时
      * @param ch
      * @param x1
      * @param y1
@@ -103,34 +214,32 @@ public class PtzIsapiClient implements AutoCloseable {
      * @param y2
      * @throws IOException
      */
-    public void threeDZoomSmart(int ch, double x1, double y1, double x2, double y2) throws IOException {
-        // 1) 先 3D 对准
-        threeDZoomBox(ch, x1, y1, x2, y2);
+    public MotionResult threeDZoomSmart(int ch, double x1, double y1, double x2, double y2) throws IOException {
+        long start = System.nanoTime();
+        PtzStatus before = readStatus(ch);
 
-        // 2) 读当前倍率（稍等一会让马达起步）
-        try { Thread.sleep(150); } catch (InterruptedException ignored) {}
-        String status = getStatus(ch);
-        int zNow = parseInt(status, "<absoluteZoom>(\\d+)</absoluteZoom>", 20);
+        // 1) 先 3D 对准，等云台真正停稳再读倍率（不再固定 sleep 150ms）
+        threeDZoomBox(ch, x1, y1, x2, y2);
+        MotionResult aimed = settler.await(() -> readStatus(ch), before, null, start);
+        int zNow = aimed.position().zoom();
 
-        // 3) 根据框面积估算目标倍率（面积越小→目标越大）
+        // 2) 根据框面积估算目标倍率（面积越小→目标越大）
         double lx = Math.min(x1,x2), rx = Math.max(x1,x2);
         double ty = Math.min(y1,y2), by = Math.max(y1,y2);
         double area = Math.max(1e-4, (rx - lx) * (by - ty));  // 防止极小为0
         // 经验系数：6 可按手感微调（3~8）
-        int zTarget = clampInt((int)Math.round(zNow + 6.0 * Math.log(1.0 / area)), 10, 40);
+        int zTarget = capabilities(ch).absoluteZoom().clamp((int)Math.round(zNow + 6.0 * Math.log(1.0 / area)));
 
-        if (zTarget != zNow) {
-            // 绝对变倍（不改角度）
-            absoluteMoveDegrees(ch, null, null, zTarget);
+        if (zTarget == zNow) {
+            return aimed;
         }
+        // 3) 绝对变倍（不改角度），再等到位
+        absoluteMoveDegrees(ch, null, null, zTarget);
+        PtzStatus target = new PtzStatus(aimed.position().azimuth(), aimed.position().elevation(), zTarget);
+        MotionResult zoomed = settler.await(() -> readStatus(ch), aimed.position(), target, start);
+        return new MotionResult(zoomed.position(), zoomed.settled(), aimed.polls() + zoomed.polls(), zoomed.elapsedMs());
     }
 
-    private static int parseInt(String s, String pattern, int def) {
-        var m = java.util.regex.Pattern.compile(pattern).matcher(s);
-        return m.find() ? Integer.parseInt(m.group(1)) : def;
-    }
-
-
     // 工具：归一化 + 0~255 映射
     private static double clamp01(double v) {
         return Math.max(0.0, Math.min(1.0, v));
@@ -145,18 +254,15 @@ public class PtzIsapiClient implements AutoCloseable {
      */
     private void sendPosition3D(int channel, int x1, int y1, int x2, int y2) throws IOException {
         String path = "/ISAPI/PTZCtrl/channels/" + channel + "/position3D";
-        String xml = """
-                <?xml version="1.0" encoding="UTF-8"?>
-                <Position3D version="1.0" xmlns="http://www.hikvision.com/ver10/XMLSchema">
-                  <StartPoint><positionX>%d</positionX><positionY>%d</positionY></StartPoint>
-                  <EndPoint><positionX>%d</positionX><positionY>%d</positionY></EndPoint>
-                </Position3D>
-                """.formatted(x1, y1, x2, y2);
-
         HttpPut put = new HttpPut(url(path));
         put.addHeader("Accept", "application/xml");
-        put.setEntity(new StringEntity(xml, ContentType.APPLICATION_XML));
-        client.execute(put, this::handleText); // 2xx 即为成功
+        schedule(channel, CommandScheduler.Kind.MOVE, () -> {
+            try (IsapiPayload body = IsapiPayload.position3D(x1, y1, x2, y2)) {
+                put.setEntity(body.entity());
+                execute(PtzOperation.POSITION_3D, channel, put); // 2xx 即为成功
+            }
+            motion(channel, new MotionCommand.Position3D());
+        });
     }
 
     /**
@@ -187,7 +293,23 @@ public class PtzIsapiClient implements AutoCloseable {
         threeDZoomBox(channel, x - s, y - s, x + s, y + s);
     }
 
-    private String handleText(ClassicHttpResponse resp) throws IOException, ParseException {
+    /**
+     * 2xx 时直接从响应流解析为类型化结果；非 2xx 仍按文本抛出
+     */
+    static <T> HttpClientResponseHandler<T> xml(IsapiXml.Parser<T> parser) {
+        return resp -> {
+            HttpEntity entity = resp.getEntity();
+            if (resp.getCode() / 100 != 2 || entity == null) {
+                handleText(resp);
+                throw new IOException("HTTP " + resp.getCode() + " -> empty body");
+            }
+            try (InputStream in = entity.getContent()) {
+                return IsapiXml.parse(in, parser);
+            }
+        };
+    }
+
+    static String handleText(ClassicHttpResponse resp) throws IOException, ParseException {
         int code = resp.getCode();
         HttpEntity entity = resp.getEntity();
         String body = entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : "";
@@ -197,6 +319,152 @@ public class PtzIsapiClient implements AutoCloseable {
         return body;
     }
 
+    /**
+     * 所有 ISAPI 请求的统一出口；熔断中直接失败，记录指标，运动类命令/配置写入结束后通知 {@link PtzCommandListener}
+     */
+    private String execute(PtzOperation op, int channel, ClassicHttpRequest req) throws IOException {
+        return execute(op, null, channel, req, PtzIsapiClient::handleText);
+    }
+
+    private String execute(PtzOperation op, PtzDialect dialect, int channel, ClassicHttpRequest req) throws IOException {
+        return execute(op, dialect, channel, req, PtzIsapiClient::handleText);
+    }
+
+    private <T> T execute(PtzOperation op, int channel, ClassicHttpRequest req,
+                          HttpClientResponseHandler<T> handler) throws IOException {
+        return execute(op, null, channel, req, handler);
+    }
+
+    private <T> T execute(PtzOperation op, PtzDialect dialect, int channel, ClassicHttpRequest req,
+                          HttpClientResponseHandler<T> handler) throws IOException {
+        long[] lease = new long[2];
+        int[] status = new int[1];
+        Throwable failure = null;
+        IsapiCommandEvent event = new IsapiCommandEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            health.check();
+            return send(req, lease, resp -> {
+                status[0] = resp.getCode();
+                health.onResponse();
+                return handler.handleResponse(resp);
+            });
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            if (status[0] == 0) {
+                health.onFailure(e);
+            }
+            throw e;
+        } finally {
+            long total = System.nanoTime() - start;
+            metrics.request(cameraId, channel, op, dialect, status[0], failure, total, lease[1]);
+            CallOutcome outcome = CallOutcome.of(status[0], failure);
+            long seq = recorder.record(recorderId, channel, op, dialect, status[0], outcome, lease[1], total);
+            event.end();
+            if (event.shouldCommit()) {
+                event.camera = cameraId;
+                event.channel = channel;
+                event.operation = op.name();
+                event.dialect = dialect != null ? dialect.name() : null;
+                event.status = status[0];
+                event.outcome = outcome.tag();
+                event.poolWait = lease[1];
+                event.seq = seq;
+                event.commit();
+            }
+            if (op.isWrite()) {
+                for (PtzCommandListener l : listeners) {
+                    l.onCommand(cameraId, channel, op);
+                }
+            }
+        }
+    }
+
+    /**
+     * 预认证模式：带上缓存的 Digest 应答直接发送；401 时记录新质询（含 stale nonce）并重发一次。
+     * 此时不给 HttpClient 凭据，避免它自己再走一遍质询。
+     */
+    private <T> T send(ClassicHttpRequest req, long[] lease, HttpClientResponseHandler<T> handler) throws IOException {
+        if (!preemptiveAuth || auth.isUnsupported()) {
+            return client.execute(req, context(lease), handler);
+        }
+        for (int attempt = 0; ; attempt++) {
+            String authorization = auth.authorization(req.getMethod(), req.getRequestUri());
+            if (authorization != null) {
+                req.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+            }
+            HttpClientContext ctx = context(lease);
+            ctx.setCredentialsProvider(NO_CREDENTIALS);
+            boolean retry = attempt == 0;
+            Object r = client.execute(req, ctx, resp -> {
+                if (retry && resp.getCode() == HttpStatus.SC_UNAUTHORIZED) {
+                    EntityUtils.consume(resp.getEntity());
+                    return auth.onChallenge(resp.getHeaders(HttpHeaders.WWW_AUTHENTICATE)) ? CHALLENGED : UNSUPPORTED;
+                }
+                return handler.handleResponse(resp);
+            });
+            if (r == UNSUPPORTED) {
+                req.removeHeaders(HttpHeaders.AUTHORIZATION);
+                return client.execute(req, context(lease), handler);
+            }
+            if (r != CHALLENGED) {
+                @SuppressWarnings("unchecked")
+                T t = (T) r;
+                return t;
+            }
+        }
+    }
+
+    /**
+     * 健康探测：GET /ISAPI/System/deviceInfo，不带认证、不经熔断；收到任何 HTTP 响应（含 401/404）即视为可达
+     */
+    boolean probe() {
+        HttpGet get = new HttpGet(url("/ISAPI/System/deviceInfo"));
+        HttpClientContext ctx = context(new long[2]);
+        ctx.setCredentialsProvider(NO_CREDENTIALS);
+        try {
+            client.execute(get, ctx, resp -> {
+                EntityUtils.consume(resp.getEntity());
+                return null;
+            });
+            health.onProbe(true, null);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            health.onProbe(false, e);
+            return false;
+        }
+    }
+
+    /**
+     * 启动预热：读一次状态，建好连接并完成 Digest 认证（预认证模式下缓存 nonce），读取能力表；
+     * 再并发读 connections 次状态，让连接池里预先有这么多条已建立的连接
+     */
+    public void warmup(int channel, int connections) throws IOException {
+        readStatus(channel);
+        capabilities(channel);
+        if (connections > 1) {
+            CompletableFuture<?>[] fs = new CompletableFuture<?>[connections];
+            for (int i = 0; i < connections; i++) {
+                fs[i] = readStatusAsync(channel);
+            }
+            try {
+                CompletableFuture.allOf(fs).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static HttpClientContext context(long[] lease) {
+        HttpClientContext ctx = HttpClientContext.create();
+        ctx.setAttribute(IsapiMetrics.LEASE_ATTR, lease);
+        return ctx;
+    }
+
     private String url(String path) {
         return props.getBaseUrl() + path;
     }
@@ -207,7 +475,7 @@ public class PtzIsapiClient implements AutoCloseable {
     public String getChannels() throws IOException {
         HttpGet req = new HttpGet(url("/ISAPI/PTZCtrl/channels"));
         req.addHeader("Accept", "application/xml");
-        return client.execute(req, this::handleText);
+        return execute(PtzOperation.CHANNELS, 0, req);
     }
 
     /**
@@ -216,18 +484,46 @@ public class PtzIsapiClient implements AutoCloseable {
     public String getCapabilities(int channel) throws IOException {
         HttpGet req = new HttpGet(url("/ISAPI/PTZCtrl/channels/" + channel + "/capabilities"));
         req.addHeader("Accept", "application/xml");
-        return client.execute(req, this::handleText);
+        return execute(PtzOperation.CAPABILITIES, channel, req);
+    }
+
+    /**
+     * 读取并解析通道能力（不走缓存）
+     */
+    public PtzCapabilities readCapabilities(int channel) throws IOException {
+        HttpGet req = new HttpGet(url("/ISAPI/PTZCtrl/channels/" + channel + "/capabilities"));
+        req.addHeader("Accept", "application/xml");
+        return execute(PtzOperation.CAPABILITIES, channel, req, xml(IsapiXml::capabilities));
     }
 
     /**
      * 跳转预置位（最稳妥的“回家位”/快速指向）
      */
     public void gotoPreset(int channel, int presetId) throws IOException {
-        String xml = "<PTZPreset><id>" + presetId + "</id></PTZPreset>";
+        PtzCapabilities caps = capabilities(channel);
+        if (rejectOutOfRange && caps.fromDevice() && caps.maxPresetNum() != null
+                && (presetId < 1 || presetId > caps.maxPresetNum())) {
+            throw new PtzRangeException("preset " + presetId + " out of [1, " + caps.maxPresetNum() + "]");
+        }
         HttpPut put = new HttpPut(url("/ISAPI/PTZCtrl/channels/" + channel + "/presets/" + presetId + "/goto"));
         put.addHeader("Accept", "application/xml");
-        put.setEntity(new StringEntity(xml, ContentType.APPLICATION_XML));
-        client.execute(put, this::handleText);
+        schedule(channel, CommandScheduler.Kind.MOVE, () -> {
+            try (IsapiPayload body = IsapiPayload.preset(presetId)) {
+                put.setEntity(body.entity());
+                execute(PtzOperation.PRESET_GOTO, channel, put);
+            }
+            motion(channel, new MotionCommand.Preset(presetId));
+        });
+    }
+
+    /**
+     * 跳转预置位并等待云台停稳
+     */
+    public MotionResult gotoPresetAndWait(int channel, int presetId) throws IOException {
+        long start = System.nanoTime();
+        PtzStatus before = readStatus(channel);
+        gotoPreset(channel, presetId);
+        return settler.await(() -> readStatus(channel), before, null, start);
     }
 
     /**
@@ -251,21 +547,22 @@ public class PtzIsapiClient implements AutoCloseable {
         int t = (int) Math.round(tilt);
         int z = (int) Math.round(zoom);
 
-        p = Math.max(-100, Math.min(100, p));
-        t = Math.max(-100, Math.min(100, t));
-        z = Math.max(-100, Math.min(100, z));
-
-        String xml = "<PTZData>"
-                + "<pan>" + p + "</pan>"
-                + "<tilt>" + t + "</tilt>"
-                + "<zoom>" + z + "</zoom>"
-                + "<timeout>" + durationMs + "</timeout>"
-                + "</PTZData>";
+        // 速度按能力表限幅（摇杆量程饱和属于正常情况，不拒绝）
+        PtzCapabilities caps = capabilities(channel);
+        p = caps.continuousPan().clamp(p);
+        t = caps.continuousTilt().clamp(t);
+        z = caps.continuousZoom().clamp(z);
 
         HttpPut put = new HttpPut(url("/ISAPI/PTZCtrl/channels/" + channel + "/continuous"));
         put.addHeader("Accept", "application/xml");
-        put.setEntity(new StringEntity(xml, ContentType.APPLICATION_XML));
-        client.execute(put, this::handleText);
+        int fp = p, ft = t, fz = z;
+        schedule(channel, CommandScheduler.Kind.MOVE, () -> {
+            try (IsapiPayload body = IsapiPayload.continuous(fp, ft, fz, durationMs)) {
+                put.setEntity(body.entity());
+                execute(PtzOperation.CONTINUOUS, channel, put);
+            }
+            motion(channel, new MotionCommand.Continuous(fp, ft, fz, durationMs));
+        });
     }
 
 
@@ -280,43 +577,105 @@ public class PtzIsapiClient implements AutoCloseable {
         client.execute(put, this::handleText);
     }*/
     public void stop(int channel) throws IOException {
-        IOException last = null;
+        // 依次尝试：PUT /stop、POST /stop、0 速度连续移动；记住第一个成功的写法
+        // 插队：取代排队中的运动命令，不等正在执行的命令
+        schedule(channel, CommandScheduler.Kind.STOP, () -> {
+            negotiate(channel, PtzDialect.STOP_VARIANTS, d -> stopWith(channel, d));
+            motion(channel, new MotionCommand.Stop());
+        });
+    }
 
-        // 方案1：PUT /stop + XML（多数型号支持）
-        try {
-            String xml = "<PTZStop><pan>true</pan><tilt>true</tilt><zoom>true</zoom></PTZStop>";
-            HttpPut put = new HttpPut(url("/ISAPI/PTZCtrl/channels/" + channel + "/stop"));
-            put.addHeader("Accept", "application/xml");
-            put.setEntity(new StringEntity(xml, ContentType.APPLICATION_XML));
-            client.execute(put, this::handleText);
-            return;
-        } catch (IOException e) {
-            last = e;
+    private void stopWith(int channel, PtzDialect dialect) throws IOException {
+        switch (dialect) {
+            case STOP_PUT -> {
+                // 方案1：PUT /stop + XML（多数型号支持）
+                HttpPut put = new HttpPut(url("/ISAPI/PTZCtrl/channels/" + channel + "/stop"));
+                put.addHeader("Accept", "application/xml");
+                put.setEntity(IsapiPayload.entity(IsapiPayload.STOP));
+                execute(PtzOperation.STOP, dialect, channel, put);
+            }
+            case STOP_POST -> {
+                // 方案2：POST /stop（个别固件需要 POST，无 body）
+                HttpPost post = new HttpPost(url("/ISAPI/PTZCtrl/channels/" + channel + "/stop"));
+                post.addHeader("Accept", "application/xml");
+                execute(PtzOperation.STOP, dialect, channel, post);
+            }
+            case STOP_CONTINUOUS_ZERO -> {
+                // 方案3：0 速度连续移动，极短超时（通杀）
+                HttpPut put = new HttpPut(url("/ISAPI/PTZCtrl/channels/" + channel + "/continuous"));
+                put.addHeader("Accept", "application/xml");
+                put.setEntity(IsapiPayload.entity(IsapiPayload.STOP_CONTINUOUS_ZERO));
+                execute(PtzOperation.STOP, dialect, channel, put);
+            }
+            default -> throw new IllegalArgumentException("not a stop dialect: " + dialect);
         }
+    }
 
-        // 方案2：POST /stop（个别固件需要 POST，无 body）
-        try {
-            HttpPost post = new HttpPost(url("/ISAPI/PTZCtrl/channels/" + channel + "/stop"));
-            post.addHeader("Accept", "application/xml");
-            client.execute(post, this::handleText);
-            return;
-        } catch (IOException e) {
-            last = e;
+    private void motion(int channel, MotionCommand command) {
+        for (PtzCommandListener l : listeners) {
+            l.onMotion(cameraId, channel, command);
         }
+    }
 
-        // 方案3：0 速度连续移动，极短超时（通杀）
-        try {
-            String xml = "<PTZData><pan>0</pan><tilt>0</tilt><zoom>0</zoom><timeout>1</timeout></PTZData>";
-            HttpPut put = new HttpPut(url("/ISAPI/PTZCtrl/channels/" + channel + "/continuous"));
-            put.addHeader("Accept", "application/xml");
-            put.setEntity(new StringEntity(xml, ContentType.APPLICATION_XML));
-            client.execute(put, this::handleText);
-            return;
-        } catch (IOException e) {
-            last = e;
+    /**
+     * 经通道命令队列下发（见 {@link CommandScheduler}）
+     */
+    private void schedule(int channel, CommandScheduler.Kind kind, IsapiAction action) throws IOException {
+        scheduler.run(channel, kind, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface DialectCall {
+        void call(PtzDialect dialect) throws IOException;
+    }
+
+    /**
+     * 固件写法协商：优先用已记住的写法；失败后再按顺序探测其余写法，记录第一个成功的。
+     * 全部失败才抛出最后一个异常。
+     */
+    private void negotiate(int channel, List<PtzDialect> variants, DialectCall call) throws IOException {
+        String operation = variants.get(0).getOperation();
+        PtzDialect known = dialects.get(channel, operation);
+        IOException last = null;
+        if (known != null) {
+            try {
+                call.call(known);
+                return;
+            } catch (IOException e) {
+                unreachable(e);
+                last = e; // 可能固件升级/换机，重新探测
+                metrics.fallback(cameraId, channel, operation, known);
+                dialects.forget(channel, operation);
+            }
         }
+        for (PtzDialect d : variants) {
+            if (d == known) {
+                continue;
+            }
+            try {
+                call.call(d);
+                dialects.put(channel, d);
+                return;
+            } catch (IOException e) {
+                unreachable(e);
+                last = e;
+                metrics.fallback(cameraId, channel, operation, d);
+            }
+        }
+        throw last;
+    }
 
-        throw last; // 三种都失败才抛
+    /**
+     * 连不上相机、调用方取消（线程被中断）都与写法无关：不换写法重试、不忘记已协商的写法
+     */
+    private static void unreachable(IOException e) throws IOException {
+        if (e instanceof CameraUnavailableException || CameraHealth.isConnectFailure(e)
+                || Thread.currentThread().isInterrupted()) {
+            throw e;
+        }
     }
 
     /**
@@ -371,93 +730,243 @@ public class PtzIsapiClient implements AutoCloseable {
      * 绝对移动（按“度”传入），优先 /absolute (AbsoluteHigh, 0.1°刻度)，失败则回退 /absoluteEx（度）
      *
      * @param channel      PTZ 通道
-     * @param azimuthDeg   方位角（度，0~350）
-     * @param elevationDeg 俯仰角（度，-4.9~90.0）
-     * @param zoom         可选，倍率（10~40；按你的能力表）
+     * @param azimuthDeg   方位角（度，范围见能力表 AbsolutePanTiltPositionSpace/XRange）
+     * @param elevationDeg 俯仰角（度，范围见能力表 AbsolutePanTiltPositionSpace/YRange）
+     * @param zoom         可选，倍率（范围见能力表 AbsoluteZoomPositionSpace/ZRange）
      */
     public void absoluteMoveDegrees(int channel, Double azimuthDeg, Double elevationDeg, Integer zoom) throws IOException {
-        // 你的能力范围（来自 /ptz/capabilities）
-        // XRange: 0~3500  => 0.0° ~ 350.0°  （方位 azimuth）
-        // YRange: -49~900 => -4.9° ~ 90.0°  （俯仰 elevation）
-        // ZRange: 10~40   => 变倍
+        // 按该通道的能力表校验（0.1° 刻度），超范围直接拒绝或限幅，不请求设备
+        PtzCapabilities caps = capabilities(channel);
         Integer az10 = null, el10 = null;
 
         if (azimuthDeg != null) {
-            az10 = (int) Math.round(azimuthDeg * 10.0);
-            az10 = clampInt(az10, 0, 3500);
+            az10 = inRange("azimuth(0.1°)", (int) Math.round(azimuthDeg * 10.0), caps.absolutePan(), caps);
         }
         if (elevationDeg != null) {
-            el10 = (int) Math.round(elevationDeg * 10.0);
-            el10 = clampInt(el10, -49, 900);
+            el10 = inRange("elevation(0.1°)", (int) Math.round(elevationDeg * 10.0), caps.absoluteTilt(), caps);
         }
-        Integer z = (zoom != null) ? clampInt(zoom, 10, 40) : null;
+        Integer z = (zoom != null) ? inRange("zoom", zoom, caps.absoluteZoom(), caps) : null;
 
         // 先试：/absolute + PTZData/AbsoluteHigh（0.1°刻度，绝大多数机型通用）
-        IOException last = null;
-        try {
-            StringBuilder sb = new StringBuilder(
-                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
-                            "<PTZData version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">\n" +
-                            "  <AbsoluteHigh>\n"
-            );
-            if (el10 != null) sb.append("    <elevation>").append(el10).append("</elevation>\n");
-            if (az10 != null) sb.append("    <azimuth>").append(az10).append("</azimuth>\n");
-            if (z != null) sb.append("    <absoluteZoom>").append(z).append("</absoluteZoom>\n");
-            sb.append("  </AbsoluteHigh>\n</PTZData>");
-
-            HttpPut put = new HttpPut(url("/ISAPI/PTZCtrl/channels/" + channel + "/absolute"));
-            put.addHeader("Accept", "application/xml");
-            put.setEntity(new StringEntity(sb.toString(), ContentType.APPLICATION_XML));
-            client.execute(put, this::handleText); // 2xx 则返回
-            return;
-        } catch (IOException e) {
-            last = e; // 可能是 badXmlContent / Momentary missing 等历史 schema 差异
-        }
-
-        // 回退：/absoluteEx（单位=度，可小数）
-        try {
-            StringBuilder sb = new StringBuilder(
-                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
-                            "<PTZAbsoluteEx version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">\n"
-            );
-            if (elevationDeg != null)
-                sb.append("  <elevation>").append(String.format(java.util.Locale.US, "%.1f", elevationDeg)).append("</elevation>\n");
-            if (azimuthDeg != null)
-                sb.append("  <azimuth>").append(String.format(java.util.Locale.US, "%.1f", azimuthDeg)).append("</azimuth>\n");
-            if (z != null) sb.append("  <absoluteZoom>").append(z).append("</absoluteZoom>\n");
-            sb.append("</PTZAbsoluteEx>");
-
-            HttpPut putEx = new HttpPut(url("/ISAPI/PTZCtrl/channels/" + channel + "/absoluteEx"));
-            putEx.addHeader("Accept", "application/xml");
-            putEx.setEntity(new StringEntity(sb.toString(), ContentType.APPLICATION_XML));
-            client.execute(putEx, this::handleText);
-            return;
-        } catch (IOException e2) {
-            last = e2;
-        }
+        // 回退：/absoluteEx（单位=度，可小数）；可能是 badXmlContent / Momentary missing 等历史 schema 差异
+        Integer fAz10 = az10, fEl10 = el10;
+        schedule(channel, CommandScheduler.Kind.MOVE, () -> {
+            negotiate(channel, PtzDialect.ABSOLUTE_VARIANTS, d -> {
+                if (d == PtzDialect.ABSOLUTE_HIGH) {
+                    putAbsoluteHigh(channel, fAz10, fEl10, z);
+                } else {
+                    putAbsoluteEx(channel, fAz10 != null ? fAz10 / 10.0 : null, fEl10 != null ? fEl10 / 10.0 : null, z);
+                }
+            });
+            motion(channel, new MotionCommand.Absolute(fAz10 != null ? fAz10 / 10.0 : null,
+                    fEl10 != null ? fEl10 / 10.0 : null, z));
+        });
+    }
 
-        throw last;
+    /**
+     * 绝对移动并等待到达目标（未给出的轴保持当前值；目标按能力表限幅后比较）
+     */
+    public MotionResult absoluteMoveAndWait(int channel, Double azimuthDeg, Double elevationDeg, Integer zoom) throws IOException {
+        long start = System.nanoTime();
+        PtzStatus before = readStatus(channel);
+        absoluteMoveDegrees(channel, azimuthDeg, elevationDeg, zoom);
+        PtzCapabilities caps = capabilities(channel);
+        PtzStatus target = new PtzStatus(
+                azimuthDeg != null ? caps.absolutePan().clamp((int) Math.round(azimuthDeg * 10.0)) / 10.0 : before.azimuth(),
+                elevationDeg != null ? caps.absoluteTilt().clamp((int) Math.round(elevationDeg * 10.0)) / 10.0 : before.elevation(),
+                zoom != null ? caps.absoluteZoom().clamp(zoom) : before.zoom());
+        return settler.await(() -> readStatus(channel), before, target, start);
     }
 
+    private void putAbsoluteHigh(int channel, Integer az10, Integer el10, Integer z) throws IOException {
+        HttpPut put = new HttpPut(url("/ISAPI/PTZCtrl/channels/" + channel + "/absolute"));
+        put.addHeader("Accept", "application/xml");
+        try (IsapiPayload body = IsapiPayload.absoluteHigh(az10, el10, z)) {
+            put.setEntity(body.entity());
+            execute(PtzOperation.ABSOLUTE, PtzDialect.ABSOLUTE_HIGH, channel, put); // 2xx 则返回
+        }
+    }
 
-    // 把值限定到 [min,max]
-    private static int clampInt(int v, int min, int max) {
-        return Math.max(min, Math.min(max, v));
+    private void putAbsoluteEx(int channel, Double azimuthDeg, Double elevationDeg, Integer z) throws IOException {
+        HttpPut putEx = new HttpPut(url("/ISAPI/PTZCtrl/channels/" + channel + "/absoluteEx"));
+        putEx.addHeader("Accept", "application/xml");
+        try (IsapiPayload body = IsapiPayload.absoluteEx(azimuthDeg, elevationDeg, z)) {
+            putEx.setEntity(body.entity());
+            execute(PtzOperation.ABSOLUTE, PtzDialect.ABSOLUTE_EX, channel, putEx);
+        }
     }
 
+
     /**
      * 读取 PTZ 状态（可拿到 AbsoluteHigh 当前角度/变倍）
      */
     public String getStatus(int channel) throws IOException {
         HttpGet get = new HttpGet(url("/ISAPI/PTZCtrl/channels/" + channel + "/status"));
         get.addHeader("Accept", "application/xml");
-        return client.execute(get, this::handleText);
+        return execute(PtzOperation.STATUS, channel, get);
     }
 
+    /**
+     * 读取 PTZ 状态并解析为角度/变倍
+     */
+    public PtzStatus readStatus(int channel) throws IOException {
+        HttpGet get = new HttpGet(url("/ISAPI/PTZCtrl/channels/" + channel + "/status"));
+        get.addHeader("Accept", "application/xml");
+        long sent = System.nanoTime();
+        PtzStatus s = execute(PtzOperation.STATUS, channel, get, xml(IsapiXml::status));
+        long at = sent + (System.nanoTime() - sent) / 2;
+        for (PtzCommandListener l : listeners) {
+            l.onStatus(cameraId, channel, s, at);
+        }
+        return s;
+    }
 
-    @Override
-    public void close() throws Exception {
-        client.close();
+    /**
+     * 列出 PTZ 通道并解析
+     */
+    public List<PtzChannel> readChannels() throws IOException {
+        HttpGet req = new HttpGet(url("/ISAPI/PTZCtrl/channels"));
+        req.addHeader("Accept", "application/xml");
+        return execute(PtzOperation.CHANNELS, 0, req, xml(IsapiXml::channels));
+    }
+
+    /**
+     * 查询守望配置并解析
+     */
+    public ParkAction readParkAction(int ch) throws IOException {
+        HttpGet get = new HttpGet(url("/ISAPI/PTZCtrl/channels/" + ch + "/parkAction"));
+        get.addHeader("Accept", "application/xml");
+        return execute(PtzOperation.PARK_GET, ch, get, xml(IsapiXml::parkAction));
+    }
+
+
+    // ---------------- 异步版本 ----------------
+    // 在 ptzExecutor（默认虚拟线程）上执行，阻塞在设备 IO / 连接池租用上的是虚拟线程而不是 Servlet 线程；
+    // 并发上限由连接池的 maxPerRoute/maxTotal（即相机本身）决定。
+
+    @FunctionalInterface
+    public interface IsapiCall<T> {
+        T call() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface IsapiAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * 在 ptzExecutor 上执行；返回的 future 被 cancel(true) 时中断执行线程。
+     * 虚拟线程阻塞在 socket 上时被中断，JDK 会关闭该 socket，设备请求随之中止（连接不再归还连接池）
+     */
+    public <T> CompletableFuture<T> supplyAsync(IsapiCall<T> call) {
+        InterruptibleCall<T> f = new InterruptibleCall<>();
+        executor.execute(() -> {
+            if (f.isDone()) {
+                return;
+            }
+            f.worker = Thread.currentThread();
+            try {
+                f.complete(call.call());
+            } catch (Throwable e) {
+                f.completeExceptionally(e instanceof CompletionException ? e : new CompletionException(e));
+            } finally {
+                f.worker = null;
+                Thread.interrupted();
+            }
+        });
+        return f;
+    }
+
+    private static final class InterruptibleCall<T> extends CompletableFuture<T> {
+        volatile Thread worker;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Thread w = worker;
+            if (cancelled && mayInterruptIfRunning && w != null) {
+                w.interrupt();
+            }
+            return cancelled;
+        }
+    }
+
+    public CompletableFuture<Void> runAsync(IsapiAction action) {
+        return supplyAsync(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public CompletableFuture<String> getParkActionAsync(int ch) {
+        return supplyAsync(() -> getParkAction(ch));
+    }
+
+    public CompletableFuture<Void> setParkActionAsync(int ch, boolean enabled, int parkTimeSec, String actionType, int actionNum) {
+        return runAsync(() -> setParkAction(ch, enabled, parkTimeSec, actionType, actionNum));
+    }
+
+    public CompletableFuture<MotionResult> threeDZoomSmartAsync(int ch, double x1, double y1, double x2, double y2) {
+        return supplyAsync(() -> threeDZoomSmart(ch, x1, y1, x2, y2));
+    }
+
+    public CompletableFuture<Void> threeDZoomBoxAsync(int channel, double nx1, double ny1, double nx2, double ny2) {
+        return runAsync(() -> threeDZoomBox(channel, nx1, ny1, nx2, ny2));
+    }
+
+    public CompletableFuture<Void> threeDZoomInAtAsync(int channel, double x, double y, double size) {
+        return runAsync(() -> threeDZoomInAt(channel, x, y, size));
+    }
+
+    public CompletableFuture<Void> threeDZoomOutAtAsync(int channel, double x, double y, double size) {
+        return runAsync(() -> threeDZoomOutAt(channel, x, y, size));
+    }
+
+    public CompletableFuture<String> getChannelsAsync() {
+        return supplyAsync(this::getChannels);
+    }
+
+    public CompletableFuture<String> getCapabilitiesAsync(int channel) {
+        return supplyAsync(() -> getCapabilities(channel));
     }
-}
 
+    public CompletableFuture<Void> gotoPresetAsync(int channel, int presetId) {
+        return runAsync(() -> gotoPreset(channel, presetId));
+    }
+
+    public CompletableFuture<MotionResult> gotoPresetAndWaitAsync(int channel, int presetId) {
+        return supplyAsync(() -> gotoPresetAndWait(channel, presetId));
+    }
+
+    public CompletableFuture<Void> continuousMoveAsync(int channel, double pan, double tilt, double zoom, int durationMs) {
+        return runAsync(() -> continuousMove(channel, pan, tilt, zoom, durationMs));
+    }
+
+    public CompletableFuture<Void> stopAsync(int channel) {
+        return runAsync(() -> stop(channel));
+    }
+
+    public CompletableFuture<Void> absoluteMoveDegreesAsync(int channel, Double azimuthDeg, Double elevationDeg, Integer zoom) {
+        return runAsync(() -> absoluteMoveDegrees(channel, azimuthDeg, elevationDeg, zoom));
+    }
+
+    public CompletableFuture<MotionResult> absoluteMoveAndWaitAsync(int channel, Double azimuthDeg, Double elevationDeg, Integer zoom) {
+        return supplyAsync(() -> absoluteMoveAndWait(channel, azimuthDeg, elevationDeg, zoom));
+    }
+
+    public CompletableFuture<String> getStatusAsync(int channel) {
+        return supplyAsync(() -> getStatus(channel));
+    }
+
+    public CompletableFuture<PtzStatus> readStatusAsync(int channel) {
+        return supplyAsync(() -> readStatus(channel));
+    }
+
+    public CompletableFuture<List<PtzChannel>> readChannelsAsync() {
+        return supplyAsync(this::readChannels);
+    }
+
+    public CompletableFuture<ParkAction> readParkActionAsync(int ch) {
+        return supplyAsync(() -> readParkAction(ch));
+    }
+}
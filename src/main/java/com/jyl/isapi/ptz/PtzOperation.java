@@ -0,0 +1,37 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * ISAPI 调用类型；motion=true 的操作会改变云台位置，write=true 的操作会改变设备状态（含配置写入）
+ */
+public enum PtzOperation {
+    STATUS(false),
+    CHANNELS(false),
+    CAPABILITIES(false),
+    PARK_GET(false),
+    PARK_SET(false, true),
+    POSITION_3D(true),
+    ABSOLUTE(true),
+    CONTINUOUS(true),
+    STOP(true),
+    PRESET_GOTO(true);
+
+    private final boolean motion;
+    private final boolean write;
+
+    PtzOperation(boolean motion) {
+        this(motion, motion);
+    }
+
+    PtzOperation(boolean motion, boolean write) {
+        this.motion = motion;
+        this.write = write;
+    }
+
+    public boolean isMotion() {
+        return motion;
+    }
+
+    public boolean isWrite() {
+        return write;
+    }
+}
@@ -0,0 +1,16 @@
+package com.jyl.isapi.ptz;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 参数超出相机能力范围，本地直接拒绝，不再请求设备
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class PtzRangeException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public PtzRangeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * /status 中的 AbsoluteHigh：方位角/俯仰角（度），变倍（设备原始值，如 10~40）
+ */
+public record PtzStatus(double azimuth, double elevation, int zoom) {
+}
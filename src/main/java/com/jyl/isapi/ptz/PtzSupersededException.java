@@ -0,0 +1,16 @@
+package com.jyl.isapi.ptz;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 排队中的运动命令被同一通道更新的运动命令或 stop 取代，未下发到设备
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class PtzSupersededException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public PtzSupersededException(String message) {
+        super(message);
+    }
+}
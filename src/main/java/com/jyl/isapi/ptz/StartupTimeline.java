@@ -0,0 +1,89 @@
+package com.jyl.isapi.ptz;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NativeDetector;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 启动耗时：进程启动 → 容器就绪 → 预热完成 → 首个成功响应 / 首个成功的运动命令，
+ * 用于比较 JVM / AOT / AppCDS / native 几种启动方式在故障切换后多久能真正控制云台。
+ */
+@Component
+public class StartupTimeline {
+    private final CameraRegistry cameras;
+    private final long processStart = processStart();
+    private final String mode = mode();
+    private volatile long readyAt;
+    private volatile long warmupStart;
+    private volatile long warmupEnd;
+    private volatile List<GroupResult.TargetResult> warmup = List.of();
+
+    public StartupTimeline(CameraRegistry cameras) {
+        this.cameras = cameras;
+    }
+
+    private static long processStart() {
+        return ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElseGet(() -> ManagementFactory.getRuntimeMXBean().getStartTime());
+    }
+
+    /**
+     * native / jvm，JVM 下再标出 +aot（spring.aot.enabled）与 +cds（指定了共享归档）
+     */
+    static String mode() {
+        if (NativeDetector.inNativeImage()) {
+            return "native";
+        }
+        StringBuilder sb = new StringBuilder("jvm");
+        if (AotDetector.useGeneratedArtifacts()) {
+            sb.append("+aot");
+        }
+        if (ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(a -> a.startsWith("-XX:SharedArchiveFile") || a.equals("-XX:+AutoCreateSharedArchive"))) {
+            sb.append("+cds");
+        }
+        return sb.toString();
+    }
+
+    void warmupStarted() {
+        warmupStart = System.currentTimeMillis();
+    }
+
+    void warmupFinished(List<GroupResult.TargetResult> results) {
+        warmup = results;
+        warmupEnd = System.currentTimeMillis();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readyAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 各时间点相对进程启动的毫秒数；还没发生的为 null
+     */
+    public Map<String, Object> report() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("mode", mode);
+        m.put("processStart", Instant.ofEpochMilli(processStart).toString());
+        m.put("readyMs", since(readyAt));
+        m.put("warmupMs", warmupEnd != 0 ? warmupEnd - warmupStart : null);
+        m.put("firstResponseMs", since(cameras.metrics().firstSuccessAt(false)));
+        m.put("firstCommandMs", since(cameras.metrics().firstSuccessAt(true)));
+        m.put("warmup", warmup);
+        return m;
+    }
+
+    private Long since(long at) {
+        return at != 0 ? at - processStart : null;
+    }
+}
@@ -0,0 +1,133 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * /status 短 TTL 缓存：
+ * <ul>
+ *   <li>TTL 内直接返回上次结果（hit）</li>
+ *   <li>并发未命中合并为一次设备请求（single-flight，coalesced）</li>
+ *   <li>该通道下发运动类命令后立即失效，命令前发起的读取结果不再写入缓存</li>
+ * </ul>
+ */
+@Component
+public class StatusCache implements PtzCommandListener {
+    private final long ttlMs;
+    private final ConcurrentHashMap<String, Slot<String>> xmlSlots = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Slot<PtzStatus>> parsedSlots = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private static final class Slot<T> {
+        T value;
+        long loadedAt;
+        long generation;
+        CompletableFuture<T> inflight;
+    }
+
+    public StatusCache(FleetProperties fleet) {
+        this.ttlMs = fleet.getStatusCacheTtlMs();
+    }
+
+    private static String key(String cameraId, int channel) {
+        return cameraId + "/" + channel;
+    }
+
+    /**
+     * 原始 XML
+     */
+    public CompletableFuture<String> get(PtzIsapiClient client, int channel) {
+        return get(xmlSlots, key(client.getCameraId(), channel), () -> client.getStatusAsync(channel));
+    }
+
+    /**
+     * 解析后的角度/变倍
+     */
+    public CompletableFuture<PtzStatus> getParsed(PtzIsapiClient client, int channel) {
+        return get(parsedSlots, key(client.getCameraId(), channel), () -> client.readStatusAsync(channel));
+    }
+
+    private <T> CompletableFuture<T> get(ConcurrentHashMap<String, Slot<T>> slots, String key,
+                                         Supplier<CompletableFuture<T>> loader) {
+        Slot<T> s = slots.computeIfAbsent(key, k -> new Slot<>());
+        CompletableFuture<T> load;
+        long gen;
+        synchronized (s) {
+            if (s.value != null && System.currentTimeMillis() - s.loadedAt < ttlMs) {
+                hits.increment();
+                return CompletableFuture.completedFuture(s.value);
+            }
+            if (s.inflight != null) {
+                coalesced.increment();
+                return s.inflight;
+            }
+            misses.increment();
+            load = new CompletableFuture<>();
+            s.inflight = load;
+            gen = s.generation;
+        }
+        loader.get().whenComplete((v, ex) -> {
+            synchronized (s) {
+                if (s.inflight == load) {
+                    s.inflight = null;
+                }
+                if (ex == null && s.generation == gen) {
+                    s.value = v;
+                    s.loadedAt = System.currentTimeMillis();
+                }
+            }
+            if (ex != null) {
+                load.completeExceptionally(ex);
+            } else {
+                load.complete(v);
+            }
+        });
+        return load;
+    }
+
+    public void invalidate(String cameraId, int channel) {
+        String key = key(cameraId, channel);
+        invalidate(xmlSlots.get(key));
+        invalidate(parsedSlots.get(key));
+        invalidations.increment();
+    }
+
+    private static void invalidate(Slot<?> s) {
+        if (s == null) {
+            return;
+        }
+        synchronized (s) {
+            s.value = null;
+            s.inflight = null;
+            s.generation++;
+        }
+    }
+
+    @Override
+    public void onCommand(String cameraId, int channel, PtzOperation operation) {
+        if (operation.isMotion()) {
+            invalidate(cameraId, channel);
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        m.put("hits", hits.sum());
+        m.put("misses", misses.sum());
+        m.put("coalesced", coalesced.sum());
+        m.put("invalidations", invalidations.sum());
+        m.put("ttlMs", ttlMs);
+        return m;
+    }
+}
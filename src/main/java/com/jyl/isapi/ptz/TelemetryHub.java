@@ -0,0 +1,94 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 位置推送中心：每个有订阅者的相机通道一个 {@link TelemetryPump}，最后一个订阅者离开时停止轮询。
+ * 同时监听运动命令，让对应通道切到快速轮询。
+ * <p>
+ * 不依赖 {@link CameraRegistry}（它持有所有 {@link PtzCommandListener}），由调用方传入客户端。
+ */
+@Component
+public class TelemetryHub implements PtzCommandListener, DisposableBean {
+    private final StatusCache statusCache;
+    private final FleetProperties fleet;
+    private final ConcurrentHashMap<String, Entry> pumps = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+        final TelemetryPump pump;
+        int refs;
+
+        Entry(TelemetryPump pump) {
+            this.pump = pump;
+        }
+    }
+
+    public record Target(PtzIsapiClient client, int channel) {
+    }
+
+    public TelemetryHub(StatusCache statusCache, FleetProperties fleet) {
+        this.statusCache = statusCache;
+        this.fleet = fleet;
+    }
+
+    private static String key(String cameraId, int channel) {
+        return cameraId + "/" + channel;
+    }
+
+    public TelemetrySubscriber subscribe(List<Target> targets, TelemetrySubscriber.Sink sink) {
+        TelemetrySubscriber s = new TelemetrySubscriber(sink);
+        List<TelemetryPump> joined = targets.stream().map(t -> acquire(t.client(), t.channel())).toList();
+        s.onClose(() -> joined.forEach(p -> release(p, s)));
+        joined.forEach(p -> p.add(s));
+        return s;
+    }
+
+    private TelemetryPump acquire(PtzIsapiClient client, int channel) {
+        return pumps.compute(key(client.getCameraId(), channel), (k, cur) -> {
+            Entry n = cur != null ? cur : new Entry(new TelemetryPump(client, channel, statusCache,
+                    fleet.getTelemetryActiveMs(), fleet.getTelemetryIdleMs(), fleet.getTelemetryActiveHoldMs(),
+                    fleet.getResponseTimeoutMs()));
+            n.refs++;
+            return n;
+        }).pump;
+    }
+
+    private void release(TelemetryPump pump, TelemetrySubscriber s) {
+        pump.remove(s);
+        TelemetryPump.Stats st = pump.stats();
+        pumps.computeIfPresent(key(st.cameraId(), st.channel()), (k, cur) -> {
+            if (cur.pump != pump || --cur.refs > 0) {
+                return cur;
+            }
+            pump.stop();
+            return null;
+        });
+    }
+
+    @Override
+    public void onCommand(String cameraId, int channel, PtzOperation operation) {
+        if (!operation.isMotion()) {
+            return;
+        }
+        Entry e = pumps.get(key(cameraId, channel));
+        if (e != null) {
+            e.pump.kick();
+        }
+    }
+
+    public List<TelemetryPump.Stats> stats() {
+        return pumps.values().stream().map(e -> e.pump.stats()).toList();
+    }
+
+    @Override
+    public void destroy() {
+        pumps.values().forEach(e -> e.pump.stop());
+        pumps.clear();
+    }
+}
@@ -0,0 +1,124 @@
+package com.jyl.isapi.ptz;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个相机通道的位置轮询：不论有多少订阅者，只经 {@link StatusCache} 轮询一次 status。
+ * 有运动命令或位置仍在变化时按 activeMs 快速轮询，否则按 idleMs；只在位置/运动状态变化时推送。
+ */
+class TelemetryPump {
+    private final PtzIsapiClient client;
+    private final int channel;
+    private final StatusCache statusCache;
+    private final long activeMs;
+    private final long idleMs;
+    private final long holdMs;
+    private final long timeoutMs;
+    private final Set<TelemetrySubscriber> subscribers = new CopyOnWriteArraySet<>();
+    private final Semaphore wake = new Semaphore(0);
+
+    private volatile boolean stopped;
+    private volatile long activeUntil;
+    private volatile TelemetryUpdate last;
+
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    record Stats(String cameraId, int channel, int subscribers, boolean active, long polls, long published,
+                 long errors, TelemetryUpdate last) {
+    }
+
+    TelemetryPump(PtzIsapiClient client, int channel, StatusCache statusCache,
+                  long activeMs, long idleMs, long holdMs, long timeoutMs) {
+        this.client = client;
+        this.channel = channel;
+        this.statusCache = statusCache;
+        this.activeMs = activeMs;
+        this.idleMs = idleMs;
+        this.holdMs = holdMs;
+        this.timeoutMs = timeoutMs;
+        Thread.ofVirtual().name("telemetry-" + client.getCameraId() + "-" + channel).start(this::run);
+    }
+
+    void add(TelemetrySubscriber s) {
+        subscribers.add(s);
+        TelemetryUpdate u = last;
+        if (u != null) {
+            s.offer(u); // 新订阅者立即拿到当前位置
+        }
+    }
+
+    void remove(TelemetrySubscriber s) {
+        subscribers.remove(s);
+    }
+
+    /**
+     * 收到运动命令：切到快速轮询并立即轮询一次
+     */
+    void kick() {
+        activeUntil = System.currentTimeMillis() + holdMs;
+        wake.release();
+    }
+
+    void stop() {
+        stopped = true;
+        wake.release();
+    }
+
+    Stats stats() {
+        return new Stats(client.getCameraId(), channel, subscribers.size(), active(),
+                polls.sum(), published.sum(), errors.sum(), last);
+    }
+
+    private boolean active() {
+        return System.currentTimeMillis() < activeUntil;
+    }
+
+    private void run() {
+        try {
+            while (!stopped) {
+                poll();
+                if (wake.tryAcquire(active() ? activeMs : idleMs, TimeUnit.MILLISECONDS)) {
+                    wake.drainPermits();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void poll() throws InterruptedException {
+        PtzStatus s;
+        try {
+            polls.increment();
+            s = statusCache.getParsed(client, channel).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            errors.increment();
+            return;
+        }
+        TelemetryUpdate prev = last;
+        boolean changed = prev == null || prev.azimuth() != s.azimuth()
+                || prev.elevation() != s.elevation() || prev.zoom() != s.zoom();
+        if (changed && prev != null) {
+            activeUntil = Math.max(activeUntil, System.currentTimeMillis() + holdMs); // 仍在动（含外部控制）
+        }
+        boolean moving = changed && prev != null;
+        if (!changed && (prev == null || prev.moving() == moving)) {
+            return;
+        }
+        TelemetryUpdate u = new TelemetryUpdate(client.getCameraId(), channel, s.azimuth(), s.elevation(), s.zoom(),
+                moving, System.currentTimeMillis());
+        last = u;
+        published.increment();
+        for (TelemetrySubscriber sub : subscribers) {
+            sub.offer(u);
+        }
+    }
+}
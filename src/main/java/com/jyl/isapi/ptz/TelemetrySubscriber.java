@@ -0,0 +1,96 @@
+package com.jyl.isapi.ptz;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 位置订阅者（一个 SSE/WebSocket 连接）：每个通道只保留最新一条，由独立虚拟线程投递；
+ * 客户端慢时中间位置被合并掉，不会积压，也不会拖慢轮询线程。
+ */
+public class TelemetrySubscriber {
+    private static final AtomicLong IDS = new AtomicLong();
+    private static final long KEEPALIVE_MS = 15_000;
+
+    public interface Sink {
+        void send(TelemetryUpdate update) throws IOException;
+
+        default void keepalive() throws IOException {
+        }
+    }
+
+    private final long id = IDS.incrementAndGet();
+    private final Sink sink;
+    private final ConcurrentHashMap<String, TelemetryUpdate> pending = new ConcurrentHashMap<>();
+    private final Semaphore wake = new Semaphore(0);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile Runnable onClose = () -> {
+    };
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+
+    TelemetrySubscriber(Sink sink) {
+        this.sink = sink;
+        Thread.ofVirtual().name("telemetry-subscriber-" + id).start(this::drain);
+    }
+
+    void onClose(Runnable onClose) {
+        this.onClose = onClose;
+    }
+
+    void offer(TelemetryUpdate u) {
+        if (closed.get()) {
+            return;
+        }
+        if (pending.put(u.cameraId() + "/" + u.channel(), u) != null) {
+            conflated.increment();
+        }
+        wake.release();
+    }
+
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            wake.release();
+            onClose.run();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", id);
+        m.put("delivered", delivered.sum());
+        m.put("conflated", conflated.sum());
+        return m;
+    }
+
+    private void drain() {
+        try {
+            while (!closed.get()) {
+                if (!wake.tryAcquire(KEEPALIVE_MS, TimeUnit.MILLISECONDS)) {
+                    sink.keepalive();
+                    continue;
+                }
+                wake.drainPermits();
+                for (String key : pending.keySet()) {
+                    TelemetryUpdate u = pending.remove(key);
+                    if (u != null && !closed.get()) {
+                        sink.send(u);
+                        delivered.increment();
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 客户端已断开
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        close();
+    }
+}
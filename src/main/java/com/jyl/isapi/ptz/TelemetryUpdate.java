@@ -0,0 +1,8 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * 推送给订阅者的位置：只有位置或运动状态变化时才发送
+ */
+public record TelemetryUpdate(String cameraId, int channel, double azimuth, double elevation, int zoom,
+                              boolean moving, long timestamp) {
+}
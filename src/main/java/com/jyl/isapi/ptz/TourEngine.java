@@ -0,0 +1,282 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 服务端预置位巡航：每个相机通道最多一条巡航，按 预置位/停留时间 序列循环。
+ * <ul>
+ *   <li>所有巡航共用一个 {@link HashedWheelTimer}，停留期间不占线程；到点后在 ptzExecutor 上下发 goto</li>
+ *   <li>该通道收到其它运动命令（人工操作、摇杆、批量命令）时自动暂停，
+ *       最后一次人工命令后 fleet.tour-resume-idle-ms 无操作再从下一步继续</li>
+ *   <li>goto 失败（离线/熔断）不停止巡航，隔 fleet.tour-retry-ms 重试同一步</li>
+ * </ul>
+ * 不依赖 {@link CameraRegistry}（它持有所有 {@link PtzCommandListener}），由调用方传入客户端。
+ */
+@Component
+public class TourEngine implements PtzCommandListener, DisposableBean {
+    /**
+     * 当前线程正在执行的巡航步骤；这一步自己触发的命令通知不算人工操作
+     */
+    private static final ThreadLocal<Tour> CURRENT = new ThreadLocal<>();
+
+    private final Executor executor;
+    private final FleetProperties fleet;
+    private final HashedWheelTimer timer;
+    private final ConcurrentHashMap<String, Tour> tours = new ConcurrentHashMap<>();
+
+    public enum State {RUNNING, PAUSED, STOPPED}
+
+    public record TourStats(String cameraId, int channel, State state, List<TourStep> steps, boolean waitArrival,
+                            int nextStep, long resumeInMs, long cycles, long moves, long pauses, long errors,
+                            String lastError) {
+    }
+
+    public TourEngine(@Qualifier("ptzExecutor") Executor executor, FleetProperties fleet) {
+        this.executor = executor;
+        this.fleet = fleet;
+        this.timer = new HashedWheelTimer("tour-wheel", fleet.getTourTickMs(), 512);
+    }
+
+    private static String key(String cameraId, int channel) {
+        return cameraId + "/" + channel;
+    }
+
+    /**
+     * 开始巡航；该通道已有巡航时替换
+     *
+     * @param waitArrival true：等云台到位后再开始计停留时间（会轮询 status）；false：goto 返回即开始计时
+     */
+    public TourStats start(PtzIsapiClient client, int channel, List<TourStep> steps, boolean waitArrival) {
+        if (steps == null || steps.isEmpty()) {
+            throw new IllegalArgumentException("steps required");
+        }
+        for (TourStep s : steps) {
+            if (s.preset() < 1 || s.dwellMs() < fleet.getTourMinDwellMs()) {
+                throw new IllegalArgumentException("invalid step " + s + ": preset >= 1, dwellMs >= " + fleet.getTourMinDwellMs());
+            }
+        }
+        Tour tour = new Tour(client, channel, List.copyOf(steps), waitArrival);
+        Tour old = tours.put(key(client.getCameraId(), channel), tour);
+        if (old != null) {
+            old.stop();
+        }
+        tour.start();
+        return tour.stats();
+    }
+
+    public boolean stop(String cameraId, int channel) {
+        Tour t = tours.remove(key(cameraId, channel));
+        if (t == null) {
+            return false;
+        }
+        t.stop();
+        return true;
+    }
+
+    public List<TourStats> stats() {
+        return tours.values().stream().map(Tour::stats).toList();
+    }
+
+    @Override
+    public void onCommand(String cameraId, int channel, PtzOperation operation) {
+        if (!operation.isMotion()) {
+            return;
+        }
+        Tour t = tours.get(key(cameraId, channel));
+        if (t != null && CURRENT.get() != t) {
+            t.pause();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        tours.values().forEach(Tour::stop);
+        tours.clear();
+        timer.close();
+    }
+
+    private final class Tour {
+        final PtzIsapiClient client;
+        final int channel;
+        final List<TourStep> steps;
+        final boolean waitArrival;
+
+        final ReentrantLock lock = new ReentrantLock();
+        State state = State.RUNNING;
+        int next;
+        long generation; // 暂停/停止时递增，作废已排定的回调
+        long resumeAt;
+        HashedWheelTimer.Timeout pendingTimeout;
+        String lastError;
+
+        final LongAdder cycles = new LongAdder();
+        final LongAdder moves = new LongAdder();
+        final LongAdder pauses = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        Tour(PtzIsapiClient client, int channel, List<TourStep> steps, boolean waitArrival) {
+            this.client = client;
+            this.channel = channel;
+            this.steps = steps;
+            this.waitArrival = waitArrival;
+        }
+
+        void start() {
+            lock.lock();
+            try {
+                scheduleStep(0);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 持有 lock 时调用
+         */
+        private void scheduleStep(long delayMs) {
+            long gen = generation;
+            pendingTimeout = timer.schedule(() -> executor.execute(() -> step(gen)), delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void step(long gen) {
+            TourStep s;
+            int index;
+            lock.lock();
+            try {
+                if (gen != generation || state != State.RUNNING) {
+                    return;
+                }
+                index = next;
+                s = steps.get(index);
+            } finally {
+                lock.unlock();
+            }
+            CURRENT.set(this);
+            try {
+                if (waitArrival) {
+                    client.gotoPresetAndWait(channel, s.preset());
+                } else {
+                    client.gotoPreset(channel, s.preset());
+                }
+                moves.increment();
+            } catch (PtzSupersededException e) {
+                // 被人工命令取代：通常由那条命令的通知暂停巡航；但它若在队列里失败（排队超时/队列满）就没有通知，
+                // 巡航会停在 RUNNING 且没有排定下一步，所以这里也暂停
+                lock.lock();
+                try {
+                    if (gen == generation && state == State.RUNNING) {
+                        pause();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            } catch (IOException | RuntimeException e) {
+                errors.increment();
+                lock.lock();
+                try {
+                    lastError = e.toString();
+                    if (gen == generation && state == State.RUNNING) {
+                        scheduleStep(fleet.getTourRetryMs());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            } finally {
+                CURRENT.remove();
+            }
+            lock.lock();
+            try {
+                // 这一步已经到位：即使期间被暂停也先前进，恢复后从下一步继续而不是重走这一步
+                if (next == index && state != State.STOPPED) {
+                    if (++next == steps.size()) {
+                        next = 0;
+                        cycles.increment();
+                    }
+                }
+                if (gen != generation || state != State.RUNNING) {
+                    return;
+                }
+                scheduleStep(s.dwellMs());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void pause() {
+            lock.lock();
+            try {
+                if (state == State.STOPPED) {
+                    return;
+                }
+                if (state == State.RUNNING) {
+                    pauses.increment();
+                }
+                state = State.PAUSED;
+                generation++;
+                if (pendingTimeout != null) {
+                    pendingTimeout.cancel();
+                }
+                long idle = fleet.getTourResumeIdleMs();
+                resumeAt = System.currentTimeMillis() + idle;
+                long gen = generation;
+                pendingTimeout = timer.schedule(() -> resume(gen), idle, TimeUnit.MILLISECONDS);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 在时间轮线程上执行：只改状态、排下一步
+         */
+        private void resume(long gen) {
+            lock.lock();
+            try {
+                if (gen != generation || state != State.PAUSED) {
+                    return;
+                }
+                state = State.RUNNING;
+                generation++;
+                scheduleStep(0);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void stop() {
+            lock.lock();
+            try {
+                state = State.STOPPED;
+                generation++;
+                if (pendingTimeout != null) {
+                    pendingTimeout.cancel();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        TourStats stats() {
+            lock.lock();
+            try {
+                long resumeIn = state == State.PAUSED ? Math.max(0, resumeAt - System.currentTimeMillis()) : 0;
+                return new TourStats(client.getCameraId(), channel, state, steps, waitArrival, next, resumeIn,
+                        cycles.sum(), moves.sum(), pauses.sum(), errors.sum(), lastError);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
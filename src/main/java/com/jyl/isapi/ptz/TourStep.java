@@ -0,0 +1,7 @@
+package com.jyl.isapi.ptz;
+
+/**
+ * 巡航的一步：转到预置位，停留 dwellMs 后转下一步
+ */
+public record TourStep(int preset, long dwellMs) {
+}
@@ -0,0 +1,267 @@
+package com.jyl.isapi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jyl.isapi.sim.SimCameraOptions;
+import com.jyl.isapi.sim.SimulatedCamera;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * 三个实例 + 共用的模拟相机：各实例算出的归属一致，/ptz 转发到归属节点，批量命令每个归属节点只转发一次，
+ * 长连接重定向到归属节点，节点停掉后其相机由其余节点接管。
+ * 最后一个用例停掉节点 b。
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ClusterTest {
+    private static final int CAMERAS = 9;
+    private static final String[] NODES = {"a", "b", "c"};
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final HttpClient HTTP = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    /**
+     * cameraId -> 模拟相机；default 为 camera.* 配置的默认相机
+     */
+    private static final Map<String, SimulatedCamera> sims = new LinkedHashMap<>();
+    private static final Map<String, Integer> ports = new LinkedHashMap<>();
+    private static final Map<String, ConfigurableApplicationContext> contexts = new LinkedHashMap<>();
+
+    @BeforeAll
+    static void startCluster() throws Exception {
+        sims.put("default", sim());
+        for (int i = 0; i < CAMERAS; i++) {
+            sims.put("sim-" + i, sim());
+        }
+        for (String node : NODES) {
+            ports.put(node, freePort());
+        }
+        for (String node : NODES) {
+            contexts.put(node, start(node));
+        }
+        for (String node : NODES) {
+            until(10_000, () -> aliveNodes(node).size() == NODES.length);
+        }
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        contexts.values().forEach(ConfigurableApplicationContext::close);
+        sims.values().forEach(SimulatedCamera::close);
+    }
+
+    private static SimulatedCamera sim() throws IOException {
+        SimCameraOptions o = new SimCameraOptions();
+        o.setLatencyMs(0);
+        return new SimulatedCamera(o);
+    }
+
+    private static ConfigurableApplicationContext start(String self) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=" + ports.get(self),
+                "--camera.host=127.0.0.1",
+                "--camera.port=" + sims.get("default").port(),
+                "--fleet.warmup-connections=0",
+                "--fleet.flight-recorder-file=",
+                "--fleet.cluster.enabled=true",
+                "--fleet.cluster.self=" + self,
+                "--fleet.cluster.heartbeat-ms=200",
+                "--fleet.cluster.fail-after=2"));
+        for (String node : NODES) {
+            args.add("--fleet.cluster.nodes." + node + "=" + url(node));
+        }
+        sims.forEach((id, sim) -> {
+            if (!id.equals("default")) {
+                args.add("--fleet.cameras." + id + ".host=127.0.0.1");
+                args.add("--fleet.cameras." + id + ".port=" + sim.port());
+                args.add("--fleet.cameras." + id + ".username=admin");
+                args.add("--fleet.cameras." + id + ".password=abcd1234");
+            }
+        });
+        return new SpringApplicationBuilder(ISAPIApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+
+    private static String url(String node) {
+        return "http://127.0.0.1:" + ports.get(node);
+    }
+
+    private static HttpResponse<String> get(String node, String path) throws Exception {
+        return HTTP.send(HttpRequest.newBuilder(URI.create(url(node) + path)).timeout(Duration.ofSeconds(10)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> post(String node, String path, String json) throws Exception {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(url(node) + path)).timeout(Duration.ofSeconds(30));
+        b = json == null ? b.POST(HttpRequest.BodyPublishers.noBody())
+                : b.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(json));
+        return HTTP.send(b.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonNode json(HttpResponse<String> r) throws IOException {
+        assertThat(r.statusCode()).as(r.body()).isEqualTo(200);
+        return MAPPER.readTree(r.body());
+    }
+
+    private static Set<String> aliveNodes(String node) throws Exception {
+        Set<String> alive = new HashSet<>();
+        json(get(node, "/cluster")).get("nodes").forEach(n -> {
+            if (n.get("alive").asBoolean()) {
+                alive.add(n.get("id").asText());
+            }
+        });
+        return alive;
+    }
+
+    private static long forwarded(String node) throws Exception {
+        return json(get(node, "/cluster")).get("forwarded").asLong();
+    }
+
+    private static String owner(String node, String camera) throws Exception {
+        return json(get(node, "/cluster/owner?camera=" + camera)).get("owner").asText();
+    }
+
+    /**
+     * 以节点 a 的视角：cameraId -> 归属节点
+     */
+    private static Map<String, String> owners() throws Exception {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (String id : sims.keySet()) {
+            m.put(id, owner("a", id));
+        }
+        return m;
+    }
+
+    private static String cameraOwnedBy(String node) throws Exception {
+        return owners().entrySet().stream().filter(e -> e.getValue().equals(node)).map(Map.Entry::getKey)
+                .findFirst().orElseThrow(() -> new AssertionError("node " + node + " owns no camera"));
+    }
+
+    private static double pan(String camera) {
+        return sims.get(camera).position(1)[0];
+    }
+
+    private static void until(long timeoutMs, Callable<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!Boolean.TRUE.equals(condition.call())) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met within " + timeoutMs + " ms");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void nodesAgreeOnOwnershipAndEachOwnsSomeCameras() throws Exception {
+        Map<String, String> owners = owners();
+        for (String node : NODES) {
+            for (Map.Entry<String, String> e : owners.entrySet()) {
+                assertThat(owner(node, e.getKey())).as(node + " " + e.getKey()).isEqualTo(e.getValue());
+            }
+        }
+        assertThat(new HashSet<>(owners.values())).containsExactlyInAnyOrder(NODES);
+    }
+
+    @Test
+    void ptzRequestIsForwardedToTheOwner() throws Exception {
+        String camera = cameraOwnedBy("b");
+        long before = forwarded("a");
+
+        HttpResponse<String> r = post("a", "/ptz/" + camera + "/absolute?az=90&el=10", null);
+        assertThat(r.statusCode()).as(r.body()).isEqualTo(200);
+        assertThat(r.headers().firstValue("X-Isapi-Owner")).hasValue("b");
+        assertThat(forwarded("a")).isEqualTo(before + 1);
+        until(5_000, () -> Math.abs(pan(camera) - 90) < 0.5);
+
+        // 在归属节点上直接处理，不再转发
+        HttpResponse<String> local = get("b", "/ptz/" + camera + "/status/json");
+        assertThat(local.headers().firstValue("X-Isapi-Owner")).hasValue("b");
+        assertThat(json(local).get("azimuth").asDouble()).isCloseTo(90, within(0.5));
+    }
+
+    @Test
+    void groupCommandIsForwardedOncePerOwner() throws Exception {
+        Map<String, String> owners = owners();
+        List<Map<String, Object>> targets = new ArrayList<>();
+        owners.keySet().forEach(id -> targets.add(Map.of("camera", id)));
+        long remoteOwners = owners.values().stream().filter(o -> !o.equals("a")).distinct().count();
+        long before = forwarded("a");
+
+        JsonNode result = json(post("a", "/group/absolute",
+                MAPPER.writeValueAsString(Map.of("targets", targets, "az", 45.0, "el", 5.0))));
+        assertThat(result.get("total").asInt()).isEqualTo(sims.size());
+        assertThat(result.get("succeeded").asInt()).as(result.toString()).isEqualTo(sims.size());
+        List<String> cameras = new ArrayList<>();
+        result.get("results").forEach(t -> cameras.add(t.get("camera").asText()));
+        assertThat(cameras).containsExactlyElementsOf(owners.keySet());
+        assertThat(forwarded("a")).isEqualTo(before + remoteOwners);
+
+        for (String camera : owners.keySet()) {
+            until(5_000, () -> Math.abs(pan(camera) - 45) < 0.5);
+        }
+    }
+
+    @Test
+    void eventStreamIsRedirectedToTheOwner() throws Exception {
+        String camera = cameraOwnedBy("c");
+        HttpResponse<String> r = get("a", "/events/stream?camera=" + camera);
+        assertThat(r.statusCode()).isEqualTo(307);
+        assertThat(r.headers().firstValue("Location")).hasValue(url("c") + "/events/stream?camera=" + camera);
+        assertThat(r.headers().firstValue("X-Isapi-Owner")).hasValue("c");
+
+        String other = cameraOwnedBy("b");
+        assertThat(get("a", "/events/stream?camera=" + camera + "," + other).statusCode()).isEqualTo(409);
+    }
+
+    @Test
+    @Order(Integer.MAX_VALUE)
+    void survivingNodesTakeOverWhenANodeStops() throws Exception {
+        // 放在最后执行：停掉 b 之后其它用例的前提不再成立
+        String camera = cameraOwnedBy("b");
+        contexts.remove("b").close();
+
+        until(10_000, () -> !aliveNodes("a").contains("b") && !aliveNodes("c").contains("b"));
+        String newOwner = owner("a", camera);
+        assertThat(newOwner).isIn("a", "c");
+        assertThat(owner("c", camera)).isEqualTo(newOwner);
+        for (Map.Entry<String, String> e : owners().entrySet()) {
+            assertThat(e.getValue()).isNotEqualTo("b");
+        }
+
+        HttpResponse<String> r = post("a", "/ptz/" + camera + "/absolute?az=120&el=20", null);
+        assertThat(r.statusCode()).as(r.body()).isEqualTo(200);
+        assertThat(r.headers().firstValue("X-Isapi-Owner")).hasValue(newOwner);
+        until(5_000, () -> Math.abs(pan(camera) - 120) < 0.5);
+    }
+}
@@ -0,0 +1,76 @@
+package com.jyl.isapi.controller;
+
+import com.jyl.isapi.config.FleetProperties;
+import com.jyl.isapi.config.PtzProperties;
+import com.jyl.isapi.ptz.AlertStreamHub;
+import com.jyl.isapi.ptz.CameraRegistry;
+import com.jyl.isapi.ptz.ClusterDiscovery;
+import com.jyl.isapi.ptz.ClusterMembership;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventControllerTest {
+
+    private static FleetProperties cluster(List<String> cameras) {
+        FleetProperties fleet = new FleetProperties();
+        fleet.setFlightRecorderFile("");
+        fleet.getCluster().setEnabled(true);
+        fleet.getCluster().setSelf("a");
+        fleet.getCluster().getNodes().put("a", "http://127.0.0.1:1");
+        fleet.getCluster().getNodes().put("b", "http://127.0.0.1:2");
+        cameras.forEach(id -> fleet.getCameras().put(id,
+                new PtzProperties("http", "127.0.0.1", 1, "admin", "abcd1234", 1, null, null)));
+        return fleet;
+    }
+
+    private static ClusterMembership membership(FleetProperties fleet, CameraRegistry cameras, ExecutorService executor) {
+        return new ClusterMembership(fleet, cameras, executor, e -> { },
+                new StaticListableBeanFactory().getBeanProvider(ClusterDiscovery.class));
+    }
+
+    @Test
+    void nodeWithoutCamerasDoesNotSubscribeToOtherNodesCameras() throws Exception {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            // 先在空机群上挑出全部归 b 的相机
+            FleetProperties probe = cluster(List.of());
+            CameraRegistry empty = new CameraRegistry(new PtzProperties(), probe, executor, List.of(), new SimpleMeterRegistry());
+            ClusterMembership ring = membership(probe, empty, executor);
+            List<String> ofB = new ArrayList<>();
+            for (int i = 0; ofB.size() < 3; i++) {
+                if (ring.owner("gate-" + i).id().equals("b")) {
+                    ofB.add("gate-" + i);
+                }
+            }
+            ring.destroy();
+            empty.destroy();
+
+            FleetProperties fleet = cluster(ofB);
+            CameraRegistry cameras = new CameraRegistry(new PtzProperties(), fleet, executor, List.of(), new SimpleMeterRegistry());
+            ClusterMembership membership = membership(fleet, cameras, executor);
+            AlertStreamHub hub = new AlertStreamHub(cameras, fleet);
+            try {
+                assertThat(membership.ownedCameras()).isEmpty();
+                new EventController(hub, fleet, membership).stream(null, null);
+                Map<String, Object> stats = hub.stats();
+                assertThat((Map<?, ?>) stats.get("cameras")).isEmpty();
+                assertThat((List<?>) stats.get("subscribers")).isEmpty();
+            } finally {
+                hub.destroy();
+                membership.destroy();
+                cameras.destroy();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
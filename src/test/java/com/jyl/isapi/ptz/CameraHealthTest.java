@@ -0,0 +1,133 @@
+package com.jyl.isapi.ptz;
+
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CameraHealthTest {
+    private static final ConnectException REFUSED = new ConnectException("Connection refused");
+
+    private static CameraHealth open(long probeMinMs, long probeMaxMs) {
+        CameraHealth h = new CameraHealth("gate-1", 1, probeMinMs, probeMaxMs);
+        h.onFailure(REFUSED);
+        assertThat(h.getState()).isEqualTo(CameraHealth.State.OPEN);
+        return h;
+    }
+
+    @Test
+    void opensAfterThresholdConsecutiveConnectFailures() {
+        CameraHealth h = new CameraHealth("gate-1", 3, 1_000, 60_000);
+        h.onFailure(REFUSED);
+        h.onFailure(new ConnectTimeoutException("connect timed out"));
+        assertThat(h.getState()).isEqualTo(CameraHealth.State.CLOSED);
+        assertThat(h.stats().consecutiveFailures()).isEqualTo(2);
+
+        h.onFailure(new NoRouteToHostException());
+        assertThat(h.getState()).isEqualTo(CameraHealth.State.OPEN);
+        CameraHealth.Stats s = h.stats();
+        assertThat(s.opened()).isEqualTo(1);
+        assertThat(s.lastError()).contains("NoRouteToHostException");
+
+        assertThatThrownBy(h::check).isInstanceOf(CameraUnavailableException.class).hasMessageContaining("gate-1");
+        assertThat(h.stats().rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void anyResponseResetsTheFailureCount() throws Exception {
+        CameraHealth h = new CameraHealth("gate-1", 2, 1_000, 60_000);
+        h.onFailure(REFUSED);
+        h.onResponse();
+        h.onFailure(new UnknownHostException("gate-1.local"));
+        assertThat(h.getState()).isEqualTo(CameraHealth.State.CLOSED);
+        h.check();
+    }
+
+    @Test
+    void nonConnectErrorsAreIgnored() throws Exception {
+        CameraHealth h = new CameraHealth("gate-1", 1, 1_000, 60_000);
+        // 已连上之后的超时、读错误、运行时异常都不说明相机不可达
+        h.onFailure(new SocketTimeoutException("Read timed out"));
+        h.onFailure(new IOException("Connection reset"));
+        h.onFailure(new IllegalStateException("boom"));
+        assertThat(h.getState()).isEqualTo(CameraHealth.State.CLOSED);
+        assertThat(h.stats().consecutiveFailures()).isZero();
+        h.check();
+    }
+
+    @Test
+    void probeBackoffDoublesUpToTheMaximum() {
+        CameraHealth h = open(1_000, 5_000);
+        long[] expected = {1_000, 2_000, 4_000, 5_000, 5_000};
+        for (int i = 0; i < expected.length; i++) {
+            assertThat(h.stats().nextProbeInMs()).as("probe " + i).isBetween(expected[i] - 200, expected[i]);
+            assertThat(h.tryStartProbe(System.currentTimeMillis())).isFalse();
+            assertThat(h.tryStartProbe(Long.MAX_VALUE)).isTrue();
+            h.onProbe(false, new ConnectException("still down"));
+        }
+        assertThat(h.getState()).isEqualTo(CameraHealth.State.OPEN);
+        assertThat(h.stats().probes()).isEqualTo(expected.length);
+        assertThat(h.stats().lastError()).contains("still down");
+    }
+
+    @Test
+    void onlyOneProbeAtATime() {
+        CameraHealth h = open(1, 1);
+        assertThat(h.tryStartProbe(Long.MAX_VALUE)).isTrue();
+        assertThat(h.tryStartProbe(Long.MAX_VALUE)).isFalse();
+        h.onProbe(false, null);
+        assertThat(h.tryStartProbe(Long.MAX_VALUE)).isTrue();
+    }
+
+    @Test
+    void reachableProbeClosesAndFurtherFailuresCountFromZero() throws Exception {
+        CameraHealth h = new CameraHealth("gate-1", 2, 1_000, 60_000);
+        h.onFailure(REFUSED);
+        h.onFailure(REFUSED);
+        assertThat(h.tryStartProbe(Long.MAX_VALUE)).isTrue();
+        h.onProbe(true, null);
+        assertThat(h.getState()).isEqualTo(CameraHealth.State.CLOSED);
+        assertThat(h.tryStartProbe(Long.MAX_VALUE)).isFalse();
+        h.check();
+
+        h.onFailure(REFUSED);
+        assertThat(h.getState()).isEqualTo(CameraHealth.State.CLOSED);
+        h.onFailure(REFUSED);
+        assertThat(h.getState()).isEqualTo(CameraHealth.State.OPEN);
+        assertThat(h.stats().opened()).isEqualTo(2);
+    }
+
+    @Test
+    void failuresWhileOpenDoNotResetTheBackoff() {
+        CameraHealth h = open(1_000, 60_000);
+        h.tryStartProbe(Long.MAX_VALUE);
+        h.onProbe(false, null);
+        h.onFailure(REFUSED);
+        assertThat(h.stats().nextProbeInMs()).isGreaterThan(1_500);
+        assertThat(h.stats().opened()).isEqualTo(1);
+    }
+
+    @Test
+    void probeAnsweredWith401ClosesTheCircuit() throws Exception {
+        try (SimFleet f = new SimFleet(1, o -> { })) {
+            PtzIsapiClient c = f.client(0);
+            for (int i = 0; i < f.fleet.getBreakerFailureThreshold(); i++) {
+                c.getHealth().onFailure(REFUSED);
+            }
+            assertThat(c.getHealth().getState()).isEqualTo(CameraHealth.State.OPEN);
+            assertThatThrownBy(() -> c.readStatus(1)).isInstanceOf(CameraUnavailableException.class);
+
+            // 探测不带认证，模拟相机回 401：仍说明可达
+            assertThat(c.probe()).isTrue();
+            assertThat(c.getHealth().getState()).isEqualTo(CameraHealth.State.CLOSED);
+            assertThat(c.readStatus(1)).isNotNull();
+        }
+    }
+}
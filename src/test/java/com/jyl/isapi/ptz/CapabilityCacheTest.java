@@ -0,0 +1,53 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CapabilityCacheTest {
+
+    @Test
+    void failedReadIsNotCachedAndIsRetriedAfterTheRetryInterval() throws Exception {
+        FleetProperties fleet = new FleetProperties();
+        fleet.setCapabilitiesRetryMs(200);
+        try (SimFleet f = new SimFleet(1, o -> o.setErrorRate(1), fleet, List.of())) {
+            PtzIsapiClient c = f.client(0);
+            assertThat(c.capabilities(1)).isSameAs(PtzCapabilities.DEFAULTS);
+            assertThat(c.getCapabilityCache()).isEmpty();
+
+            // 设备恢复后，重读间隔内仍用兜底范围，过后读设备
+            f.sim(0).options().setErrorRate(0);
+            assertThat(c.capabilities(1)).isSameAs(PtzCapabilities.DEFAULTS);
+            Thread.sleep(250);
+            assertThat(c.capabilities(1).fromDevice()).isTrue();
+            assertThat(c.getCapabilityCache()).containsOnlyKeys(1);
+        }
+    }
+
+    @Test
+    void failedRefreshKeepsTheDeviceCapabilities() throws Exception {
+        try (SimFleet f = new SimFleet(1, o -> { })) {
+            PtzIsapiClient c = f.client(0);
+            PtzCapabilities device = c.capabilities(1);
+            assertThat(device.fromDevice()).isTrue();
+
+            f.sim(0).options().setErrorRate(1);
+            assertThat(c.refreshCapabilities(1)).isSameAs(device);
+            assertThat(c.capabilities(1)).isSameAs(device);
+        }
+    }
+
+    @Test
+    void explicitRefreshIgnoresTheRetryInterval() throws Exception {
+        try (SimFleet f = new SimFleet(1, o -> o.setErrorRate(1))) {
+            PtzIsapiClient c = f.client(0);
+            assertThat(c.capabilities(1).fromDevice()).isFalse();
+            f.sim(0).options().setErrorRate(0);
+            assertThat(c.refreshCapabilities(1).fromDevice()).isTrue();
+            assertThat(c.capabilities(1).fromDevice()).isTrue();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClusterMembershipTest {
+    private final List<ClusterNode> nodes = new CopyOnWriteArrayList<>();
+    private SimFleet fleet;
+    private ClusterMembership membership;
+    /**
+     * 只建立连接、从不答复：对它的心跳要等满 heartbeat-ms
+     */
+    private ServerSocket silent;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        silent = new ServerSocket(0);
+        int closed;
+        try (ServerSocket s = new ServerSocket(0)) {
+            closed = s.getLocalPort();
+        }
+        nodes.add(new ClusterNode("a", "http://127.0.0.1:1"));
+        nodes.add(new ClusterNode("b", "http://127.0.0.1:" + closed));
+        nodes.add(new ClusterNode("c", "http://127.0.0.1:" + silent.getLocalPort()));
+
+        FleetProperties props = new FleetProperties();
+        props.getCluster().setEnabled(true);
+        props.getCluster().setSelf("a");
+        props.getCluster().setHeartbeatMs(2_000);
+        nodes.forEach(n -> props.getCluster().getNodes().put(n.id(), n.url()));
+        fleet = new SimFleet(0, o -> { }, props, List.of());
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("discovery", (ClusterDiscovery) () -> nodes));
+        membership = new ClusterMembership(props, fleet.registry, fleet.executor, e -> { },
+                beans.getBeanProvider(ClusterDiscovery.class));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        membership.destroy();
+        fleet.close();
+        silent.close();
+    }
+
+    /**
+     * 三节点环上归 b、b 摘除后归 a 的相机
+     */
+    private static String cameraMovingFromBToA() {
+        HashRing abc = new HashRing(List.of(new ClusterNode("a", null), new ClusterNode("b", null), new ClusterNode("c", null)), 128);
+        HashRing ac = new HashRing(List.of(new ClusterNode("a", null), new ClusterNode("c", null)), 128);
+        for (int i = 0; ; i++) {
+            String id = "gate-" + i;
+            if (abc.owner(id).id().equals("b") && ac.owner(id).id().equals("a")) {
+                return id;
+            }
+        }
+    }
+
+    @Test
+    void unreachableOwnerIsDroppedAndTheRequestFallsBackToTheNewOwner() throws IOException {
+        String camera = cameraMovingFromBToA();
+        assertThat(membership.owner(camera).id()).isEqualTo("b");
+
+        assertThat(membership.forward(camera, "GET", "/ptz/" + camera + "/status", List.of(), null, null)).isNull();
+        assertThat(membership.owner(camera).id()).isEqualTo("a");
+        assertThat(membership.stats()).containsEntry("forwardFailures", 1L);
+    }
+
+    @Test
+    void ownerRemovedByHeartbeatBeforeTheRingIsRebuiltIsDroppedOnForward() throws IOException {
+        String camera = cameraMovingFromBToA();
+        // b 从节点列表消失：心跳先删掉 b，等 c 的心跳（2 秒超时）结束后才重建环
+        nodes.removeIf(n -> n.id().equals("b"));
+        membership.heartbeat();
+        assertThat(membership.owner(camera).id()).isEqualTo("b");
+
+        long t0 = System.nanoTime();
+        assertThat(membership.forward(camera, "GET", "/ptz/" + camera + "/status", List.of(), null, null)).isNull();
+        assertThat((System.nanoTime() - t0) / 1_000_000).isLessThan(1_000);
+        assertThat(membership.owner(camera).id()).isEqualTo("a");
+        assertThat(membership.stats()).containsEntry("forwardFailures", 1L);
+    }
+}
@@ -0,0 +1,263 @@
+package com.jyl.isapi.ptz;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CommandSchedulerTest {
+    private final IsapiMetrics metrics = new IsapiMetrics(new SimpleMeterRegistry());
+
+    /**
+     * 在虚拟线程上下发，返回命令结果
+     */
+    private static <T> CompletableFuture<T> submit(CommandScheduler s, CommandScheduler.Kind kind,
+                                                   CommandScheduler.Command<T> command) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                f.complete(s.run(1, kind, command));
+            } catch (Throwable e) {
+                f.completeExceptionally(e);
+            }
+        });
+        return f;
+    }
+
+    private static CommandScheduler.Command<String> blockUntil(CountDownLatch started, CountDownLatch release, String result) {
+        return () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        };
+    }
+
+    private static void awaitQueued(CommandScheduler s, int n) throws Exception {
+        Poll.until(2_000, () -> (int) s.stats().get(1).get("queued") == n);
+    }
+
+    @Test
+    void newerMoveSupersedesQueuedMove() throws Exception {
+        CommandScheduler s = new CommandScheduler("cam", 8, 5_000, metrics);
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        CompletableFuture<String> running = submit(s, CommandScheduler.Kind.CONFIG, blockUntil(started, release, "config"));
+        started.await();
+
+        CompletableFuture<String> older = submit(s, CommandScheduler.Kind.MOVE, () -> "older");
+        awaitQueued(s, 1);
+        CompletableFuture<String> newer = submit(s, CommandScheduler.Kind.MOVE, () -> "newer");
+
+        assertThatThrownBy(() -> older.get(2, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(PtzSupersededException.class);
+        release.countDown();
+        assertThat(running.get(2, TimeUnit.SECONDS)).isEqualTo("config");
+        assertThat(newer.get(2, TimeUnit.SECONDS)).isEqualTo("newer");
+
+        Map<String, Object> stats = s.stats().get(1);
+        assertThat(stats.get("superseded")).isEqualTo(1L);
+        assertThat(stats.get("executed")).isEqualTo(2L);
+    }
+
+    @Test
+    void configWritesAreNotSuperseded() throws Exception {
+        CommandScheduler s = new CommandScheduler("cam", 8, 5_000, metrics);
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        submit(s, CommandScheduler.Kind.MOVE, blockUntil(started, release, "move"));
+        started.await();
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> first = submit(s, CommandScheduler.Kind.CONFIG, () -> {
+            order.add("first");
+            return "first";
+        });
+        awaitQueued(s, 1);
+        CompletableFuture<String> second = submit(s, CommandScheduler.Kind.CONFIG, () -> {
+            order.add("second");
+            return "second";
+        });
+        awaitQueued(s, 2);
+        release.countDown();
+
+        assertThat(first.get(2, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(second.get(2, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(order).containsExactly("first", "second");
+    }
+
+    @Test
+    void stopDoesNotWaitForRunningMoveAndIsReplayedAfterIt() throws Exception {
+        CommandScheduler s = new CommandScheduler("cam", 8, 5_000, metrics);
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        CompletableFuture<String> move = submit(s, CommandScheduler.Kind.MOVE, blockUntil(started, release, "move"));
+        started.await();
+        CompletableFuture<String> queuedMove = submit(s, CommandScheduler.Kind.MOVE, () -> "queued");
+        awaitQueued(s, 1);
+
+        List<String> stops = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> stop = submit(s, CommandScheduler.Kind.STOP, () -> {
+            stops.add(Thread.currentThread().getName());
+            return "stop";
+        });
+
+        // 运动命令还没返回，stop 已经下发；排队的运动命令被清掉
+        assertThat(stop.get(2, TimeUnit.SECONDS)).isEqualTo("stop");
+        assertThat(move).isNotDone();
+        assertThatThrownBy(() -> queuedMove.get(2, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(PtzSupersededException.class);
+        assertThat(stops).hasSize(1);
+
+        release.countDown();
+        assertThat(move.get(2, TimeUnit.SECONDS)).isEqualTo("move");
+        Poll.until(2_000, () -> stops.size() == 2);
+        assertThat(stops.get(1)).isEqualTo("restop-cam");
+        Poll.until(2_000, () -> s.stats().get(1).get("restopped").equals(1L));
+        assertThat(s.stats().get(1).get("preempted")).isEqualTo(1L);
+    }
+
+    @Test
+    void stopWhileConfigRunsIsNotReplayed() throws Exception {
+        CommandScheduler s = new CommandScheduler("cam", 8, 5_000, metrics);
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        CompletableFuture<String> config = submit(s, CommandScheduler.Kind.CONFIG, blockUntil(started, release, "config"));
+        started.await();
+
+        List<String> stops = new CopyOnWriteArrayList<>();
+        submit(s, CommandScheduler.Kind.STOP, () -> {
+            stops.add("stop");
+            return "stop";
+        }).get(2, TimeUnit.SECONDS);
+        release.countDown();
+        config.get(2, TimeUnit.SECONDS);
+
+        // 下一条命令能执行，说明收尾已完成；stop 没有补发
+        assertThat(s.run(1, CommandScheduler.Kind.CONFIG, () -> "next")).isEqualTo("next");
+        assertThat(stops).hasSize(1);
+        assertThat(s.stats().get(1).get("restopped")).isEqualTo(0L);
+    }
+
+    @Test
+    void queuedCommandsWaitForReplayedStop() throws Exception {
+        CommandScheduler s = new CommandScheduler("cam", 8, 5_000, metrics);
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        CompletableFuture<String> move = submit(s, CommandScheduler.Kind.MOVE, blockUntil(started, release, "move"));
+        started.await();
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch restopStarted = new CountDownLatch(1), restopRelease = new CountDownLatch(1);
+        CompletableFuture<String> stop = submit(s, CommandScheduler.Kind.STOP, () -> {
+            order.add("stop");
+            if (order.size() > 1) {
+                restopStarted.countDown();
+                try {
+                    restopRelease.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "stop";
+        });
+        stop.get(2, TimeUnit.SECONDS);
+        release.countDown();
+        move.get(2, TimeUnit.SECONDS);
+        restopStarted.await();
+
+        CompletableFuture<String> next = submit(s, CommandScheduler.Kind.CONFIG, () -> {
+            order.add("next");
+            return "next";
+        });
+        awaitQueued(s, 1);
+        assertThat(next).isNotDone();
+        restopRelease.countDown();
+        assertThat(next.get(2, TimeUnit.SECONDS)).isEqualTo("next");
+        assertThat(order).containsExactly("stop", "stop", "next");
+    }
+
+    @Test
+    void fullQueueRejects() throws Exception {
+        CommandScheduler s = new CommandScheduler("cam", 2, 5_000, metrics);
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        submit(s, CommandScheduler.Kind.CONFIG, blockUntil(started, release, "running"));
+        started.await();
+        CompletableFuture<String> a = submit(s, CommandScheduler.Kind.CONFIG, () -> "a");
+        awaitQueued(s, 1);
+        CompletableFuture<String> b = submit(s, CommandScheduler.Kind.CONFIG, () -> "b");
+        awaitQueued(s, 2);
+
+        assertThatThrownBy(() -> s.run(1, CommandScheduler.Kind.CONFIG, () -> "c"))
+                .isInstanceOf(PtzBusyException.class)
+                .hasMessageContaining("queue full");
+        release.countDown();
+        assertThat(a.get(2, TimeUnit.SECONDS)).isEqualTo("a");
+        assertThat(b.get(2, TimeUnit.SECONDS)).isEqualTo("b");
+        assertThat(s.stats().get(1).get("rejected")).isEqualTo(1L);
+    }
+
+    @Test
+    void queueTimeoutRejects() throws Exception {
+        CommandScheduler s = new CommandScheduler("cam", 8, 100, metrics);
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        submit(s, CommandScheduler.Kind.CONFIG, blockUntil(started, release, "running"));
+        started.await();
+        try {
+            assertThatThrownBy(() -> s.run(1, CommandScheduler.Kind.CONFIG, () -> "late"))
+                    .isInstanceOf(PtzBusyException.class)
+                    .hasMessageContaining("queue timeout");
+            assertThat(s.stats().get(1).get("queued")).isEqualTo(0);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void channelsDoNotBlockEachOther() throws Exception {
+        CommandScheduler s = new CommandScheduler("cam", 8, 5_000, metrics);
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        submit(s, CommandScheduler.Kind.MOVE, blockUntil(started, release, "ch1"));
+        started.await();
+        try {
+            assertThat(s.run(2, CommandScheduler.Kind.MOVE, () -> "ch2")).isEqualTo("ch2");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void simulatedCameraEndsStoppedWhenStopOvertakesMove() throws Exception {
+        try (SimFleet f = new SimFleet(1, o -> o.setLatencyMs(300))) {
+            PtzIsapiClient c = f.client(0);
+            c.refreshCapabilities(1);
+            c.readStatus(1);
+
+            CompletableFuture<Void> move = c.absoluteMoveDegreesAsync(1, 180.0, 45.0, null);
+            Thread.sleep(100);
+            CompletableFuture<Void> queued = c.absoluteMoveDegreesAsync(1, 90.0, 10.0, null);
+            Thread.sleep(50);
+            c.stop(1);
+
+            move.get(5, TimeUnit.SECONDS);
+            assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(PtzSupersededException.class);
+            Map<String, Object> stats = c.schedulerStats().get(1);
+            Poll.until(5_000, () -> c.schedulerStats().get(1).get("restopped").equals(1L));
+            assertThat(stats.get("preempted")).isEqualTo(1L);
+
+            // 补发的 stop 到达设备后云台不再转动
+            double[] p1 = f.sim(0).position(1);
+            Thread.sleep(300);
+            assertThat(f.sim(0).position(1)).containsExactly(p1);
+        }
+    }
+}
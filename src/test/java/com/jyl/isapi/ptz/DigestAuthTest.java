@@ -0,0 +1,127 @@
+package com.jyl.isapi.ptz;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DigestAuthTest {
+
+    private static Header[] challenge(String value) {
+        return new Header[]{new BasicHeader("WWW-Authenticate", value)};
+    }
+
+    private static Map<String, String> fields(String authorization) {
+        assertThat(authorization).startsWith("Digest ");
+        return DigestAuth.params(authorization.substring(7));
+    }
+
+    private static String md5(String s) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void noAuthorizationBeforeFirstChallenge() {
+        assertThat(new DigestAuth("admin", "pw").authorization("GET", "/ISAPI/PTZCtrl/channels/1/status")).isNull();
+    }
+
+    @Test
+    void nonceCountIncrementsAndResponseFollowsRfc2617() throws Exception {
+        DigestAuth auth = new DigestAuth("admin", "pw");
+        assertThat(auth.onChallenge(challenge("Digest realm=\"cam\", nonce=\"abc\", qop=\"auth\", opaque=\"xyz\""))).isTrue();
+
+        Map<String, String> first = fields(auth.authorization("PUT", "/ISAPI/PTZCtrl/channels/1/stop"));
+        Map<String, String> second = fields(auth.authorization("GET", "/ISAPI/PTZCtrl/channels/1/status"));
+        assertThat(first).containsEntry("nc", "00000001").containsEntry("qop", "auth").containsEntry("opaque", "xyz");
+        assertThat(second).containsEntry("nc", "00000002");
+        assertThat(second.get("cnonce")).isNotEqualTo(first.get("cnonce"));
+
+        String ha1 = md5("admin:cam:pw");
+        String ha2 = md5("PUT:/ISAPI/PTZCtrl/channels/1/stop");
+        assertThat(first.get("response"))
+                .isEqualTo(md5(ha1 + ":abc:00000001:" + first.get("cnonce") + ":auth:" + ha2));
+        assertThat(auth.stats()).containsEntry("nonceCount", 2).containsEntry("preemptive", 2L);
+    }
+
+    @Test
+    void staleNonceResetsNonceCount() {
+        DigestAuth auth = new DigestAuth("admin", "pw");
+        auth.onChallenge(challenge("Digest realm=\"cam\", nonce=\"n1\", qop=\"auth\""));
+        auth.authorization("GET", "/a");
+        auth.authorization("GET", "/a");
+
+        assertThat(auth.onChallenge(challenge("Digest realm=\"cam\", nonce=\"n2\", qop=\"auth\", stale=\"TRUE\""))).isTrue();
+        Map<String, String> f = fields(auth.authorization("GET", "/a"));
+        assertThat(f).containsEntry("nonce", "n2").containsEntry("nc", "00000001");
+        assertThat(auth.stats()).containsEntry("staleNonces", 1L).containsEntry("challenged", 2L);
+    }
+
+    @Test
+    void qopListIsParsedByToken() {
+        DigestAuth auth = new DigestAuth("admin", "pw");
+        assertThat(auth.onChallenge(challenge("Digest realm=\"cam\", nonce=\"n\", qop=\"auth-int, auth\""))).isTrue();
+        assertThat(fields(auth.authorization("GET", "/a"))).containsEntry("qop", "auth");
+    }
+
+    @Test
+    void authIntOnlyIsHandedBackToHttpClient() {
+        DigestAuth auth = new DigestAuth("admin", "pw");
+        assertThat(auth.onChallenge(challenge("Digest realm=\"cam\", nonce=\"n\", qop=\"auth-int\""))).isFalse();
+        assertThat(auth.isUnsupported()).isTrue();
+        assertThat(auth.authorization("GET", "/a")).isNull();
+    }
+
+    @Test
+    void sessAlgorithmIsHandedBackToHttpClient() {
+        DigestAuth auth = new DigestAuth("admin", "pw");
+        assertThat(auth.onChallenge(challenge("Digest realm=\"cam\", nonce=\"n\", qop=\"auth\", algorithm=MD5-sess"))).isFalse();
+        assertThat(auth.isUnsupported()).isTrue();
+    }
+
+    @Test
+    void withoutQopFallsBackToRfc2069() throws Exception {
+        DigestAuth auth = new DigestAuth("admin", "pw");
+        auth.onChallenge(challenge("Digest realm=\"cam\", nonce=\"n\""));
+        Map<String, String> f = fields(auth.authorization("GET", "/a"));
+        assertThat(f).doesNotContainKeys("qop", "nc", "cnonce");
+        assertThat(f.get("response")).isEqualTo(md5(md5("admin:cam:pw") + ":n:" + md5("GET:/a")));
+    }
+
+    @Test
+    void basicChallengeIsCachedToo() {
+        DigestAuth auth = new DigestAuth("admin", "pw");
+        assertThat(auth.onChallenge(challenge("Basic realm=\"cam\""))).isTrue();
+        assertThat(auth.authorization("GET", "/a")).isEqualTo("Basic YWRtaW46cHc=");
+    }
+
+    @Test
+    void simulatedCameraAcceptsPreemptiveDigestUntilNonceGoesStale() throws Exception {
+        try (SimFleet f = new SimFleet(1, o -> o.setNonceTtlMs(1_000))) {
+            PtzIsapiClient c = f.client(0);
+            DigestAuth auth = c.getAuth();
+
+            c.readStatus(1);
+            assertThat(f.sim(0).stats()).containsEntry("challenges", 1L);
+            for (int i = 0; i < 5; i++) {
+                c.readStatus(1);
+            }
+            // 之后的请求都直接带上 Authorization，设备没有再质询，nc 逐次递增
+            assertThat(f.sim(0).stats()).containsEntry("challenges", 1L);
+            assertThat(auth.stats()).containsEntry("challenged", 1L).containsEntry("nonceCount", 6);
+
+            Thread.sleep(1_200);
+            c.readStatus(1);
+            assertThat(f.sim(0).stats()).containsEntry("challenges", 2L);
+            assertThat(auth.stats())
+                    .containsEntry("staleNonces", 1L)
+                    .containsEntry("challenged", 2L)
+                    .containsEntry("nonceCount", 1);
+        }
+    }
+}
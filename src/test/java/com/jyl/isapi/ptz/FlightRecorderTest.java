@@ -0,0 +1,128 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FlightRecorderTest {
+    private static final byte[] CAMERA = "gate-1".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    private static void record(FlightRecorder r, int n, PtzOperation op, int status) {
+        for (int i = 0; i < n; i++) {
+            r.record(CAMERA, 1, op, null, status, CallOutcome.RESPONSE, 1_000_000, 5_000_000);
+        }
+    }
+
+    private static List<Long> seqs(List<FlightRecord> records) {
+        return records.stream().map(FlightRecord::seq).toList();
+    }
+
+    @Test
+    void oldestRecordsAreOverwrittenWhenFull() throws IOException {
+        try (FlightRecorder r = FlightRecorder.open(dir.resolve("flight.rec"), 4)) {
+            record(r, 10, PtzOperation.STATUS, 200);
+            assertThat(r.getWritten()).isEqualTo(10);
+            assertThat(seqs(r.read(x -> true, 100))).containsExactly(9L, 8L, 7L, 6L);
+
+            FlightRecord last = r.read(x -> true, 1).get(0);
+            assertThat(last.camera()).isEqualTo("gate-1");
+            assertThat(last.channel()).isEqualTo(1);
+            assertThat(last.operation()).isEqualTo(PtzOperation.STATUS);
+            assertThat(last.leaseMs()).isEqualTo(1.0);
+            assertThat(last.deviceMs()).isEqualTo(4.0);
+        }
+    }
+
+    @Test
+    void reopenContinuesTheSequence() throws IOException {
+        Path file = dir.resolve("flight.rec");
+        try (FlightRecorder r = FlightRecorder.open(file, 8)) {
+            record(r, 5, PtzOperation.ABSOLUTE, 200);
+        }
+        try (FlightRecorder r = FlightRecorder.open(file, 8)) {
+            assertThat(r.getWritten()).isEqualTo(5);
+            record(r, 5, PtzOperation.STOP, 500);
+            assertThat(seqs(r.read(x -> true, 100))).containsExactly(9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L);
+            assertThat(r.read(FlightRecorder.filter(null, null, null, true, 0), 100))
+                    .hasSize(5)
+                    .allMatch(x -> x.operation() == PtzOperation.STOP && x.status() == 500);
+        }
+        try (FlightRecorder r = FlightRecorder.openReadOnly(file)) {
+            assertThat(r.getCapacity()).isEqualTo(8);
+            assertThat(r.read(FlightRecorder.filter("gate-1", 1, PtzOperation.ABSOLUTE, false, 0), 100))
+                    .extracting(FlightRecord::seq).containsExactly(4L, 3L, 2L);
+        }
+    }
+
+    @Test
+    void capacityChangeStartsAFreshFile() throws IOException {
+        Path file = dir.resolve("flight.rec");
+        try (FlightRecorder r = FlightRecorder.open(file, 8)) {
+            record(r, 5, PtzOperation.STATUS, 200);
+        }
+        try (FlightRecorder r = FlightRecorder.open(file, 16)) {
+            assertThat(r.getWritten()).isZero();
+            assertThat(r.read(x -> true, 100)).isEmpty();
+        }
+    }
+
+    @Test
+    void secondWriterOnTheSameFileIsRefused() throws IOException {
+        Path file = dir.resolve("flight.rec");
+        try (FlightRecorder r = FlightRecorder.open(file, 8)) {
+            assertThatThrownBy(() -> FlightRecorder.open(file, 8))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("in use by another process");
+        }
+        FlightRecorder.open(file, 8).close();
+    }
+
+    @Test
+    void readOnlyOpenRejectsOtherFiles() throws IOException {
+        Path file = Files.writeString(dir.resolve("other.rec"), "not a flight recorder");
+        assertThatThrownBy(() -> FlightRecorder.openReadOnly(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("not a flight recorder file");
+    }
+
+    @Test
+    void disabledRecorderRecordsNothing() {
+        FlightRecorder r = FlightRecorder.disabled();
+        assertThat(r.isEnabled()).isFalse();
+        assertThat(r.record(CAMERA, 1, PtzOperation.STOP, null, 200, CallOutcome.RESPONSE, 0, 0)).isEqualTo(-1);
+        assertThat(r.read(x -> true, 10)).isEmpty();
+    }
+
+    @Test
+    void simulatedCameraCallsAreRecorded() throws Exception {
+        FleetProperties fleet = new FleetProperties();
+        fleet.setFlightRecorderFile(dir.resolve("fleet.rec").toString());
+        fleet.setFlightRecorderCapacity(16);
+        try (SimFleet f = new SimFleet(1, o -> { }, fleet, List.of())) {
+            PtzIsapiClient c = f.client(0);
+            for (int i = 0; i < 20; i++) {
+                c.readStatus(1);
+            }
+            c.stop(1);
+
+            FlightRecorder r = f.registry.flightRecorder();
+            List<FlightRecord> records = r.read(x -> true, 100);
+            assertThat(records).hasSize(16).allMatch(x -> x.camera().equals("sim-0") && x.ok());
+            assertThat(records.get(0).operation()).isEqualTo(PtzOperation.STOP);
+            assertThat(records.get(0).dialect()).isEqualTo(PtzDialect.STOP_PUT);
+            assertThat(r.getWritten()).isEqualTo(21);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.jyl.isapi.ptz;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * 默认模型：1x（变倍 10）水平 60°，16:9；俯仰向下为正
+ */
+class FovAimerTest {
+    private static final PtzCapabilities CAPS = new PtzCapabilities(
+            new PtzCapabilities.Range(0, 3599), new PtzCapabilities.Range(-300, 900), new PtzCapabilities.Range(10, 320),
+            new PtzCapabilities.Range(-100, 100), new PtzCapabilities.Range(-100, 100), new PtzCapabilities.Range(-100, 100),
+            null, true);
+    private static final FovModel MODEL = FovModel.DEFAULT;
+    private static final double TAN_H = Math.tan(Math.toRadians(30));
+    private static final double TAN_V = TAN_H / (16.0 / 9.0);
+
+    private static PtzStatus aim(PtzStatus from, double x, double y, double scale) {
+        return FovAimer.target(MODEL, CAPS, from, x, y, scale).target();
+    }
+
+    @Test
+    void centreClickDoesNotMove() {
+        PtzStatus from = new PtzStatus(123.4, 56.7, 20);
+        AimResult r = FovAimer.target(MODEL, CAPS, from, 0.5, 0.5, 1.0);
+        assertThat(r.from()).isEqualTo(from);
+        assertThat(r.target()).isEqualTo(from);
+        assertThat(r.hfov()).isCloseTo(MODEL.hfov(20), within(1e-9));
+    }
+
+    @Test
+    void edgeClicksAtTheHorizonTurnByHalfTheFieldOfView() {
+        PtzStatus from = new PtzStatus(100, 0, 10);
+        assertThat(aim(from, 1, 0.5, 1).azimuth()).isEqualTo(130.0);
+        assertThat(aim(from, 0, 0.5, 1).azimuth()).isEqualTo(70.0);
+        // 画面下边缘：向下为正
+        PtzStatus down = aim(from, 0.5, 1, 1);
+        assertThat(down.azimuth()).isEqualTo(100.0);
+        assertThat(down.elevation()).isCloseTo(Math.toDegrees(Math.atan(TAN_V)), within(0.05));
+        assertThat(aim(from, 0.5, 0, 1).elevation()).isCloseTo(-Math.toDegrees(Math.atan(TAN_V)), within(0.05));
+    }
+
+    @Test
+    void azimuthWrapsThroughNorth() {
+        assertThat(aim(new PtzStatus(10, 0, 10), 0, 0.5, 1).azimuth()).isEqualTo(340.0);
+        assertThat(aim(new PtzStatus(350, 0, 10), 1, 0.5, 1).azimuth()).isEqualTo(20.0);
+    }
+
+    @Test
+    void edgeClickAtSteepElevationTurnsFurtherAndRaisesTheView() {
+        // 俯视 60° 时画面右边缘的点：水平偏转大于半视场，俯仰变小
+        PtzStatus t = aim(new PtzStatus(0, 60, 10), 1, 0.5, 1);
+        double fwd = Math.cos(Math.toRadians(60));
+        assertThat(t.azimuth()).isCloseTo(Math.toDegrees(Math.atan2(TAN_H, fwd)), within(0.05)).isGreaterThan(30);
+        assertThat(t.elevation()).isCloseTo(Math.toDegrees(Math.atan2(Math.sin(Math.toRadians(60)), Math.hypot(fwd, TAN_H))),
+                within(0.05)).isLessThan(60);
+    }
+
+    @Test
+    void clickAboveTheCentreAtSteepElevationLooksUp() {
+        PtzStatus t = aim(new PtzStatus(200, 60, 10), 0.5, 0, 1);
+        assertThat(t.azimuth()).isEqualTo(200.0);
+        assertThat(t.elevation()).isCloseTo(60 - Math.toDegrees(Math.atan(TAN_V)), within(0.05));
+    }
+
+    @Test
+    void boxZoomFillsTheFrameWithTheBox() {
+        // 框宽为画面一半：视场减半
+        PtzStatus from = new PtzStatus(0, 0, 10);
+        AimResult r = FovAimer.target(MODEL, CAPS, from, 0.5, 0.5, 0.5);
+        assertThat(r.target().zoom()).isEqualTo(20);
+        assertThat(Math.tan(Math.toRadians(r.hfov()) / 2)).isCloseTo(TAN_H / 2, within(1e-9));
+
+        // 从变倍 20 再框四分之一 → 80，往回 4 倍缩小视场回到 20
+        PtzStatus in = FovAimer.target(MODEL, CAPS, r.target(), 0.5, 0.5, 0.25).target();
+        assertThat(in.zoom()).isEqualTo(80);
+        assertThat(FovAimer.target(MODEL, CAPS, in, 0.5, 0.5, 4).target().zoom()).isEqualTo(20);
+    }
+
+    @Test
+    void targetIsClampedToTheCapabilities() {
+        assertThat(aim(new PtzStatus(0, -20, 10), 0.5, 0, 1).elevation()).isEqualTo(-30.0);
+        assertThat(FovAimer.target(MODEL, CAPS, new PtzStatus(0, 0, 300), 0.5, 0.5, 0.5).target().zoom()).isEqualTo(320);
+        assertThat(FovAimer.target(MODEL, CAPS, new PtzStatus(0, 0, 10), 0.5, 0.5, 2).target().zoom()).isEqualTo(10);
+    }
+}
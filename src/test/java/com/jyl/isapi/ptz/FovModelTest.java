@@ -0,0 +1,67 @@
+package com.jyl.isapi.ptz;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class FovModelTest {
+    private static final FovModel TABLE = FovModel.of(16.0 / 9.0, Map.of(10, 60.0, 20, 35.0, 40, 18.0));
+
+    private static double half(double hfovDeg) {
+        return Math.tan(Math.toRadians(hfovDeg) / 2);
+    }
+
+    @Test
+    void tableEntriesAreExact() {
+        assertThat(TABLE.hfov(10)).isCloseTo(60.0, within(1e-9));
+        assertThat(TABLE.hfov(20)).isCloseTo(35.0, within(1e-9));
+        assertThat(TABLE.hfov(40)).isCloseTo(18.0, within(1e-9));
+        assertThat(TABLE.aspect()).isEqualTo(16.0 / 9.0);
+    }
+
+    @Test
+    void singleEntryIsAnIdealZoomLens() {
+        // 焦距与变倍成正比：2 倍变倍画面半宽减半
+        assertThat(FovModel.DEFAULT.halfWidth(20)).isCloseTo(half(60) / 2, within(1e-12));
+        assertThat(FovModel.DEFAULT.halfWidth(5)).isCloseTo(half(60) * 2, within(1e-12));
+        assertThat(FovModel.DEFAULT.zoomFor(half(60) / 4)).isCloseTo(40, within(1e-9));
+    }
+
+    @Test
+    void betweenEntriesFocalLengthIsLinearInZoom() {
+        double f10 = 1 / half(60), f20 = 1 / half(35);
+        assertThat(1 / TABLE.halfWidth(15)).isCloseTo((f10 + f20) / 2, within(1e-12));
+        double h = TABLE.hfov(15);
+        assertThat(h).isLessThan(60).isGreaterThan(35);
+    }
+
+    @Test
+    void beyondTheTableFocalLengthScalesWithZoom() {
+        assertThat(TABLE.halfWidth(80)).isCloseTo(half(18) / 2, within(1e-12));
+        assertThat(TABLE.halfWidth(5)).isCloseTo(half(60) * 2, within(1e-12));
+        assertThat(TABLE.zoomFor(half(18) / 4)).isCloseTo(160, within(1e-9));
+        assertThat(TABLE.zoomFor(half(60) * 2)).isCloseTo(5, within(1e-9));
+    }
+
+    @Test
+    void zoomForInvertsHalfWidth() {
+        for (double z = 2; z <= 200; z += 0.5) {
+            assertThat(TABLE.zoomFor(TABLE.halfWidth(z))).as("zoom " + z).isCloseTo(z, within(1e-9));
+        }
+    }
+
+    @Test
+    void badTablesAreRejected() {
+        assertThatThrownBy(() -> FovModel.of(16.0 / 9.0, Map.of())).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FovModel.of(0, Map.of(10, 60.0))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FovModel.of(1, Map.of(10, 180.0))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FovModel.of(1, Map.of(0, 60.0))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FovModel.of(1, Map.of(10, 30.0, 20, 40.0)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("decrease");
+    }
+}
@@ -0,0 +1,76 @@
+package com.jyl.isapi.ptz;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashRingTest {
+    private static final ClusterNode A = new ClusterNode("a", "http://127.0.0.1:7005");
+    private static final ClusterNode B = new ClusterNode("b", "http://127.0.0.1:7006");
+    private static final ClusterNode C = new ClusterNode("c", "http://127.0.0.1:7007");
+    private static final ClusterNode D = new ClusterNode("d", "http://127.0.0.1:7008");
+    private static final int KEYS = 5_000;
+
+    private static Map<String, String> owners(HashRing ring) {
+        Map<String, String> m = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            m.put("gate-" + i, ring.owner("gate-" + i).id());
+        }
+        return m;
+    }
+
+    @Test
+    void emptyRingHasNoOwner() {
+        HashRing ring = new HashRing(List.of(), 128);
+        assertThat(ring.isEmpty()).isTrue();
+        assertThat(ring.owner("gate-1")).isNull();
+    }
+
+    @Test
+    void ownerDoesNotDependOnNodeOrder() {
+        // 各实例列出节点的顺序不同，也必须算出同一个环
+        assertThat(owners(new HashRing(List.of(A, B, C), 128)))
+                .isEqualTo(owners(new HashRing(List.of(C, A, B), 128)));
+    }
+
+    @Test
+    void keysSpreadAcrossNodes() {
+        Map<String, Long> counts = new HashMap<>();
+        owners(new HashRing(List.of(A, B, C), 128)).values().forEach(id -> counts.merge(id, 1L, Long::sum));
+        assertThat(counts).containsOnlyKeys("a", "b", "c");
+        counts.values().forEach(n -> assertThat(n).isBetween(KEYS / 5L, KEYS / 2L));
+    }
+
+    @Test
+    void joiningNodeOnlyTakesKeys() {
+        Map<String, String> before = owners(new HashRing(List.of(A, B, C), 128));
+        Map<String, String> after = owners(new HashRing(List.of(A, B, C, D), 128));
+        int moved = 0;
+        for (Map.Entry<String, String> e : before.entrySet()) {
+            String now = after.get(e.getKey());
+            if (!now.equals(e.getValue())) {
+                // 只会搬到新节点，原有节点之间不互换
+                assertThat(now).isEqualTo("d");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(KEYS / 8, KEYS * 3 / 8);
+    }
+
+    @Test
+    void leavingNodeOnlyReleasesItsOwnKeys() {
+        Map<String, String> before = owners(new HashRing(List.of(A, B, C), 128));
+        Map<String, String> after = owners(new HashRing(List.of(A, C), 128));
+        before.forEach((key, owner) -> {
+            if (!owner.equals("b")) {
+                assertThat(after.get(key)).as(key).isEqualTo(owner);
+            } else {
+                assertThat(after.get(key)).as(key).isIn("a", "c");
+            }
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package com.jyl.isapi.ptz;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HashedWheelTimerTest {
+
+    @Test
+    void delaysLongerThanOneTurnWaitForTheirRound() throws Exception {
+        // 一圈 = 10 ms * 4 = 40 ms；150 ms 的任务落在第 3 格，但要转满 3 圈才执行
+        try (HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 10, 4)) {
+            CountDownLatch fired = new CountDownLatch(1);
+            long start = System.nanoTime();
+            long[] elapsedMs = new long[1];
+            timer.schedule(() -> {
+                elapsedMs[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                fired.countDown();
+            }, 150, TimeUnit.MILLISECONDS);
+
+            assertThat(fired.await(2, TimeUnit.SECONDS)).isTrue();
+            assertThat(elapsedMs[0]).isBetween(150L, 400L);
+            assertThat(timer.pending()).isZero();
+        }
+    }
+
+    @Test
+    void tasksInTheSameSlotRunInDeadlineOrder() throws Exception {
+        try (HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 10, 4)) {
+            List<Integer> order = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(4);
+            // 20、60、100、140 ms 都落在同一格，圈数不同
+            for (int delay : new int[]{140, 20, 100, 60}) {
+                timer.schedule(() -> {
+                    order.add(delay);
+                    done.countDown();
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+            assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+            assertThat(order).containsExactly(20, 60, 100, 140);
+        }
+    }
+
+    @Test
+    void cancelledTaskNeverRuns() throws Exception {
+        try (HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 10, 8)) {
+            AtomicInteger runs = new AtomicInteger();
+            HashedWheelTimer.Timeout cancelled = timer.schedule(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+            CountDownLatch later = new CountDownLatch(1);
+            timer.schedule(later::countDown, 120, TimeUnit.MILLISECONDS);
+            assertThat(timer.pending()).isEqualTo(2);
+
+            assertThat(cancelled.cancel()).isTrue();
+            assertThat(cancelled.cancel()).isFalse();
+            assertThat(timer.pending()).isEqualTo(1);
+
+            assertThat(later.await(2, TimeUnit.SECONDS)).isTrue();
+            assertThat(runs).hasValue(0);
+            assertThat(timer.pending()).isZero();
+        }
+    }
+
+    @Test
+    void cancelAfterRunReturnsFalse() throws Exception {
+        try (HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 5, 8)) {
+            CountDownLatch fired = new CountDownLatch(1);
+            HashedWheelTimer.Timeout t = timer.schedule(fired::countDown, 0, TimeUnit.MILLISECONDS);
+            assertThat(fired.await(2, TimeUnit.SECONDS)).isTrue();
+            Poll.until(1_000, () -> timer.pending() == 0);
+            assertThat(t.cancel()).isFalse();
+        }
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheWheel() throws Exception {
+        try (HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 5, 8)) {
+            timer.schedule(() -> {
+                throw new IllegalStateException("boom");
+            }, 10, TimeUnit.MILLISECONDS);
+            CountDownLatch after = new CountDownLatch(1);
+            timer.schedule(after::countDown, 30, TimeUnit.MILLISECONDS);
+            assertThat(after.await(2, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void scheduleAfterCloseFails() {
+        HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 10, 8);
+        timer.close();
+        assertThatThrownBy(() -> timer.schedule(() -> { }, 10, TimeUnit.MILLISECONDS))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
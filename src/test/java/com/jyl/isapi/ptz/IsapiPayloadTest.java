@@ -0,0 +1,191 @@
+package com.jyl.isapi.ptz;
+
+import org.apache.hc.core5.http.HttpEntity;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 字节模板必须与原先 PtzIsapiClient 里字符串拼装的请求体逐字节相同（拼装代码原样保留在下面）
+ */
+class IsapiPayloadTest {
+
+    private static void assertSame(IsapiPayload p, String legacy) throws IOException {
+        try (p) {
+            byte[] expected = legacy.getBytes(StandardCharsets.UTF_8);
+            assertThat(new String(p.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(legacy);
+            assertThat(p.toByteArray()).isEqualTo(expected);
+            HttpEntity e = p.entity();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            e.writeTo(out);
+            assertThat(out.toByteArray()).isEqualTo(expected);
+            assertThat(e.getContentLength()).isEqualTo(expected.length);
+            assertThat(e.getContentType()).isEqualTo("application/xml; charset=UTF-8");
+        }
+    }
+
+    @Test
+    void constantsMatchLegacy() {
+        assertThat(IsapiPayload.STOP)
+                .isEqualTo("<PTZStop><pan>true</pan><tilt>true</tilt><zoom>true</zoom></PTZStop>".getBytes(StandardCharsets.UTF_8));
+        assertThat(IsapiPayload.STOP_CONTINUOUS_ZERO)
+                .isEqualTo("<PTZData><pan>0</pan><tilt>0</tilt><zoom>0</zoom><timeout>1</timeout></PTZData>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void parkActionMatchesLegacy() throws IOException {
+        for (boolean enabled : new boolean[]{true, false}) {
+            for (String type : new String[]{"preset", "patrol"}) {
+                assertSame(IsapiPayload.parkAction(enabled, 300, type, 1), legacyParkActionXml(enabled, 300, type, 1));
+                assertSame(IsapiPayload.parkAction(enabled, 0, type, 256), legacyParkActionXml(enabled, 0, type, 256));
+            }
+        }
+    }
+
+    @Test
+    void position3DMatchesLegacy() throws IOException {
+        assertSame(IsapiPayload.position3D(20, 30, 60, 80), legacyPosition3DXml(20, 30, 60, 80));
+        assertSame(IsapiPayload.position3D(0, 255, -1, Integer.MAX_VALUE), legacyPosition3DXml(0, 255, -1, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void presetMatchesLegacy() throws IOException {
+        for (int id : new int[]{1, 7, 10, 99, 256, Integer.MIN_VALUE}) {
+            assertSame(IsapiPayload.preset(id), legacyPresetXml(id));
+        }
+    }
+
+    @Test
+    void continuousMatchesLegacy() throws IOException {
+        assertSame(IsapiPayload.continuous(30, -20, 0, 1000), legacyContinuousXml(30, -20, 0, 1000));
+        assertSame(IsapiPayload.continuous(-100, 100, -100, 500), legacyContinuousXml(-100, 100, -100, 500));
+    }
+
+    @Test
+    void absoluteHighMatchesLegacyForEveryAxisCombination() throws IOException {
+        Integer[] az = {null, 0, 1234, 3599};
+        Integer[] el = {null, 0, -50, 900};
+        Integer[] z = {null, 10, 250};
+        for (Integer a : az) {
+            for (Integer e : el) {
+                for (Integer zoom : z) {
+                    assertSame(IsapiPayload.absoluteHigh(a, e, zoom), legacyAbsoluteHighXml(a, e, zoom));
+                }
+            }
+        }
+    }
+
+    @Test
+    void absoluteExMatchesLegacyForEveryAxisCombination() throws IOException {
+        Double[] az = {null, 0.0, 123.4, 359.95};
+        Double[] el = {null, -5.25, -0.04, -0.0, 0.05, 90.0};
+        Integer[] z = {null, 10, 250};
+        for (Double a : az) {
+            for (Double e : el) {
+                for (Integer zoom : z) {
+                    assertSame(IsapiPayload.absoluteEx(a, e, zoom), legacyAbsoluteExXml(a, e, zoom));
+                }
+            }
+        }
+    }
+
+    @Test
+    void absoluteExRoundsLikeStringFormat() throws IOException {
+        Random rnd = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            // 整百分位附近最容易差一位：x.x5 及其前后
+            double v = switch (i % 3) {
+                case 0 -> (rnd.nextInt(72_000) - 36_000) / 100.0;
+                case 1 -> (rnd.nextInt(72_000) - 36_000) / 100.0 + 0.005;
+                default -> rnd.nextDouble(-360, 360);
+            };
+            assertSame(IsapiPayload.absoluteEx(v, null, null), legacyAbsoluteExXml(v, null, null));
+        }
+    }
+
+    @Test
+    void pooledBuffersDoNotLeakPreviousContent() throws IOException {
+        try (IsapiPayload big = IsapiPayload.absoluteHigh(1234, 567, 89)) {
+            assertThat(big.toByteArray()).isNotEmpty();
+        }
+        assertSame(IsapiPayload.preset(7), legacyPresetXml(7));
+    }
+
+    @Test
+    void nonFiniteAnglesAreRejected() {
+        assertThatThrownBy(() -> IsapiPayload.absoluteEx(Double.NaN, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IsapiPayload.absoluteEx(null, Double.POSITIVE_INFINITY, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // ---------------- 原 PtzIsapiClient 中的拼装 ----------------
+
+    static String legacyParkActionXml(boolean enabled, int parkTime, String actionType, int actionNum) {
+        return """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <ParkAction version="2.0" xmlns="http://www.hikvision.com/ver20/XMLSchema">
+          <enabled>%s</enabled>
+          <Parktime>%d</Parktime>
+          <Action><ActionType>%s</ActionType><ActionNum>%d</ActionNum></Action>
+        </ParkAction>
+        """.formatted(enabled ? "true" : "false", parkTime, actionType, actionNum);
+    }
+
+    static String legacyPosition3DXml(int x1, int y1, int x2, int y2) {
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <Position3D version="1.0" xmlns="http://www.hikvision.com/ver10/XMLSchema">
+                  <StartPoint><positionX>%d</positionX><positionY>%d</positionY></StartPoint>
+                  <EndPoint><positionX>%d</positionX><positionY>%d</positionY></EndPoint>
+                </Position3D>
+                """.formatted(x1, y1, x2, y2);
+    }
+
+    static String legacyPresetXml(int presetId) {
+        return "<PTZPreset><id>" + presetId + "</id></PTZPreset>";
+    }
+
+    static String legacyContinuousXml(int pan, int tilt, int zoom, int durationMs) {
+        return "<PTZData>"
+                + "<pan>" + pan + "</pan>"
+                + "<tilt>" + tilt + "</tilt>"
+                + "<zoom>" + zoom + "</zoom>"
+                + "<timeout>" + durationMs + "</timeout>"
+                + "</PTZData>";
+    }
+
+    static String legacyAbsoluteHighXml(Integer az10, Integer el10, Integer z) {
+        StringBuilder sb = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                        "<PTZData version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">\n" +
+                        "  <AbsoluteHigh>\n"
+        );
+        if (el10 != null) sb.append("    <elevation>").append(el10).append("</elevation>\n");
+        if (az10 != null) sb.append("    <azimuth>").append(az10).append("</azimuth>\n");
+        if (z != null) sb.append("    <absoluteZoom>").append(z).append("</absoluteZoom>\n");
+        sb.append("  </AbsoluteHigh>\n</PTZData>");
+        return sb.toString();
+    }
+
+    static String legacyAbsoluteExXml(Double azimuthDeg, Double elevationDeg, Integer z) {
+        StringBuilder sb = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                        "<PTZAbsoluteEx version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">\n"
+        );
+        if (elevationDeg != null)
+            sb.append("  <elevation>").append(String.format(Locale.US, "%.1f", elevationDeg)).append("</elevation>\n");
+        if (azimuthDeg != null)
+            sb.append("  <azimuth>").append(String.format(Locale.US, "%.1f", azimuthDeg)).append("</azimuth>\n");
+        if (z != null) sb.append("  <absoluteZoom>").append(z).append("</absoluteZoom>\n");
+        sb.append("</PTZAbsoluteEx>");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,208 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import com.jyl.isapi.config.PtzProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * 固定转速：水平 100°/s、垂直 50°/s、变倍 10/s，误差 10%；时间全部由测试给定
+ */
+class MotionEstimatorTest {
+    private static final String CAM = "gate-1";
+    private static final long T0 = 1_000_000_000L;
+
+    private MotionEstimator estimator;
+
+    @BeforeEach
+    void setUp() {
+        FleetProperties.SlewRates rates = new FleetProperties.SlewRates();
+        rates.setPan(100);
+        rates.setTilt(50);
+        rates.setZoom(10);
+        rates.setError(0.1);
+        FleetProperties fleet = new FleetProperties();
+        fleet.getSlewModels().put("default", rates);
+        estimator = new MotionEstimator(new StatusCache(fleet), fleet, new PtzProperties());
+    }
+
+    private static long ms(long ms) {
+        return T0 + TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+
+    private void read(long at, double az, double el, int zoom) {
+        estimator.onStatus(CAM, 1, new PtzStatus(az, el, zoom), at);
+    }
+
+    private void command(long at, MotionCommand c) {
+        estimator.onMotion(CAM, 1, c, at);
+    }
+
+    private PtzEstimate at(long now) {
+        return estimator.estimateAt(CAM, 1, now);
+    }
+
+    @Test
+    void readPositionIsExactWhileIdle() {
+        read(ms(0), 12.3, 4.5, 20);
+        PtzEstimate e = at(ms(5_000));
+        assertThat(e.azimuth()).isEqualTo(12.3);
+        assertThat(e.elevation()).isEqualTo(4.5);
+        assertThat(e.zoom()).isEqualTo(20);
+        assertThat(e.moving()).isFalse();
+        assertThat(e.device()).isFalse();
+        assertThat(e.confidence()).isEqualTo(1.0);
+        assertThat(e.ageMs()).isEqualTo(5_000);
+    }
+
+    @Test
+    void continuousMoveAdvancesUntilItsTimeout() {
+        read(ms(0), 10, 0, 10);
+        command(ms(0), new MotionCommand.Continuous(50, 0, 0, 1_000));
+
+        PtzEstimate half = at(ms(500));
+        assertThat(half.azimuth()).isEqualTo(35.0);
+        assertThat(half.moving()).isTrue();
+
+        // 到 timeout 设备自停，之后不再前进
+        PtzEstimate done = at(ms(3_000));
+        assertThat(done.azimuth()).isEqualTo(60.0);
+        assertThat(done.moving()).isFalse();
+        // 走了 50°，误差 10% → 5°
+        assertThat(done.confidence()).isCloseTo(1 / 6.0, within(0.001));
+    }
+
+    @Test
+    void continuousMoveWrapsAzimuthAndClampsTiltAndZoom() {
+        read(ms(0), 340, 80, 35);
+        command(ms(0), new MotionCommand.Continuous(50, 100, 100, 1_000));
+        PtzEstimate e = at(ms(1_000));
+        assertThat(e.azimuth()).isEqualTo(30.0);
+        // 兜底能力：俯仰最大 90°，变倍最大 40
+        assertThat(e.elevation()).isEqualTo(90.0);
+        assertThat(e.zoom()).isEqualTo(40);
+    }
+
+    @Test
+    void zeroSpeedContinuousIsAStop() {
+        read(ms(0), 10, 0, 10);
+        command(ms(0), new MotionCommand.Continuous(50, 0, 0, 1_000));
+        command(ms(200), new MotionCommand.Continuous(0, 0, 0, 1_000));
+        PtzEstimate e = at(ms(800));
+        assertThat(e.azimuth()).isEqualTo(20.0);
+        assertThat(e.moving()).isFalse();
+    }
+
+    @Test
+    void absoluteMoveArrivesAfterTheEtaPlusErrorMargin() {
+        read(ms(0), 0, 0, 10);
+        command(ms(0), new MotionCommand.Absolute(50.0, null, null));
+
+        PtzEstimate quarter = at(ms(250));
+        assertThat(quarter.azimuth()).isEqualTo(25.0);
+        assertThat(quarter.moving()).isTrue();
+
+        // 预计 500ms 到达；误差 10%，550ms 前仍认为在动
+        PtzEstimate eta = at(ms(520));
+        assertThat(eta.azimuth()).isEqualTo(50.0);
+        assertThat(eta.moving()).isTrue();
+
+        PtzEstimate arrived = at(ms(560));
+        assertThat(arrived.azimuth()).isEqualTo(50.0);
+        assertThat(arrived.elevation()).isEqualTo(0.0);
+        assertThat(arrived.moving()).isFalse();
+        assertThat(arrived.confidence()).isCloseTo(1 / 1.1, within(0.001));
+    }
+
+    @Test
+    void etaIsSetByTheSlowestAxis() {
+        read(ms(0), 0, 0, 10);
+        // 水平 10° 只要 0.1s，变倍 10→30 要 2s
+        command(ms(0), new MotionCommand.Absolute(10.0, null, 30));
+        PtzEstimate e = at(ms(1_000));
+        assertThat(e.azimuth()).isEqualTo(10.0);
+        assertThat(e.zoom()).isEqualTo(20);
+        assertThat(e.moving()).isTrue();
+        assertThat(at(ms(2_300)).moving()).isFalse();
+    }
+
+    @Test
+    void absoluteMoveTakesTheShortWayAcrossNorth() {
+        read(ms(0), 350, 0, 10);
+        command(ms(0), new MotionCommand.Absolute(10.0, null, null));
+        assertThat(at(ms(100)).azimuth()).isEqualTo(0.0);
+        assertThat(at(ms(150)).azimuth()).isEqualTo(5.0);
+        assertThat(at(ms(300)).azimuth()).isEqualTo(10.0);
+
+        read(ms(1_000), 10, 0, 10);
+        command(ms(1_000), new MotionCommand.Absolute(-10.0, null, null));
+        assertThat(at(ms(1_100)).azimuth()).isEqualTo(0.0);
+        assertThat(at(ms(1_500)).azimuth()).isEqualTo(350.0);
+    }
+
+    @Test
+    void readsSentBeforeTheLatestCommandAreIgnored() {
+        read(ms(0), 0, 0, 10);
+        command(ms(1_000), new MotionCommand.Absolute(90.0, null, null));
+
+        // 命令前发出、命令后才返回的读取：位置仍是旧的，不能当成新锚点
+        read(ms(999), 0, 0, 10);
+        assertThat(at(ms(1_100)).azimuth()).isEqualTo(10.0);
+
+        // 命令后发出的读取重新锚定
+        read(ms(1_200), 15, 0, 10);
+        PtzEstimate e = at(ms(1_300));
+        assertThat(e.azimuth()).isEqualTo(25.0);
+        assertThat(e.ageMs()).isEqualTo(100);
+    }
+
+    @Test
+    void readingTheTargetEndsTheMove() {
+        read(ms(0), 0, 0, 10);
+        command(ms(0), new MotionCommand.Absolute(50.0, 5.0, null));
+        read(ms(300), 50.05, 5.0, 10);
+        PtzEstimate e = at(ms(310));
+        assertThat(e.moving()).isFalse();
+        assertThat(e.confidence()).isEqualTo(1.0);
+    }
+
+    @Test
+    void unknownPresetIsLearnedOnceSettledAndEstimatedNextTime() {
+        read(ms(0), 0, 0, 10);
+        command(ms(0), new MotionCommand.Preset(5));
+        PtzEstimate unknown = at(ms(100));
+        assertThat(unknown.moving()).isTrue();
+        assertThat(unknown.confidence()).isZero();
+
+        read(ms(100), 30, 2, 10);
+        read(ms(400), 45, 3, 10);
+        // 两次读取相同且距命令已超过 300ms：停稳，记下预置位 5 的位置
+        read(ms(500), 45, 3, 10);
+        assertThat(at(ms(600)).moving()).isFalse();
+        assertThat(estimator.stats()).containsEntry("presetsLearned", 1L);
+
+        command(ms(1_000), new MotionCommand.Stop());
+        read(ms(1_100), 0, 3, 10);
+        command(ms(2_000), new MotionCommand.Preset(5));
+        PtzEstimate known = at(ms(2_200));
+        assertThat(known.azimuth()).isEqualTo(20.0);
+        assertThat(known.moving()).isTrue();
+        assertThat(known.confidence()).isGreaterThan(0);
+        assertThat(at(ms(2_600)).azimuth()).isEqualTo(45.0);
+        assertThat(at(ms(2_600)).moving()).isFalse();
+    }
+
+    @Test
+    void position3DTargetIsUnknown() {
+        read(ms(0), 10, 0, 10);
+        command(ms(0), new MotionCommand.Position3D());
+        PtzEstimate e = at(ms(100));
+        assertThat(e.confidence()).isZero();
+        assertThat(e.moving()).isTrue();
+    }
+}
@@ -0,0 +1,152 @@
+package com.jyl.isapi.ptz;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MultipartStreamTest {
+
+    private static MultipartStream stream(String raw) {
+        return new MultipartStream(new ByteArrayInputStream(raw.getBytes(StandardCharsets.ISO_8859_1)), "boundary");
+    }
+
+    /**
+     * 每次 read 最多返回一个字节，分隔符一定跨多次读取
+     */
+    private static MultipartStream trickle(String raw) {
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(raw.getBytes(StandardCharsets.ISO_8859_1))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        return new MultipartStream(in, "boundary");
+    }
+
+    private static String body(MultipartStream.Part p) throws IOException {
+        return new String(p.body().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> bodies(MultipartStream s) throws IOException {
+        List<String> out = new ArrayList<>();
+        MultipartStream.Part p;
+        while ((p = s.next()) != null) {
+            out.add(body(p));
+        }
+        return out;
+    }
+
+    private static String part(String body, boolean contentLength) {
+        return "--boundary\r\nContent-Type: application/xml\r\n"
+                + (contentLength ? "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n" : "")
+                + "\r\n" + body + "\r\n";
+    }
+
+    @Test
+    void boundaryFromContentType() {
+        assertThat(MultipartStream.boundary("multipart/mixed; boundary=boundary")).isEqualTo("boundary");
+        assertThat(MultipartStream.boundary("multipart/mixed;BOUNDARY=\"MIME_boundary\"")).isEqualTo("MIME_boundary");
+        assertThat(MultipartStream.boundary("multipart/mixed")).isNull();
+        assertThat(MultipartStream.boundary(null)).isNull();
+    }
+
+    @Test
+    void partsWithContentLengthAreCutByLength() throws IOException {
+        // 正文里出现分隔行也不影响按长度截断
+        String tricky = "<a>\r\n--boundary</a>";
+        MultipartStream s = stream(part("<x>1</x>", true) + part(tricky, true) + "--boundary--\r\n");
+        MultipartStream.Part p = s.next();
+        assertThat(p.headers()).containsEntry("content-length", "8");
+        assertThat(p.contentType()).isEqualTo("application/xml");
+        assertThat(body(p)).isEqualTo("<x>1</x>");
+        assertThat(body(s.next())).isEqualTo(tricky);
+        assertThat(s.next()).isNull();
+    }
+
+    @Test
+    void partsWithoutContentLengthEndAtTheDelimiter() throws IOException {
+        String almost = "<a>\r\n--bound</a>\r\n-x";
+        String raw = part("<x>1</x>", false) + part(almost, false) + part("<x>3</x>", false) + "--boundary--\r\n";
+        assertThat(bodies(stream(raw))).containsExactly("<x>1</x>", almost, "<x>3</x>");
+        assertThat(bodies(trickle(raw))).containsExactly("<x>1</x>", almost, "<x>3</x>");
+    }
+
+    @Test
+    void mixedPartsAndUnreadBodiesAreSkipped() throws IOException {
+        String raw = part("<x>1</x>", true) + part("<x>2</x>", false) + part("<x>3</x>", true) + part("<x>4</x>", false)
+                + "--boundary--\r\n";
+        MultipartStream s = stream(raw);
+        s.next(); // 不读正文
+        s.next().body().read(); // 只读一个字节
+        assertThat(body(s.next())).isEqualTo("<x>3</x>");
+        assertThat(body(s.next())).isEqualTo("<x>4</x>");
+        assertThat(s.next()).isNull();
+    }
+
+    @Test
+    void delimiterWithoutLeadingDashesIsAccepted() throws IOException {
+        String raw = "boundary\r\nContent-Type: application/xml\r\nContent-Length: 8\r\n\r\n<x>1</x>\r\n"
+                + "boundary\r\nContent-Type: application/xml\r\n\r\n<x>2</x>\r\n--boundary\r\n";
+        MultipartStream s = stream(raw);
+        assertThat(body(s.next())).isEqualTo("<x>1</x>");
+        assertThat(body(s.next())).isEqualTo("<x>2</x>");
+    }
+
+    @Test
+    void preambleIsIgnoredAndTruncatedStreamEnds() throws IOException {
+        String raw = "junk before the first part\r\n" + part("<x>1</x>", true) + "--boundary\r\nContent-Type: app";
+        assertThat(bodies(stream(raw))).containsExactly("<x>1</x>");
+    }
+
+    @Test
+    void overlongHeaderLineFails() {
+        String raw = "--boundary\r\nX-Long: " + "a".repeat(9_000) + "\r\n\r\n";
+        assertThatThrownBy(() -> stream(raw).next()).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void simulatedAlertStreamWithAndWithoutContentLength() throws Exception {
+        try (SimFleet f = new SimFleet(1, o -> {
+            o.setDigest(false);
+            o.setAlertIntervalMs(20);
+        })) {
+            HttpURLConnection c = (HttpURLConnection) URI.create("http://127.0.0.1:" + f.sim(0).port()
+                    + "/ISAPI/Event/notification/alertStream").toURL().openConnection();
+            try {
+                String boundary = MultipartStream.boundary(c.getContentType());
+                assertThat(boundary).isEqualTo("boundary");
+                MultipartStream s = new MultipartStream(c.getInputStream(), boundary);
+                int withLength = 0, withoutLength = 0;
+                for (int i = 1; i <= 6; i++) {
+                    MultipartStream.Part p = s.next();
+                    if (p.headers().containsKey("content-length")) {
+                        withLength++;
+                    } else {
+                        withoutLength++;
+                    }
+                    AlertEvent e;
+                    try (InputStream body = p.body()) {
+                        e = IsapiXml.parse(body, r -> IsapiXml.alert(r, "sim-0"));
+                    }
+                    assertThat(e.activePostCount()).isEqualTo(i);
+                    assertThat(e.eventType()).isEqualTo(i % 3 == 0 ? "VMD" : "videoloss");
+                }
+                assertThat(withLength).isEqualTo(4);
+                assertThat(withoutLength).isEqualTo(2);
+            } finally {
+                c.disconnect();
+            }
+        }
+    }
+}
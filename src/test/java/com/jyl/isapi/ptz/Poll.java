@@ -0,0 +1,21 @@
+package com.jyl.isapi.ptz;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 测试用：轮询等待条件成立，超时抛 AssertionError
+ */
+final class Poll {
+    private Poll() {
+    }
+
+    static void until(long timeoutMs, Callable<Boolean> condition) throws Exception {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000;
+        while (!Boolean.TRUE.equals(condition.call())) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not met within " + timeoutMs + " ms");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import com.jyl.isapi.config.PtzProperties;
+import com.jyl.isapi.sim.SimCameraOptions;
+import com.jyl.isapi.sim.SimulatedCamera;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * 测试用：N 台模拟相机 sim-0..sim-(N-1) + 连到它们的 CameraRegistry
+ */
+final class SimFleet implements AutoCloseable {
+    final List<SimulatedCamera> sims = new ArrayList<>();
+    final FleetProperties fleet;
+    final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    final CameraRegistry registry;
+
+    SimFleet(int cameras, Consumer<SimCameraOptions> options, FleetProperties fleet,
+             List<PtzCommandListener> listeners) throws IOException {
+        this.fleet = fleet;
+        for (int i = 0; i < cameras; i++) {
+            SimCameraOptions o = new SimCameraOptions();
+            o.setLatencyMs(0);
+            options.accept(o);
+            SimulatedCamera sim = new SimulatedCamera(o);
+            sims.add(sim);
+            fleet.getCameras().put("sim-" + i,
+                    new PtzProperties("http", "127.0.0.1", sim.port(), o.getUsername(), o.getPassword(), 1, null, null));
+        }
+        this.registry = new CameraRegistry(new PtzProperties(), fleet, executor, listeners, meters);
+    }
+
+    SimFleet(int cameras, Consumer<SimCameraOptions> options) throws IOException {
+        this(cameras, options, new FleetProperties(), List.of());
+    }
+
+    PtzIsapiClient client(int i) {
+        return registry.client("sim-" + i);
+    }
+
+    SimulatedCamera sim(int i) {
+        return sims.get(i);
+    }
+
+    @Override
+    public void close() throws IOException {
+        registry.destroy();
+        executor.shutdownNow();
+        sims.forEach(SimulatedCamera::close);
+    }
+}
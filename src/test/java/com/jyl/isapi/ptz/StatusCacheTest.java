@@ -0,0 +1,107 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatusCacheTest {
+
+    private static FleetProperties fleet(long ttlMs) {
+        FleetProperties fleet = new FleetProperties();
+        fleet.setStatusCacheTtlMs(ttlMs);
+        return fleet;
+    }
+
+    @Test
+    void concurrentMissesShareOneDeviceRequest() throws Exception {
+        FleetProperties fleet = fleet(10_000);
+        StatusCache cache = new StatusCache(fleet);
+        try (SimFleet f = new SimFleet(1, o -> o.setLatencyMs(200), fleet, List.of(cache))) {
+            PtzIsapiClient c = f.client(0);
+            c.readStatus(1); // 先完成 Digest 质询，之后每次读取只有一个设备请求
+            long before = (long) f.sim(0).stats().get("requests");
+
+            List<CompletableFuture<PtzStatus>> all = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                all.add(cache.getParsed(c, 1));
+            }
+            PtzStatus first = all.get(0).get(5, TimeUnit.SECONDS);
+            for (CompletableFuture<PtzStatus> s : all) {
+                assertThat(s.get(5, TimeUnit.SECONDS)).isEqualTo(first);
+            }
+            assertThat(cache.stats()).containsEntry("misses", 1L).containsEntry("coalesced", 19L);
+            assertThat((long) f.sim(0).stats().get("requests") - before).isEqualTo(1);
+
+            assertThat(cache.getParsed(c, 1).getNow(null)).isEqualTo(first);
+            assertThat(cache.stats()).containsEntry("hits", 1L);
+        }
+    }
+
+    @Test
+    void readStartedBeforeMotionIsNotCached() throws Exception {
+        FleetProperties fleet = fleet(10_000);
+        StatusCache cache = new StatusCache(fleet);
+        try (SimFleet f = new SimFleet(1, o -> o.setLatencyMs(200), fleet, List.of(cache))) {
+            PtzIsapiClient c = f.client(0);
+            c.refreshCapabilities(1);
+
+            CompletableFuture<PtzStatus> stale = cache.getParsed(c, 1);
+            Thread.sleep(50);
+            // 读取还在路上时下发运动命令：旧结果照常返回给等待者，但不写入缓存
+            c.absoluteMoveDegrees(1, 30.0, 10.0, null);
+            stale.get(5, TimeUnit.SECONDS);
+            assertThat(cache.stats().get("invalidations")).isGreaterThanOrEqualTo(1L);
+
+            cache.getParsed(c, 1).get(5, TimeUnit.SECONDS);
+            assertThat(cache.stats()).containsEntry("misses", 2L).containsEntry("hits", 0L);
+            cache.getParsed(c, 1).get(5, TimeUnit.SECONDS);
+            assertThat(cache.stats()).containsEntry("misses", 2L).containsEntry("hits", 1L);
+        }
+    }
+
+    @Test
+    void invalidateDropsInflightSoNextReaderLoadsAgain() throws Exception {
+        FleetProperties fleet = fleet(10_000);
+        StatusCache cache = new StatusCache(fleet);
+        try (SimFleet f = new SimFleet(1, o -> o.setLatencyMs(200), fleet, List.of(cache))) {
+            PtzIsapiClient c = f.client(0);
+            c.readStatus(1);
+
+            CompletableFuture<String> before = cache.get(c, 1);
+            cache.onCommand("sim-0", 1, PtzOperation.STOP);
+            CompletableFuture<String> after = cache.get(c, 1);
+
+            assertThat(after).isNotSameAs(before);
+            before.get(5, TimeUnit.SECONDS);
+            after.get(5, TimeUnit.SECONDS);
+            assertThat(cache.stats()).containsEntry("misses", 2L).containsEntry("coalesced", 0L);
+        }
+    }
+
+    @Test
+    void readOnlyOperationsDoNotInvalidate() {
+        StatusCache cache = new StatusCache(fleet(250));
+        cache.onCommand("sim-0", 1, PtzOperation.STATUS);
+        cache.onCommand("sim-0", 1, PtzOperation.PARK_SET);
+        assertThat(cache.stats()).containsEntry("invalidations", 0L);
+    }
+
+    @Test
+    void entriesExpireAfterTtl() throws Exception {
+        FleetProperties fleet = fleet(100);
+        StatusCache cache = new StatusCache(fleet);
+        try (SimFleet f = new SimFleet(1, o -> { }, fleet, List.of(cache))) {
+            PtzIsapiClient c = f.client(0);
+            cache.get(c, 1).get(5, TimeUnit.SECONDS);
+            Thread.sleep(150);
+            cache.get(c, 1).get(5, TimeUnit.SECONDS);
+            assertThat(cache.stats()).containsEntry("misses", 2L).containsEntry("hits", 0L);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.jyl.isapi.ptz;
+
+import com.jyl.isapi.config.FleetProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TourEngineTest {
+
+    private static FleetProperties fleet() {
+        FleetProperties fleet = new FleetProperties();
+        fleet.setTourTickMs(10);
+        fleet.setTourResumeIdleMs(60_000);
+        return fleet;
+    }
+
+    private static Map<String, Object> lane(PtzIsapiClient c) {
+        return c.schedulerStats().getOrDefault(1, Map.of());
+    }
+
+    private static TourEngine.TourStats stats(TourEngine tours) {
+        return tours.stats().get(0);
+    }
+
+    @Test
+    void manualMovePausesTheTourAndTourGotosDoNot() throws Exception {
+        FleetProperties fleet = fleet();
+        TourEngine tours = new TourEngine(Runnable::run, fleet);
+        try (SimFleet f = new SimFleet(1, o -> { }, fleet, List.of(tours))) {
+            PtzIsapiClient c = f.client(0);
+            tours.start(c, 1, List.of(new TourStep(1, 60_000), new TourStep(2, 60_000)), false);
+            Poll.until(5_000, () -> stats(tours).moves() == 1);
+            assertThat(stats(tours).state()).isEqualTo(TourEngine.State.RUNNING);
+            assertThat(stats(tours).pauses()).isZero();
+
+            c.absoluteMoveDegrees(1, 90.0, 10.0, null);
+            assertThat(stats(tours).state()).isEqualTo(TourEngine.State.PAUSED);
+            assertThat(stats(tours).pauses()).isEqualTo(1);
+        } finally {
+            tours.destroy();
+        }
+    }
+
+    @Test
+    void supersededStepPausesEvenWhenTheManualMoveNeverRuns() throws Exception {
+        FleetProperties fleet = fleet();
+        fleet.setCommandQueueTimeoutMs(200);
+        TourEngine tours = new TourEngine(r -> Thread.ofVirtual().start(r), fleet);
+        try (SimFleet f = new SimFleet(1, o -> o.setLatencyMs(800), fleet, List.of(tours))) {
+            PtzIsapiClient c = f.client(0);
+            c.refreshCapabilities(1);
+
+            // 通道被一次慢的配置写入占住，巡航的 goto 排在它后面
+            CompletableFuture<Void> config = CompletableFuture.runAsync(() -> {
+                try {
+                    c.setParkAction(1, false, 30, "preset", 1);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }, f.executor);
+            Poll.until(2_000, () -> Boolean.TRUE.equals(lane(c).get("busy")));
+            tours.start(c, 1, List.of(new TourStep(1, 60_000)), false);
+            Poll.until(2_000, () -> Integer.valueOf(1).equals(lane(c).get("queued")));
+
+            // 人工命令取代排队中的 goto，自己又排队超时：不会下发，也不会有命令通知
+            assertThatThrownBy(() -> c.absoluteMoveDegrees(1, 90.0, 10.0, null)).isInstanceOf(PtzBusyException.class);
+            Poll.until(2_000, () -> stats(tours).state() == TourEngine.State.PAUSED);
+            assertThat(stats(tours).pauses()).isEqualTo(1);
+            assertThat(stats(tours).resumeInMs()).isGreaterThan(50_000);
+            config.join();
+        } finally {
+            tours.destroy();
+        }
+    }
+}
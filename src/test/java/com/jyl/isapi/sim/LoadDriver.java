@@ -0,0 +1,274 @@
+package com.jyl.isapi.sim;
+
+import com.jyl.isapi.config.FleetProperties;
+import com.jyl.isapi.config.PtzProperties;
+import com.jyl.isapi.ptz.CameraRegistry;
+import com.jyl.isapi.ptz.PtzBusyException;
+import com.jyl.isapi.ptz.PtzIsapiClient;
+import com.jyl.isapi.ptz.PtzSupersededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测驱动：启动 N 台 {@link SimulatedCamera}，经 {@link CameraRegistry}（与线上相同的共享连接池、
+ * Digest 预认证、写法协商）并发下发混合命令，输出每种命令的吞吐与 p50/p90/p99 延迟。
+ * 默认不写命令黑匣子，--flight-recorder=文件 时开启（可用来比较记录开销）。
+ * 多个工作线程会同时打到同一通道：被更新的运动命令取代（superseded）与通道队列满/排队超时（busy）
+ * 是调度器的正常结果，单独计数，不算错误，也不计入延迟。
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jyl.isapi.sim.LoadDriver \
+ *     -Dexec.args="--cameras=50 --concurrency=200 --seconds=30 --latency=20 --error-rate=0.01 --firmware=MIXED"
+ * </pre>
+ */
+public class LoadDriver {
+
+    enum Op {
+        STATUS(40), PRESET(20), ABSOLUTE(20), CONTINUOUS(10), STOP(10);
+
+        final int weight;
+
+        Op(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    enum Result {
+        OK, SUPERSEDED, BUSY, ERROR
+    }
+
+    /**
+     * 每个工作线程自己的延迟记录，结束后合并，压测期间没有共享写
+     */
+    private static final class Recorder {
+        final Map<Op, long[]> nanos = new EnumMap<>(Op.class);
+        final Map<Op, Integer> counts = new EnumMap<>(Op.class);
+        final Map<Op, Integer> superseded = new EnumMap<>(Op.class);
+        final Map<Op, Integer> busy = new EnumMap<>(Op.class);
+        final Map<Op, Integer> errors = new EnumMap<>(Op.class);
+
+        void record(Op op, long ns, Result result) {
+            switch (result) {
+                case SUPERSEDED -> superseded.merge(op, 1, Integer::sum);
+                case BUSY -> busy.merge(op, 1, Integer::sum);
+                case ERROR -> errors.merge(op, 1, Integer::sum);
+                case OK -> ok(op, ns);
+            }
+        }
+
+        private void ok(Op op, long ns) {
+            long[] a = nanos.computeIfAbsent(op, k -> new long[1024]);
+            int n = counts.getOrDefault(op, 0);
+            if (n == a.length) {
+                a = Arrays.copyOf(a, n * 2);
+                nanos.put(op, a);
+            }
+            a[n] = ns;
+            counts.put(op, n + 1);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> a = parseArgs(args);
+        int cameras = Integer.parseInt(a.getOrDefault("cameras", "20"));
+        int concurrency = Integer.parseInt(a.getOrDefault("concurrency", "64"));
+        int seconds = Integer.parseInt(a.getOrDefault("seconds", "20"));
+        int warmup = Integer.parseInt(a.getOrDefault("warmup", "3"));
+        String firmware = a.getOrDefault("firmware", "STANDARD").toUpperCase(Locale.ROOT);
+
+        List<SimulatedCamera> sims = new ArrayList<>();
+        FleetProperties fleet = new FleetProperties();
+        fleet.setMaxPerRoute(Integer.parseInt(a.getOrDefault("max-per-route", String.valueOf(fleet.getMaxPerRoute()))));
+        fleet.setFlightRecorderFile(a.getOrDefault("flight-recorder", ""));
+        SimCameraOptions.Firmware[] firmwares = SimCameraOptions.Firmware.values();
+        for (int i = 0; i < cameras; i++) {
+            SimCameraOptions o = new SimCameraOptions();
+            o.setLatencyMs(Long.parseLong(a.getOrDefault("latency", "5")));
+            o.setLatencyJitterMs(Long.parseLong(a.getOrDefault("jitter", "0")));
+            o.setErrorRate(Double.parseDouble(a.getOrDefault("error-rate", "0")));
+            o.setDigest(!"false".equals(a.get("digest")));
+            o.setFirmware("MIXED".equals(firmware) ? firmwares[i % firmwares.length]
+                    : SimCameraOptions.Firmware.valueOf(firmware));
+            SimulatedCamera sim = new SimulatedCamera(o);
+            sims.add(sim);
+            fleet.getCameras().put("sim-" + i,
+                    new PtzProperties("http", "127.0.0.1", sim.port(), o.getUsername(), o.getPassword(), 1, null, null));
+        }
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        CameraRegistry registry = new CameraRegistry(new PtzProperties(), fleet, executor, List.of(), meters);
+        List<PtzIsapiClient> clients = new ArrayList<>(registry.clients().values());
+        System.out.printf("%d simulated cameras (%s), concurrency %d, maxPerRoute %d, warmup %ds, run %ds%n",
+                cameras, firmware, concurrency, fleet.getMaxPerRoute(), warmup, seconds);
+
+        if (warmup > 0) {
+            run(clients, concurrency, warmup);
+        }
+        long start = System.nanoTime();
+        List<Recorder> recorders = run(clients, concurrency, seconds);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        report(recorders, elapsed);
+
+        Map<String, Long> simTotals = new HashMap<>();
+        for (SimulatedCamera sim : sims) {
+            sim.stats().forEach((k, v) -> {
+                if (v instanceof Long l) {
+                    simTotals.merge(k, l, Long::sum);
+                }
+            });
+        }
+        System.out.println("simulator: " + simTotals);
+        System.out.printf(Locale.ROOT, "client: mean lease %.2f ms, mean device %.2f ms, dialect fallbacks %.0f%n",
+                meanMs(meters, "isapi.connection.lease"), meanMs(meters, "isapi.device"),
+                meters.find("isapi.dialect.fallbacks").counters().stream().mapToDouble(Counter::count).sum());
+
+        registry.destroy();
+        executor.shutdownNow();
+        sims.forEach(SimulatedCamera::close);
+    }
+
+    private static List<Recorder> run(List<PtzIsapiClient> clients, int concurrency, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Recorder> recorders = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Recorder rec = new Recorder();
+            recorders.add(rec);
+            workers.add(Thread.ofVirtual().name("load-", i).start(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    PtzIsapiClient c = clients.get(rnd.nextInt(clients.size()));
+                    Op op = pick(rnd);
+                    long t0 = System.nanoTime();
+                    Result result = Result.OK;
+                    try {
+                        call(c, op, rnd);
+                    } catch (PtzSupersededException e) {
+                        result = Result.SUPERSEDED;
+                    } catch (PtzBusyException e) {
+                        result = Result.BUSY;
+                    } catch (Exception e) {
+                        result = Result.ERROR;
+                    }
+                    rec.record(op, System.nanoTime() - t0, result);
+                }
+            }));
+        }
+        for (Thread t : workers) {
+            t.join();
+        }
+        return recorders;
+    }
+
+    private static Op pick(ThreadLocalRandom rnd) {
+        int r = rnd.nextInt(100);
+        for (Op op : Op.values()) {
+            r -= op.weight;
+            if (r < 0) {
+                return op;
+            }
+        }
+        return Op.STATUS;
+    }
+
+    private static void call(PtzIsapiClient c, Op op, ThreadLocalRandom rnd) throws Exception {
+        int ch = c.getProps().getChannel();
+        switch (op) {
+            case STATUS -> c.readStatus(ch);
+            case PRESET -> c.gotoPreset(ch, 1 + rnd.nextInt(200));
+            case ABSOLUTE -> c.absoluteMoveDegrees(ch, rnd.nextDouble(0, 360), rnd.nextDouble(0, 90), 10 + rnd.nextInt(100));
+            // continuous 速度是 -100..100 的整数刻度
+            case CONTINUOUS -> c.continuousMove(ch, rnd.nextInt(-100, 101), rnd.nextInt(-100, 101), 0, 500);
+            case STOP -> c.stop(ch);
+        }
+    }
+
+    private static void report(List<Recorder> recorders, double elapsedSec) {
+        System.out.printf("%-11s %9s %10s %7s %7s %10s %9s %9s %9s %9s%n",
+                "op", "ok", "superseded", "busy", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        long totalOk = 0, totalSuperseded = 0, totalBusy = 0, totalErr = 0;
+        List<long[]> all = new ArrayList<>();
+        for (Op op : Op.values()) {
+            int n = 0, sup = 0, busy = 0, err = 0;
+            for (Recorder r : recorders) {
+                n += r.counts.getOrDefault(op, 0);
+                sup += r.superseded.getOrDefault(op, 0);
+                busy += r.busy.getOrDefault(op, 0);
+                err += r.errors.getOrDefault(op, 0);
+            }
+            long[] merged = new long[n];
+            int off = 0;
+            for (Recorder r : recorders) {
+                int c = r.counts.getOrDefault(op, 0);
+                if (c > 0) {
+                    System.arraycopy(r.nanos.get(op), 0, merged, off, c);
+                    off += c;
+                }
+            }
+            all.add(merged);
+            printRow(op.name(), merged, sup, busy, err, elapsedSec);
+            totalOk += n;
+            totalSuperseded += sup;
+            totalBusy += busy;
+            totalErr += err;
+        }
+        long[] total = new long[(int) totalOk];
+        int off = 0;
+        for (long[] m : all) {
+            System.arraycopy(m, 0, total, off, m.length);
+            off += m.length;
+        }
+        printRow("TOTAL", total, totalSuperseded, totalBusy, totalErr, elapsedSec);
+    }
+
+    private static void printRow(String name, long[] nanos, long superseded, long busy, long errors, double elapsedSec) {
+        Arrays.sort(nanos);
+        System.out.printf(Locale.ROOT, "%-11s %9d %10d %7d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                name, nanos.length, superseded, busy, errors, nanos.length / elapsedSec,
+                percentile(nanos, 0.50), percentile(nanos, 0.90), percentile(nanos, 0.99),
+                nanos.length == 0 ? 0 : nanos[nanos.length - 1] / 1e6);
+    }
+
+    private static double meanMs(SimpleMeterRegistry meters, String name) {
+        double total = 0;
+        long count = 0;
+        for (Timer t : meters.find(name).timers()) {
+            total += t.totalTime(TimeUnit.MILLISECONDS);
+            count += t.count();
+        }
+        return count == 0 ? 0 : total / count;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1e6;
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("expected --key=value: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            out.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        return out;
+    }
+}
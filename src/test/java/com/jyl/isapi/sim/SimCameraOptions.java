@@ -0,0 +1,89 @@
+package com.jyl.isapi.sim;
+
+import lombok.Data;
+
+/**
+ * 模拟相机参数：认证、响应延迟、故障注入、固件写法与云台运动速度
+ */
+@Data
+public class SimCameraOptions {
+    private String username = "admin";
+    private String password = "abcd1234";
+    private String realm = "IP Camera(SIM)";
+    /**
+     * false 时不校验 Digest，直接放行
+     */
+    private boolean digest = true;
+    /**
+     * nonce 有效期（毫秒），过期后返回 stale=true 的 401
+     */
+    private long nonceTtlMs = 60_000;
+    private int channels = 1;
+    /**
+     * 每个请求的固定延迟 + [0, jitter) 的随机抖动（毫秒）
+     */
+    private long latencyMs = 5;
+    private long latencyJitterMs = 0;
+    /**
+     * 随机返回 500 的比例（0~1）
+     */
+    private double errorRate = 0;
+    private Firmware firmware = Firmware.STANDARD;
+    /**
+     * 最大转速：水平/垂直（度/秒）、变倍（倍率刻度/秒）
+     */
+    private double panSpeed = 120;
+    private double tiltSpeed = 60;
+    private double zoomSpeed = 20;
+    private int maxPresetNum = 256;
+    /**
+     * alertStream 推送事件的间隔（毫秒）
+     */
+    private long alertIntervalMs = 1_000;
+
+    /**
+     * 固件写法差异，对应客户端的 {@link com.jyl.isapi.ptz.PtzDialect}
+     */
+    public enum Firmware {
+        /**
+         * PUT /stop、/absolute（AbsoluteHigh）
+         */
+        STANDARD(true, false, true, false),
+        /**
+         * 只认 POST /stop 和 /absoluteEx
+         */
+        LEGACY(false, true, false, true),
+        /**
+         * 没有 /stop，只能 0 速度连续移动停止；/absolute 与 /absoluteEx 都支持
+         */
+        MINIMAL(false, false, true, true);
+
+        private final boolean putStop;
+        private final boolean postStop;
+        private final boolean absoluteHigh;
+        private final boolean absoluteEx;
+
+        Firmware(boolean putStop, boolean postStop, boolean absoluteHigh, boolean absoluteEx) {
+            this.putStop = putStop;
+            this.postStop = postStop;
+            this.absoluteHigh = absoluteHigh;
+            this.absoluteEx = absoluteEx;
+        }
+
+        public boolean isPutStop() {
+            return putStop;
+        }
+
+        public boolean isPostStop() {
+            return postStop;
+        }
+
+        public boolean isAbsoluteHigh() {
+            return absoluteHigh;
+        }
+
+        public boolean isAbsoluteEx() {
+            return absoluteEx;
+        }
+    }
+}
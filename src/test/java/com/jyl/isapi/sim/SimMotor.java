@@ -0,0 +1,140 @@
+package com.jyl.isapi.sim;
+
+/**
+ * 单个通道的云台运动模型：按最大转速向目标位置移动，或按连续移动速度匀速转动到超时。
+ * 位置在读取/下发命令时按经过的时间推进，不需要后台线程。
+ */
+class SimMotor {
+    static final double TILT_MIN = -5, TILT_MAX = 90;
+    static final int ZOOM_MIN = 10, ZOOM_MAX = 320;
+
+    private final SimCameraOptions opts;
+    private double azimuth;
+    private double elevation;
+    private double zoom = ZOOM_MIN;
+    // 绝对移动目标；null 表示无
+    private double[] target;
+    // 连续移动速度（-100~100）与截止时间
+    private double vPan, vTilt, vZoom;
+    private long continuousUntil;
+    private long lastNanos = System.nanoTime();
+
+    private boolean parkEnabled;
+    private int parkTime = 60;
+    private String parkActionType = "preset";
+    private int parkActionNum = 1;
+
+    SimMotor(SimCameraOptions opts) {
+        this.opts = opts;
+    }
+
+    synchronized double[] position() {
+        advance();
+        return new double[]{azimuth, elevation, zoom};
+    }
+
+    synchronized boolean isMoving() {
+        advance();
+        return target != null || continuousUntil != 0;
+    }
+
+    synchronized void moveTo(Double az, Double el, Double z) {
+        advance();
+        continuousUntil = 0;
+        target = new double[]{
+                az != null ? wrap(az) : azimuth,
+                el != null ? clamp(el, TILT_MIN, TILT_MAX) : elevation,
+                z != null ? clamp(z, ZOOM_MIN, ZOOM_MAX) : zoom
+        };
+    }
+
+    synchronized void continuous(double pan, double tilt, double z, long timeoutMs) {
+        advance();
+        target = null;
+        if (pan == 0 && tilt == 0 && z == 0) {
+            continuousUntil = 0;
+            return;
+        }
+        vPan = pan;
+        vTilt = tilt;
+        vZoom = z;
+        continuousUntil = System.nanoTime() + Math.max(1, timeoutMs) * 1_000_000L;
+    }
+
+    synchronized void stop() {
+        advance();
+        target = null;
+        continuousUntil = 0;
+    }
+
+    /**
+     * 预置位 n 的位置是固定的伪随机点
+     */
+    void gotoPreset(int n) {
+        moveTo((n * 37.0) % 360, (n * 13.0) % 60, (double) (ZOOM_MIN + (n * 7) % 60));
+    }
+
+    /**
+     * 3D 定位：框中心转到画面中心，按框大小放大（EndPoint 在 StartPoint 左上时缩小）
+     */
+    synchronized void position3D(int x1, int y1, int x2, int y2) {
+        advance();
+        double hfov = 60.0 * ZOOM_MIN / zoom, vfov = hfov * 9 / 16;
+        double cx = (x1 + x2) / 2.0 / 255.0 - 0.5, cy = (y1 + y2) / 2.0 / 255.0 - 0.5;
+        double w = Math.max(1, Math.abs(x2 - x1)) / 255.0;
+        double factor = x2 >= x1 ? 1 / w : w;
+        moveTo(azimuth + cx * hfov, elevation + cy * vfov, zoom * factor);
+    }
+
+    synchronized void setParkAction(boolean enabled, int parkTime, String actionType, int actionNum) {
+        this.parkEnabled = enabled;
+        this.parkTime = parkTime;
+        this.parkActionType = actionType;
+        this.parkActionNum = actionNum;
+    }
+
+    synchronized String parkActionXml() {
+        return "<ParkAction version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">"
+                + "<enabled>" + parkEnabled + "</enabled><Parktime>" + parkTime + "</Parktime>"
+                + "<Action><ActionType>" + parkActionType + "</ActionType><ActionNum>" + parkActionNum
+                + "</ActionNum></Action></ParkAction>";
+    }
+
+    private void advance() {
+        long now = System.nanoTime();
+        double dt = (now - lastNanos) / 1e9;
+        lastNanos = now;
+        if (continuousUntil != 0) {
+            double t = dt;
+            if (now >= continuousUntil) {
+                t = Math.max(0, dt - (now - continuousUntil) / 1e9);
+                continuousUntil = 0;
+            }
+            azimuth = wrap(azimuth + vPan / 100 * opts.getPanSpeed() * t);
+            elevation = clamp(elevation + vTilt / 100 * opts.getTiltSpeed() * t, TILT_MIN, TILT_MAX);
+            zoom = clamp(zoom + vZoom / 100 * opts.getZoomSpeed() * t, ZOOM_MIN, ZOOM_MAX);
+        } else if (target != null) {
+            double dAz = ((target[0] - azimuth) % 360 + 540) % 360 - 180; // 最短路径
+            azimuth = wrap(azimuth + step(dAz, opts.getPanSpeed() * dt));
+            elevation += step(target[1] - elevation, opts.getTiltSpeed() * dt);
+            zoom += step(target[2] - zoom, opts.getZoomSpeed() * dt);
+            if (Math.abs(((target[0] - azimuth) % 360 + 540) % 360 - 180) < 1e-6
+                    && Math.abs(target[1] - elevation) < 1e-6 && Math.abs(target[2] - zoom) < 1e-6) {
+                target = null;
+            }
+        }
+    }
+
+    private static double step(double delta, double max) {
+        return Math.abs(delta) <= max ? delta : Math.copySign(max, delta);
+    }
+
+    private static double wrap(double deg) {
+        double d = deg % 360;
+        return d < 0 ? d + 360 : d;
+    }
+
+    private static double clamp(double v, double min, double max) {
+        return Math.max(min, Math.min(max, v));
+    }
+}
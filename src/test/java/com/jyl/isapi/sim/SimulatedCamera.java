@@ -0,0 +1,460 @@
+package com.jyl.isapi.sim;
+
+import com.jyl.isapi.ptz.DigestAuth;
+import com.jyl.isapi.ptz.IsapiXml;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地模拟的海康球机：实现本项目用到的 /ISAPI/PTZCtrl 接口，带 Digest 认证、云台运动模型、
+ * 响应延迟、随机故障与固件写法差异（见 {@link SimCameraOptions.Firmware}），用于压测与联调。
+ */
+public class SimulatedCamera implements AutoCloseable {
+    private static final Pattern CHANNEL_PATH = Pattern.compile("/ISAPI/PTZCtrl/channels/(\\d+)(/.*)?");
+    private static final Pattern PRESET_PATH = Pattern.compile("/presets/(\\d+)/goto");
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final HexFormat HEX = HexFormat.of();
+
+    static {
+        // JDK HttpServer 默认开启 Nagle，头和体分两次写会撞上延迟 ACK（约 40ms）
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final SimCameraOptions opts;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Integer, SimMotor> motors = new HashMap<>();
+    private final Map<String, Long> nonces = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder challenges = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder dialectRejects = new LongAdder();
+
+    public SimulatedCamera(SimCameraOptions opts) throws IOException {
+        this(opts, 0);
+    }
+
+    /**
+     * @param port 0 表示随机端口
+     */
+    public SimulatedCamera(SimCameraOptions opts, int port) throws IOException {
+        this.opts = opts;
+        for (int ch = 1; ch <= opts.getChannels(); ch++) {
+            motors.put(ch, new SimMotor(opts));
+        }
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.createContext("/ISAPI/PTZCtrl/", this::handle);
+        server.createContext("/ISAPI/Event/notification/alertStream", this::alertStream);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public SimCameraOptions options() {
+        return opts;
+    }
+
+    /**
+     * 当前位置（方位角°, 俯仰角°, 变倍），不存在的通道返回 null
+     */
+    public double[] position(int channel) {
+        SimMotor m = motors.get(channel);
+        return m == null ? null : m.position();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("port", port());
+        m.put("firmware", opts.getFirmware());
+        m.put("requests", requests.sum());
+        m.put("challenges", challenges.sum());
+        m.put("injectedErrors", injectedErrors.sum());
+        m.put("dialectRejects", dialectRejects.sum());
+        return m;
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            requests.increment();
+            byte[] body;
+            try (InputStream in = ex.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            sleepLatency();
+            if (opts.isDigest() && !authorized(ex)) {
+                return;
+            }
+            if (opts.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < opts.getErrorRate()) {
+                injectedErrors.increment();
+                respond(ex, 500, responseStatus(6, "Device Error"));
+                return;
+            }
+            route(ex, body);
+        }
+    }
+
+    private void route(HttpExchange ex, byte[] body) throws IOException {
+        String method = ex.getRequestMethod();
+        String path = ex.getRequestURI().getPath();
+        if ("/ISAPI/PTZCtrl/channels".equals(path) && "GET".equals(method)) {
+            respond(ex, 200, channelsXml());
+            return;
+        }
+        Matcher m = CHANNEL_PATH.matcher(path);
+        SimMotor motor = m.matches() ? motors.get(Integer.parseInt(m.group(1))) : null;
+        if (motor == null) {
+            respond(ex, 404, responseStatus(4, "Invalid Operation"));
+            return;
+        }
+        String sub = m.group(2) == null ? "" : m.group(2);
+        Matcher preset = PRESET_PATH.matcher(sub);
+        SimCameraOptions.Firmware fw = opts.getFirmware();
+        switch (method + " " + sub) {
+            case "GET /status" -> respond(ex, 200, statusXml(motor));
+            case "GET /capabilities" -> respond(ex, 200, capabilitiesXml());
+            case "GET /parkAction" -> respond(ex, 200, motor.parkActionXml());
+            case "PUT /parkAction" -> {
+                Map<String, String> f = fields(body);
+                motor.setParkAction("true".equalsIgnoreCase(f.get("enabled")), intField(f, "Parktime", 0),
+                        f.getOrDefault("ActionType", "preset"), intField(f, "ActionNum", 0));
+                ok(ex);
+            }
+            case "PUT /absolute" -> {
+                if (!fw.isAbsoluteHigh()) {
+                    reject(ex);
+                    return;
+                }
+                Map<String, String> f = fields(body);
+                motor.moveTo(tenths(f.get("azimuth")), tenths(f.get("elevation")), number(f.get("absoluteZoom")));
+                ok(ex);
+            }
+            case "PUT /absoluteEx" -> {
+                if (!fw.isAbsoluteEx()) {
+                    reject(ex);
+                    return;
+                }
+                Map<String, String> f = fields(body);
+                motor.moveTo(number(f.get("azimuth")), number(f.get("elevation")), number(f.get("absoluteZoom")));
+                ok(ex);
+            }
+            case "PUT /continuous" -> {
+                Map<String, String> f = fields(body);
+                motor.continuous(intField(f, "pan", 0), intField(f, "tilt", 0), intField(f, "zoom", 0),
+                        intField(f, "timeout", 1000));
+                ok(ex);
+            }
+            case "PUT /stop", "POST /stop" -> {
+                if ("PUT".equals(method) ? !fw.isPutStop() : !fw.isPostStop()) {
+                    reject(ex);
+                    return;
+                }
+                motor.stop();
+                ok(ex);
+            }
+            case "PUT /position3D" -> {
+                Map<String, String> f = positionFields(body);
+                motor.position3D(intField(f, "StartPoint/positionX", 0), intField(f, "StartPoint/positionY", 0),
+                        intField(f, "EndPoint/positionX", 0), intField(f, "EndPoint/positionY", 0));
+                ok(ex);
+            }
+            default -> {
+                if (preset.matches() && "PUT".equals(method)) {
+                    int n = Integer.parseInt(preset.group(1));
+                    if (n < 1 || n > opts.getMaxPresetNum()) {
+                        respond(ex, 400, responseStatus(4, "Invalid Operation"));
+                        return;
+                    }
+                    motor.gotoPreset(n);
+                    ok(ex);
+                } else {
+                    reject(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * multipart/mixed 长连接：每 alertIntervalMs 推一条事件，videoloss/inactive 心跳为主，间或 VMD/active；
+     * VMD 的 part 不带 Content-Length（模拟个别固件）
+     */
+    private void alertStream(HttpExchange ex) throws IOException {
+        try (ex) {
+            requests.increment();
+            ex.getRequestBody().readAllBytes();
+            if (opts.isDigest() && !authorized(ex)) {
+                return;
+            }
+            ex.getResponseHeaders().set("Content-Type", "multipart/mixed; boundary=boundary");
+            ex.sendResponseHeaders(200, 0);
+            OutputStream out = ex.getResponseBody();
+            long n = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean motion = ++n % 3 == 0;
+                String xml = alertXml(motion ? "VMD" : "videoloss", motion ? "active" : "inactive",
+                        motion ? "Motion alarm" : "videoloss alarm", n);
+                byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+                String head = "--boundary\r\nContent-Type: application/xml; charset=\"UTF-8\"\r\n"
+                        + (motion ? "" : "Content-Length: " + body.length + "\r\n") + "\r\n";
+                out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+                out.write(body);
+                out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                out.flush();
+                try {
+                    Thread.sleep(opts.getAlertIntervalMs());
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // 客户端断开
+        }
+    }
+
+    private static String alertXml(String type, String state, String description, long count) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+                + "<EventNotificationAlert version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">\r\n"
+                + "<ipAddress>127.0.0.1</ipAddress><portNo>80</portNo><protocol>HTTP</protocol>"
+                + "<channelID>1</channelID><dateTime>" + java.time.OffsetDateTime.now() + "</dateTime>"
+                + "<activePostCount>" + count + "</activePostCount><eventType>" + type + "</eventType>"
+                + "<eventState>" + state + "</eventState><eventDescription>" + description + "</eventDescription>\r\n"
+                + "</EventNotificationAlert>";
+    }
+
+    // ---------------- Digest ----------------
+
+    /**
+     * 校验 Digest（MD5, qop=auth）；失败时已写出 401 质询
+     */
+    private boolean authorized(HttpExchange ex) throws IOException {
+        String header = ex.getRequestHeaders().getFirst("Authorization");
+        boolean stale = false;
+        if (header != null && header.regionMatches(true, 0, "Digest ", 0, 7)) {
+            Map<String, String> p = DigestAuth.params(header.substring(7));
+            Long issued = nonces.get(String.valueOf(p.get("nonce")));
+            if (issued != null && System.currentTimeMillis() - issued > opts.getNonceTtlMs()) {
+                nonces.remove(p.get("nonce"));
+                issued = null;
+                stale = true;
+            }
+            if (issued != null && opts.getUsername().equals(p.get("username"))) {
+                String ha1 = md5(opts.getUsername() + ":" + opts.getRealm() + ":" + opts.getPassword());
+                String ha2 = md5(ex.getRequestMethod() + ":" + p.get("uri"));
+                String expected = "auth".equals(p.get("qop"))
+                        ? md5(ha1 + ":" + p.get("nonce") + ":" + p.get("nc") + ":" + p.get("cnonce") + ":auth:" + ha2)
+                        : md5(ha1 + ":" + p.get("nonce") + ":" + ha2);
+                if (expected.equalsIgnoreCase(p.get("response"))) {
+                    return true;
+                }
+            }
+        }
+        challenges.increment();
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        String nonce = HEX.formatHex(bytes);
+        long now = System.currentTimeMillis();
+        if (nonces.size() > 4096) {
+            nonces.values().removeIf(t -> now - t > opts.getNonceTtlMs());
+        }
+        nonces.put(nonce, now);
+        ex.getResponseHeaders().add("WWW-Authenticate", "Digest qop=\"auth\", realm=\"" + opts.getRealm()
+                + "\", nonce=\"" + nonce + "\", stale=\"" + (stale ? "TRUE" : "FALSE") + "\"");
+        respond(ex, 401, responseStatus(4, "Unauthorized"));
+        return false;
+    }
+
+    private static String md5(String s) {
+        try {
+            return HEX.formatHex(MessageDigest.getInstance("MD5").digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ---------------- 响应 ----------------
+
+    private void sleepLatency() {
+        long ms = opts.getLatencyMs();
+        if (opts.getLatencyJitterMs() > 0) {
+            ms += ThreadLocalRandom.current().nextLong(opts.getLatencyJitterMs());
+        }
+        if (ms > 0) {
+            try {
+                Thread.sleep(ms);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void ok(HttpExchange ex) throws IOException {
+        respond(ex, 200, responseStatus(1, "OK"));
+    }
+
+    /**
+     * 当前固件不认这种写法
+     */
+    private void reject(HttpExchange ex) throws IOException {
+        dialectRejects.increment();
+        respond(ex, 400, responseStatus(4, "Invalid Operation"));
+    }
+
+    private static void respond(HttpExchange ex, int code, String xml) throws IOException {
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/xml; charset=\"UTF-8\"");
+        ex.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String responseStatus(int code, String text) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<ResponseStatus version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">"
+                + "<requestURL></requestURL><statusCode>" + code + "</statusCode><statusString>" + text
+                + "</statusString><subStatusCode>" + (code == 1 ? "ok" : "invalidOperation") + "</subStatusCode>"
+                + "</ResponseStatus>";
+    }
+
+    private static String statusXml(SimMotor motor) {
+        double[] p = motor.position();
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<PTZStatus version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\"><AbsoluteHigh>"
+                + "<elevation>" + Math.round(p[1] * 10) + "</elevation>"
+                + "<azimuth>" + Math.round(p[0] * 10) + "</azimuth>"
+                + "<absoluteZoom>" + Math.round(p[2]) + "</absoluteZoom>"
+                + "</AbsoluteHigh></PTZStatus>";
+    }
+
+    private String channelsXml() {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<PTZChannelList version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">");
+        for (int ch = 1; ch <= opts.getChannels(); ch++) {
+            sb.append("<PTZChannel><id>").append(ch).append("</id><enabled>true</enabled><videoInputID>")
+                    .append(ch).append("</videoInputID></PTZChannel>");
+        }
+        return sb.append("</PTZChannelList>").toString();
+    }
+
+    private String capabilitiesXml() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<PTZChanelCap version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">"
+                + "<AbsolutePanTiltPositionSpace>"
+                + "<XRange><Min>0</Min><Max>3600</Max></XRange>"
+                + "<YRange><Min>" + Math.round(SimMotor.TILT_MIN * 10) + "</Min><Max>" + Math.round(SimMotor.TILT_MAX * 10) + "</Max></YRange>"
+                + "</AbsolutePanTiltPositionSpace>"
+                + "<AbsoluteZoomPositionSpace><ZRange><Min>" + SimMotor.ZOOM_MIN + "</Min><Max>" + SimMotor.ZOOM_MAX
+                + "</Max></ZRange></AbsoluteZoomPositionSpace>"
+                + "<ContinuousPanTiltSpace><XRange><Min>-100</Min><Max>100</Max></XRange>"
+                + "<YRange><Min>-100</Min><Max>100</Max></YRange></ContinuousPanTiltSpace>"
+                + "<ContinuousZoomSpace><ZRange><Min>-100</Min><Max>100</Max></ZRange></ContinuousZoomSpace>"
+                + "<maxPresetNum>" + opts.getMaxPresetNum() + "</maxPresetNum>"
+                + "</PTZChanelCap>";
+    }
+
+    // ---------------- 请求体 ----------------
+
+    /**
+     * 请求体中叶子元素的 本地名 -> 文本
+     */
+    private static Map<String, String> fields(byte[] body) throws IOException {
+        return body.length == 0 ? Map.of() : IsapiXml.parse(new ByteArrayInputStream(body), r -> leaves(r, false));
+    }
+
+    /**
+     * Position3D：StartPoint/EndPoint 下的 positionX/Y 同名，键带上父元素
+     */
+    private static Map<String, String> positionFields(byte[] body) throws IOException {
+        return body.length == 0 ? Map.of() : IsapiXml.parse(new ByteArrayInputStream(body), r -> leaves(r, true));
+    }
+
+    private static Map<String, String> leaves(XMLStreamReader r, boolean qualified) throws XMLStreamException {
+        Map<String, String> out = new HashMap<>();
+        Deque<String> path = new ArrayDeque<>();
+        StringBuilder text = new StringBuilder();
+        boolean leaf = false;
+        while (r.hasNext()) {
+            switch (r.next()) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    path.push(r.getLocalName());
+                    text.setLength(0);
+                    leaf = true;
+                }
+                case XMLStreamConstants.CHARACTERS -> text.append(r.getText());
+                case XMLStreamConstants.END_ELEMENT -> {
+                    String name = path.pop();
+                    if (leaf) {
+                        String parent = path.peek();
+                        out.put(qualified && parent != null ? parent + "/" + name : name, text.toString().trim());
+                    }
+                    leaf = false;
+                }
+                default -> {
+                }
+            }
+        }
+        return out;
+    }
+
+    private static int intField(Map<String, String> f, String key, int def) {
+        Double d = number(f.get(key));
+        return d == null ? def : (int) Math.round(d);
+    }
+
+    private static Double number(String s) {
+        if (s == null || s.isBlank()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(s.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double tenths(String s) {
+        Double d = number(s);
+        return d == null ? null : d / 10;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "SimulatedCamera[127.0.0.1:%d, %s]", port(), opts.getFirmware());
+    }
+}
@@ -0,0 +1,47 @@
+package com.jyl.isapi.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 只启动模拟相机（从 --port 起连续端口），并打印可直接粘贴到 application.yml 的 fleet.cameras 配置，
+ * 用于让正在运行的服务对着模拟相机联调。
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jyl.isapi.sim.SimulatorMain -Dexec.args="--cameras=4 --port=18080 --firmware=MIXED"
+ * </pre>
+ */
+public class SimulatorMain {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> a = LoadDriver.parseArgs(args);
+        int cameras = Integer.parseInt(a.getOrDefault("cameras", "4"));
+        int port = Integer.parseInt(a.getOrDefault("port", "18080"));
+        String firmware = a.getOrDefault("firmware", "STANDARD").toUpperCase(Locale.ROOT);
+        SimCameraOptions.Firmware[] firmwares = SimCameraOptions.Firmware.values();
+
+        List<SimulatedCamera> sims = new ArrayList<>();
+        StringBuilder yml = new StringBuilder("fleet:\n  cameras:\n");
+        for (int i = 0; i < cameras; i++) {
+            SimCameraOptions o = new SimCameraOptions();
+            o.setLatencyMs(Long.parseLong(a.getOrDefault("latency", "5")));
+            o.setLatencyJitterMs(Long.parseLong(a.getOrDefault("jitter", "0")));
+            o.setErrorRate(Double.parseDouble(a.getOrDefault("error-rate", "0")));
+            o.setChannels(Integer.parseInt(a.getOrDefault("channels", "1")));
+            o.setFirmware("MIXED".equals(firmware) ? firmwares[i % firmwares.length]
+                    : SimCameraOptions.Firmware.valueOf(firmware));
+            SimulatedCamera sim = new SimulatedCamera(o, port + i);
+            sims.add(sim);
+            yml.append("    sim-").append(i).append(":\n")
+                    .append("      host: 127.0.0.1\n")
+                    .append("      port: ").append(sim.port()).append('\n')
+                    .append("      username: ").append(o.getUsername()).append('\n')
+                    .append("      password: ").append(o.getPassword()).append('\n');
+        }
+        sims.forEach(s -> System.out.println("started " + s));
+        System.out.print(yml);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> sims.forEach(SimulatedCamera::close)));
+        Thread.currentThread().join();
+    }
+}